@@ -0,0 +1,205 @@
+package smallerbasic.AST;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.tree.ErrorNode;
+import org.antlr.v4.runtime.tree.ParseTreeListener;
+import org.antlr.v4.runtime.tree.TerminalNode;
+import org.jetbrains.annotations.NotNull;
+import smallerbasic.AST.nodes.*;
+import smallerbasic.SBGrammarParser;
+import smallerbasic.SBGrammarParser.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * A parse listener building the AST while {@link SBGrammarParser} parses, so that the parser does not need to build
+ * the parse tree (see {@link org.antlr.v4.runtime.Parser#setBuildParseTree(boolean)}).
+ * The AST built is equal to the one built by {@link ParseTreeToASTVisitorWithTokens} from the parse tree,
+ * start and end tokens included.
+ * <p>
+ * Every time the parser exits a rule, the AST node corresponding to the rule is built from the nodes of its
+ * sub-rules, which are on top of a stack, and is then pushed on it in their place.
+ * Rules that just wrap another one (e.g. a statement) only update the start and end tokens of the node on top.
+ * <p>
+ * Like the converter, this accepts only well-formed inputs: if the parser reports any error the result is undefined.
+ */
+public class ASTBuilderListener implements ParseTreeListener {
+    private final @NotNull TokenStream tokens;
+    private final @NotNull Deque<ASTNode> stack = new ArrayDeque<>();
+
+    /**
+     * The current scope, see {@link ParseTreeToASTVisitor}.
+     */
+    private @NotNull Scope currentScope = Scope.TOPLEVEL;
+
+    /**
+     * The names of the program being built.
+     */
+    private final @NotNull SymbolPool names = new SymbolPool();
+
+    /**
+     * Set if building the tree failed, because of an error in the input.
+     */
+    private boolean failed = false;
+
+    /**
+     * @param tokens The tokens being parsed.
+     */
+    public ASTBuilderListener(@NotNull TokenStream tokens) {
+        this.tokens = tokens;
+    }
+
+    /**
+     * @return The AST of the program parsed.
+     * @throws IllegalStateException if the parser has not parsed a whole, well-formed, program.
+     */
+    public @NotNull ProgramASTNode getResult() {
+        if (failed || stack.size() != 1 || !(stack.peek() instanceof ProgramASTNode p))
+            throw new IllegalStateException("No program has been parsed");
+        return p;
+    }
+
+    private <N extends ASTNode> @NotNull N pop(@NotNull Class<N> type) {
+        return type.cast(stack.pop());
+    }
+
+    /**
+     * Pop the nodes of a list of sub-rules.
+     * @return The nodes, in the order they appear in the source.
+     */
+    private <N extends ASTNode> @NotNull List<N> pop(@NotNull Class<N> type, int n) {
+        List<N> l = new ArrayList<>(n);
+        for (int i = 0; i < n; i++)
+            l.add(null);
+        for (int i = n - 1; i >= 0; i--)
+            l.set(i, pop(type));
+        return l;
+    }
+
+    private @NotNull BinOpASTNode binOp(@NotNull Token op) {
+        ExpressionASTNode right = pop(ExpressionASTNode.class);
+        ExpressionASTNode left = pop(ExpressionASTNode.class);
+        return new BinOpASTNode(BinOpASTNode.BinOp.parse(op.getText()), left, right);
+    }
+
+    private @NotNull ASTNode build(@NotNull ParserRuleContext ctx) {
+        // rules made of a single token, the parse tree is not built so their text is the one of the token
+        if (ctx instanceof VarNameContext)
+            return new IdentifierASTNode(names.intern(ctx.getStart().getText()));
+        if (ctx instanceof LabelNameContext)
+            return new LabelNameASTNode(names.intern(ctx.getStart().getText()), currentScope);
+        if (ctx instanceof FunctionNameContext) {
+            RoutineNameASTNode name = new RoutineNameASTNode(names.intern(ctx.getStart().getText()));
+            if (ctx.getParent() instanceof SubroutineDeclContext)
+                currentScope = Scope.ofRoutine(name);
+            return name;
+        }
+        if (ctx instanceof StringLitContext) {
+            String str = ctx.getStart().getText();
+            return new StringLiteralASTNode(str.substring(1, str.length() - 1));
+        }
+        if (ctx instanceof NumberLitContext)
+            return NumberLiteralASTNode.parse(ctx.getStart().getText());
+        if (ctx instanceof BoolLitContext)
+            return BoolLiteralASTNode.parse(ctx.getStart().getText());
+
+        // rules wrapping another one
+        if (ctx instanceof StatementContext
+                || ctx instanceof VarContext
+                || ctx instanceof AtomExprContext
+                || ctx instanceof VarExprContext
+                || ctx instanceof ExternContext
+                || ctx instanceof ParensContext)
+            return stack.pop();
+
+        if (ctx instanceof ProgramContext)
+            return new ProgramASTNode(pop(DeclOrStmtASTNode.class, stack.size()));
+        if (ctx instanceof AssignmentStmtContext) {
+            ExpressionASTNode value = pop(ExpressionASTNode.class);
+            return new AssStmtASTNode(pop(VariableASTNode.class), value);
+        }
+        if (ctx instanceof ArrayContext c) {
+            List<ExpressionASTNode> indexes = pop(ExpressionASTNode.class, c.expr.size());
+            return new ArrayASTNode(pop(IdentifierASTNode.class), indexes);
+        }
+        if (ctx instanceof LabelContext)
+            return new LabelDeclASTNode(pop(LabelNameASTNode.class));
+        if (ctx instanceof IfStmtContext c) {
+            List<StatementASTNode> falseBody = pop(StatementASTNode.class, c.bodyFalse.size());
+            List<StatementASTNode> trueBody = pop(StatementASTNode.class, c.bodyTrue.size());
+            ExpressionASTNode condition = pop(ExpressionASTNode.class);
+            return c.bodyFalse.isEmpty()
+                    ? new IfThenASTNode(condition, trueBody)
+                    : new IfThenASTNode(condition, trueBody, falseBody);
+        }
+        if (ctx instanceof ForStmtContext c) {
+            List<StatementASTNode> body = pop(StatementASTNode.class, c.body.size());
+            ExpressionASTNode step = c.step == null ? null : pop(ExpressionASTNode.class);
+            ExpressionASTNode to = pop(ExpressionASTNode.class);
+            ExpressionASTNode from = pop(ExpressionASTNode.class);
+            VariableASTNode varName = pop(VariableASTNode.class);
+            return step == null
+                    ? new ForLoopASTNode(varName, from, to, body)
+                    : new ForLoopASTNode(varName, from, to, step, body);
+        }
+        if (ctx instanceof WhileStmtContext c) {
+            List<StatementASTNode> body = pop(StatementASTNode.class, c.body.size());
+            return new WhileLoopASTNode(pop(ExpressionASTNode.class), body);
+        }
+        if (ctx instanceof GotoStmtContext)
+            return new GotoStmtASTNode(pop(LabelNameASTNode.class));
+        if (ctx instanceof CallRoutineContext)
+            return new RoutineCallASTNode(pop(RoutineNameASTNode.class));
+        if (ctx instanceof CallExternalFunctionContext c) {
+            String[] funcCall = c.name.getText().split("\\.");
+            return new ExternalFunctionCallASTNode(funcCall[0], funcCall[1], pop(ExpressionASTNode.class, c.args.size()));
+        }
+        if (ctx instanceof SubroutineDeclContext c) {
+            List<StatementASTNode> body = pop(StatementASTNode.class, c.body.size());
+            currentScope = Scope.TOPLEVEL;
+            return new RoutineDeclASTNode(pop(RoutineNameASTNode.class), body);
+        }
+        if (ctx instanceof MulDivExprContext c)
+            return binOp(c.op);
+        if (ctx instanceof PlusMinExprContext c)
+            return binOp(c.op);
+        if (ctx instanceof RelopExprContext c)
+            return binOp(c.op);
+        if (ctx instanceof BoolopExprContext c)
+            return binOp(c.op);
+        if (ctx instanceof UnaryMinusExprContext)
+            return new UnaryMinusASTNode(pop(ExpressionASTNode.class));
+        throw new IllegalStateException("Unexpected rule " + ctx.getClass().getSimpleName());
+    }
+
+    @Override
+    public void exitEveryRule(ParserRuleContext ctx) {
+        if (failed)
+            return;
+        try {
+            ASTNode n = build(ctx);
+            n.setStartToken(ctx.getStart());
+            // the left operand of a left-recursive rule is exited before its stop token is set,
+            // which is the last one consumed
+            n.setEndToken(ctx.getStop() != null ? ctx.getStop() : tokens.LT(-1));
+            stack.push(n);
+        } catch (RuntimeException e) {
+            // a rule has been exited without all its parts, the input is not well-formed
+            failed = true;
+        }
+    }
+
+    @Override
+    public void enterEveryRule(ParserRuleContext ctx) {}
+
+    @Override
+    public void visitTerminal(TerminalNode node) {}
+
+    @Override
+    public void visitErrorNode(ErrorNode node) {}
+}
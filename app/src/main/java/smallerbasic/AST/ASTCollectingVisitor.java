@@ -0,0 +1,136 @@
+package smallerbasic.AST;
+
+import smallerbasic.AST.nodes.*;
+
+import java.util.List;
+
+/**
+ * This class defines a default implementation of a visitor over an AST that traverses the AST from left to right,
+ * threading a single mutable accumulator through the whole traversal.
+ * Unlike {@link ASTMonoidVisitor} no intermediate result is ever built or composed:
+ * each node of interest adds its contribution directly to {@link #accumulator()}, which is what every visit returns.
+ * The default implementation recurses on the children of each node, use {@link ASTWalker#collect} to visit trees of any depth.
+ */
+public interface ASTCollectingVisitor<A> extends ASTVisitor<A> {
+
+    /**
+     * The accumulator shared by the whole traversal.
+     * Implementations must always return the same object.
+     */
+    A accumulator();
+
+    default A visitChildren(List<? extends ASTNode> l) {
+        l.forEach(x -> x.accept(this));
+        return accumulator();
+    }
+
+    @Override
+    default A visit(AssStmtASTNode n) {
+        n.getVarName().accept(this);
+        n.getValue().accept(this);
+        return accumulator();
+    }
+
+    @Override
+    default A visit(BinOpASTNode n) {
+        n.getLeft().accept(this);
+        n.getRight().accept(this);
+        return accumulator();
+    }
+
+    @Override
+    default A visit(BoolLiteralASTNode n) {
+        return accumulator();
+    }
+
+    @Override
+    default A visit(ExternalFunctionCallASTNode n) {
+        return visitChildren(n.getArgs());
+    }
+
+    @Override
+    default A visit(ForLoopASTNode n) {
+        n.getVarName().accept(this);
+        n.getStart().accept(this);
+        n.getEnd().accept(this);
+        n.getStep().accept(this);
+        return visitChildren(n.getBody());
+    }
+
+    @Override
+    default A visit(GotoStmtASTNode n) {
+        return visit(n.getLabel());
+    }
+
+    @Override
+    default A visit(IdentifierASTNode n) {
+        return accumulator();
+    }
+
+    @Override
+    default A visit(IfThenASTNode n) {
+        n.getCondition().accept(this);
+        visitChildren(n.getTrueBody());
+        n.getFalseBody().ifPresent(this::visitChildren);
+        return accumulator();
+    }
+
+    @Override
+    default A visit(LabelDeclASTNode n) {
+        return visit(n.getName());
+    }
+
+    @Override
+    default A visit(NumberLiteralASTNode n) {
+        return accumulator();
+    }
+
+    @Override
+    default A visit(ProgramASTNode n) {
+        return visitChildren(n.getContents());
+    }
+
+    @Override
+    default A visit(RoutineCallASTNode n) {
+        return visit(n.getFunction());
+    }
+
+    @Override
+    default A visit(RoutineDeclASTNode n) {
+        visit(n.getName());
+        return visitChildren(n.getBody());
+    }
+
+    @Override
+    default A visit(RoutineNameASTNode n) {
+        return accumulator();
+    }
+
+    @Override
+    default A visit(LabelNameASTNode n) {
+        return accumulator();
+    }
+
+    @Override
+    default A visit(StringLiteralASTNode n) {
+        return accumulator();
+    }
+
+    @Override
+    default A visit(WhileLoopASTNode n) {
+        n.getCondition().accept(this);
+        return visitChildren(n.getBody());
+    }
+
+    @Override
+    default A visit(UnaryMinusASTNode n) {
+        return n.getExpr().accept(this);
+    }
+
+    @Override
+    default A visit(ArrayASTNode n) {
+        visit(n.getName());
+        return visitChildren(n.getIndexes());
+    }
+
+}
@@ -6,6 +6,7 @@ import java.util.List;
 
 /**
  * This class defines a default implementation of a visitor over an AST that, given an identity and a binary function, traverses the AST composing the results from left to right.
+ * The default implementation recurses on the children of each node, use {@link ASTWalker#reduce} to visit trees of any depth.
  */
 public interface ASTMonoidVisitor<T> extends ASTVisitor<T> {
 
@@ -0,0 +1,107 @@
+package smallerbasic.AST;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import smallerbasic.AST.nodes.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.UnaryOperator;
+
+/**
+ * Rewrites an AST bottom-up, using an explicit stack so that arbitrarily deep trees can be rewritten.
+ * <p>
+ * A rule is applied to every node after its children have been rewritten, in the order of {@link ASTWalker}.
+ * A node whose children are all unchanged is passed to the rule as is, so that unchanged subtrees are shared
+ * between the old and the new tree; otherwise it is rebuilt with the new children, keeping its span.
+ * A rule may return {@code null} for a statement or a routine declaration to remove it from its list.
+ */
+public final class ASTRewriter {
+
+    private ASTRewriter() {}
+
+    /**
+     * Rewrite a tree.
+     * @param root The root of the tree.
+     * @param rule The rule applied to each node, returning the node to use in its place.
+     *             It must return a node that fits where the original one was.
+     * @return The rewritten tree, or {@code null} if the rule removed the root.
+     */
+    public static @Nullable ASTNode rewrite(@NotNull ASTNode root, @NotNull UnaryOperator<@Nullable ASTNode> rule) {
+        List<ASTNode> results = new ArrayList<>();
+        ASTWalker.walk(root, new ASTWalker.Listener() {
+            @Override
+            public void exit(@NotNull ASTNode n) {
+                List<? extends ASTNode> children = ASTWalker.children(n);
+                List<ASTNode> rewritten = results.subList(results.size() - children.size(), results.size());
+                ASTNode result = n;
+                for (int i = 0; i < children.size(); i++)
+                    if (rewritten.get(i) != children.get(i)) {
+                        result = withChildren(n, rewritten);
+                        break;
+                    }
+                rewritten.clear();
+                results.add(rule.apply(result));
+            }
+        });
+        return results.get(0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends ASTNode> T child(@NotNull List<ASTNode> children, int i) {
+        return (T) Objects.requireNonNull(children.get(i));
+    }
+
+    /**
+     * @return The non-null elements of {@code children} from {@code from} to {@code to}.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T extends ASTNode> @NotNull List<T> children(@NotNull List<ASTNode> children, int from, int to) {
+        List<T> l = new ArrayList<>(to - from);
+        for (ASTNode n : children.subList(from, to))
+            if (n != null)
+                l.add((T) n);
+        return l;
+    }
+
+    /**
+     * @return A copy of {@code n} with the given children, in the order of {@link ASTWalker#children}.
+     */
+    private static @NotNull ASTNode withChildren(@NotNull ASTNode n, @NotNull List<ASTNode> c) {
+        int size = c.size();
+        ASTNode result;
+        if (n instanceof ArrayASTNode)
+            result = new ArrayASTNode(child(c, 0), children(c, 1, size));
+        else if (n instanceof AssStmtASTNode)
+            result = new AssStmtASTNode(child(c, 0), child(c, 1));
+        else if (n instanceof BinOpASTNode op)
+            result = new BinOpASTNode(op.getOp(), child(c, 0), child(c, 1));
+        else if (n instanceof ExternalFunctionCallASTNode call)
+            result = new ExternalFunctionCallASTNode(call.getModule(), call.getFunction(), children(c, 0, size));
+        else if (n instanceof ForLoopASTNode)
+            result = new ForLoopASTNode(child(c, 0), child(c, 1), child(c, 2), child(c, 3), children(c, 4, size));
+        else if (n instanceof GotoStmtASTNode)
+            result = new GotoStmtASTNode(child(c, 0));
+        else if (n instanceof IfThenASTNode ifThen) {
+            int trueEnd = 1 + ifThen.getTrueBody().size();
+            result = new IfThenASTNode(child(c, 0), children(c, 1, trueEnd),
+                    ifThen.getFalseBody().isPresent() ? children(c, trueEnd, size) : null);
+        } else if (n instanceof LabelDeclASTNode)
+            result = new LabelDeclASTNode(child(c, 0));
+        else if (n instanceof ProgramASTNode)
+            result = new ProgramASTNode(children(c, 0, size));
+        else if (n instanceof RoutineCallASTNode)
+            result = new RoutineCallASTNode(child(c, 0));
+        else if (n instanceof RoutineDeclASTNode)
+            result = new RoutineDeclASTNode(child(c, 0), children(c, 1, size));
+        else if (n instanceof UnaryMinusASTNode)
+            result = new UnaryMinusASTNode(child(c, 0));
+        else if (n instanceof WhileLoopASTNode)
+            result = new WhileLoopASTNode(child(c, 0), children(c, 1, size));
+        else
+            throw new IllegalArgumentException("Unexpected children for " + n);
+        n.getSpan().ifPresent(result::setSpan);
+        return result;
+    }
+}
@@ -0,0 +1,300 @@
+package smallerbasic.AST;
+
+import org.jetbrains.annotations.NotNull;
+import smallerbasic.AST.nodes.*;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Walks an AST using an explicit stack instead of the Java call stack, so that arbitrarily deep trees can be visited.
+ * The children of a node are visited from left to right, in the same order as {@link ASTMonoidVisitor}.
+ * <p>
+ * Besides the walk itself this class can run {@link ASTMonoidVisitor}s and {@link ASTCollectingVisitor}s:
+ * every node for which the visitor keeps the default implementation is handled by the walk,
+ * while any other node is visited by the visitor itself.
+ */
+public final class ASTWalker {
+
+    private ASTWalker() {}
+
+    /**
+     * The callbacks of a walk.
+     */
+    public interface Listener {
+        /**
+         * Called before the children of a node are walked.
+         * @param n The node.
+         * @return The children of {@code n} to walk, in order.
+         */
+        default @NotNull List<? extends ASTNode> enter(@NotNull ASTNode n) {
+            return children(n);
+        }
+
+        /**
+         * Called after the children of a node have been walked.
+         * @param n The node.
+         */
+        default void exit(@NotNull ASTNode n) {}
+    }
+
+    private static final class Frame {
+        private final @NotNull ASTNode node;
+        private final @NotNull List<? extends ASTNode> children;
+        private int next = 0;
+
+        private Frame(@NotNull ASTNode node, @NotNull List<? extends ASTNode> children) {
+            this.node = node;
+            this.children = children;
+        }
+    }
+
+    /**
+     * Walk a tree.
+     * @param root The root of the tree.
+     * @param listener The callbacks called on entering and exiting each node.
+     */
+    public static void walk(@NotNull ASTNode root, @NotNull Listener listener) {
+        Deque<Frame> stack = new ArrayDeque<>();
+        stack.push(new Frame(root, listener.enter(root)));
+        while (!stack.isEmpty()) {
+            Frame top = stack.peek();
+            if (top.next < top.children.size()) {
+                ASTNode child = top.children.get(top.next++);
+                stack.push(new Frame(child, listener.enter(child)));
+            } else {
+                stack.pop();
+                listener.exit(top.node);
+            }
+        }
+    }
+
+    /**
+     * @param n A node.
+     * @return The children of {@code n}, in the order they are visited by {@link ASTMonoidVisitor}.
+     */
+    public static @NotNull List<? extends ASTNode> children(@NotNull ASTNode n) {
+        return n.accept(CHILDREN);
+    }
+
+    /**
+     * Run an {@link ASTMonoidVisitor} on a tree.
+     * @param visitor The visitor.
+     * @param root The root of the tree.
+     * @return The same result as {@code root.accept(visitor)}.
+     */
+    public static <T> T reduce(@NotNull ASTMonoidVisitor<T> visitor, @NotNull ASTNode root) {
+        Defaults defaults = MONOID_DEFAULTS.get(visitor.getClass());
+        // the partial result of each node being walked, null values are allowed
+        List<T> results = new ArrayList<>();
+        walk(root, new Listener() {
+            @Override
+            public @NotNull List<? extends ASTNode> enter(@NotNull ASTNode n) {
+                if (defaults.isDefault(n)) {
+                    results.add(visitor.empty());
+                    return children(n);
+                }
+                results.add(n.accept(visitor));
+                return List.of();
+            }
+
+            @Override
+            public void exit(@NotNull ASTNode n) {
+                if (results.size() > 1) {
+                    T result = results.remove(results.size() - 1);
+                    int parent = results.size() - 1;
+                    results.set(parent, visitor.compose(results.get(parent), result));
+                }
+            }
+        });
+        return results.get(0);
+    }
+
+    /**
+     * Run an {@link ASTCollectingVisitor} on a tree.
+     * @param visitor The visitor.
+     * @param root The root of the tree.
+     * @return The accumulator of the visitor, as {@code root.accept(visitor)}.
+     */
+    public static <A> A collect(@NotNull ASTCollectingVisitor<A> visitor, @NotNull ASTNode root) {
+        Defaults defaults = COLLECTING_DEFAULTS.get(visitor.getClass());
+        walk(root, new Listener() {
+            @Override
+            public @NotNull List<? extends ASTNode> enter(@NotNull ASTNode n) {
+                if (defaults.isDefault(n))
+                    return children(n);
+                n.accept(visitor);
+                return List.of();
+            }
+        });
+        return visitor.accumulator();
+    }
+
+    /**
+     * Tells which nodes a visitor class leaves to the default implementation of one of the interfaces above.
+     * If the visitor overrides {@code visitChildren} every node visiting a list of children through it is considered
+     * overridden too.
+     */
+    private static final class Defaults {
+        private static final @NotNull Set<Class<? extends ASTNode>> WITH_LISTS = Set.of(
+                ProgramASTNode.class,
+                RoutineDeclASTNode.class,
+                IfThenASTNode.class,
+                WhileLoopASTNode.class,
+                ForLoopASTNode.class);
+
+        private final @NotNull Class<?> visitorClass;
+        private final @NotNull Class<?> defaults;
+        private final boolean defaultChildren;
+        private final @NotNull Map<Class<?>, Boolean> cache = new ConcurrentHashMap<>();
+
+        private Defaults(@NotNull Class<?> visitorClass, @NotNull Class<?> defaults) {
+            this.visitorClass = visitorClass;
+            this.defaults = defaults;
+            this.defaultChildren = isDeclaredBy("visitChildren", List.class);
+        }
+
+        private boolean isDefault(@NotNull ASTNode n) {
+            return cache.computeIfAbsent(n.getClass(), c ->
+                    isDeclaredBy("visit", c) && (defaultChildren || !WITH_LISTS.contains(c)));
+        }
+
+        private boolean isDeclaredBy(@NotNull String name, @NotNull Class<?> param) {
+            try {
+                return visitorClass.getMethod(name, param).getDeclaringClass().equals(defaults);
+            } catch (NoSuchMethodException e) {
+                return false;
+            }
+        }
+    }
+
+    private static final @NotNull ClassValue<Defaults> MONOID_DEFAULTS = new ClassValue<>() {
+        @Override
+        protected Defaults computeValue(@NotNull Class<?> type) {
+            return new Defaults(type, ASTMonoidVisitor.class);
+        }
+    };
+
+    private static final @NotNull ClassValue<Defaults> COLLECTING_DEFAULTS = new ClassValue<>() {
+        @Override
+        protected Defaults computeValue(@NotNull Class<?> type) {
+            return new Defaults(type, ASTCollectingVisitor.class);
+        }
+    };
+
+    private static final @NotNull ASTVisitor<List<? extends ASTNode>> CHILDREN = new ASTVisitor<>() {
+        @Override
+        public List<? extends ASTNode> visit(AssStmtASTNode n) {
+            return List.of(n.getVarName(), n.getValue());
+        }
+
+        @Override
+        public List<? extends ASTNode> visit(BinOpASTNode n) {
+            return List.of(n.getLeft(), n.getRight());
+        }
+
+        @Override
+        public List<? extends ASTNode> visit(BoolLiteralASTNode n) {
+            return List.of();
+        }
+
+        @Override
+        public List<? extends ASTNode> visit(ExternalFunctionCallASTNode n) {
+            return n.getArgs();
+        }
+
+        @Override
+        public List<? extends ASTNode> visit(ForLoopASTNode n) {
+            List<ASTNode> l = new ArrayList<>(4 + n.getBody().size());
+            l.add(n.getVarName());
+            l.add(n.getStart());
+            l.add(n.getEnd());
+            l.add(n.getStep());
+            l.addAll(n.getBody());
+            return l;
+        }
+
+        @Override
+        public List<? extends ASTNode> visit(GotoStmtASTNode n) {
+            return List.of(n.getLabel());
+        }
+
+        @Override
+        public List<? extends ASTNode> visit(IdentifierASTNode n) {
+            return List.of();
+        }
+
+        @Override
+        public List<? extends ASTNode> visit(IfThenASTNode n) {
+            List<ASTNode> l = new ArrayList<>();
+            l.add(n.getCondition());
+            l.addAll(n.getTrueBody());
+            n.getFalseBody().ifPresent(l::addAll);
+            return l;
+        }
+
+        @Override
+        public List<? extends ASTNode> visit(LabelDeclASTNode n) {
+            return List.of(n.getName());
+        }
+
+        @Override
+        public List<? extends ASTNode> visit(NumberLiteralASTNode n) {
+            return List.of();
+        }
+
+        @Override
+        public List<? extends ASTNode> visit(ProgramASTNode n) {
+            return n.getContents();
+        }
+
+        @Override
+        public List<? extends ASTNode> visit(RoutineCallASTNode n) {
+            return List.of(n.getFunction());
+        }
+
+        @Override
+        public List<? extends ASTNode> visit(RoutineDeclASTNode n) {
+            List<ASTNode> l = new ArrayList<>(1 + n.getBody().size());
+            l.add(n.getName());
+            l.addAll(n.getBody());
+            return l;
+        }
+
+        @Override
+        public List<? extends ASTNode> visit(RoutineNameASTNode n) {
+            return List.of();
+        }
+
+        @Override
+        public List<? extends ASTNode> visit(LabelNameASTNode n) {
+            return List.of();
+        }
+
+        @Override
+        public List<? extends ASTNode> visit(StringLiteralASTNode n) {
+            return List.of();
+        }
+
+        @Override
+        public List<? extends ASTNode> visit(WhileLoopASTNode n) {
+            List<ASTNode> l = new ArrayList<>(1 + n.getBody().size());
+            l.add(n.getCondition());
+            l.addAll(n.getBody());
+            return l;
+        }
+
+        @Override
+        public List<? extends ASTNode> visit(UnaryMinusASTNode n) {
+            return List.of(n.getExpr());
+        }
+
+        @Override
+        public List<? extends ASTNode> visit(ArrayASTNode n) {
+            List<ASTNode> l = new ArrayList<>(1 + n.getIndexes().size());
+            l.add(n.getName());
+            l.addAll(n.getIndexes());
+            return l;
+        }
+    };
+}
@@ -0,0 +1,827 @@
+package smallerbasic.AST;
+
+import org.jetbrains.annotations.NotNull;
+import smallerbasic.AST.nodes.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * An AST stored as a structure of arrays instead of a graph of node objects.
+ * Each node is an index: its kind, its children and its data are kept in primitive arrays indexed by it,
+ * and its numbers and strings in pools shared by the whole tree.
+ * A tree of many nodes is then a few arrays, instead of an object, a list and a hash code for each node,
+ * and passes looking at every node read memory sequentially.
+ * <p>
+ * Nodes are stored in post-order, so the children of a node, and all its descendants, come before it:
+ * the root is the last node and the subtree of node {@code i} is the range from {@link #first(int)} to {@code i}.
+ * The children of each node are stored as in {@link ASTWalker#children(ASTNode)}; in particular for an
+ * {@code If} the condition comes first, followed by the statements of the true body and then of the false one.
+ * <p>
+ * Flat trees are converted from and to node classes with {@link #of(ASTNode)} and {@link #toTree()}.
+ * Existing {@link ASTVisitor}s can run on a flat tree through {@link #accept(int, ASTVisitor)}, which
+ * builds the node objects of a subtree the first time it is visited.
+ * Shared subtrees of the original tree become distinct nodes, and positions are kept.
+ * <p>
+ * Flat trees can be saved with {@link #write(OutputStream)} and loaded back, without lexing and parsing
+ * the source again, with {@link #read(InputStream)}.
+ * The format is the string table and the number pool, followed by the nodes in post-order, where each node is
+ * its kind together with the number of its children, its data and its span, all as variable length integers.
+ * Since the nodes are in post-order their children are implied.
+ * Spans are stored as differences from the end of the previous node, and the start and end of a node are left
+ * out when they are the ones of its first and last child, so that most nodes take two or three bytes.
+ * <p>
+ * A flat tree is immutable, but building its nodes is not thread safe.
+ */
+public final class FlatAST {
+
+    /**
+     * The kinds of nodes, one for each node class, but for {@link IfThenASTNode} which needs two.
+     */
+    public enum Kind {
+        ARRAY(1, true),
+        ASSIGNMENT(2, false),
+        BIN_OP(2, false),
+        BOOL(0, false),
+        EXTERNAL_CALL(0, true),
+        FOR(4, true),
+        GOTO(1, false),
+        IDENTIFIER(0, false),
+        IF_THEN(1, true),
+        IF_THEN_ELSE(1, true),
+        LABEL_DECL(1, false),
+        LABEL_NAME(0, false),
+        NUMBER(0, false),
+        PROGRAM(0, true),
+        ROUTINE_CALL(1, false),
+        ROUTINE_DECL(1, true),
+        ROUTINE_NAME(0, false),
+        STRING(0, false),
+        UNARY_MINUS(1, false),
+        WHILE(1, true);
+
+        private final int children;
+        private final boolean variadic;
+
+        Kind(int children, boolean variadic) {
+            this.children = children;
+            this.variadic = variadic;
+        }
+
+        /**
+         * @param n A number of children.
+         * @return Whether a node of this kind can have {@code n} children.
+         */
+        public boolean allows(int n) {
+            return variadic ? n >= children : n == children;
+        }
+
+        /**
+         * @param i The position of a child.
+         * @param child A kind.
+         * @return Whether the {@code i}-th child of a node of this kind can be of kind {@code child},
+         * as the constructor of its node class requires.
+         */
+        public boolean allows(int i, @NotNull Kind child) {
+            Set<Kind> allowed = switch (this) {
+                case ARRAY -> i == 0 ? NAMES : EXPRESSIONS;
+                case ASSIGNMENT -> i == 0 ? VARIABLES : EXPRESSIONS;
+                case BIN_OP, EXTERNAL_CALL, UNARY_MINUS -> EXPRESSIONS;
+                case FOR -> i == 0 ? VARIABLES : i < 4 ? EXPRESSIONS : STATEMENTS;
+                case GOTO, LABEL_DECL -> LABELS;
+                case IF_THEN, IF_THEN_ELSE, WHILE -> i == 0 ? EXPRESSIONS : STATEMENTS;
+                case PROGRAM -> DECLARATIONS_OR_STATEMENTS;
+                case ROUTINE_CALL -> ROUTINES;
+                case ROUTINE_DECL -> i == 0 ? ROUTINES : STATEMENTS;
+                default -> Set.of();
+            };
+            return allowed.contains(child);
+        }
+    }
+
+    /**
+     * Bumped whenever the binary format changes.
+     */
+    private static final int FORMAT = 1;
+    /**
+     * The flags stored with the number of children of a node: whether it has a span, and whether its span
+     * starts where the one of its first child does and ends where the one of its last child does.
+     */
+    private static final int SPAN = 1;
+    private static final int SAME_START = 2;
+    private static final int SAME_END = 4;
+
+    private static final @NotNull Kind[] KINDS = Kind.values();
+    /**
+     * The kinds of each category of children, as in the node interfaces.
+     */
+    private static final @NotNull Set<Kind> NAMES = EnumSet.of(Kind.IDENTIFIER);
+    private static final @NotNull Set<Kind> LABELS = EnumSet.of(Kind.LABEL_NAME);
+    private static final @NotNull Set<Kind> ROUTINES = EnumSet.of(Kind.ROUTINE_NAME);
+    private static final @NotNull Set<Kind> VARIABLES = EnumSet.of(Kind.ARRAY, Kind.IDENTIFIER);
+    private static final @NotNull Set<Kind> EXPRESSIONS = EnumSet.of(Kind.ARRAY, Kind.BIN_OP, Kind.BOOL,
+            Kind.EXTERNAL_CALL, Kind.IDENTIFIER, Kind.NUMBER, Kind.STRING, Kind.UNARY_MINUS);
+    private static final @NotNull Set<Kind> STATEMENTS = EnumSet.of(Kind.ASSIGNMENT, Kind.EXTERNAL_CALL, Kind.FOR,
+            Kind.GOTO, Kind.IF_THEN, Kind.IF_THEN_ELSE, Kind.LABEL_DECL, Kind.ROUTINE_CALL, Kind.WHILE);
+    private static final @NotNull Set<Kind> DECLARATIONS_OR_STATEMENTS = EnumSet.of(Kind.ROUTINE_DECL, Kind.ASSIGNMENT,
+            Kind.EXTERNAL_CALL, Kind.FOR, Kind.GOTO, Kind.IF_THEN, Kind.IF_THEN_ELSE, Kind.LABEL_DECL,
+            Kind.ROUTINE_CALL, Kind.WHILE);
+    private static final @NotNull BinOpASTNode.BinOp[] OPS = BinOpASTNode.BinOp.values();
+    private static final long NO_POSITION = -1;
+    private static final int NONE = -1;
+
+    private final int size;
+    private final byte @NotNull [] kinds;
+    /**
+     * The children of node {@code i} are {@code children[childStart[i]]} to {@code children[childStart[i + 1] - 1]}.
+     */
+    private final int @NotNull [] childStart;
+    private final int @NotNull [] children;
+    private final int @NotNull [] first;
+    /**
+     * The data of each node, depending on its kind:
+     * <ul>
+     *     <li>{@code BIN_OP}: the operator;</li>
+     *     <li>{@code BOOL}: 1 if true, 0 if false;</li>
+     *     <li>{@code NUMBER}: the index of its value in {@link #numbers};</li>
+     *     <li>{@code IDENTIFIER}, {@code STRING}, {@code ROUTINE_NAME}, {@code LABEL_NAME}, {@code EXTERNAL_CALL}:
+     *         the index of its name, value or module in {@link #strings};</li>
+     *     <li>{@code IF_THEN}, {@code IF_THEN_ELSE}: the number of statements of the true body.</li>
+     * </ul>
+     */
+    private final int @NotNull [] data;
+    /**
+     * The index in {@link #strings} of the function of an {@code EXTERNAL_CALL} or of the routine scoping
+     * a {@code LABEL_NAME}, which is {@link #NONE} for top-level labels.
+     */
+    private final int @NotNull [] extra;
+    private final long @NotNull [] starts;
+    private final long @NotNull [] ends;
+    private final double @NotNull [] numbers;
+    private final @NotNull String @NotNull [] strings;
+
+    /**
+     * The node objects built so far, allocated on the first visit.
+     */
+    private ASTNode[] nodes = null;
+    private final @NotNull Map<Integer, Scope> scopes = new HashMap<>();
+
+    private FlatAST(@NotNull Builder b) {
+        size = b.size;
+        kinds = Arrays.copyOf(b.kinds, size);
+        childStart = Arrays.copyOf(b.childStart, size + 1);
+        childStart[size] = b.childrenSize;
+        children = Arrays.copyOf(b.children, b.childrenSize);
+        first = Arrays.copyOf(b.first, size);
+        data = Arrays.copyOf(b.data, size);
+        extra = Arrays.copyOf(b.extra, size);
+        starts = Arrays.copyOf(b.starts, size);
+        ends = Arrays.copyOf(b.ends, size);
+        numbers = Arrays.copyOf(b.numbers, b.numbersSize);
+        strings = b.strings.toArray(new String[0]);
+    }
+
+    /**
+     * Flatten a tree.
+     * @param root The root of the tree.
+     * @return The flat tree.
+     */
+    public static @NotNull FlatAST of(@NotNull ASTNode root) {
+        Builder b = new Builder();
+        ASTWalker.walk(root, b);
+        return new FlatAST(b);
+    }
+
+    /**
+     * @return The number of nodes.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The root, which is the last node.
+     */
+    public int root() {
+        return size - 1;
+    }
+
+    public @NotNull Kind kind(int node) {
+        return KINDS[kinds[node]];
+    }
+
+    public int childCount(int node) {
+        return childStart[node + 1] - childStart[node];
+    }
+
+    /**
+     * @param node A node.
+     * @param i The position of a child.
+     * @return The {@code i}-th child of {@code node}.
+     */
+    public int child(int node, int i) {
+        return children[childStart[node] + i];
+    }
+
+    /**
+     * @param node A node.
+     * @return The first node of the subtree of {@code node}, which is {@code node} itself if it is a leaf.
+     */
+    public int first(int node) {
+        return first[node];
+    }
+
+    /**
+     * @param node A {@code BIN_OP} node.
+     */
+    public @NotNull BinOpASTNode.BinOp op(int node) {
+        return OPS[data[node]];
+    }
+
+    /**
+     * @param node A {@code BOOL} node.
+     */
+    public boolean bool(int node) {
+        return data[node] != 0;
+    }
+
+    /**
+     * @param node A {@code NUMBER} node.
+     */
+    public double number(int node) {
+        return numbers[data[node]];
+    }
+
+    /**
+     * @param node An {@code IDENTIFIER}, {@code STRING}, {@code ROUTINE_NAME}, {@code LABEL_NAME}
+     *             or {@code EXTERNAL_CALL} node.
+     * @return Its name, value, or module.
+     */
+    public @NotNull String text(int node) {
+        return strings[data[node]];
+    }
+
+    /**
+     * @param node An {@code EXTERNAL_CALL} node.
+     * @return The function called.
+     */
+    public @NotNull String function(int node) {
+        return strings[extra[node]];
+    }
+
+    /**
+     * @param node A {@code LABEL_NAME} node.
+     * @return The routine the label belongs to, or nothing for top-level labels.
+     */
+    public @NotNull Optional<@NotNull String> routine(int node) {
+        return extra[node] == NONE ? Optional.empty() : Optional.of(strings[extra[node]]);
+    }
+
+    /**
+     * @param node An {@code IF_THEN} or {@code IF_THEN_ELSE} node.
+     * @return The number of statements in its true body.
+     */
+    public int trueBodySize(int node) {
+        return data[node];
+    }
+
+    /**
+     * @param node A node.
+     * @return The position of {@code node} in the source, if known.
+     */
+    public @NotNull Optional<@NotNull SourceSpan> span(int node) {
+        if (starts[node] == NO_POSITION)
+            return Optional.empty();
+        return Optional.of(new SourceSpan(line(starts[node]), column(starts[node]), line(ends[node]), column(ends[node])));
+    }
+
+    private static long pack(int line, int column) {
+        return ((long) line << 32) | (column & 0xFFFFFFFFL);
+    }
+
+    private static int line(long position) {
+        return (int) (position >>> 32);
+    }
+
+    private static int column(long position) {
+        return (int) position;
+    }
+
+    /**
+     * Save this tree.
+     * @param out The stream to write to, which is flushed but not closed.
+     * @throws IOException if writing fails.
+     */
+    public void write(@NotNull OutputStream out) throws IOException {
+        DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(out));
+        stream.writeInt(FORMAT);
+        writeInt(stream, strings.length);
+        for (String s : strings) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeInt(stream, bytes.length);
+            stream.write(bytes);
+        }
+        writeInt(stream, numbers.length);
+        for (double d : numbers)
+            stream.writeDouble(d);
+
+        writeInt(stream, size);
+        long previous = 0;
+        for (int i = 0; i < size; i++) {
+            int n = childCount(i);
+            if (n >= 1 << 23)
+                throw new IOException("Too many children for node " + i);
+            int flags = 0;
+            if (starts[i] != NO_POSITION)
+                flags = SPAN
+                        | (n > 0 && starts[i] == starts[child(i, 0)] ? SAME_START : 0)
+                        | (n > 0 && ends[i] == ends[child(i, n - 1)] ? SAME_END : 0);
+            writeInt(stream, n << 8 | flags << 5 | kinds[i]);
+            switch (kind(i)) {
+                case BIN_OP, BOOL, NUMBER, IDENTIFIER, STRING, ROUTINE_NAME, IF_THEN, IF_THEN_ELSE ->
+                        writeInt(stream, data[i]);
+                case EXTERNAL_CALL, LABEL_NAME -> {
+                    writeInt(stream, data[i]);
+                    writeInt(stream, extra[i] + 1);
+                }
+                default -> {}
+            }
+            if ((flags & SPAN) != 0) {
+                if ((flags & SAME_START) == 0)
+                    writePosition(stream, starts[i], previous);
+                if ((flags & SAME_END) == 0)
+                    writePosition(stream, ends[i], starts[i]);
+                previous = ends[i];
+            }
+        }
+        stream.flush();
+    }
+
+    /**
+     * Load a tree saved with {@link #write(OutputStream)}.
+     * The tree is read with single byte reads, so {@code in} should be buffered.
+     * @param in The stream to read from.
+     * @return The tree.
+     * @throws IOException if reading fails, or if the stream does not contain a well-formed program, where the
+     * children of each node are of the kinds its node class accepts.
+     */
+    public static @NotNull FlatAST read(@NotNull InputStream in) throws IOException {
+        DataInputStream stream = new DataInputStream(in);
+        if (stream.readInt() != FORMAT)
+            throw new IOException("Unknown format");
+        Builder b = new Builder();
+        int strings = length(stream);
+        for (int i = 0; i < strings; i++) {
+            // the lengths are not trusted, so the arrays grow while reading instead of being allocated upfront
+            int length = length(stream);
+            byte[] bytes = stream.readNBytes(length);
+            if (bytes.length != length)
+                throw new EOFException();
+            b.strings.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        int numbers = length(stream);
+        for (int i = 0; i < numbers; i++) {
+            if (i == b.numbers.length)
+                b.numbers = Arrays.copyOf(b.numbers, 2 * i);
+            b.numbers[i] = stream.readDouble();
+        }
+        b.numbersSize = numbers;
+
+        int size = length(stream);
+        long previous = 0;
+        for (int i = 0; i < size; i++) {
+            int header = readInt(stream);
+            int kind = header & 0x1F;
+            if (kind >= KINDS.length)
+                throw new IOException("Unknown node kind " + kind);
+            Kind k = KINDS[kind];
+            int flags = (header >>> 5) & 0x7;
+            int count = header >>> 8;
+            if (!k.allows(count) || count > b.pendingSize)
+                throw new IOException("Wrong number of children for " + k + " node " + i);
+            int value = 0;
+            int other = NONE;
+            switch (k) {
+                case BIN_OP -> value = check(readInt(stream), OPS.length, i);
+                case BOOL -> value = check(readInt(stream), 2, i);
+                case NUMBER -> value = check(readInt(stream), b.numbersSize, i);
+                case IDENTIFIER, STRING, ROUTINE_NAME -> value = check(readInt(stream), strings, i);
+                case IF_THEN, IF_THEN_ELSE -> value = check(readInt(stream), count, i);
+                case EXTERNAL_CALL -> {
+                    value = check(readInt(stream), strings, i);
+                    other = check(readInt(stream) - 1, strings, i);
+                }
+                case LABEL_NAME -> {
+                    value = check(readInt(stream), strings, i);
+                    other = check(readInt(stream), strings + 1, i) - 1;
+                }
+                default -> {}
+            }
+            if (k == Kind.IF_THEN && value != count - 1)
+                throw new IOException("Wrong body for node " + i);
+            b.add(k, count, value, other);
+            for (int c = 0; c < count; c++)
+                if (!k.allows(c, KINDS[b.kinds[b.children[b.childStart[i] + c]]]))
+                    throw new IOException("Wrong kind of child " + c + " for " + k + " node " + i);
+            if ((flags & SPAN) != 0) {
+                if ((flags & (SAME_START | SAME_END)) != 0 && count == 0)
+                    throw new IOException("Wrong span for node " + i);
+                int c = b.childStart[i];
+                long start = (flags & SAME_START) != 0
+                        ? b.starts[b.children[c]]
+                        : readPosition(stream, previous);
+                long end = (flags & SAME_END) != 0
+                        ? b.ends[b.children[c + count - 1]]
+                        : readPosition(stream, start);
+                b.span(line(start), column(start), line(end), column(end));
+                previous = end;
+            }
+        }
+        if (b.pendingSize != 1)
+            throw new IOException("The nodes do not form a tree");
+        if (b.kinds[size - 1] != Kind.PROGRAM.ordinal())
+            throw new IOException("The root is not a program");
+        return new FlatAST(b);
+    }
+
+    private static int check(int value, int bound, int node) throws IOException {
+        if (value < 0 || value >= bound)
+            throw new IOException("Wrong data for node " + node);
+        return value;
+    }
+
+    /**
+     * Write a position as the difference from a previous one: on the same line this is the difference of the
+     * columns, tagged by the lowest bit being 0, otherwise the difference of the lines, tagged by the lowest bit
+     * being 1, followed by the column.
+     */
+    private static void writePosition(@NotNull DataOutputStream out, long position, long from) throws IOException {
+        int lines = line(position) - line(from);
+        if (lines == 0)
+            writeInt(out, zigzag(column(position) - column(from)) << 1);
+        else {
+            writeInt(out, zigzag(lines) << 1 | 1);
+            writeInt(out, zigzag(column(position)));
+        }
+    }
+
+    private static long readPosition(@NotNull DataInputStream in, long from) throws IOException {
+        int n = readInt(in);
+        if ((n & 1) == 0)
+            return pack(line(from), column(from) + unzigzag(n >>> 1));
+        return pack(line(from) + unzigzag(n >>> 1), unzigzag(readInt(in)));
+    }
+
+    private static int length(@NotNull DataInputStream in) throws IOException {
+        int n = readInt(in);
+        if (n < 0)
+            throw new IOException("Malformed length");
+        return n;
+    }
+
+    private static int zigzag(int n) {
+        return (n << 1) ^ (n >> 31);
+    }
+
+    private static int unzigzag(int n) {
+        return (n >>> 1) ^ -(n & 1);
+    }
+
+    /**
+     * Write a variable length integer, seven bits at a time from the least significant ones.
+     */
+    private static void writeInt(@NotNull DataOutputStream out, int n) throws IOException {
+        while ((n & ~0x7F) != 0) {
+            out.write((n & 0x7F) | 0x80);
+            n >>>= 7;
+        }
+        out.write(n);
+    }
+
+    private static int readInt(@NotNull DataInputStream in) throws IOException {
+        int n = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            n |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return n;
+        }
+        throw new IOException("Malformed integer");
+    }
+
+    /**
+     * Visit a node with a visitor written for node classes.
+     * @param node The node.
+     * @param v The visitor.
+     * @return The result of the visit.
+     */
+    public <T> T accept(int node, @NotNull ASTVisitor<T> v) {
+        return node(node).accept(v);
+    }
+
+    /**
+     * @return The tree as node classes.
+     */
+    public @NotNull ASTNode toTree() {
+        return node(root());
+    }
+
+    /**
+     * @param node A node.
+     * @return The object for {@code node}, which is the same every time.
+     */
+    public @NotNull ASTNode node(int node) {
+        if (nodes == null)
+            nodes = new ASTNode[size];
+        if (nodes[node] == null)
+            // the subtree is contiguous and in post-order, so the children of each node are built before it
+            for (int i = first[node]; i <= node; i++)
+                if (nodes[i] == null)
+                    nodes[i] = build(i);
+        return nodes[node];
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends ASTNode> T built(int node, int i) {
+        return (T) nodes[child(node, i)];
+    }
+
+    private <T extends ASTNode> @NotNull List<T> built(int node, int from, int to) {
+        List<T> l = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++)
+            l.add(built(node, i));
+        return l;
+    }
+
+    private @NotNull Scope scope(int routine) {
+        if (routine == NONE)
+            return Scope.TOPLEVEL;
+        return scopes.computeIfAbsent(routine, r -> Scope.ofRoutine(new RoutineNameASTNode(strings[r])));
+    }
+
+    private @NotNull ASTNode build(int node) {
+        int n = childCount(node);
+        ASTNode result = switch (kind(node)) {
+            case ARRAY -> new ArrayASTNode(built(node, 0), built(node, 1, n));
+            case ASSIGNMENT -> new AssStmtASTNode(built(node, 0), built(node, 1));
+            case BIN_OP -> new BinOpASTNode(op(node), built(node, 0), built(node, 1));
+            case BOOL -> new BoolLiteralASTNode(bool(node));
+            case EXTERNAL_CALL -> new ExternalFunctionCallASTNode(text(node), function(node), built(node, 0, n));
+            case FOR -> new ForLoopASTNode(
+                    built(node, 0), built(node, 1), built(node, 2), built(node, 3), built(node, 4, n));
+            case GOTO -> new GotoStmtASTNode(built(node, 0));
+            case IDENTIFIER -> new IdentifierASTNode(text(node));
+            case IF_THEN -> new IfThenASTNode(built(node, 0), built(node, 1, n));
+            case IF_THEN_ELSE -> new IfThenASTNode(
+                    built(node, 0), built(node, 1, 1 + data[node]), built(node, 1 + data[node], n));
+            case LABEL_DECL -> new LabelDeclASTNode(built(node, 0));
+            case LABEL_NAME -> new LabelNameASTNode(text(node), scope(extra[node]));
+            case NUMBER -> new NumberLiteralASTNode(number(node));
+            case PROGRAM -> new ProgramASTNode(built(node, 0, n));
+            case ROUTINE_CALL -> new RoutineCallASTNode(built(node, 0));
+            case ROUTINE_DECL -> new RoutineDeclASTNode(built(node, 0), built(node, 1, n));
+            case ROUTINE_NAME -> new RoutineNameASTNode(text(node));
+            case STRING -> new StringLiteralASTNode(text(node));
+            case UNARY_MINUS -> new UnaryMinusASTNode(built(node, 0));
+            case WHILE -> new WhileLoopASTNode(built(node, 0), built(node, 1, n));
+        };
+        span(node).ifPresent(result::setSpan);
+        return result;
+    }
+
+    /**
+     * Flattens a tree while walking it: every node is added on exit, after its children,
+     * whose indexes are on top of a stack.
+     */
+    private static final class Builder implements ASTWalker.Listener, ASTVisitor<Void> {
+        private int size = 0;
+        private byte[] kinds = new byte[16];
+        private int[] childStart = new int[17];
+        private int[] first = new int[16];
+        private int[] data = new int[16];
+        private int[] extra = new int[16];
+        private long[] starts = new long[16];
+        private long[] ends = new long[16];
+
+        private int[] children = new int[16];
+        private int childrenSize = 0;
+
+        private double[] numbers = new double[16];
+        private int numbersSize = 0;
+        private final @NotNull Map<Double, Integer> numberIndexes = new HashMap<>();
+
+        private final @NotNull List<String> strings = new ArrayList<>();
+        private final @NotNull Map<String, Integer> stringIndexes = new HashMap<>();
+
+        /**
+         * The indexes of the nodes added whose parent has not been added yet.
+         */
+        private int[] pending = new int[16];
+        private int pendingSize = 0;
+        /**
+         * The number of children of each node being walked.
+         */
+        private int[] counts = new int[16];
+        private int countsSize = 0;
+
+        @Override
+        public @NotNull List<? extends ASTNode> enter(@NotNull ASTNode n) {
+            List<? extends ASTNode> l = ASTWalker.children(n);
+            if (countsSize == counts.length)
+                counts = Arrays.copyOf(counts, 2 * countsSize);
+            counts[countsSize++] = l.size();
+            return l;
+        }
+
+        @Override
+        public void exit(@NotNull ASTNode n) {
+            n.accept(this);
+            n.getSpan().ifPresent(s -> span(s.startLine(), s.startColumn(), s.endLine(), s.endColumn()));
+        }
+
+        /**
+         * Set the span of the last node added.
+         */
+        private void span(int startLine, int startColumn, int endLine, int endColumn) {
+            starts[size - 1] = pack(startLine, startColumn);
+            ends[size - 1] = pack(endLine, endColumn);
+        }
+
+        private int string(@NotNull String s) {
+            return stringIndexes.computeIfAbsent(s, k -> {
+                strings.add(k);
+                return strings.size() - 1;
+            });
+        }
+
+        private void add(@NotNull Kind kind, int value, int other) {
+            add(kind, counts[--countsSize], value, other);
+        }
+
+        /**
+         * Add a node whose children are the last {@code count} nodes added whose parent has not been added yet.
+         */
+        private void add(@NotNull Kind kind, int count, int value, int other) {
+            if (size == kinds.length) {
+                int capacity = 2 * size;
+                kinds = Arrays.copyOf(kinds, capacity);
+                childStart = Arrays.copyOf(childStart, capacity + 1);
+                first = Arrays.copyOf(first, capacity);
+                data = Arrays.copyOf(data, capacity);
+                extra = Arrays.copyOf(extra, capacity);
+                starts = Arrays.copyOf(starts, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+            }
+            if (childrenSize + count > children.length)
+                children = Arrays.copyOf(children, Math.max(2 * children.length, childrenSize + count));
+            System.arraycopy(pending, pendingSize - count, children, childrenSize, count);
+            pendingSize -= count;
+
+            kinds[size] = (byte) kind.ordinal();
+            childStart[size] = childrenSize;
+            first[size] = count == 0 ? size : first[children[childrenSize]];
+            data[size] = value;
+            extra[size] = other;
+            starts[size] = NO_POSITION;
+            ends[size] = NO_POSITION;
+            childrenSize += count;
+
+            if (pendingSize == pending.length)
+                pending = Arrays.copyOf(pending, 2 * pendingSize);
+            pending[pendingSize++] = size++;
+        }
+
+        private void add(@NotNull Kind kind, int value) {
+            add(kind, value, NONE);
+        }
+
+        private void add(@NotNull Kind kind) {
+            add(kind, 0, NONE);
+        }
+
+        @Override
+        public Void visit(AssStmtASTNode n) {
+            add(Kind.ASSIGNMENT);
+            return null;
+        }
+
+        @Override
+        public Void visit(BinOpASTNode n) {
+            add(Kind.BIN_OP, n.getOp().ordinal());
+            return null;
+        }
+
+        @Override
+        public Void visit(BoolLiteralASTNode n) {
+            add(Kind.BOOL, n.getValue() ? 1 : 0);
+            return null;
+        }
+
+        @Override
+        public Void visit(ExternalFunctionCallASTNode n) {
+            add(Kind.EXTERNAL_CALL, string(n.getModule()), string(n.getFunction()));
+            return null;
+        }
+
+        @Override
+        public Void visit(ForLoopASTNode n) {
+            add(Kind.FOR);
+            return null;
+        }
+
+        @Override
+        public Void visit(GotoStmtASTNode n) {
+            add(Kind.GOTO);
+            return null;
+        }
+
+        @Override
+        public Void visit(IdentifierASTNode n) {
+            add(Kind.IDENTIFIER, string(n.getName()));
+            return null;
+        }
+
+        @Override
+        public Void visit(IfThenASTNode n) {
+            add(n.getFalseBody().isPresent() ? Kind.IF_THEN_ELSE : Kind.IF_THEN, n.getTrueBody().size());
+            return null;
+        }
+
+        @Override
+        public Void visit(LabelDeclASTNode n) {
+            add(Kind.LABEL_DECL);
+            return null;
+        }
+
+        private int number(double d) {
+            return numberIndexes.computeIfAbsent(d, k -> {
+                if (numbersSize == numbers.length)
+                    numbers = Arrays.copyOf(numbers, 2 * numbersSize);
+                numbers[numbersSize] = k;
+                return numbersSize++;
+            });
+        }
+
+        @Override
+        public Void visit(NumberLiteralASTNode n) {
+            add(Kind.NUMBER, number(n.getValue()));
+            return null;
+        }
+
+        @Override
+        public Void visit(ProgramASTNode n) {
+            add(Kind.PROGRAM);
+            return null;
+        }
+
+        @Override
+        public Void visit(RoutineCallASTNode n) {
+            add(Kind.ROUTINE_CALL);
+            return null;
+        }
+
+        @Override
+        public Void visit(RoutineDeclASTNode n) {
+            add(Kind.ROUTINE_DECL);
+            return null;
+        }
+
+        @Override
+        public Void visit(RoutineNameASTNode n) {
+            add(Kind.ROUTINE_NAME, string(n.getText()));
+            return null;
+        }
+
+        @Override
+        public Void visit(LabelNameASTNode n) {
+            add(Kind.LABEL_NAME, string(n.getText()),
+                    n.getScope().getRoutine().map(r -> string(r.getText())).orElse(NONE));
+            return null;
+        }
+
+        @Override
+        public Void visit(StringLiteralASTNode n) {
+            add(Kind.STRING, string(n.getValue()));
+            return null;
+        }
+
+        @Override
+        public Void visit(WhileLoopASTNode n) {
+            add(Kind.WHILE);
+            return null;
+        }
+
+        @Override
+        public Void visit(UnaryMinusASTNode n) {
+            add(Kind.UNARY_MINUS);
+            return null;
+        }
+
+        @Override
+        public Void visit(ArrayASTNode n) {
+            add(Kind.ARRAY);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package smallerbasic.AST;
+
+import org.jetbrains.annotations.NotNull;
+import smallerbasic.AST.nodes.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Runs an {@link ASTMonoidVisitor} on a {@link ForkJoinPool}.
+ * Since {@link ASTMonoidVisitor#empty()} is an identity and {@link ASTMonoidVisitor#compose} is associative,
+ * the contents of a {@link ProgramASTNode} and the bodies of statements can be split in halves,
+ * reduced in parallel and then composed, giving the same result as the sequential visitor.
+ * Lists with at most {@code threshold} elements are reduced sequentially.
+ * <p>
+ * Only nodes for which the visitor keeps the default implementation given by {@link ASTMonoidVisitor} are split,
+ * every other node is visited sequentially by the visitor itself.
+ * The visitor must be safe to use from many threads at once: this is the case for visitors that hold no state
+ * and only depend on the visited nodes.
+ */
+public class ParallelMonoidTraversal<T> {
+    public static final int DEFAULT_THRESHOLD = 64;
+
+    private final @NotNull ASTMonoidVisitor<T> visitor;
+    private final @NotNull ForkJoinPool pool;
+    private final int threshold;
+
+    /**
+     * The node types whose children can be reduced in parallel.
+     */
+    private final @NotNull Set<Class<? extends ASTNode>> splittable = new HashSet<>();
+
+    public ParallelMonoidTraversal(@NotNull ASTMonoidVisitor<T> visitor) {
+        this(visitor, ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+    }
+
+    public ParallelMonoidTraversal(@NotNull ASTMonoidVisitor<T> visitor, @NotNull ForkJoinPool pool, int threshold) {
+        if (threshold < 1)
+            throw new IllegalArgumentException("The threshold must be positive");
+        this.visitor = visitor;
+        this.pool = pool;
+        this.threshold = threshold;
+        if (isDefault("visitChildren", List.class))
+            for (Class<? extends ASTNode> c : List.of(
+                    ProgramASTNode.class,
+                    RoutineDeclASTNode.class,
+                    IfThenASTNode.class,
+                    WhileLoopASTNode.class,
+                    ForLoopASTNode.class))
+                if (isDefault("visit", c))
+                    splittable.add(c);
+    }
+
+    /**
+     * @return {@code true} if the visitor does not override the given method of {@link ASTMonoidVisitor}.
+     */
+    private boolean isDefault(@NotNull String name, @NotNull Class<?> param) {
+        try {
+            return visitor.getClass().getMethod(name, param).getDeclaringClass().equals(ASTMonoidVisitor.class);
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Visit a tree.
+     * @param n The root of the tree.
+     * @return The same result as {@code n.accept(visitor)}.
+     */
+    public T run(@NotNull ASTNode n) {
+        return pool.invoke(new NodeReduction(n));
+    }
+
+    /**
+     * Reduce a single node, splitting its children if possible.
+     * This mirrors the default implementations in {@link ASTMonoidVisitor}.
+     */
+    private T reduce(@NotNull ASTNode n) {
+        if (!splittable.contains(n.getClass()))
+            return ASTWalker.reduce(visitor, n);
+        if (n instanceof ProgramASTNode p)
+            return reduceAll(p.getContents());
+        if (n instanceof RoutineDeclASTNode r)
+            return visitor.compose(visitor.visit(r.getName()), reduceAll(r.getBody()));
+        if (n instanceof WhileLoopASTNode w)
+            return visitor.compose(ASTWalker.reduce(visitor, w.getCondition()), reduceAll(w.getBody()));
+        if (n instanceof IfThenASTNode i)
+            return visitor.compose(
+                    ASTWalker.reduce(visitor, i.getCondition()),
+                    visitor.compose(
+                            reduceAll(i.getTrueBody()),
+                            i.getFalseBody().map(this::reduceAll).orElse(visitor.empty())
+                    )
+            );
+        if (n instanceof ForLoopASTNode f)
+            return visitor.compose(
+                    ASTWalker.reduce(visitor, f.getVarName()),
+                    visitor.compose(
+                            ASTWalker.reduce(visitor, f.getStart()),
+                            visitor.compose(
+                                    ASTWalker.reduce(visitor, f.getEnd()),
+                                    visitor.compose(
+                                            ASTWalker.reduce(visitor, f.getStep()),
+                                            reduceAll(f.getBody())
+                                    )
+                            )
+                    )
+            );
+        return ASTWalker.reduce(visitor, n);
+    }
+
+    private T reduceAll(@NotNull List<? extends ASTNode> l) {
+        return new ListReduction(l).compute();
+    }
+
+    @SuppressWarnings("serial") // tasks are never serialized
+    private class NodeReduction extends RecursiveTask<T> {
+        private final @NotNull ASTNode node;
+
+        private NodeReduction(@NotNull ASTNode node) {
+            this.node = node;
+        }
+
+        @Override
+        protected T compute() {
+            return reduce(node);
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private class ListReduction extends RecursiveTask<T> {
+        private final @NotNull List<? extends ASTNode> nodes;
+
+        private ListReduction(@NotNull List<? extends ASTNode> nodes) {
+            this.nodes = nodes;
+        }
+
+        @Override
+        protected T compute() {
+            if (nodes.size() <= threshold) {
+                T acc = visitor.empty();
+                for (ASTNode n : nodes)
+                    acc = visitor.compose(acc, reduce(n));
+                return acc;
+            }
+            int mid = nodes.size() / 2;
+            ListReduction left = new ListReduction(nodes.subList(0, mid));
+            left.fork();
+            T right = new ListReduction(nodes.subList(mid, nodes.size())).compute();
+            return visitor.compose(left.join(), right);
+        }
+    }
+}
@@ -27,6 +27,11 @@ public class ParseTreeToASTVisitor implements SBGrammarVisitor<ASTNode> {
      */
     private @NotNull Scope currentScope = Scope.TOPLEVEL;
 
+    /**
+     * The names of the program being converted.
+     */
+    private final @NotNull SymbolPool names = new SymbolPool();
+
     /**
      * Helper function to visit a list of {@link smallerbasic.SBGrammarParser.StatementContext}s.
      * @param ctxs The list of contexts.
@@ -57,7 +62,7 @@ public class ParseTreeToASTVisitor implements SBGrammarVisitor<ASTNode> {
 
     @Override
     public IdentifierASTNode visitVar(SBGrammarParser.VarContext ctx) {
-        return new IdentifierASTNode(ctx.name.getText());
+        return new IdentifierASTNode(names.intern(ctx.name.getText()));
     }
 
     @Override
@@ -78,17 +83,17 @@ public class ParseTreeToASTVisitor implements SBGrammarVisitor<ASTNode> {
 
     @Override
     public IdentifierASTNode visitVarName(SBGrammarParser.VarNameContext ctx) {
-        return new IdentifierASTNode(ctx.Ident().getText());
+        return new IdentifierASTNode(names.intern(ctx.Ident().getText()));
     }
 
     @Override
     public LabelNameASTNode visitLabelName(SBGrammarParser.LabelNameContext ctx) {
-        return new LabelNameASTNode(ctx.Ident().getText(), currentScope);
+        return new LabelNameASTNode(names.intern(ctx.Ident().getText()), currentScope);
     }
 
     @Override
     public RoutineNameASTNode visitFunctionName(SBGrammarParser.FunctionNameContext ctx) {
-        return new RoutineNameASTNode(ctx.Ident().getText());
+        return new RoutineNameASTNode(names.intern(ctx.Ident().getText()));
     }
 
     @Override
@@ -18,7 +18,9 @@ public class ParseTreeToASTVisitorWithTokens extends ParseTreeToASTVisitor {
      */
     private <N extends ASTNode> @NotNull N setTokens(@NotNull N ast, @NotNull ParserRuleContext ctx) {
         ast.setStartToken(ctx.getStart());
-        ast.setEndToken(ctx.getStop());
+        // the stop token is missing only if the rule is empty, which is never the case in a well-formed tree
+        if (ctx.getStop() != null)
+            ast.setEndToken(ctx.getStop());
         return ast;
     }
 
@@ -5,6 +5,7 @@ import org.jetbrains.annotations.Nullable;
 import smallerbasic.AST.nodes.RoutineNameASTNode;
 
 import java.util.Objects;
+import java.util.Optional;
 
 /**
  * A class representing the scope.
@@ -14,7 +15,7 @@ import java.util.Objects;
  *   - inside a routine
  */
 public class Scope {
-    public static @NotNull Scope TOPLEVEL = new Scope();
+    public static final @NotNull Scope TOPLEVEL = new Scope();
     private @Nullable RoutineNameASTNode name = null;
     private Scope() {}
     public static Scope ofRoutine(@NotNull RoutineNameASTNode name) {
@@ -23,6 +24,12 @@ public class Scope {
     private Scope(@NotNull RoutineNameASTNode name) {
         this.name = name;
     }
+    /**
+     * @return The routine of this scope, or nothing if this is the top-level scope.
+     */
+    public @NotNull Optional<@NotNull RoutineNameASTNode> getRoutine() {
+        return Optional.ofNullable(name);
+    }
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,27 @@
+package smallerbasic.AST;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Interns the names of identifiers, labels and routines of a program while its AST is built,
+ * so that all the occurrences of a name share the same {@link String}.
+ * Comparing two equal names then stops at the reference comparison at the start of {@link String#equals(Object)},
+ * and the hash code of each name is computed only once.
+ * <p>
+ * A pool is meant to be used for a single compilation, and it is not thread safe.
+ */
+public class SymbolPool {
+    private final @NotNull Map<String, String> names = new HashMap<>();
+
+    /**
+     * @param name A name.
+     * @return The first name equal to {@code name} given to this pool.
+     */
+    public @NotNull String intern(@NotNull String name) {
+        String interned = names.putIfAbsent(name, name);
+        return interned == null ? name : interned;
+    }
+}
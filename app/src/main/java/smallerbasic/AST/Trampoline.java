@@ -0,0 +1,75 @@
+package smallerbasic.AST;
+
+import org.jetbrains.annotations.NotNull;
+import smallerbasic.AST.nodes.ASTNode;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Runs a visitor that does not recurse: instead of visiting the children of a node directly,
+ * each {@code visit} schedules the visits of the children, and whatever has to be done in between, as actions
+ * of this trampoline.
+ * The actions are kept on an explicit stack, so that arbitrarily deep trees can be visited.
+ * <p>
+ * The actions scheduled by an action run right after it, in the order they have been scheduled,
+ * and before any action scheduled earlier.
+ * This is the same order in which a recursive visitor would run them.
+ * Results of visits, if any, have to be passed around by the visitor itself, for example on a stack of its own.
+ */
+public class Trampoline {
+    private final @NotNull Deque<Runnable> stack = new ArrayDeque<>();
+    private final @NotNull List<Runnable> scheduled = new ArrayList<>();
+    private boolean running = false;
+
+    /**
+     * Schedule an action.
+     * @param action The action.
+     */
+    public void then(@NotNull Runnable action) {
+        scheduled.add(action);
+    }
+
+    /**
+     * Schedule the visit of a node.
+     * @param n The node.
+     * @param v The visitor.
+     */
+    public void visit(@NotNull ASTNode n, @NotNull ASTVisitor<?> v) {
+        then(() -> n.accept(v));
+    }
+
+    /**
+     * Schedule the visits of a list of nodes, from left to right.
+     * @param l The nodes.
+     * @param v The visitor.
+     */
+    public void visitAll(@NotNull List<? extends ASTNode> l, @NotNull ASTVisitor<?> v) {
+        l.forEach(x -> visit(x, v));
+    }
+
+    /**
+     * Run an action, and every action scheduled from then on, until there are none left.
+     * @param action The first action.
+     */
+    public void run(@NotNull Runnable action) {
+        if (running)
+            throw new IllegalStateException("The trampoline is already running");
+        running = true;
+        try {
+            stack.push(action);
+            while (!stack.isEmpty()) {
+                stack.pop().run();
+                for (int i = scheduled.size() - 1; i >= 0; i--)
+                    stack.push(scheduled.get(i));
+                scheduled.clear();
+            }
+        } finally {
+            stack.clear();
+            scheduled.clear();
+            running = false;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package smallerbasic.AST.analysis;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Something holding a value that lives through the whole program: a variable, or a class of array elements.
+ * Array elements are told apart only by the variable holding the array and by how many indexes reach them,
+ * so {@code A[1]} and {@code A[I]} are the same location, while {@code A[1][2]} is another one.
+ * @param name The name of the variable.
+ * @param depth 0 for the variable itself, otherwise the number of indexes.
+ */
+public record Location(@NotNull String name, int depth) {
+    public static @NotNull Location ofVariable(@NotNull String name) {
+        return new Location(name, 0);
+    }
+
+    public static @NotNull Location ofElements(@NotNull String name, int depth) {
+        return new Location(name, depth);
+    }
+
+    public boolean isElement() {
+        return depth > 0;
+    }
+
+    @Override
+    public String toString() {
+        return name + "[]".repeat(depth);
+    }
+}
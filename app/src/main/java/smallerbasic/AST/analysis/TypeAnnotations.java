@@ -0,0 +1,72 @@
+package smallerbasic.AST.analysis;
+
+import org.jetbrains.annotations.NotNull;
+import smallerbasic.AST.nodes.ASTNode;
+import smallerbasic.AST.nodes.ExpressionASTNode;
+import smallerbasic.AST.nodes.StatementASTNode;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The result of a {@link TypeInference}, annotating the nodes of a tree with the types found by the analysis.
+ * Nodes are looked up by identity, so that the same expression in two places of a program has two annotations.
+ */
+public final class TypeAnnotations {
+    private final @NotNull Map<ASTNode, TypeSet> types;
+    private final @NotNull Map<ASTNode, byte[]> states;
+    private final @NotNull Map<Location, Integer> locations;
+
+    TypeAnnotations(@NotNull Map<ASTNode, TypeSet> types,
+                    @NotNull Map<ASTNode, byte[]> states,
+                    @NotNull Map<Location, Integer> locations) {
+        this.types = types;
+        this.states = states;
+        this.locations = locations;
+    }
+
+    /**
+     * @param n An expression.
+     * @return The types the value of {@code n} may have when it is used by its parent, empty if {@code n} is never
+     * evaluated. Nothing is recorded for the target of an assignment, which is written and not used.
+     */
+    public @NotNull TypeSet typeOf(@NotNull ExpressionASTNode n) {
+        return types.getOrDefault(n, TypeSet.EMPTY);
+    }
+
+    /**
+     * @param n A statement.
+     * @return Whether {@code n} may be run.
+     * A statement is unreachable if it follows a {@code Goto} with no label in between,
+     * if it is in a routine that is never called, or if every path to it fails at runtime.
+     */
+    public boolean isReachable(@NotNull StatementASTNode n) {
+        return states.containsKey(n);
+    }
+
+    /**
+     * @param n A statement.
+     * @param l A location of the program.
+     * @return The types {@code l} may have right before {@code n} is run, empty if {@code n} is unreachable.
+     * The types of a class of array elements always include {@link ValueType#NULL}, as any element may not have
+     * been assigned yet.
+     * @throws IllegalArgumentException if {@code l} does not appear in the program.
+     */
+    public @NotNull TypeSet before(@NotNull StatementASTNode n, @NotNull Location l) {
+        Integer index = locations.get(l);
+        if (index == null)
+            throw new IllegalArgumentException("Unknown location " + l);
+        byte[] state = states.get(n);
+        if (state == null)
+            return TypeSet.EMPTY;
+        return TypeSet.ofBits(state[index]).join(l.isElement() ? TypeSet.of(ValueType.NULL) : TypeSet.EMPTY);
+    }
+
+    /**
+     * @return Every location of the program.
+     */
+    public @NotNull Set<Location> locations() {
+        return Collections.unmodifiableSet(locations.keySet());
+    }
+}
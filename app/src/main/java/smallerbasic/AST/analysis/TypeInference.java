@@ -0,0 +1,678 @@
+package smallerbasic.AST.analysis;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import smallerbasic.AST.ASTVisitor;
+import smallerbasic.AST.ASTWalker;
+import smallerbasic.AST.Trampoline;
+import smallerbasic.AST.nodes.*;
+
+import java.util.*;
+
+/**
+ * A flow-sensitive analysis of the types each {@link Location} of a program may have at runtime.
+ * <p>
+ * The program is turned into a control flow graph whose blocks run the statements and the expressions in the same
+ * order as the generated code: conditions and loops end blocks, a {@code Goto} jumps to the block of its label,
+ * and a routine call jumps to the entry of the routine, whose exit flows back to every call site.
+ * Each block maps every location to a {@link TypeSet}, starting from {@link ValueType#NULL} for every variable,
+ * and the states are joined where paths meet until nothing changes anymore.
+ * <p>
+ * The effect of each operation follows the runtime: a null operand is turned in place into the default value of the
+ * type the operation expects, so for example after {@code Y = X - 1} the variable {@code X} is known to be a number,
+ * and a path on which an operation always fails ends there.
+ * A variable is updated as a whole, while an assignment to an array element only adds types to its location,
+ * since the other elements keep theirs.
+ * The graph is built with a {@link Trampoline} and expressions are evaluated from a list of their nodes, so that
+ * arbitrarily deep trees can be analysed.
+ */
+public final class TypeInference {
+    private static final int NULL = 1 << ValueType.NULL.ordinal();
+    private static final int NUMBER = 1 << ValueType.NUMBER.ordinal();
+    private static final int STRING = 1 << ValueType.STRING.ordinal();
+    private static final int BOOL = 1 << ValueType.BOOL.ordinal();
+    private static final int ARRAY = 1 << ValueType.ARRAY.ordinal();
+    private static final int ALL = TypeSet.ALL.bits();
+    /**
+     * The types of a value that can be copied, since copying a null value or an array fails.
+     */
+    private static final int COPYABLE = NUMBER | STRING | BOOL;
+
+    private static final class Block {
+        private final int index;
+        private final @NotNull List<Runnable> steps = new ArrayList<>();
+        private final @NotNull List<Block> successors = new ArrayList<>();
+        /**
+         * The state at the start of the block, {@code null} as long as the block is not known to be reachable.
+         */
+        private byte @Nullable [] in = null;
+
+        private Block(int index) {
+            this.index = index;
+        }
+    }
+
+    private record Routine(@NotNull Block entry, @NotNull Block exit) {}
+
+    private final @NotNull Map<Location, Integer> locations = new HashMap<>();
+    /**
+     * The location of every identifier and of every array access, by identity.
+     */
+    private final @NotNull Map<ASTNode, Integer> locationOf = new IdentityHashMap<>();
+    /**
+     * The locations of the elements reached by each index of every array access.
+     */
+    private final @NotNull Map<ArrayASTNode, int[]> elementsOf = new IdentityHashMap<>();
+    private boolean @NotNull [] isElement = new boolean[0];
+
+    private final @NotNull List<Block> blocks = new ArrayList<>();
+    private final @NotNull Map<LabelNameASTNode, Block> labels = new HashMap<>();
+    private final @NotNull Map<RoutineNameASTNode, Routine> routines = new HashMap<>();
+
+    /**
+     * The state changed by the steps of the block being run.
+     */
+    private byte @NotNull [] state = new byte[0];
+    /**
+     * Whether an operation of the block being run always fails, so that the rest of the block is unreachable.
+     */
+    private boolean failed = false;
+    /**
+     * The types of the expressions evaluated, whose parent has not used them yet.
+     * Expressions with a location push nothing meaningful, their parent reads the location when it uses them.
+     */
+    private final @NotNull Deque<Byte> values = new ArrayDeque<>();
+
+    private boolean recording = false;
+    private final @NotNull Map<ASTNode, TypeSet> types = new IdentityHashMap<>();
+    private final @NotNull Map<ASTNode, byte[]> states = new IdentityHashMap<>();
+
+    private TypeInference() {}
+
+    /**
+     * Run the analysis on a tree that passed the checks.
+     * @param root The tree.
+     * @return The types of the expressions and of the locations before each statement.
+     */
+    public static @NotNull TypeAnnotations run(@NotNull ASTNode root) {
+        TypeInference inference = new TypeInference();
+        Block entry = inference.newBlock();
+        inference.collect(root);
+        inference.new Builder(entry).build(root);
+        inference.solve(entry);
+        inference.record();
+        return new TypeAnnotations(inference.types, inference.states, inference.locations);
+    }
+
+    private @NotNull Block newBlock() {
+        Block b = new Block(blocks.size());
+        blocks.add(b);
+        return b;
+    }
+
+    private int location(@NotNull Location l) {
+        return locations.computeIfAbsent(l, x -> locations.size());
+    }
+
+    /**
+     * Find every location and every routine of the program.
+     */
+    private void collect(@NotNull ASTNode root) {
+        ASTWalker.walk(root, new ASTWalker.Listener() {
+            @Override
+            public @NotNull List<? extends ASTNode> enter(@NotNull ASTNode n) {
+                if (n instanceof RoutineDeclASTNode r)
+                    routines.putIfAbsent(r.getName(), new Routine(newBlock(), newBlock()));
+                if (n instanceof IdentifierASTNode id)
+                    locationOf.put(id, location(Location.ofVariable(id.getName())));
+                if (n instanceof ArrayASTNode a && !a.getIndexes().isEmpty()) {
+                    int[] elements = new int[a.getIndexes().size()];
+                    for (int i = 0; i < elements.length; i++)
+                        elements[i] = location(Location.ofElements(a.getName().getName(), i + 1));
+                    elementsOf.put(a, elements);
+                    locationOf.put(a, elements[elements.length - 1]);
+                }
+                return ASTWalker.children(n);
+            }
+        });
+        isElement = new boolean[locations.size()];
+        locations.forEach((l, i) -> isElement[i] = l.isElement());
+    }
+
+    private void solve(@NotNull Block entry) {
+        entry.in = new byte[locations.size()];
+        for (int i = 0; i < isElement.length; i++)
+            entry.in[i] = (byte) (isElement[i] ? 0 : NULL);
+        // blocks are mostly created in the order of the program, so they are run in rounds from first to last
+        BitSet work = new BitSet();
+        work.set(entry.index);
+        for (int i = entry.index; !work.isEmpty(); i++) {
+            i = work.nextSetBit(i);
+            if (i < 0)
+                i = work.nextSetBit(0);
+            work.clear(i);
+            Block b = blocks.get(i);
+            byte[] out = run(b);
+            if (out == null)
+                continue;
+            for (Block s : b.successors)
+                if (join(s, out))
+                    work.set(s.index);
+        }
+    }
+
+    /**
+     * Run every reachable block once more, with the states of the fixpoint, saving the annotations.
+     */
+    private void record() {
+        recording = true;
+        for (Block b : blocks)
+            if (b.in != null)
+                run(b);
+    }
+
+    /**
+     * @return The state at the end of the block, {@code null} if the end is unreachable.
+     */
+    private byte @Nullable [] run(@NotNull Block b) {
+        state = Objects.requireNonNull(b.in).clone();
+        failed = false;
+        values.clear();
+        for (Runnable step : b.steps) {
+            step.run();
+            if (failed)
+                return null;
+        }
+        return state;
+    }
+
+    /**
+     * @return Whether the state at the start of {@code b} has changed.
+     */
+    private static boolean join(@NotNull Block b, byte @NotNull [] state) {
+        if (b.in == null) {
+            b.in = state.clone();
+            return true;
+        }
+        boolean changed = false;
+        for (int i = 0; i < state.length; i++) {
+            byte joined = (byte) (b.in[i] | state[i]);
+            changed |= joined != b.in[i];
+            b.in[i] = joined;
+        }
+        return changed;
+    }
+
+    /**
+     * Read the types of an expression as its parent uses it.
+     * The value of an expression with a location is read now, since the generated code passes the box itself.
+     * @param n The expression.
+     * @param value What the expression pushed.
+     * @return The types of the value.
+     */
+    private int use(@NotNull ASTNode n, byte value) {
+        Integer l = locationOf.get(n);
+        int t = l == null ? value : isElement[l] ? state[l] | NULL : state[l];
+        if (recording)
+            types.merge(n, TypeSet.ofBits(t), TypeSet::join);
+        return t;
+    }
+
+    /**
+     * Set the types of the box of an expression, after the runtime has changed it or found it to be of some types.
+     * Nothing happens for expressions without a location, while an array element only adds types to its location.
+     */
+    private void refine(@NotNull ASTNode n, int t) {
+        Integer l = locationOf.get(n);
+        if (l == null)
+            return;
+        state[l] = (byte) (isElement[l] ? state[l] | t : t);
+    }
+
+    /**
+     * The types after {@code _COPY}, which fails on null values and arrays.
+     */
+    private int copy(@NotNull ASTNode from, byte value) {
+        int copied = use(from, value) & COPYABLE;
+        refine(from, copied);
+        failed |= copied == 0;
+        return copied;
+    }
+
+    private void push(int t) {
+        values.push((byte) t);
+    }
+
+    /**
+     * Evaluate an expression whose children have already been evaluated.
+     */
+    private void evaluate(@NotNull ASTNode n) {
+        if (n instanceof NumberLiteralASTNode)
+            push(NUMBER);
+        else if (n instanceof StringLiteralASTNode)
+            push(STRING);
+        else if (n instanceof BoolLiteralASTNode)
+            push(BOOL);
+        else if (n instanceof IdentifierASTNode)
+            push(0);
+        else if (n instanceof UnaryMinusASTNode u)
+            push(numeric(u.getExpr(), values.pop()));
+        else if (n instanceof BinOpASTNode b) {
+            byte right = values.pop();
+            byte left = values.pop();
+            push(binOp(b.getOp(), b.getLeft(), left, b.getRight(), right));
+        } else if (n instanceof ArrayASTNode a)
+            array(a);
+        else if (n instanceof ExternalFunctionCallASTNode c)
+            call(c);
+    }
+
+    /**
+     * The effect of an operation taking a number, that may be null.
+     * @return The types of the result.
+     */
+    private int numeric(@NotNull ASTNode n, byte value) {
+        int t = (use(n, value) & (NULL | NUMBER)) != 0 ? NUMBER : 0;
+        refine(n, t);
+        failed |= t == 0;
+        return t;
+    }
+
+    /**
+     * The effect of getting the elements of an array, one index at a time.
+     * Each box indexed must be null, and becomes an empty array, or an array, and each index must be a number.
+     */
+    private void array(@NotNull ArrayASTNode a) {
+        List<ExpressionASTNode> indexes = a.getIndexes();
+        byte[] pushed = new byte[indexes.size()];
+        for (int i = pushed.length - 1; i >= 0; i--)
+            pushed[i] = values.pop();
+        values.pop();
+        int[] elements = elementsOf.get(a);
+        for (int i = 0; i < pushed.length; i++) {
+            if (i == 0) {
+                int t = (use(a.getName(), (byte) 0) & (NULL | ARRAY)) != 0 ? ARRAY : 0;
+                refine(a.getName(), t);
+                failed |= t == 0;
+            } else
+                state[elements[i - 1]] |= ARRAY;
+            numeric(indexes.get(i), pushed[i]);
+        }
+        push(0);
+    }
+
+    /**
+     * The effect of the functions of the runtime, other functions may do anything.
+     */
+    private void call(@NotNull ExternalFunctionCallASTNode c) {
+        List<ExpressionASTNode> args = c.getArgs();
+        byte[] pushed = new byte[args.size()];
+        for (int i = pushed.length - 1; i >= 0; i--)
+            pushed[i] = values.pop();
+        String name = c.getModule() + "." + c.getFunction();
+        switch (name) {
+            case "IO.ReadLine" -> push(args.isEmpty() ? STRING : ALL);
+            case "IO.WriteLine" -> {
+                // printing fails on null values and arrays, and leaves the result unset
+                if (args.size() == 1)
+                    copy(args.get(0), pushed[0]);
+                push(ALL);
+            }
+            case "Math.Cos", "Math.Sin", "Math.Sqrt", "Math.Log", "Math.Floor" ->
+                    push(args.size() == 1 ? numeric(args.get(0), pushed[0]) : ALL);
+            default -> {
+                for (int i = 0; i < pushed.length; i++)
+                    use(args.get(i), pushed[i]);
+                push(ALL);
+            }
+        }
+    }
+
+    /**
+     * Whether two expressions are the same variable, and so always have the same type.
+     */
+    private boolean sameVariable(@NotNull ASTNode left, @NotNull ASTNode right) {
+        Integer l = locationOf.get(left);
+        return l != null && !isElement[l] && l.equals(locationOf.get(right));
+    }
+
+    /**
+     * The effect of a binary operation, taking every pair of types the operands may have.
+     * @return The types of the result.
+     */
+    private int binOp(@NotNull BinOpASTNode.BinOp op,
+                      @NotNull ASTNode left, byte leftValue,
+                      @NotNull ASTNode right, byte rightValue) {
+        int l = use(left, leftValue);
+        int r = use(right, rightValue);
+        boolean same = sameVariable(left, right);
+        int result = 0;
+        int leftAfter = 0;
+        int rightAfter = 0;
+        for (ValueType lt : ValueType.values())
+            for (ValueType rt : ValueType.values()) {
+                if ((l & bit(lt)) == 0 || (r & bit(rt)) == 0 || (same && lt != rt))
+                    continue;
+                int outcome = outcome(op, lt, rt);
+                if (outcome < 0)
+                    continue;
+                result |= outcome & 0xFF;
+                leftAfter |= (outcome >> 8) & 0xFF;
+                rightAfter |= outcome >> 16;
+            }
+        refine(left, leftAfter);
+        refine(right, rightAfter);
+        failed |= result == 0;
+        return result;
+    }
+
+    private static int bit(@NotNull ValueType t) {
+        return 1 << t.ordinal();
+    }
+
+    /**
+     * @return The types of the result, of the left operand after the operation and of the right one,
+     * packed in the first three bytes, or -1 if the operation fails.
+     */
+    private static int outcome(@NotNull BinOpASTNode.BinOp op, @NotNull ValueType l, @NotNull ValueType r) {
+        return switch (op) {
+            case MINUS, MULT, DIV -> orNull(l, NUMBER) && orNull(r, NUMBER) ? pack(NUMBER, NUMBER, NUMBER) : -1;
+            case AND, OR -> orNull(l, BOOL) && orNull(r, BOOL) ? pack(BOOL, BOOL, BOOL) : -1;
+            case PLUS -> overloaded(l, r, false);
+            case LT, GT, LEQ, GEQ -> overloaded(l, r, true);
+            case EQ, NEQ -> (bit(l) & (NUMBER | STRING)) != 0 && (bit(r) & (NUMBER | STRING)) != 0
+                    ? pack(BOOL, bit(l), bit(r))
+                    : -1;
+        };
+    }
+
+    private static boolean orNull(@NotNull ValueType t, int expected) {
+        return (bit(t) & (NULL | expected)) != 0;
+    }
+
+    /**
+     * Addition and comparisons work on numbers or on strings, the type being the one of the left operand,
+     * or the one of the right operand if the left one is null.
+     * A null operand becomes the default value of that type, while any other type fails.
+     */
+    private static int overloaded(@NotNull ValueType l, @NotNull ValueType r, boolean comparison) {
+        ValueType t = l == ValueType.NULL ? r : l;
+        if (t != ValueType.NUMBER && t != ValueType.STRING)
+            return -1;
+        if (r != ValueType.NULL && r != t)
+            return -1;
+        return pack(comparison ? BOOL : bit(t), bit(t), bit(t));
+    }
+
+    private static int pack(int result, int left, int right) {
+        return result | left << 8 | right << 16;
+    }
+
+    /**
+     * Builds the control flow graph, visiting the statements in the same order as the code generation.
+     */
+    private final class Builder implements ASTVisitor<Void> {
+        private final @NotNull Trampoline trampoline = new Trampoline();
+        /**
+         * The block the statements being visited are added to.
+         */
+        private @NotNull Block current;
+
+        private Builder(@NotNull Block entry) {
+            this.current = entry;
+        }
+
+        private void build(@NotNull ASTNode root) {
+            trampoline.run(() -> root.accept(this));
+        }
+
+        private void then(@NotNull Runnable action) {
+            trampoline.then(action);
+        }
+
+        private void visitAll(@NotNull List<? extends ASTNode> l) {
+            trampoline.visitAll(l, this);
+        }
+
+        private void step(@NotNull Runnable step) {
+            current.steps.add(step);
+        }
+
+        private void jump(@NotNull Block from, @NotNull Block to) {
+            from.successors.add(to);
+        }
+
+        private void statement(@NotNull StatementASTNode n) {
+            step(() -> {
+                if (recording)
+                    states.merge(n, state.clone(), (a, b) -> {
+                        for (int i = 0; i < a.length; i++)
+                            a[i] |= b[i];
+                        return a;
+                    });
+            });
+        }
+
+        /**
+         * Add a step evaluating an expression, which leaves its value on {@link #values}.
+         */
+        private void eval(@NotNull ASTNode expr) {
+            List<ASTNode> order = new ArrayList<>();
+            ASTWalker.walk(expr, new ASTWalker.Listener() {
+                @Override
+                public void exit(@NotNull ASTNode n) {
+                    order.add(n);
+                }
+            });
+            ASTNode[] nodes = order.toArray(new ASTNode[0]);
+            step(() -> {
+                for (ASTNode n : nodes) {
+                    if (failed)
+                        return;
+                    evaluate(n);
+                }
+            });
+        }
+
+        @Override
+        public Void visit(@NotNull AssStmtASTNode n) {
+            statement(n);
+            eval(n.getVarName());
+            eval(n.getValue());
+            step(() -> {
+                byte value = values.pop();
+                values.pop();
+                refine(n.getVarName(), copy(n.getValue(), value));
+            });
+            return null;
+        }
+
+        @Override
+        public Void visit(@NotNull ExternalFunctionCallASTNode n) {
+            statement(n);
+            eval(n);
+            step(values::pop);
+            return null;
+        }
+
+        @Override
+        public Void visit(@NotNull ForLoopASTNode n) {
+            statement(n);
+            VariableASTNode var = n.getVarName();
+            eval(var);
+            eval(n.getStart());
+            step(() -> {
+                byte start = values.pop();
+                values.pop();
+                refine(var, copy(n.getStart(), start));
+            });
+
+            Block header = newBlock();
+            jump(current, header);
+            current = header;
+            eval(n.getEnd());
+            step(() -> binOp(BinOpASTNode.BinOp.LEQ, var, (byte) 0, n.getEnd(), values.pop()));
+            Block body = newBlock();
+            Block exit = newBlock();
+            jump(header, body);
+            jump(header, exit);
+            current = body;
+            visitAll(n.getBody());
+            then(() -> {
+                eval(n.getStep());
+                step(() -> {
+                    int sum = binOp(BinOpASTNode.BinOp.PLUS, var, (byte) 0, n.getStep(), values.pop());
+                    refine(var, sum & COPYABLE);
+                });
+                jump(current, header);
+                current = exit;
+            });
+            return null;
+        }
+
+        @Override
+        public Void visit(@NotNull GotoStmtASTNode n) {
+            statement(n);
+            jump(current, label(n.getLabel()));
+            current = newBlock();
+            return null;
+        }
+
+        private @NotNull Block label(@NotNull LabelNameASTNode n) {
+            return labels.computeIfAbsent(n, x -> newBlock());
+        }
+
+        @Override
+        public Void visit(@NotNull IfThenASTNode n) {
+            statement(n);
+            eval(n.getCondition());
+            step(() -> use(n.getCondition(), values.pop()));
+            Block trueBody = newBlock();
+            Block falseBody = newBlock();
+            Block end = newBlock();
+            jump(current, trueBody);
+            jump(current, falseBody);
+            current = trueBody;
+            visitAll(n.getTrueBody());
+            then(() -> {
+                jump(current, end);
+                current = falseBody;
+            });
+            n.getFalseBody().ifPresent(this::visitAll);
+            then(() -> {
+                jump(current, end);
+                current = end;
+            });
+            return null;
+        }
+
+        @Override
+        public Void visit(@NotNull LabelDeclASTNode n) {
+            Block label = label(n.getName());
+            jump(current, label);
+            current = label;
+            statement(n);
+            return null;
+        }
+
+        @Override
+        public Void visit(@NotNull ProgramASTNode n) {
+            visitAll(n.getContents());
+            return null;
+        }
+
+        @Override
+        public Void visit(@NotNull RoutineCallASTNode n) {
+            statement(n);
+            Routine r = routines.get(n.getFunction());
+            if (r == null)
+                return null;
+            jump(current, r.entry());
+            Block back = newBlock();
+            jump(r.exit(), back);
+            current = back;
+            return null;
+        }
+
+        @Override
+        public Void visit(@NotNull RoutineDeclASTNode n) {
+            Routine r = routines.get(n.getName());
+            Block caller = current;
+            current = r.entry();
+            visitAll(n.getBody());
+            then(() -> {
+                jump(current, r.exit());
+                current = caller;
+            });
+            return null;
+        }
+
+        @Override
+        public Void visit(@NotNull WhileLoopASTNode n) {
+            statement(n);
+            Block header = newBlock();
+            jump(current, header);
+            current = header;
+            eval(n.getCondition());
+            step(() -> use(n.getCondition(), values.pop()));
+            Block body = newBlock();
+            Block exit = newBlock();
+            jump(header, body);
+            jump(header, exit);
+            current = body;
+            visitAll(n.getBody());
+            then(() -> {
+                jump(current, header);
+                current = exit;
+            });
+            return null;
+        }
+
+        // expressions are evaluated by eval, and names have no code
+
+        @Override
+        public Void visit(@NotNull BinOpASTNode n) {
+            return null;
+        }
+
+        @Override
+        public Void visit(@NotNull BoolLiteralASTNode n) {
+            return null;
+        }
+
+        @Override
+        public Void visit(@NotNull IdentifierASTNode n) {
+            return null;
+        }
+
+        @Override
+        public Void visit(@NotNull NumberLiteralASTNode n) {
+            return null;
+        }
+
+        @Override
+        public Void visit(@NotNull LabelNameASTNode n) {
+            return null;
+        }
+
+        @Override
+        public Void visit(@NotNull RoutineNameASTNode n) {
+            return null;
+        }
+
+        @Override
+        public Void visit(@NotNull StringLiteralASTNode n) {
+            return null;
+        }
+
+        @Override
+        public Void visit(@NotNull UnaryMinusASTNode n) {
+            return null;
+        }
+
+        @Override
+        public Void visit(@NotNull ArrayASTNode n) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package smallerbasic.AST.analysis;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * A set of {@link ValueType}s, the types something may have at runtime.
+ * Sets are ordered by inclusion, and the empty set is the type of something that is never evaluated.
+ * <p>
+ * There is a single instance for each set, so sets can be compared with {@code ==}.
+ */
+public final class TypeSet {
+    private static final @NotNull TypeSet[] SETS = new TypeSet[1 << ValueType.values().length];
+
+    static {
+        for (int i = 0; i < SETS.length; i++)
+            SETS[i] = new TypeSet(i);
+    }
+
+    public static final @NotNull TypeSet EMPTY = SETS[0];
+    public static final @NotNull TypeSet ALL = SETS[SETS.length - 1];
+
+    private final int bits;
+
+    private TypeSet(int bits) {
+        this.bits = bits;
+    }
+
+    /**
+     * @param bits A bit for each type, the bit {@code 1 << t.ordinal()} standing for {@code t}.
+     */
+    static @NotNull TypeSet ofBits(int bits) {
+        return SETS[bits];
+    }
+
+    int bits() {
+        return bits;
+    }
+
+    public static @NotNull TypeSet of(@NotNull ValueType... types) {
+        int bits = 0;
+        for (ValueType t : types)
+            bits |= 1 << t.ordinal();
+        return SETS[bits];
+    }
+
+    public boolean isEmpty() {
+        return bits == 0;
+    }
+
+    public boolean contains(@NotNull ValueType t) {
+        return (bits & 1 << t.ordinal()) != 0;
+    }
+
+    /**
+     * @return Whether {@code t} is the only type in this set.
+     */
+    public boolean isOnly(@NotNull ValueType t) {
+        return bits == 1 << t.ordinal();
+    }
+
+    public boolean isSubsetOf(@NotNull TypeSet other) {
+        return (bits & ~other.bits) == 0;
+    }
+
+    /**
+     * @return The union of this set and {@code other}.
+     */
+    public @NotNull TypeSet join(@NotNull TypeSet other) {
+        return SETS[bits | other.bits];
+    }
+
+    public @NotNull Set<ValueType> types() {
+        Set<ValueType> types = EnumSet.noneOf(ValueType.class);
+        for (ValueType t : ValueType.values())
+            if (contains(t))
+                types.add(t);
+        return types;
+    }
+
+    @Override
+    public String toString() {
+        return types().toString();
+    }
+}
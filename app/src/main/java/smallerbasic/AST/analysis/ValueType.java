@@ -0,0 +1,16 @@
+package smallerbasic.AST.analysis;
+
+/**
+ * The types a value may have at runtime.
+ * They are declared in the same order as the tags of {@code %struct.Boxed} in the runtime.
+ */
+public enum ValueType {
+    /**
+     * The type of a variable, or of an array element, that has not been assigned yet.
+     */
+    NULL,
+    NUMBER,
+    STRING,
+    BOOL,
+    ARRAY
+}
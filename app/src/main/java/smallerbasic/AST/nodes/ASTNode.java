@@ -12,26 +12,33 @@ import java.util.Optional;
  */
 public interface ASTNode extends ASTVisitable {
     /**
-     * Set the starting token of this node.
+     * Set where this node starts in the source.
+     * Only the position of the token is kept.
      * @param token The starting token of this node. Should not be {@code null}.
      */
     void setStartToken(@NotNull Token token);
     /**
-     * Set the last token of this node.
+     * Set where this node ends in the source.
+     * Only the position of the token is kept.
      * @param token The last token of this node. Should not be {@code null}.
      */
     void setEndToken(@NotNull Token token);
+    /**
+     * Set the position of this node in the source.
+     * @param span The position.
+     */
+    void setSpan(@NotNull SourceSpan span);
 
     /**
-     * Retrieve the starting token associated with this node.
-     * @return {@code Optional.empty()} if no token are associated with this node, otherwise the starting token.
+     * Retrieve the position of this node in the source.
+     * @return {@code Optional.empty()} if no position is associated with this node, otherwise the position.
+     * If the node is a terminal one (e.g. {@link IdentifierASTNode}) the position is the one of its only token.
      */
-    @NotNull Optional<@NotNull Token> getStartToken();
+    @NotNull Optional<@NotNull SourceSpan> getSpan();
     /**
-     * Retrieve the last token associated with this node.
-     * @return {@code Optional.empty()} if no token are associated with this node, otherwise the token.
-     * If the node is a terminal one (e.g. {@link IdentifierASTNode}) the end token should be the same as the start one.
+     * Same as {@code getSpan().map(SourceSpan::startLine).orElse(-1)}, without building the span.
+     * @return The line where this node starts, -1 if no position is associated with this node.
      */
-    @NotNull Optional<@NotNull Token> getEndToken();
+    int getStartLine();
 
 }
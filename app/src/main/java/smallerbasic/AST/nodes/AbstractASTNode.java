@@ -2,34 +2,60 @@ package smallerbasic.AST.nodes;
 
 import org.antlr.v4.runtime.Token;
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.annotations.Nullable;
 
 import java.util.Optional;
 
 /**
- * Each node in the AST MAY come with a Token (or Tokens).
+ * Each node in the AST MAY come with a position in the source, taken from its start and end tokens.
  * If a node is a leaf the start token and the end token will be the same.
- * The token information is NOT used to test if two nodes are equal, and only their fields are considered.
+ * The position is NOT used to test if two nodes are equal, and only their fields are considered.
+ * Since nodes are immutable, each node computes its hash code once, when it is built, from the ones of its children;
+ * two nodes are then compared field by field only if their hash codes are equal.
+ * <p>
+ * Only the lines and columns of the tokens are kept, each pair packed in a {@code long}, and not the tokens themselves:
+ * a token references the stream it comes from, which would otherwise be kept alive as long as the AST.
  */
 public abstract class AbstractASTNode implements ASTNode {
 
-    private @Nullable Token start = null;
-    private @Nullable Token end   = null;
+    private static final long NO_POSITION = -1;
+
+    private long start = NO_POSITION;
+    private long end   = NO_POSITION;
+
+    private static long pack(int line, int column) {
+        return ((long) line << 32) | (column & 0xFFFFFFFFL);
+    }
+
+    private static int line(long position) {
+        return (int) (position >>> 32);
+    }
+
+    private static int column(long position) {
+        return (int) position;
+    }
+
     @Override
     public void setStartToken(@NotNull Token token) {
-        start = token;
+        start = pack(token.getLine(), token.getCharPositionInLine());
     }
     @Override
     public void setEndToken(@NotNull Token token) {
-        end = token;
+        end = pack(token.getLine(), token.getCharPositionInLine() + token.getText().length());
+    }
+    @Override
+    public void setSpan(@NotNull SourceSpan span) {
+        start = pack(span.startLine(), span.startColumn());
+        end = pack(span.endLine(), span.endColumn());
     }
     @Override
-    public @NotNull Optional<@NotNull Token> getStartToken() {
-        return Optional.ofNullable(start);
+    public @NotNull Optional<@NotNull SourceSpan> getSpan() {
+        if (start == NO_POSITION || end == NO_POSITION)
+            return Optional.empty();
+        return Optional.of(new SourceSpan(line(start), column(start), line(end), column(end)));
     }
     @Override
-    public @NotNull Optional<@NotNull Token> getEndToken() {
-        return Optional.ofNullable(end);
+    public int getStartLine() {
+        return start == NO_POSITION ? -1 : line(start);
     }
 
 }
@@ -15,10 +15,12 @@ import java.util.Objects;
 public class ArrayASTNode extends AbstractASTNode implements ExpressionASTNode, VariableASTNode {
     private final @NotNull IdentifierASTNode name;
     private final @NotNull List<@NotNull ExpressionASTNode> indexes;
+    private final int hash;
 
     public ArrayASTNode(@NotNull IdentifierASTNode name, @NotNull List<@NotNull ExpressionASTNode> indexes) {
         this.name = name;
         this.indexes = indexes;
+        this.hash = Objects.hash(name, indexes);
     }
 
     public @NotNull IdentifierASTNode getName() {
@@ -34,7 +36,7 @@ public class ArrayASTNode extends AbstractASTNode implements ExpressionASTNode,
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         ArrayASTNode that = (ArrayASTNode) o;
-        return name.equals(that.name) && indexes.equals(that.indexes);
+        return hash == that.hash && name.equals(that.name) && indexes.equals(that.indexes);
     }
 
     @Override
@@ -47,7 +49,7 @@ public class ArrayASTNode extends AbstractASTNode implements ExpressionASTNode,
 
     @Override
     public int hashCode() {
-        return Objects.hash(name, indexes);
+        return hash;
     }
 
     @Override
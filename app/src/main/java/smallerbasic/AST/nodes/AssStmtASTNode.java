@@ -13,10 +13,12 @@ import java.util.Objects;
 public class AssStmtASTNode extends AbstractASTNode implements StatementASTNode {
     private final @NotNull VariableASTNode varName;
     private final @NotNull ExpressionASTNode value;
+    private final int hash;
 
     public AssStmtASTNode(@NotNull VariableASTNode varName, @NotNull ExpressionASTNode value) {
         this.varName = varName;
         this.value = value;
+        this.hash = Objects.hash(varName, value);
     }
 
     public @NotNull VariableASTNode getVarName() {
@@ -32,12 +34,12 @@ public class AssStmtASTNode extends AbstractASTNode implements StatementASTNode
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         AssStmtASTNode that = (AssStmtASTNode) o;
-        return varName.equals(that.varName) && value.equals(that.value);
+        return hash == that.hash && varName.equals(that.varName) && value.equals(that.value);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(varName, value);
+        return hash;
     }
 
     @Override
@@ -15,11 +15,13 @@ public class BinOpASTNode extends AbstractASTNode implements ExpressionASTNode {
     private final @NotNull BinOp op;
     private final @NotNull ExpressionASTNode left;
     private final @NotNull ExpressionASTNode right;
+    private final int hash;
 
     public BinOpASTNode(@NotNull BinOp op, @NotNull ExpressionASTNode left, @NotNull ExpressionASTNode right) {
         this.op = op;
         this.left = left;
         this.right = right;
+        this.hash = Objects.hash(op, left, right);
     }
 
     @Override
@@ -80,12 +82,12 @@ public class BinOpASTNode extends AbstractASTNode implements ExpressionASTNode {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         BinOpASTNode that = (BinOpASTNode) o;
-        return op == that.op && left.equals(that.left) && right.equals(that.right);
+        return hash == that.hash && op == that.op && left.equals(that.left) && right.equals(that.right);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(op, left, right);
+        return hash;
     }
 
     @Override
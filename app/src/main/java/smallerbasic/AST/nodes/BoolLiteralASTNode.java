@@ -10,12 +10,14 @@ import java.util.Objects;
  */
 public class BoolLiteralASTNode extends AbstractASTNode implements LiteralASTNode {
     private final boolean value;
+    private final int hash;
 
     public static @NotNull BoolLiteralASTNode parse(@NotNull String text) {
         return new BoolLiteralASTNode("true".equals(text));
     }
     public BoolLiteralASTNode(boolean value) {
         this.value = value;
+        this.hash = Objects.hash(value);
     }
 
     public boolean getValue() {
@@ -31,12 +33,12 @@ public class BoolLiteralASTNode extends AbstractASTNode implements LiteralASTNod
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         BoolLiteralASTNode that = (BoolLiteralASTNode) o;
-        return value == that.value;
+        return hash == that.hash && value == that.value;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(value);
+        return hash;
     }
 
     @Override
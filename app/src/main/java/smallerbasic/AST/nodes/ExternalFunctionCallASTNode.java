@@ -16,6 +16,7 @@ public class ExternalFunctionCallASTNode extends AbstractASTNode implements Stat
     private final @NotNull String module;
     private final @NotNull String function;
     private final @NotNull List<@NotNull ExpressionASTNode> args;
+    private final int hash;
 
     public ExternalFunctionCallASTNode(
             @NotNull String module,
@@ -25,6 +26,7 @@ public class ExternalFunctionCallASTNode extends AbstractASTNode implements Stat
         this.module = module;
         this.function = function;
         this.args = args;
+        this.hash = Objects.hash(module, function, args);
     }
 
     public @NotNull String getModule() {
@@ -49,12 +51,12 @@ public class ExternalFunctionCallASTNode extends AbstractASTNode implements Stat
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         ExternalFunctionCallASTNode that = (ExternalFunctionCallASTNode) o;
-        return module.equals(that.module) && function.equals(that.function) && args.equals(that.args);
+        return hash == that.hash && module.equals(that.module) && function.equals(that.function) && args.equals(that.args);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(module, function, args);
+        return hash;
     }
 
     @Override
@@ -19,6 +19,7 @@ public class ForLoopASTNode extends AbstractASTNode implements StatementASTNode
     private final @NotNull ExpressionASTNode end;
     private final @NotNull ExpressionASTNode step;
     private final @NotNull List<@NotNull StatementASTNode> body;
+    private final int hash;
 
     public ForLoopASTNode(
             @NotNull VariableASTNode varName,
@@ -31,6 +32,7 @@ public class ForLoopASTNode extends AbstractASTNode implements StatementASTNode
         this.end = end;
         this.step = step;
         this.body = body;
+        this.hash = Objects.hash(varName, start, end, step, body);
     }
 
 
@@ -72,7 +74,7 @@ public class ForLoopASTNode extends AbstractASTNode implements StatementASTNode
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         ForLoopASTNode that = (ForLoopASTNode) o;
-        return varName.equals(that.varName)
+        return hash == that.hash && varName.equals(that.varName)
                 && start.equals(that.start)
                 && end.equals(that.end)
                 && step.equals(that.step)
@@ -81,7 +83,7 @@ public class ForLoopASTNode extends AbstractASTNode implements StatementASTNode
 
     @Override
     public int hashCode() {
-        return Objects.hash(varName, start, end, step, body);
+        return hash;
     }
 
     @Override
@@ -11,9 +11,11 @@ import java.util.Objects;
  */
 public class GotoStmtASTNode extends AbstractASTNode implements StatementASTNode {
     private final @NotNull LabelNameASTNode label;
+    private final int hash;
 
     public GotoStmtASTNode(@NotNull LabelNameASTNode label) {
         this.label = label;
+        this.hash = Objects.hash(label);
     }
 
     @Override
@@ -21,7 +23,7 @@ public class GotoStmtASTNode extends AbstractASTNode implements StatementASTNode
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         GotoStmtASTNode that = (GotoStmtASTNode) o;
-        return label.equals(that.label);
+        return hash == that.hash && label.equals(that.label);
     }
 
     public @NotNull LabelNameASTNode getLabel() {
@@ -35,7 +37,7 @@ public class GotoStmtASTNode extends AbstractASTNode implements StatementASTNode
 
     @Override
     public int hashCode() {
-        return Objects.hash(label);
+        return hash;
     }
 
     @Override
@@ -10,9 +10,11 @@ import java.util.Objects;
  */
 public class IdentifierASTNode extends AbstractASTNode implements ExpressionASTNode, VariableASTNode {
     private final @NotNull String name;
+    private final int hash;
 
     public IdentifierASTNode(@NotNull String name) {
         this.name = name;
+        this.hash = Objects.hash(name);
     }
 
     public @NotNull String getName() {
@@ -29,12 +31,12 @@ public class IdentifierASTNode extends AbstractASTNode implements ExpressionASTN
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         IdentifierASTNode that = (IdentifierASTNode) o;
-        return name.equals(that.name);
+        return hash == that.hash && name.equals(that.name);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(name);
+        return hash;
     }
 
     @Override
@@ -18,6 +18,7 @@ public class IfThenASTNode extends AbstractASTNode implements StatementASTNode {
     private final @NotNull ExpressionASTNode condition;
     private final @NotNull List<@NotNull StatementASTNode> trueBody;
     private final @Nullable List<@NotNull StatementASTNode> falseBody;
+    private final int hash;
 
     public IfThenASTNode(
             @NotNull ExpressionASTNode condition,
@@ -32,6 +33,7 @@ public class IfThenASTNode extends AbstractASTNode implements StatementASTNode {
         this.condition = condition;
         this.trueBody = trueBody;
         this.falseBody = falseBody;
+        this.hash = Objects.hash(condition, trueBody, falseBody);
     }
 
     public @NotNull ExpressionASTNode getCondition() {
@@ -56,14 +58,14 @@ public class IfThenASTNode extends AbstractASTNode implements StatementASTNode {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         IfThenASTNode that = (IfThenASTNode) o;
-        return condition.equals(that.condition)
+        return hash == that.hash && condition.equals(that.condition)
                 && trueBody.equals(that.trueBody)
                 && Objects.equals(falseBody, that.falseBody);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(condition, trueBody, falseBody);
+        return hash;
     }
 
     @Override
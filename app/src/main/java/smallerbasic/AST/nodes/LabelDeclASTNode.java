@@ -10,9 +10,11 @@ import java.util.Objects;
  */
 public class LabelDeclASTNode extends AbstractASTNode implements StatementASTNode {
     private final @NotNull LabelNameASTNode name;
+    private final int hash;
 
     public LabelDeclASTNode(@NotNull LabelNameASTNode name) {
         this.name = name;
+        this.hash = Objects.hash(name);
     }
 
     public @NotNull LabelNameASTNode getName() {
@@ -28,12 +30,12 @@ public class LabelDeclASTNode extends AbstractASTNode implements StatementASTNod
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         LabelDeclASTNode that = (LabelDeclASTNode) o;
-        return name.equals(that.name);
+        return hash == that.hash && name.equals(that.name);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(name);
+        return hash;
     }
 
     @Override
@@ -13,10 +13,12 @@ public class LabelNameASTNode extends AbstractASTNode implements ASTNode {
     private final @NotNull String text;
 
     private final @NotNull Scope scope;
+    private final int hash;
 
     public LabelNameASTNode(@NotNull String text, @NotNull Scope scope) {
         this.text = text;
         this.scope = scope;
+        this.hash = Objects.hash(text, scope);
     }
 
     public @NotNull Scope getScope() {
@@ -37,12 +39,12 @@ public class LabelNameASTNode extends AbstractASTNode implements ASTNode {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         LabelNameASTNode that = (LabelNameASTNode) o;
-        return text.equals(that.text) && scope.equals(that.scope);
+        return hash == that.hash && text.equals(that.text) && scope.equals(that.scope);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(text, scope);
+        return hash;
     }
 
     @Override
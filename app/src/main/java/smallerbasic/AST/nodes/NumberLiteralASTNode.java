@@ -11,12 +11,14 @@ import java.util.Objects;
  */
 public class NumberLiteralASTNode extends AbstractASTNode implements LiteralASTNode {
     private final double value;
+    private final int hash;
 
     public static @NotNull NumberLiteralASTNode parse(@NotNull String text) {
         return new NumberLiteralASTNode(Double.parseDouble(text));
     }
     public NumberLiteralASTNode(double value) {
         this.value = value;
+        this.hash = Objects.hash(value);
     }
 
     public double getValue() {
@@ -28,7 +30,7 @@ public class NumberLiteralASTNode extends AbstractASTNode implements LiteralASTN
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         NumberLiteralASTNode that = (NumberLiteralASTNode) o;
-        return Double.compare(that.value, value) == 0;
+        return hash == that.hash && Double.compare(that.value, value) == 0;
     }
 
     @Override
@@ -38,7 +40,7 @@ public class NumberLiteralASTNode extends AbstractASTNode implements LiteralASTN
 
     @Override
     public int hashCode() {
-        return Objects.hash(value);
+        return hash;
     }
 
     @Override
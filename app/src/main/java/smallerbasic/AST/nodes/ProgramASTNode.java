@@ -14,9 +14,11 @@ import java.util.Objects;
 public class ProgramASTNode extends AbstractASTNode implements ASTNode {
 
     private final @NotNull List<@NotNull DeclOrStmtASTNode> contents;
+    private final int hash;
 
     public ProgramASTNode(@NotNull List<@NotNull DeclOrStmtASTNode> contents) {
         this.contents = contents;
+        this.hash = Objects.hash(contents);
     }
 
     public @NotNull List<@NotNull DeclOrStmtASTNode> getContents() {
@@ -32,13 +34,13 @@ public class ProgramASTNode extends AbstractASTNode implements ASTNode {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         ProgramASTNode that = (ProgramASTNode) o;
-        return contents.equals(that.contents);
+        return hash == that.hash && contents.equals(that.contents);
     }
 
 
     @Override
     public int hashCode() {
-        return Objects.hash(contents);
+        return hash;
     }
 
     @Override
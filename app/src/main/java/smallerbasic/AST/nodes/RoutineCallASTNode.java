@@ -10,8 +10,10 @@ import java.util.Objects;
  */
 public class RoutineCallASTNode extends AbstractASTNode implements StatementASTNode {
     private final @NotNull RoutineNameASTNode function;
+    private final int hash;
     public RoutineCallASTNode(@NotNull RoutineNameASTNode function) {
         this.function = function;
+        this.hash = Objects.hash(function);
     }
 
     public @NotNull RoutineNameASTNode getFunction() {
@@ -28,12 +30,12 @@ public class RoutineCallASTNode extends AbstractASTNode implements StatementASTN
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         RoutineCallASTNode that = (RoutineCallASTNode) o;
-        return function.equals(that.function);
+        return hash == that.hash && function.equals(that.function);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(function);
+        return hash;
     }
 
     @Override
@@ -13,10 +13,12 @@ import java.util.Objects;
 public class RoutineDeclASTNode extends AbstractASTNode implements DeclOrStmtASTNode {
     private final @NotNull RoutineNameASTNode name;
     private final @NotNull List<@NotNull StatementASTNode> body;
+    private final int hash;
     public RoutineDeclASTNode(@NotNull RoutineNameASTNode name,
                               @NotNull List<@NotNull StatementASTNode> body) {
         this.name = name;
         this.body = body;
+        this.hash = Objects.hash(name, body);
     }
 
     public @NotNull RoutineNameASTNode getName() {
@@ -37,12 +39,12 @@ public class RoutineDeclASTNode extends AbstractASTNode implements DeclOrStmtAST
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         RoutineDeclASTNode that = (RoutineDeclASTNode) o;
-        return name.equals(that.name) && body.equals(that.body);
+        return hash == that.hash && name.equals(that.name) && body.equals(that.body);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(name, body);
+        return hash;
     }
 
     @Override
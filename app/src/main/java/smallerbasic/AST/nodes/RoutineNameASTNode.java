@@ -11,9 +11,11 @@ import java.util.Objects;
 public class RoutineNameASTNode extends AbstractASTNode implements ASTNode {
 
     private final @NotNull String text;
+    private final int hash;
 
     public RoutineNameASTNode(@NotNull String text) {
         this.text = text;
+        this.hash = Objects.hash(text);
     }
 
     public @NotNull String getText() {
@@ -30,12 +32,12 @@ public class RoutineNameASTNode extends AbstractASTNode implements ASTNode {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         RoutineNameASTNode that = (RoutineNameASTNode) o;
-        return text.equals(that.text);
+        return hash == that.hash && text.equals(that.text);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(text);
+        return hash;
     }
 
     @Override
@@ -0,0 +1,13 @@
+package smallerbasic.AST.nodes;
+
+/**
+ * The position of a node in the source.
+ * Lines start from 1 and columns from 0, as in {@link org.antlr.v4.runtime.Token}.
+ *
+ * @param startLine   The line of the first token of the node.
+ * @param startColumn The column of the first character of the first token.
+ * @param endLine     The line of the last token of the node.
+ * @param endColumn   The column following the last character of the last token.
+ */
+public record SourceSpan(int startLine, int startColumn, int endLine, int endColumn) {
+}
@@ -10,9 +10,11 @@ import java.util.Objects;
  */
 public class StringLiteralASTNode extends AbstractASTNode implements LiteralASTNode {
     private final @NotNull String value;
+    private final int hash;
 
     public StringLiteralASTNode(@NotNull String value) {
         this.value = value;
+        this.hash = Objects.hash(value);
     }
 
     public @NotNull String getValue() {
@@ -28,12 +30,12 @@ public class StringLiteralASTNode extends AbstractASTNode implements LiteralASTN
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         StringLiteralASTNode that = (StringLiteralASTNode) o;
-        return value.equals(that.value);
+        return hash == that.hash && value.equals(that.value);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(value);
+        return hash;
     }
 
     @Override
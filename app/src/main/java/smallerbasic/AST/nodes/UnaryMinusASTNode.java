@@ -11,9 +11,11 @@ import java.util.Objects;
 public class UnaryMinusASTNode extends AbstractASTNode implements ExpressionASTNode {
 
     private final @NotNull ExpressionASTNode expr;
+    private final int hash;
 
     public UnaryMinusASTNode(@NotNull ExpressionASTNode expr) {
         this.expr = expr;
+        this.hash = Objects.hash(expr);
     }
 
     public @NotNull ExpressionASTNode getExpr() {
@@ -30,12 +32,12 @@ public class UnaryMinusASTNode extends AbstractASTNode implements ExpressionASTN
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         UnaryMinusASTNode that = (UnaryMinusASTNode) o;
-        return expr.equals(that.expr);
+        return hash == that.hash && expr.equals(that.expr);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(expr);
+        return hash;
     }
 
     @Override
@@ -13,10 +13,12 @@ import java.util.Objects;
 public class WhileLoopASTNode extends AbstractASTNode implements StatementASTNode {
     private final @NotNull ExpressionASTNode condition;
     private final @NotNull List<@NotNull StatementASTNode> body;
+    private final int hash;
 
     public WhileLoopASTNode(@NotNull ExpressionASTNode condition, @NotNull List<StatementASTNode> body) {
         this.condition = condition;
         this.body = body;
+        this.hash = Objects.hash(condition, body);
     }
     @Override
     public <T> T accept(ASTVisitor<T> v) {
@@ -36,12 +38,12 @@ public class WhileLoopASTNode extends AbstractASTNode implements StatementASTNod
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         WhileLoopASTNode that = (WhileLoopASTNode) o;
-        return condition.equals(that.condition) && body.equals(that.body);
+        return hash == that.hash && condition.equals(that.condition) && body.equals(that.body);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(condition, body);
+        return hash;
     }
 
     @Override
@@ -0,0 +1,321 @@
+package smallerbasic.AST.optimizations;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import smallerbasic.AST.ASTRewriter;
+import smallerbasic.AST.ASTWalker;
+import smallerbasic.AST.nodes.*;
+
+import java.util.*;
+
+/**
+ * Folds the operators whose operands are literals, and propagates the literals assigned to global variables.
+ * <p>
+ * An operator is folded only if the runtime would compute the same value without failing:
+ * a division by zero, an operator applied to values of the wrong types, or a number that is not finite
+ * are left to the runtime. Strings are folded only if they are made of printable ASCII characters
+ * other than quotes and backslashes, so that their bytes are the characters themselves.
+ * <p>
+ * A variable is replaced by its value where it is read, if it is assigned exactly once, by a statement
+ * of the main program (not nested in any other statement) whose value is a literal, and if it is not used
+ * as an array or as the variable of a {@code For}. The reads replaced are those in the following statements
+ * of the main program and those in the routines only called after the assignment, unless a {@code Goto}
+ * before the assignment jumps after it. Folding and propagation are repeated until nothing changes,
+ * so that {@code Max = 10} and {@code Half = Max / 2} make {@code Half} a constant too.
+ */
+public class ConstantFolding implements Pass {
+    private int folded;
+    private int propagated;
+
+    @Override
+    public @NotNull String getName() {
+        return "constant-folding";
+    }
+
+    @Override
+    public @NotNull ASTNode run(@NotNull ASTNode n) {
+        folded = 0;
+        propagated = 0;
+        ASTNode result = rewrite(n, Map.of());
+        while (result instanceof ProgramASTNode) {
+            Map<Integer, LiteralASTNode> replacements = new Uses(result).replacements();
+            if (replacements.isEmpty())
+                break;
+            propagated += replacements.size();
+            result = rewrite(result, replacements);
+        }
+        return result;
+    }
+
+    @Override
+    public @NotNull Map<String, Integer> getStatistics() {
+        Map<String, Integer> statistics = new LinkedHashMap<>();
+        statistics.put("folded", folded);
+        statistics.put("propagated", propagated);
+        return statistics;
+    }
+
+    /**
+     * Folds a tree, replacing some of its identifiers.
+     * @param replacements The literals to use instead of the identifiers, by their position in the walk of the tree.
+     */
+    private @NotNull ASTNode rewrite(@NotNull ASTNode tree, @NotNull Map<Integer, LiteralASTNode> replacements) {
+        int[] identifiers = {0};
+        return Objects.requireNonNull(ASTRewriter.rewrite(tree, n -> {
+            if (n instanceof IdentifierASTNode) {
+                LiteralASTNode value = replacements.get(identifiers[0]++);
+                return value == null ? n : spanned(copy(value), n);
+            }
+            ASTNode result = null;
+            if (n instanceof BinOpASTNode op)
+                result = fold(op.getOp(), op.getLeft(), op.getRight());
+            else if (n instanceof UnaryMinusASTNode minus && minus.getExpr() instanceof NumberLiteralASTNode x)
+                result = number(0.0 - x.getValue());
+            if (result == null)
+                return n;
+            folded++;
+            return spanned(result, n);
+        }));
+    }
+
+    private static @NotNull ASTNode spanned(@NotNull ASTNode n, @NotNull ASTNode original) {
+        original.getSpan().ifPresent(n::setSpan);
+        return n;
+    }
+
+    private static @NotNull LiteralASTNode copy(@NotNull LiteralASTNode n) {
+        if (n instanceof NumberLiteralASTNode x)
+            return new NumberLiteralASTNode(x.getValue());
+        if (n instanceof StringLiteralASTNode s)
+            return new StringLiteralASTNode(s.getValue());
+        return new BoolLiteralASTNode(((BoolLiteralASTNode) n).getValue());
+    }
+
+    /**
+     * @return The value of {@code left op right}, {@code null} if it is not known or if the runtime would fail.
+     */
+    private static @Nullable LiteralASTNode fold(@NotNull BinOpASTNode.BinOp op,
+                                                 @NotNull ExpressionASTNode left,
+                                                 @NotNull ExpressionASTNode right) {
+        if (left instanceof NumberLiteralASTNode a && right instanceof NumberLiteralASTNode b)
+            return numbers(op, a.getValue(), b.getValue());
+        if (left instanceof StringLiteralASTNode a && right instanceof StringLiteralASTNode b)
+            return isPlain(a.getValue()) && isPlain(b.getValue()) ? strings(op, a.getValue(), b.getValue()) : null;
+        if (left instanceof BoolLiteralASTNode a && right instanceof BoolLiteralASTNode b)
+            return bools(op, a.getValue(), b.getValue());
+        // a number and a string are never equal, any other operator fails
+        boolean mixed = left instanceof NumberLiteralASTNode && right instanceof StringLiteralASTNode
+                || left instanceof StringLiteralASTNode && right instanceof NumberLiteralASTNode;
+        if (mixed && (op == BinOpASTNode.BinOp.EQ || op == BinOpASTNode.BinOp.NEQ))
+            return new BoolLiteralASTNode(op == BinOpASTNode.BinOp.NEQ);
+        return null;
+    }
+
+    private static @Nullable LiteralASTNode numbers(@NotNull BinOpASTNode.BinOp op, double a, double b) {
+        return switch (op) {
+            case PLUS -> number(a + b);
+            case MINUS -> number(a - b);
+            case MULT -> number(a * b);
+            // the runtime fails on both zeros
+            case DIV -> b == 0.0 ? null : number(a / b);
+            // ordered comparisons, as the runtime
+            case LT -> new BoolLiteralASTNode(a < b);
+            case GT -> new BoolLiteralASTNode(a > b);
+            case LEQ -> new BoolLiteralASTNode(a <= b);
+            case GEQ -> new BoolLiteralASTNode(a >= b);
+            case EQ -> new BoolLiteralASTNode(a == b);
+            case NEQ -> new BoolLiteralASTNode(a < b || a > b);
+            case AND, OR -> null;
+        };
+    }
+
+    private static @Nullable LiteralASTNode number(double x) {
+        // the IR has no literal for the others
+        return Double.isFinite(x) ? new NumberLiteralASTNode(x) : null;
+    }
+
+    private static @Nullable LiteralASTNode strings(@NotNull BinOpASTNode.BinOp op, @NotNull String a, @NotNull String b) {
+        // on ASCII characters compareTo orders as strcmp
+        return switch (op) {
+            case PLUS -> new StringLiteralASTNode(a + b);
+            case LT -> new BoolLiteralASTNode(a.compareTo(b) < 0);
+            case GT -> new BoolLiteralASTNode(a.compareTo(b) > 0);
+            case LEQ -> new BoolLiteralASTNode(a.compareTo(b) <= 0);
+            case GEQ -> new BoolLiteralASTNode(a.compareTo(b) >= 0);
+            case EQ -> new BoolLiteralASTNode(a.equals(b));
+            case NEQ -> new BoolLiteralASTNode(!a.equals(b));
+            case MINUS, MULT, DIV, AND, OR -> null;
+        };
+    }
+
+    private static boolean isPlain(@NotNull String s) {
+        return s.chars().allMatch(c -> c >= ' ' && c <= '~' && c != '"' && c != '\\');
+    }
+
+    private static @Nullable LiteralASTNode bools(@NotNull BinOpASTNode.BinOp op, boolean a, boolean b) {
+        return switch (op) {
+            case AND -> new BoolLiteralASTNode(a && b);
+            case OR -> new BoolLiteralASTNode(a || b);
+            // the runtime compares only numbers and strings
+            default -> null;
+        };
+    }
+
+    /**
+     * The reads and writes of the global variables of a program, walking it once.
+     * Identifiers are numbered in the order they are exited, as {@link ASTRewriter} applies its rule.
+     */
+    private static final class Uses implements ASTWalker.Listener {
+        private static final int NONE = -1;
+
+        private static final class Variable {
+            private int writes = 0;
+            private boolean isArray = false;
+            private int assignedAt = NONE;
+            private @Nullable LiteralASTNode value = null;
+            private final @NotNull List<Read> reads = new ArrayList<>();
+        }
+
+        /**
+         * @param statement The index of the statement of the main program containing the read, {@link #NONE}
+         *                  if it is in a routine.
+         */
+        private record Read(int identifier, int statement, @Nullable String routine) {}
+
+        private final @NotNull Map<String, Variable> variables = new LinkedHashMap<>();
+        private final @NotNull Map<LabelNameASTNode, Integer> labels = new HashMap<>();
+        private final @NotNull List<Map.Entry<Integer, LabelNameASTNode>> gotos = new ArrayList<>();
+        private final @NotNull Map<String, Integer> firstCall = new HashMap<>();
+        private final @NotNull Map<String, Set<String>> callees = new HashMap<>();
+        private int statements = 0;
+
+        private int depth = 0;
+        private int statement = NONE;
+        private @Nullable String routine = null;
+        private int identifiers = 0;
+        private boolean isWrite = false;
+        private boolean isArrayName = false;
+
+        private Uses(@NotNull ASTNode program) {
+            ASTWalker.walk(program, this);
+        }
+
+        private @NotNull Variable variable(@NotNull IdentifierASTNode n) {
+            return variables.computeIfAbsent(n.getName(), k -> new Variable());
+        }
+
+        @Override
+        public @NotNull List<? extends ASTNode> enter(@NotNull ASTNode n) {
+            if (++depth == 2) {
+                if (n instanceof RoutineDeclASTNode decl)
+                    routine = decl.getName().getText();
+                else
+                    statement = statements++;
+            }
+            if (n instanceof AssStmtASTNode ass && ass.getVarName() instanceof IdentifierASTNode id) {
+                Variable v = variable(id);
+                v.writes++;
+                if (depth == 2 && ass.getValue() instanceof LiteralASTNode value) {
+                    v.assignedAt = statement;
+                    v.value = value;
+                }
+                isWrite = true;
+            } else if (n instanceof ForLoopASTNode loop && loop.getVarName() instanceof IdentifierASTNode id) {
+                variable(id).writes++;
+                isWrite = true;
+            } else if (n instanceof ArrayASTNode)
+                isArrayName = true;
+            else if (n instanceof LabelDeclASTNode decl && routine == null)
+                labels.put(decl.getName(), statement);
+            else if (n instanceof GotoStmtASTNode jump && routine == null)
+                gotos.add(Map.entry(statement, jump.getLabel()));
+            else if (n instanceof RoutineCallASTNode call) {
+                String callee = call.getFunction().getText();
+                if (routine == null)
+                    firstCall.merge(callee, statement, Math::min);
+                else
+                    callees.computeIfAbsent(routine, k -> new HashSet<>()).add(callee);
+            }
+            return ASTWalker.children(n);
+        }
+
+        @Override
+        public void exit(@NotNull ASTNode n) {
+            if (n instanceof IdentifierASTNode id) {
+                // the target of an assignment, the variable of a For and the name of an array are their first child
+                if (isArrayName)
+                    variable(id).isArray = true;
+                else if (!isWrite)
+                    variable(id).reads.add(new Read(identifiers, routine == null ? statement : NONE, routine));
+                isWrite = false;
+                isArrayName = false;
+                identifiers++;
+            }
+            if (depth-- == 2) {
+                routine = null;
+                statement = NONE;
+            }
+        }
+
+        /**
+         * @return For each routine, the index of the first statement of the main program from which it may be
+         * called, directly or through other routines.
+         */
+        private @NotNull Map<String, Integer> firstCalls() {
+            Map<String, Integer> result = new HashMap<>(firstCall);
+            Deque<String> worklist = new ArrayDeque<>(result.keySet());
+            while (!worklist.isEmpty()) {
+                String caller = worklist.pop();
+                int first = result.get(caller);
+                for (String callee : callees.getOrDefault(caller, Set.of()))
+                    if (first < result.getOrDefault(callee, Integer.MAX_VALUE)) {
+                        result.put(callee, first);
+                        worklist.push(callee);
+                    }
+            }
+            return result;
+        }
+
+        /**
+         * @return For each statement of the main program, whether a {@code Goto} before it jumps after it.
+         */
+        private boolean @NotNull [] jumpedOver() {
+            int[] starts = new int[statements + 1];
+            for (Map.Entry<Integer, LabelNameASTNode> jump : gotos) {
+                Integer target = labels.get(jump.getValue());
+                if (target != null && target > jump.getKey() + 1) {
+                    starts[jump.getKey() + 1]++;
+                    starts[target]--;
+                }
+            }
+            boolean[] result = new boolean[statements];
+            int open = 0;
+            for (int i = 0; i < statements; i++) {
+                open += starts[i];
+                result[i] = open > 0;
+            }
+            return result;
+        }
+
+        /**
+         * @return The literals that can replace the reads of the variables, by the position of the identifiers.
+         */
+        private @NotNull Map<Integer, LiteralASTNode> replacements() {
+            Map<String, Integer> firstCalls = firstCalls();
+            boolean[] jumpedOver = jumpedOver();
+            Map<Integer, LiteralASTNode> result = new HashMap<>();
+            for (Variable v : variables.values()) {
+                if (v.writes != 1 || v.isArray || v.value == null || jumpedOver[v.assignedAt])
+                    continue;
+                for (Read r : v.reads) {
+                    boolean after = r.routine() == null
+                            ? r.statement() > v.assignedAt
+                            : firstCalls.getOrDefault(r.routine(), Integer.MAX_VALUE) > v.assignedAt;
+                    if (after)
+                        result.put(r.identifier(), v.value);
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package smallerbasic.AST.optimizations;
+
+import org.jetbrains.annotations.NotNull;
+import smallerbasic.AST.ASTRewriter;
+import smallerbasic.AST.ASTWalker;
+import smallerbasic.AST.analysis.TypeAnnotations;
+import smallerbasic.AST.analysis.TypeInference;
+import smallerbasic.AST.analysis.TypeSet;
+import smallerbasic.AST.analysis.ValueType;
+import smallerbasic.AST.nodes.*;
+
+import java.util.*;
+
+/**
+ * Removes the code that is never run, and the assignments whose value is never read.
+ * <p>
+ * A statement is removed if {@link TypeAnnotations#isReachable} says it is never run: it follows a {@code Goto}
+ * with no label in between, every path to it fails at runtime, or it is in a routine that is never called.
+ * A routine is removed if no statement that is run calls it.
+ * <p>
+ * Then an assignment to a variable is removed if the variable is never read, and if the value assigned is
+ * a literal or another variable that can only be a number, a string or a boolean there, since computing anything
+ * else may fail at runtime: copying a null value or an array fails. The statements removed thus never fail, and
+ * a statement whose failure makes the following ones unreachable is always kept.
+ * Removing {@code X = Y} may leave {@code Y} unread, so that its assignments are removed too.
+ * Variables used as arrays or by a {@code For} are never removed.
+ * <p>
+ * The globals and the literals that are only used by the code removed are no longer in the tree, so they are
+ * not allocated nor initialized.
+ */
+public class DeadCodeElimination implements Pass {
+    /**
+     * The types of the values that can be copied without failing.
+     */
+    private static final @NotNull TypeSet COPYABLE = TypeSet.of(ValueType.NUMBER, ValueType.STRING, ValueType.BOOL);
+
+    private int unreachable;
+    private int uncalled;
+    private int unused;
+
+    @Override
+    public @NotNull String getName() {
+        return "dead-code";
+    }
+
+    @Override
+    public @NotNull ASTNode run(@NotNull ASTNode n) {
+        unreachable = 0;
+        uncalled = 0;
+        unused = 0;
+        TypeAnnotations types = TypeInference.run(n);
+        ASTNode result = removeUnreachable(n, types);
+        if (result != n)
+            types = TypeInference.run(result);
+        return removeUnused(result, types);
+    }
+
+    @Override
+    public @NotNull Map<String, Integer> getStatistics() {
+        Map<String, Integer> statistics = new LinkedHashMap<>();
+        statistics.put("unreachable", unreachable);
+        statistics.put("uncalled", uncalled);
+        statistics.put("unused", unused);
+        return statistics;
+    }
+
+    /**
+     * @return The nodes that are elements of a list of statements, such as the body of a loop, of the children
+     * of {@code n}. Routine declarations are statements of the program.
+     */
+    private static @NotNull List<? extends ASTNode> statements(@NotNull ASTNode n) {
+        if (n instanceof ProgramASTNode program)
+            return program.getContents();
+        if (n instanceof RoutineDeclASTNode decl)
+            return decl.getBody();
+        if (n instanceof WhileLoopASTNode loop)
+            return loop.getBody();
+        if (n instanceof ForLoopASTNode loop)
+            return loop.getBody();
+        if (n instanceof IfThenASTNode ifThen) {
+            List<ASTNode> l = new ArrayList<>(ifThen.getTrueBody());
+            ifThen.getFalseBody().ifPresent(l::addAll);
+            return l;
+        }
+        return List.of();
+    }
+
+    /**
+     * Remove the statements that are never run, and the routines that are never called.
+     * The rule of {@link ASTRewriter} is applied to the nodes in the order they are exited by {@link ASTWalker},
+     * which is how the statements to remove are found, since rewritten statements are new nodes.
+     */
+    private @NotNull ASTNode removeUnreachable(@NotNull ASTNode tree, @NotNull TypeAnnotations types) {
+        Set<ASTNode> statements = Collections.newSetFromMap(new IdentityHashMap<>());
+        BitSet removed = new BitSet();
+        Set<RoutineNameASTNode> called = new HashSet<>();
+        List<RoutineNameASTNode> declared = new ArrayList<>();
+        ASTWalker.walk(tree, new ASTWalker.Listener() {
+            private int exited = 0;
+            private int dead = 0;
+
+            @Override
+            public @NotNull List<? extends ASTNode> enter(@NotNull ASTNode n) {
+                statements.addAll(statements(n));
+                if (n instanceof StatementASTNode s && statements.contains(n) && !types.isReachable(s))
+                    dead++;
+                else if (n instanceof RoutineCallASTNode call && dead == 0)
+                    called.add(call.getFunction());
+                return ASTWalker.children(n);
+            }
+
+            @Override
+            public void exit(@NotNull ASTNode n) {
+                if (n instanceof StatementASTNode s && statements.contains(n) && !types.isReachable(s)) {
+                    removed.set(exited);
+                    dead--;
+                } else if (n instanceof RoutineDeclASTNode decl)
+                    declared.add(decl.getName());
+                exited++;
+            }
+        });
+        if (removed.isEmpty() && called.containsAll(declared))
+            return tree;
+
+        int[] exited = {0};
+        return Objects.requireNonNull(ASTRewriter.rewrite(tree, n -> {
+            if (removed.get(exited[0]++)) {
+                unreachable++;
+                return null;
+            }
+            if (n instanceof RoutineDeclASTNode decl && !called.contains(decl.getName())) {
+                uncalled++;
+                return null;
+            }
+            return n;
+        }));
+    }
+
+    /**
+     * @return Whether an assignment to an unread variable can be removed without changing what the program does.
+     */
+    private static boolean isRemovable(@NotNull AssStmtASTNode n, @NotNull TypeAnnotations types) {
+        if (!(n.getVarName() instanceof IdentifierASTNode))
+            return false;
+        if (n.getValue() instanceof LiteralASTNode)
+            return true;
+        if (!(n.getValue() instanceof IdentifierASTNode source))
+            return false;
+        TypeSet t = types.typeOf(source);
+        return !t.isEmpty() && t.isSubsetOf(COPYABLE);
+    }
+
+    /**
+     * Remove the assignments to the variables that are never read.
+     */
+    private @NotNull ASTNode removeUnused(@NotNull ASTNode tree, @NotNull TypeAnnotations types) {
+        Map<String, Integer> reads = new HashMap<>();
+        Set<ASTNode> writes = Collections.newSetFromMap(new IdentityHashMap<>());
+        Map<String, List<String>> copies = new HashMap<>();
+        ASTWalker.walk(tree, new ASTWalker.Listener() {
+            @Override
+            public @NotNull List<? extends ASTNode> enter(@NotNull ASTNode n) {
+                if (n instanceof AssStmtASTNode ass && ass.getVarName() instanceof IdentifierASTNode target) {
+                    writes.add(target);
+                    reads.putIfAbsent(target.getName(), 0);
+                    if (isRemovable(ass, types) && ass.getValue() instanceof IdentifierASTNode source)
+                        copies.computeIfAbsent(target.getName(), k -> new ArrayList<>()).add(source.getName());
+                }
+                return ASTWalker.children(n);
+            }
+
+            @Override
+            public void exit(@NotNull ASTNode n) {
+                // array names and the variables of a For are read
+                if (n instanceof IdentifierASTNode id && !writes.contains(id))
+                    reads.merge(id.getName(), 1, Integer::sum);
+            }
+        });
+
+        Set<String> unread = new HashSet<>();
+        Deque<String> worklist = new ArrayDeque<>();
+        reads.forEach((name, count) -> {
+            if (count == 0)
+                worklist.add(name);
+        });
+        while (!worklist.isEmpty()) {
+            String name = worklist.pop();
+            unread.add(name);
+            for (String source : copies.getOrDefault(name, List.of()))
+                if (reads.merge(source, -1, Integer::sum) == 0)
+                    worklist.add(source);
+        }
+        if (unread.isEmpty())
+            return tree;
+
+        return Objects.requireNonNull(ASTRewriter.rewrite(tree, n -> {
+            if (n instanceof AssStmtASTNode ass && isRemovable(ass, types)
+                    && unread.contains(((IdentifierASTNode) ass.getVarName()).getName())) {
+                unused++;
+                return null;
+            }
+            return n;
+        }));
+    }
+}
@@ -0,0 +1,33 @@
+package smallerbasic.AST.optimizations;
+
+import org.jetbrains.annotations.NotNull;
+import smallerbasic.AST.nodes.ASTNode;
+
+import java.util.Map;
+
+/**
+ * An interface for optimization passes.
+ * A pass takes an {@link ASTNode} that passed the static checks and returns an equivalent tree,
+ * counting what it has done in its statistics.
+ */
+public interface Pass {
+
+    /**
+     * @return The name of the pass, as shown in its statistics.
+     */
+    @NotNull String getName();
+
+    /**
+     * Optimizes an AST.
+     * The tree itself is not modified, unchanged subtrees may be shared by the result.
+     * @param n The {@link ASTNode} to optimize.
+     * @return The optimized tree.
+     */
+    @NotNull ASTNode run(@NotNull ASTNode n);
+
+    /**
+     * @return The counters of the changes made by the last {@link #run}, in the order they should be shown.
+     */
+    @NotNull Map<String, Integer> getStatistics();
+
+}
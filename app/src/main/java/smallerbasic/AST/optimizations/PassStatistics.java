@@ -0,0 +1,28 @@
+package smallerbasic.AST.optimizations;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * What a {@link Pass} did while optimizing a program.
+ * @param name The name of the pass.
+ * @param counters The counters of the pass, in order.
+ * @param nanos The time spent running the pass, in nanoseconds.
+ */
+public record PassStatistics(@NotNull String name, @NotNull Map<String, Integer> counters, long nanos) {
+
+    /**
+     * @return A single line with the name of the pass, its counters and its time, e.g.
+     * {@code constant-folding: 3 folded, 1 propagated (0.42 ms)}.
+     */
+    @Override
+    public @NotNull String toString() {
+        String counts = counters.entrySet().stream()
+                .map(e -> e.getValue() + " " + e.getKey())
+                .collect(Collectors.joining(", "));
+        return String.format(Locale.ROOT, "%s: %s (%.2f ms)", name, counts, nanos / 1e6);
+    }
+}
@@ -1,16 +1,28 @@
 package smallerbasic.AST.staticChecks;
 
 import org.jetbrains.annotations.NotNull;
+import smallerbasic.AST.nodes.ASTNode;
 import smallerbasic.AST.staticChecks.errors.ErrorReporter;
 
+import java.util.List;
+
 /**
  * Default implementation of the error reporting for a {@link Check}.
  * This uses the null error reporter {@link ErrorReporter#STDERR_REPORTER}.
+ * Running the check on its own is the same as running a {@link CheckEngine} with just this check.
  */
-public abstract class AbstractCheck implements Check {
+public abstract class AbstractCheck implements FusibleCheck {
     protected @NotNull ErrorReporter reporter = ErrorReporter.STDERR_REPORTER;
     @Override
     public void setErrorReporter(@NotNull ErrorReporter e) {
         reporter = e;
     }
+    @Override
+    public @NotNull ErrorReporter getErrorReporter() {
+        return reporter;
+    }
+    @Override
+    public boolean check(@NotNull ASTNode n) {
+        return new CheckEngine(List.of(this)).run(n).get(0);
+    }
 }
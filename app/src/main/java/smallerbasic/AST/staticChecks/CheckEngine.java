@@ -0,0 +1,146 @@
+package smallerbasic.AST.staticChecks;
+
+import org.jetbrains.annotations.NotNull;
+import smallerbasic.AST.ASTWalker;
+import smallerbasic.AST.nodes.ASTNode;
+import smallerbasic.AST.staticChecks.errors.BufferedErrorReporter;
+import smallerbasic.AST.staticChecks.errors.ErrorReporter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Runs a list of {@link Check}s on an AST.
+ * Every {@link FusibleCheck} is run during a single walk of the tree, which dispatches each node to the callbacks
+ * registered by the checks; any other {@link Check} is run on its own.
+ * <p>
+ * While walking, the errors of each check are buffered and then reported check by check,
+ * so that they are reported in the same order as running the checks one after another.
+ * The same holds when the checks are run concurrently with {@link #run(ASTNode, ExecutorService)}.
+ */
+public class CheckEngine {
+    private final @NotNull List<? extends Check> checks;
+
+    public CheckEngine(@NotNull List<? extends Check> checks) {
+        this.checks = checks;
+    }
+
+    /**
+     * Run the checks on a tree.
+     * @param root The tree to be checked.
+     * @return For each check, in order, whether it succeeded.
+     */
+    public @NotNull List<Boolean> run(@NotNull ASTNode root) {
+        NodeCallbacks callbacks = new NodeCallbacks();
+        List<FusibleCheck> fusible = new ArrayList<>();
+        List<ErrorReporter> reporters = new ArrayList<>();
+        List<BufferedErrorReporter> buffers = new ArrayList<>();
+        List<Boolean> results = new ArrayList<>();
+        try {
+            for (Check c : checks)
+                if (c instanceof FusibleCheck f) {
+                    BufferedErrorReporter buffer = new BufferedErrorReporter();
+                    fusible.add(f);
+                    reporters.add(f.getErrorReporter());
+                    buffers.add(buffer);
+                    f.setErrorReporter(buffer);
+                    f.register(callbacks);
+                }
+            walk(root, callbacks);
+            for (Check c : checks)
+                if (c instanceof FusibleCheck f)
+                    results.add(f.finish(root));
+                else
+                    results.add(null);
+        } finally {
+            // only the checks whose reporter has been replaced, if one failed while registering
+            for (int i = 0; i < fusible.size(); i++)
+                fusible.get(i).setErrorReporter(reporters.get(i));
+        }
+        // report everything in the order the checks were given
+        int i = 0;
+        for (int j = 0; j < checks.size(); j++)
+            if (checks.get(j) instanceof FusibleCheck) {
+                buffers.get(i).flushTo(reporters.get(i));
+                i++;
+            } else
+                results.set(j, checks.get(j).check(root));
+        return results;
+    }
+
+    /**
+     * Run the checks on a tree concurrently, each {@link FusibleCheck} walking the tree on its own.
+     * Since checks only read the tree they are independent of each other, as long as they are distinct instances.
+     * Errors are buffered and reported only once every check has finished,
+     * in the same order as {@link #run(ASTNode)}; any other {@link Check} is run at that point on the calling thread.
+     * @param root The tree to be checked.
+     * @param executor The executor running the checks.
+     * @return For each check, in order, whether it succeeded.
+     */
+    public @NotNull List<Boolean> run(@NotNull ASTNode root, @NotNull ExecutorService executor) {
+        List<FusibleCheck> fusible = new ArrayList<>();
+        List<ErrorReporter> reporters = new ArrayList<>();
+        List<BufferedErrorReporter> buffers = new ArrayList<>();
+        List<Future<Boolean>> futures = new ArrayList<>();
+        List<Boolean> fusibleResults = new ArrayList<>();
+        try {
+            for (Check c : checks)
+                if (c instanceof FusibleCheck f) {
+                    BufferedErrorReporter buffer = new BufferedErrorReporter();
+                    fusible.add(f);
+                    reporters.add(f.getErrorReporter());
+                    buffers.add(buffer);
+                    f.setErrorReporter(buffer);
+                    futures.add(executor.submit(() -> f.check(root)));
+                }
+            for (Future<Boolean> f : futures)
+                fusibleResults.add(f.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running the checks", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException r)
+                throw r;
+            if (e.getCause() instanceof Error r)
+                throw r;
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            futures.forEach(f -> f.cancel(true));
+            for (int i = 0; i < fusible.size(); i++)
+                fusible.get(i).setErrorReporter(reporters.get(i));
+        }
+        // report everything in the order the checks were given
+        List<Boolean> results = new ArrayList<>();
+        int i = 0;
+        for (Check c : checks)
+            if (c instanceof FusibleCheck) {
+                buffers.get(i).flushTo(reporters.get(i));
+                results.add(fusibleResults.get(i));
+                i++;
+            } else
+                results.add(c.check(root));
+        return results;
+    }
+
+    /**
+     * Walks the tree with an {@link ASTWalker}, in the same order as {@link smallerbasic.AST.ASTMonoidVisitor},
+     * calling the callbacks when entering and exiting each node.
+     */
+    private static void walk(@NotNull ASTNode root, @NotNull NodeCallbacks callbacks) {
+        ASTWalker.walk(root, new ASTWalker.Listener() {
+            @Override
+            public @NotNull List<? extends ASTNode> enter(@NotNull ASTNode n) {
+                callbacks.enter(n);
+                return ASTWalker.children(n);
+            }
+
+            @Override
+            public void exit(@NotNull ASTNode n) {
+                callbacks.exit(n);
+            }
+        });
+    }
+}
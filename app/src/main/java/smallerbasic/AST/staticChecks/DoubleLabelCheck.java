@@ -1,7 +1,6 @@
 package smallerbasic.AST.staticChecks;
 
 import org.jetbrains.annotations.NotNull;
-import smallerbasic.AST.ASTMonoidVisitor;
 import smallerbasic.AST.nodes.*;
 
 import java.util.*;
@@ -10,10 +9,17 @@ import java.util.*;
  * This check verifies whether a program defines a label more than once in the same scope.
  */
 public class DoubleLabelCheck extends AbstractCheck {
+    private final @NotNull Map<LabelNameASTNode, Integer> labels = new HashMap<>();
+
     @Override
-    public boolean check(@NotNull ASTNode n) {
+    public void register(@NotNull NodeCallbacks callbacks) {
+        labels.clear();
+        callbacks.onEnter(LabelDeclASTNode.class, n -> labels.merge(n.getName(), 1, Integer::sum));
+    }
+
+    @Override
+    public boolean finish(@NotNull ASTNode root) {
         boolean isOk = true;
-        Map<LabelNameASTNode, Integer> labels = n.accept(new DoubleLabelVisitor());
         for (LabelNameASTNode s : labels.keySet())
             if (labels.get(s) > 1) {
                 isOk = false;
@@ -26,26 +32,4 @@ public class DoubleLabelCheck extends AbstractCheck {
             }
         return isOk;
     }
-    private static class DoubleLabelVisitor implements ASTMonoidVisitor<Map<LabelNameASTNode, Integer>> {
-        @Override
-        public Map<LabelNameASTNode, Integer> empty() {
-            return Collections.emptyMap();
-        }
-        @Override
-        public Map<LabelNameASTNode, Integer> compose(Map<LabelNameASTNode, Integer> o1,
-                                                      Map<LabelNameASTNode, Integer> o2) {
-            Map<LabelNameASTNode, Integer> newMap = new HashMap<>(o1);
-            for (LabelNameASTNode key : o2.keySet())
-                newMap.merge(key, o2.get(key), Integer::sum);
-            return newMap;
-        }
-        @Override
-        public Map<LabelNameASTNode, Integer> visit(LabelNameASTNode n) {
-            return Map.of(n, 1);
-        }
-        @Override
-        public Map<LabelNameASTNode, Integer> visit(GotoStmtASTNode n) {
-            return empty();
-        }
-    }
 }
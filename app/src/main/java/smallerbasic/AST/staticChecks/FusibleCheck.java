@@ -0,0 +1,31 @@
+package smallerbasic.AST.staticChecks;
+
+import org.jetbrains.annotations.NotNull;
+import smallerbasic.AST.nodes.ASTNode;
+import smallerbasic.AST.staticChecks.errors.ErrorReporter;
+
+/**
+ * A {@link Check} that can be run by a {@link CheckEngine} together with other checks, during a single walk of the AST.
+ * Instead of traversing the tree itself, the check registers callbacks for the nodes it is interested in.
+ */
+public interface FusibleCheck extends Check {
+
+    /**
+     * Prepare the check for a new walk, discarding the state of any previous one, and register its callbacks.
+     * @param callbacks The callbacks of the walk.
+     */
+    void register(@NotNull NodeCallbacks callbacks);
+
+    /**
+     * Called once the walk is over.
+     * Checks that need to see the whole tree before reporting errors should report them here.
+     * @param root The root of the tree that has been walked.
+     * @return {@code true} if the checks succeeds, {@code false} otherwise.
+     */
+    boolean finish(@NotNull ASTNode root);
+
+    /**
+     * @return The {@link ErrorReporter} currently used by this check.
+     */
+    @NotNull ErrorReporter getErrorReporter();
+}
@@ -1,7 +1,6 @@
 package smallerbasic.AST.staticChecks;
 
 import org.jetbrains.annotations.NotNull;
-import smallerbasic.AST.ASTMonoidVisitor;
 import smallerbasic.AST.nodes.*;
 
 import java.util.*;
@@ -10,11 +9,22 @@ import java.util.*;
  * This check verifies whether in a program each referenced label is also defined in the same scope.
  */
 public class LabelScopeCheck extends AbstractCheck {
-    public boolean check(@NotNull ASTNode n) {
+    private final @NotNull Set<LabelNameASTNode> definedLabels = new HashSet<>();
+    private final @NotNull Set<LabelNameASTNode> gotoLabels = new HashSet<>();
+
+    @Override
+    public void register(@NotNull NodeCallbacks callbacks) {
+        definedLabels.clear();
+        gotoLabels.clear();
+        callbacks.onEnter(GotoStmtASTNode.class, n -> gotoLabels.add(n.getLabel()));
+        callbacks.onEnter(LabelDeclASTNode.class, n -> definedLabels.add(n.getName()));
+    }
+
+    @Override
+    public boolean finish(@NotNull ASTNode root) {
         boolean isOk = true;
-        DefAndRefLabels labels = n.accept(new ScopeVisitor());
-        labels.gotoLabels().removeAll(labels.definedLabels());
-        for (LabelNameASTNode l : labels.gotoLabels()) {
+        gotoLabels.removeAll(definedLabels);
+        for (LabelNameASTNode l : gotoLabels) {
             isOk = false;
             super.reporter.reportError(l, String.format(
                             "*** LabelScopeError: the label \"%s\" referenced in this goto statement is not defined in this scope (%s)",
@@ -25,49 +35,4 @@ public class LabelScopeCheck extends AbstractCheck {
         }
         return isOk;
     }
-
-    private static class ScopeVisitor implements ASTMonoidVisitor<DefAndRefLabels> {
-        @Override
-        public DefAndRefLabels empty() {
-            return DefAndRefLabels.empty();
-        }
-
-        @Override
-        public DefAndRefLabels compose(DefAndRefLabels o1, DefAndRefLabels o2) {
-            return o1.compose(o2);
-        }
-
-        @Override
-        public DefAndRefLabels visit(GotoStmtASTNode n) {
-            return new DefAndRefLabels(
-                    Collections.emptySet(),
-                    Set.of(n.getLabel())
-            );
-        }
-
-        @Override
-        public DefAndRefLabels visit(LabelDeclASTNode n) {
-            return new DefAndRefLabels(
-                    Set.of(n.getName()),
-                    Collections.emptySet()
-            );
-        }
-    }
-
-    private record DefAndRefLabels(
-            @NotNull Set<LabelNameASTNode> definedLabels,
-            @NotNull Set<LabelNameASTNode> gotoLabels
-    ) {
-        public static @NotNull DefAndRefLabels empty() {
-            return new DefAndRefLabels(Collections.emptySet(), Collections.emptySet());
-        }
-
-        public @NotNull DefAndRefLabels compose(@NotNull DefAndRefLabels other) {
-            Set<LabelNameASTNode> newDLabels = new HashSet<>(this.definedLabels);
-            Set<LabelNameASTNode> newGLabels = new HashSet<>(this.gotoLabels);
-            newDLabels.addAll(other.definedLabels);
-            newGLabels.addAll(other.gotoLabels);
-            return new DefAndRefLabels(newDLabels, newGLabels);
-        }
-    }
 }
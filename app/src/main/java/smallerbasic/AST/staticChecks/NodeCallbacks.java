@@ -0,0 +1,70 @@
+package smallerbasic.AST.staticChecks;
+
+import org.jetbrains.annotations.NotNull;
+import smallerbasic.AST.nodes.ASTNode;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * A set of callbacks invoked by a {@link CheckEngine} while it walks the AST.
+ * A callback is registered for a type of node, and it is called on entering (or exiting) every node of that type,
+ * subtypes included.
+ * Callbacks for the same node are called in the order they have been registered.
+ */
+public class NodeCallbacks {
+    private record Registration<N extends ASTNode>(@NotNull Class<N> type, @NotNull Consumer<? super N> callback) {
+        void call(@NotNull ASTNode n) {
+            callback.accept(type.cast(n));
+        }
+    }
+
+    private final @NotNull List<Registration<?>> enter = new ArrayList<>();
+    private final @NotNull List<Registration<?>> exit = new ArrayList<>();
+
+    /**
+     * The registrations matching each concrete node class, computed the first time a class is encountered.
+     */
+    private final @NotNull Map<Class<?>, List<Registration<?>>> enterCache = new HashMap<>();
+    private final @NotNull Map<Class<?>, List<Registration<?>>> exitCache = new HashMap<>();
+
+    /**
+     * Register a callback to be called before the children of a node are visited.
+     * @param type The type of the nodes.
+     * @param callback The callback.
+     */
+    public <N extends ASTNode> void onEnter(@NotNull Class<N> type, @NotNull Consumer<? super N> callback) {
+        enter.add(new Registration<>(type, callback));
+        enterCache.clear();
+    }
+
+    /**
+     * Register a callback to be called after the children of a node have been visited.
+     * @param type The type of the nodes.
+     * @param callback The callback.
+     */
+    public <N extends ASTNode> void onExit(@NotNull Class<N> type, @NotNull Consumer<? super N> callback) {
+        exit.add(new Registration<>(type, callback));
+        exitCache.clear();
+    }
+
+    void enter(@NotNull ASTNode n) {
+        for (Registration<?> r : resolve(enterCache, enter, n.getClass()))
+            r.call(n);
+    }
+
+    void exit(@NotNull ASTNode n) {
+        for (Registration<?> r : resolve(exitCache, exit, n.getClass()))
+            r.call(n);
+    }
+
+    private static @NotNull List<Registration<?>> resolve(@NotNull Map<Class<?>, List<Registration<?>>> cache,
+                                                          @NotNull List<Registration<?>> registrations,
+                                                          @NotNull Class<?> c) {
+        return cache.computeIfAbsent(c, k -> registrations
+                .stream()
+                .filter(r -> r.type().isAssignableFrom(k))
+                .toList()
+        );
+    }
+}
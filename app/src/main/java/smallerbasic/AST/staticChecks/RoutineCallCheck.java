@@ -1,20 +1,41 @@
 package smallerbasic.AST.staticChecks;
 
 import org.jetbrains.annotations.NotNull;
-import smallerbasic.AST.ASTMonoidVisitor;
 import smallerbasic.AST.nodes.*;
 
 import java.util.HashSet;
+import java.util.Set;
 
 /**
  * Check that each routine called must be also defined.
  */
 public class RoutineCallCheck extends AbstractCheck {
-    public boolean check(@NotNull ASTNode n) {
+    private final @NotNull Set<RoutineNameASTNode> declared = new HashSet<>();
+    private final @NotNull Set<RoutineNameASTNode> called = new HashSet<>();
+    /**
+     * The calls in the body of a routine are not checked.
+     */
+    private int inRoutine = 0;
+
+    @Override
+    public void register(@NotNull NodeCallbacks callbacks) {
+        declared.clear();
+        called.clear();
+        inRoutine = 0;
+        callbacks.onEnter(RoutineCallASTNode.class, n -> {
+            if (inRoutine == 0)
+                called.add(n.getFunction());
+        });
+        callbacks.onEnter(RoutineDeclASTNode.class, n -> {
+            declared.add(n.getName());
+            inRoutine++;
+        });
+        callbacks.onExit(RoutineDeclASTNode.class, n -> inRoutine--);
+    }
+
+    @Override
+    public boolean finish(@NotNull ASTNode root) {
         boolean isOk = true;
-        HashSet<RoutineNameASTNode> declared = new HashSet<>();
-        HashSet<RoutineNameASTNode> called = new HashSet<>();
-        n.accept(new CallsVisitor(declared, called));
         for (RoutineNameASTNode l : called)
             if (!declared.contains(l)) {
                 isOk = false;
@@ -26,34 +47,4 @@ public class RoutineCallCheck extends AbstractCheck {
             }
         return isOk;
     }
-
-    private record CallsVisitor(@NotNull HashSet<RoutineNameASTNode> declared,
-                                @NotNull HashSet<RoutineNameASTNode> called) implements ASTMonoidVisitor<Void> {
-        private CallsVisitor(@NotNull HashSet<RoutineNameASTNode> declared, HashSet<RoutineNameASTNode> called) {
-            this.declared = declared;
-            this.called = called;
-        }
-
-        @Override
-        public Void empty() {
-            return null;
-        }
-
-        @Override
-        public Void compose(Void o1, Void o2) {
-            return null;
-        }
-
-        @Override
-        public Void visit(RoutineCallASTNode n) {
-            called.add(n.getFunction());
-            return null;
-        }
-
-        @Override
-        public Void visit(RoutineDeclASTNode n) {
-            declared.add(n.getName());
-            return null;
-        }
-    }
 }
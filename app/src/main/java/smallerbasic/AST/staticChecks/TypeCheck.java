@@ -1,10 +1,10 @@
 package smallerbasic.AST.staticChecks;
 
 import org.jetbrains.annotations.NotNull;
-import smallerbasic.AST.ASTVisitor;
+import org.jetbrains.annotations.Nullable;
 import smallerbasic.AST.nodes.*;
 
-import java.util.List;
+import java.util.*;
 
 /**
  * This check verifies whether a program is well-typed.
@@ -13,16 +13,124 @@ import java.util.List;
 public class TypeCheck extends AbstractCheck {
     private boolean isOk = true;
 
+    /**
+     * The types of the expressions whose parent has not been exited yet.
+     */
+    private final @NotNull Map<ASTNode, TYPE> types = new IdentityHashMap<>();
+
+    /**
+     * The types expected for some expressions, for example the condition of an {@link IfThenASTNode}.
+     * A mismatch is reported as soon as the expression has been typed.
+     */
+    private final @NotNull Map<ASTNode, TYPE> expected = new IdentityHashMap<>();
+
+    /**
+     * The variables and the end expressions of the {@link ForLoopASTNode}s, whose errors are not reported.
+     */
+    private final @NotNull Set<ASTNode> unchecked = Collections.newSetFromMap(new IdentityHashMap<>());
+    private int inUnchecked = 0;
+
+    /**
+     * The start expressions of the {@link ForLoopASTNode}s, which are checked twice: once for themselves,
+     * and once in place of the end expression.
+     */
+    private final @NotNull Map<ASTNode, ForLoopASTNode> starts = new IdentityHashMap<>();
+    /**
+     * The errors reported in the start expression being walked, if any, to be reported again.
+     */
+    private @Nullable List<Error> startErrors = null;
+
+    private record Error(@NotNull ASTNode n, @NotNull String msg) {}
+
     @Override
-    public boolean check(@NotNull ASTNode n) {
+    public void register(@NotNull NodeCallbacks callbacks) {
         isOk = true;
-        n.accept(new TypingVisitor());
+        types.clear();
+        expected.clear();
+        unchecked.clear();
+        inUnchecked = 0;
+        starts.clear();
+        startErrors = null;
+        callbacks.onEnter(ASTNode.class, n -> {
+            if (unchecked.contains(n))
+                inUnchecked++;
+            if (starts.containsKey(n))
+                startErrors = new ArrayList<>();
+        });
+        callbacks.onEnter(IfThenASTNode.class, n -> expected.put(n.getCondition(), TYPE.BOOL));
+        callbacks.onEnter(WhileLoopASTNode.class, n -> expected.put(n.getCondition(), TYPE.BOOL));
+        callbacks.onEnter(ForLoopASTNode.class, n -> {
+            unchecked.add(n.getVarName());
+            starts.put(n.getStart(), n);
+            unchecked.add(n.getEnd());
+            expected.put(n.getStep(), TYPE.NUMBER);
+        });
+        callbacks.onEnter(ArrayASTNode.class, n -> n.getIndexes().forEach(x -> expected.put(x, TYPE.NUMBER)));
+
+        callbacks.onExit(BoolLiteralASTNode.class, n -> setType(n, TYPE.BOOL));
+        callbacks.onExit(NumberLiteralASTNode.class, n -> setType(n, TYPE.NUMBER));
+        callbacks.onExit(StringLiteralASTNode.class, n -> setType(n, TYPE.STRING));
+        callbacks.onExit(IdentifierASTNode.class, n -> setType(n, TYPE.ANY));
+        callbacks.onExit(ArrayASTNode.class, n -> {
+            getType(n.getName());
+            n.getIndexes().forEach(this::getType);
+            setType(n, TYPE.ANY);
+        });
+        callbacks.onExit(ExternalFunctionCallASTNode.class, n -> {
+            n.getArgs().forEach(this::getType);
+            setType(n, TYPE.ANY);
+        });
+        callbacks.onExit(UnaryMinusASTNode.class, n -> {
+            reportMismatch(n.getExpr(), getType(n.getExpr()), TYPE.NUMBER);
+            setType(n, TYPE.NUMBER);
+        });
+        callbacks.onExit(BinOpASTNode.class, n -> setType(n, binOpType(n, getType(n.getLeft()), getType(n.getRight()))));
+
+        // statements just discard the types of their expressions
+        callbacks.onExit(AssStmtASTNode.class, n -> {
+            getType(n.getVarName());
+            getType(n.getValue());
+        });
+        callbacks.onExit(IfThenASTNode.class, n -> getType(n.getCondition()));
+        callbacks.onExit(WhileLoopASTNode.class, n -> getType(n.getCondition()));
+        callbacks.onExit(ForLoopASTNode.class, n -> {
+            getType(n.getVarName());
+            getType(n.getStart());
+            getType(n.getEnd());
+            getType(n.getStep());
+        });
+        // registered last, so that the errors of the expressions themselves are handled too
+        callbacks.onExit(ASTNode.class, n -> {
+            if (unchecked.contains(n))
+                inUnchecked--;
+            ForLoopASTNode loop = starts.remove(n);
+            if (loop != null && startErrors != null) {
+                List<Error> errors = startErrors;
+                startErrors = null;
+                TYPE start = types.getOrDefault(n, TYPE.ANY);
+                reportMismatch(n, start, TYPE.NUMBER);
+                errors.forEach(e -> reportError(e.n(), e.msg()));
+                reportMismatch(loop.getEnd(), start, TYPE.NUMBER);
+            }
+        });
+    }
+
+    @Override
+    public boolean finish(@NotNull ASTNode root) {
+        types.clear();
+        expected.clear();
+        unchecked.clear();
+        starts.clear();
         return isOk;
     }
 
     private void reportError(@NotNull ASTNode n, @NotNull String msg) {
+        if (inUnchecked > 0)
+            return;
         isOk = false;
         super.reporter.reportError(n, msg);
+        if (startErrors != null)
+            startErrors.add(new Error(n, msg));
     }
 
     /**
@@ -97,154 +205,61 @@ public class TypeCheck extends AbstractCheck {
     }
 
     /**
-     * A {@link ASTVisitor} to assign types to each {@link ASTNode}.
+     * Assign a type to an expression, reporting a mismatch if a different type was expected.
      */
-    private class TypingVisitor implements ASTVisitor<TYPE> {
-
-        private TYPE visitChildren(List<? extends ASTNode> l) {
-            l.forEach(x -> x.accept(this));
-            return TYPE.NONE;
-        }
+    private void setType(@NotNull ASTNode n, @NotNull TYPE type) {
+        types.put(n, type);
+        TYPE e = expected.remove(n);
+        if (e != null)
+            reportMismatch(n, type, e);
+    }
 
-        @Override
-        public TYPE visit(AssStmtASTNode n) {
-            n.getVarName().accept(this);
-            n.getValue().accept(this);
-            return TYPE.NONE;
-        }
+    /**
+     * Retrieve the type of an expression that has already been visited.
+     * Each type is retrieved at most once, by the parent of the expression.
+     */
+    private @NotNull TYPE getType(@NotNull ASTNode n) {
+        TYPE t = types.remove(n);
+        return t == null ? TYPE.ANY : t;
+    }
 
-        @Override
-        public TYPE visit(BinOpASTNode n) {
-            TYPE left = n.getLeft().accept(this);
-            TYPE right = n.getRight().accept(this);
-            switch (n.getOp()) {
-                case AND, OR -> {
-                    reportMismatch(n.getLeft(), left, TYPE.BOOL);
-                    reportMismatch(n.getRight(), right, TYPE.BOOL);
-                    return TYPE.BOOL;
-                }
-                case MINUS, DIV, MULT -> {
-                    reportMismatch(n.getLeft(), left, TYPE.NUMBER);
-                    reportMismatch(n.getRight(), right, TYPE.NUMBER);
-                    return TYPE.NUMBER;
-                }
-                case LEQ, GEQ, LT, GT -> {
-                    boolean leftMatch = reportMismatch(n.getLeft(), left, List.of(TYPE.NUMBER, TYPE.STRING));
-                    boolean rightMatch = reportMismatch(n.getRight(), right, List.of(TYPE.NUMBER, TYPE.STRING));
-                    if (!(leftMatch && rightMatch))
-                        return TYPE.ANY;
-                    reportMismatch(n.getLeft(), left, right);
-                    return TYPE.BOOL;
-                }
-                case EQ, NEQ -> {
-                    reportMismatch(n.getLeft(), left, List.of(TYPE.NUMBER, TYPE.STRING));
-                    reportMismatch(n.getRight(), right, List.of(TYPE.NUMBER, TYPE.STRING));
-                    return TYPE.BOOL;
-                }
-                case PLUS -> {
-                    boolean leftMatch = reportMismatch(n.getLeft(), left, List.of(TYPE.NUMBER, TYPE.STRING));
-                    boolean rightMatch = reportMismatch(n.getRight(), right, List.of(TYPE.NUMBER, TYPE.STRING));
-                    if (!(leftMatch && rightMatch))
-                        return TYPE.ANY;
-                    reportMismatch(n.getLeft(), left, right);
-                    return left;
-                }
+    /**
+     * Compute the type of a binary operation given the types of its operands, reporting any mismatch.
+     */
+    private @NotNull TYPE binOpType(@NotNull BinOpASTNode n, @NotNull TYPE left, @NotNull TYPE right) {
+        switch (n.getOp()) {
+            case AND, OR -> {
+                reportMismatch(n.getLeft(), left, TYPE.BOOL);
+                reportMismatch(n.getRight(), right, TYPE.BOOL);
+                return TYPE.BOOL;
+            }
+            case MINUS, DIV, MULT -> {
+                reportMismatch(n.getLeft(), left, TYPE.NUMBER);
+                reportMismatch(n.getRight(), right, TYPE.NUMBER);
+                return TYPE.NUMBER;
+            }
+            case LEQ, GEQ, LT, GT -> {
+                boolean leftMatch = reportMismatch(n.getLeft(), left, List.of(TYPE.NUMBER, TYPE.STRING));
+                boolean rightMatch = reportMismatch(n.getRight(), right, List.of(TYPE.NUMBER, TYPE.STRING));
+                if (!(leftMatch && rightMatch))
+                    return TYPE.ANY;
+                reportMismatch(n.getLeft(), left, right);
+                return TYPE.BOOL;
+            }
+            case EQ, NEQ -> {
+                reportMismatch(n.getLeft(), left, List.of(TYPE.NUMBER, TYPE.STRING));
+                reportMismatch(n.getRight(), right, List.of(TYPE.NUMBER, TYPE.STRING));
+                return TYPE.BOOL;
+            }
+            case PLUS -> {
+                boolean leftMatch = reportMismatch(n.getLeft(), left, List.of(TYPE.NUMBER, TYPE.STRING));
+                boolean rightMatch = reportMismatch(n.getRight(), right, List.of(TYPE.NUMBER, TYPE.STRING));
+                if (!(leftMatch && rightMatch))
+                    return TYPE.ANY;
+                reportMismatch(n.getLeft(), left, right);
+                return left;
             }
-            return TYPE.ANY;
-        }
-
-        @Override
-        public TYPE visit(BoolLiteralASTNode n) {
-            return TYPE.BOOL;
-        }
-
-        @Override
-        public TYPE visit(ExternalFunctionCallASTNode n) {
-            visitChildren(n.getArgs());
-            return TYPE.ANY;
-        }
-
-        @Override
-        public TYPE visit(ForLoopASTNode n) {
-            reportMismatch(n.getStart(), n.getStart().accept(this), TYPE.NUMBER);
-            reportMismatch(n.getEnd(), n.getStart().accept(this), TYPE.NUMBER);
-            reportMismatch(n.getStep(), n.getStep().accept(this), TYPE.NUMBER);
-            return visitChildren(n.getBody());
-        }
-
-        @Override
-        public TYPE visit(GotoStmtASTNode n) {
-            return TYPE.NONE;
-        }
-
-        @Override
-        public TYPE visit(IdentifierASTNode n) {
-            return TYPE.ANY;
-        }
-
-        @Override
-        public TYPE visit(IfThenASTNode n) {
-            reportMismatch(n.getCondition(), n.getCondition().accept(this), TYPE.BOOL);
-            visitChildren(n.getTrueBody());
-            return n.getFalseBody().map(this::visitChildren).orElse(TYPE.NONE);
-        }
-
-        @Override
-        public TYPE visit(LabelDeclASTNode n) {
-            return TYPE.NONE;
-        }
-
-        @Override
-        public TYPE visit(NumberLiteralASTNode n) {
-            return TYPE.NUMBER;
-        }
-
-        @Override
-        public TYPE visit(ProgramASTNode n) {
-            return visitChildren(n.getContents());
-        }
-
-        @Override
-        public TYPE visit(LabelNameASTNode n) {
-            return TYPE.NONE;
-        }
-
-        @Override
-        public TYPE visit(RoutineNameASTNode n) {
-            return TYPE.NONE;
-        }
-
-        @Override
-        public TYPE visit(RoutineCallASTNode n) {
-            return TYPE.NONE;
-        }
-
-        @Override
-        public TYPE visit(RoutineDeclASTNode n) {
-            return visitChildren(n.getBody());
-        }
-
-        @Override
-        public TYPE visit(StringLiteralASTNode n) {
-            return TYPE.STRING;
-        }
-
-        @Override
-        public TYPE visit(WhileLoopASTNode n) {
-            reportMismatch(n.getCondition(), n.getCondition().accept(this), TYPE.BOOL);
-            return visitChildren(n.getBody());
-        }
-
-        @Override
-        public TYPE visit(UnaryMinusASTNode n) {
-            reportMismatch(n.getExpr(), n.getExpr().accept(this), TYPE.NUMBER);
-            return TYPE.NUMBER;
-        }
-
-        @Override
-        public TYPE visit(ArrayASTNode n) {
-            n.getIndexes().forEach(x -> reportMismatch(x, x.accept(this), TYPE.NUMBER));
-            return TYPE.ANY;
         }
+        return TYPE.ANY;
     }
 }
@@ -1,7 +1,6 @@
 package smallerbasic.AST.staticChecks;
 
 import org.jetbrains.annotations.NotNull;
-import smallerbasic.AST.ASTMonoidVisitor;
 import smallerbasic.AST.nodes.*;
 
 import java.util.*;
@@ -15,135 +14,102 @@ public class UninitializedVariableCheck extends AbstractCheck {
 
     private boolean isOk = true;
 
-    @Override
-    public boolean check(@NotNull ASTNode n) {
-        isOk = true;
-        // an anonymous visitor to collect routine declarations.
-        ASTMonoidVisitor<Set<RoutineDeclASTNode>> routines = new ASTMonoidVisitor<>() {
-            @Override
-            public Set<RoutineDeclASTNode> empty() {
-                return Collections.emptySet();
-            }
+    /**
+     * The nodes that assign or read a variable, or that call a routine, in the order they are walked:
+     * assignments and {@code For} loops, identifiers read, and routine calls.
+     * The statements of the program are in {@link #toplevel}, the ones of each routine in {@link #bodies}.
+     */
+    private final @NotNull List<ASTNode> toplevel = new ArrayList<>();
+    /**
+     * A map from routine names to the nodes of their body.
+     * A routine body is explored only when the routine is called.
+     */
+    private final @NotNull Map<RoutineNameASTNode, List<ASTNode>> bodies = new HashMap<>();
+    private @NotNull List<ASTNode> current = toplevel;
+    /**
+     * The nodes whose subtree is not read: the variables assigned, and the names of arrays,
+     * since it does not make sense to check arrays as indexes could be not known statically.
+     */
+    private final @NotNull Set<ASTNode> ignored = Collections.newSetFromMap(new IdentityHashMap<>());
+    private int ignoring = 0;
 
-            @Override
-            public Set<RoutineDeclASTNode> compose(Set<RoutineDeclASTNode> o1, Set<RoutineDeclASTNode> o2) {
-                Set<RoutineDeclASTNode> newSet = new HashSet<>(o1);
-                newSet.addAll(o2);
-                return newSet;
-            }
+    /**
+     * A set of all variables with an assigned value.
+     */
+    private final @NotNull Set<VariableASTNode> setVars = new HashSet<>();
 
-            @Override
-            public Set<RoutineDeclASTNode> visit(RoutineDeclASTNode n) {
-                return Set.of(n);
-            }
-        };
-        Set<RoutineDeclASTNode> routineDecls = n.accept(routines);
-        n.accept(new UninitializedVisitor(routineDecls));
-        return isOk;
+    @Override
+    public void register(@NotNull NodeCallbacks callbacks) {
+        isOk = true;
+        toplevel.clear();
+        bodies.clear();
+        current = toplevel;
+        ignored.clear();
+        ignoring = 0;
+        setVars.clear();
+        callbacks.onEnter(ASTNode.class, n -> {
+            if (ignored.contains(n))
+                ignoring++;
+        });
+        callbacks.onExit(ASTNode.class, n -> {
+            if (ignored.contains(n))
+                ignoring--;
+        });
+        callbacks.onEnter(AssStmtASTNode.class, n -> {
+            ignored.add(n.getVarName());
+            current.add(n);
+        });
+        callbacks.onEnter(ForLoopASTNode.class, n -> {
+            ignored.add(n.getVarName());
+            current.add(n);
+        });
+        callbacks.onEnter(ArrayASTNode.class, n -> ignored.add(n.getName()));
+        callbacks.onEnter(IdentifierASTNode.class, n -> {
+            if (ignoring == 0)
+                current.add(n);
+        });
+        callbacks.onEnter(RoutineCallASTNode.class, n -> current.add(n));
+        callbacks.onEnter(RoutineDeclASTNode.class, n -> {
+            current = new ArrayList<>();
+            bodies.put(n.getName(), current);
+        });
+        callbacks.onExit(RoutineDeclASTNode.class, n -> current = toplevel);
     }
 
-    private void reportError(@NotNull ASTNode n, @NotNull String msg) {
-        isOk = false;
-        super.reporter.reportError(n, msg);
+    /**
+     * Since routine bodies are explored only when the routine is called, the analysis can start only once
+     * every routine declaration is known.
+     */
+    @Override
+    public boolean finish(@NotNull ASTNode root) {
+        explore(toplevel, false);
+        return isOk;
     }
 
     /**
-     * This visitor collects defined variables in a set.
-     * For each variable encountered in an expression, the visitor checks if this is contained in the set of defined names.
-     * If it is not a warning is issued.
+     * Collect the defined variables in {@link #setVars}, and issue a warning for each variable read
+     * that is not contained in it.
+     * @param nodes The nodes collected for the program or for a routine body.
+     * @param inRoutine Since recursive routines are permitted, the routines called while exploring a routine body
+     *                  are not explored, to prevent infinite loops.
      */
-    private class UninitializedVisitor implements ASTMonoidVisitor<Void> {
-
-        /**
-         * Since recursive routines are permitted, this flag is set when exploring a routine body to prevent an infinite loops.
-         */
-        private boolean recursing = false;
-        /**
-         * A map from routine names to their body.
-         * A routine body is explored only when the routine is called.
-         */
-        private final @NotNull Map<RoutineNameASTNode, List<StatementASTNode>> decls = new HashMap<>();
-
-        /**
-         * A set of all variables with an assigned value.
-         */
-        private final @NotNull Set<VariableASTNode> setVars = new HashSet<>();
-
-        private UninitializedVisitor(Collection<RoutineDeclASTNode> decls) {
-            for (RoutineDeclASTNode r : decls)
-                this.decls.put(r.getName(), r.getBody());
-        }
-
-
-        @Override
-        public Void empty() {
-            return null;
-        }
-
-        @Override
-        public Void compose(Void o1, Void o2) {
-            return empty();
-        }
-
-        @Override
-        public Void visit(AssStmtASTNode n) {
-            setVars.add(n.getVarName());
-            n.getValue().accept(this);
-            return empty();
-        }
-
-        @Override
-        public Void visit(RoutineCallASTNode n) {
-            if (!recursing) {
-                recursing = true;
-                visitChildren(decls.getOrDefault(n.getFunction(), Collections.emptyList()));
-                recursing = false;
-            }
-            return empty();
-        }
-
-        /**
-         * Visiting a routine is postponed to when the routine is called in the TOPLEVEL.
-         */
-        @Override
-        public Void visit(RoutineDeclASTNode n) {
-            return empty();
-        }
-
-        @Override
-        public Void visit(ForLoopASTNode n) {
-            setVars.add(n.getVarName());
-            n.getStart().accept(this);
-            n.getEnd().accept(this);
-            n.getStep().accept(this);
-            visitChildren(n.getBody());
-            return empty();
-        }
-
-        @Override
-        public Void visit(BinOpASTNode n) {
-            n.getLeft().accept(this);
-            n.getRight().accept(this);
-            return empty();
-        }
-
-        @Override
-        public Void visit(IdentifierASTNode n) {
-            if (!setVars.contains(n))
-                reportError(n, "*** UninitializedWarning: variable \""
-                        + n.getName() + "\" may not have been initialized");
-            return empty();
-        }
-
-        /**
-         * Array identifiers are ignored since indexes may be dependant on runtime values.
-         */
-        @Override
-        public Void visit(ArrayASTNode n) {
-            // does not make sense to check arrays since indexes could be not known statically
-            visitChildren(n.getIndexes());
-            return empty();
+    private void explore(@NotNull List<ASTNode> nodes, boolean inRoutine) {
+        for (ASTNode n : nodes) {
+            if (n instanceof AssStmtASTNode a)
+                setVars.add(a.getVarName());
+            else if (n instanceof ForLoopASTNode f)
+                setVars.add(f.getVarName());
+            else if (n instanceof IdentifierASTNode id) {
+                if (!setVars.contains(id))
+                    reportError(id, "*** UninitializedWarning: variable \""
+                            + id.getName() + "\" may not have been initialized");
+            } else if (n instanceof RoutineCallASTNode c && !inRoutine)
+                explore(bodies.getOrDefault(c.getFunction(), List.of()), true);
         }
     }
 
+    private void reportError(@NotNull ASTNode n, @NotNull String msg) {
+        isOk = false;
+        super.reporter.reportError(n, msg);
+    }
 }
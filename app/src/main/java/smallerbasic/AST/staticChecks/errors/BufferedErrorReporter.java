@@ -0,0 +1,30 @@
+package smallerbasic.AST.staticChecks.errors;
+
+import org.jetbrains.annotations.NotNull;
+import smallerbasic.AST.nodes.ASTNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link ErrorReporter} that stores the errors it receives, to be reported later in the same order.
+ */
+public class BufferedErrorReporter implements ErrorReporter {
+    private record Error(@NotNull ASTNode node, @NotNull String msg) {}
+
+    private final @NotNull List<Error> errors = new ArrayList<>();
+
+    @Override
+    public void reportError(@NotNull ASTNode n, @NotNull String msg) {
+        errors.add(new Error(n, msg));
+    }
+
+    /**
+     * Report every stored error to another {@link ErrorReporter} and empty the buffer.
+     * @param target The {@link ErrorReporter} that receives the errors.
+     */
+    public void flushTo(@NotNull ErrorReporter target) {
+        errors.forEach(e -> target.reportError(e.node(), e.msg()));
+        errors.clear();
+    }
+}
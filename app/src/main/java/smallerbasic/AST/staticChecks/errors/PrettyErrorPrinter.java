@@ -1,19 +1,43 @@
 package smallerbasic.AST.staticChecks.errors;
 
-import org.antlr.v4.runtime.Token;
 import org.antlr.v4.runtime.TokenStream;
 import org.jetbrains.annotations.NotNull;
 import smallerbasic.AST.nodes.ASTNode;
+import smallerbasic.AST.nodes.SourceSpan;
+import smallerbasic.Diagnostic;
 import smallerbasic.PrettyErrorListener;
+import smallerbasic.SourceIndex;
+
+import java.util.function.Consumer;
 
 /**
  * {@link ErrorReporter} that prints error in a similar fashion to {@link PrettyErrorListener}.
  */
 public class PrettyErrorPrinter implements ErrorReporter {
-    private final @NotNull String[] lines;
+    private final @NotNull SourceIndex source;
+    private final @NotNull Diagnostic.Kind kind;
+    private final @NotNull Consumer<Diagnostic> diagnostics;
 
+    /**
+     * Create a printer that prints the errors to {@code stderr}.
+     */
     public PrettyErrorPrinter(@NotNull TokenStream tokens) {
-        lines = tokens.getTokenSource().getInputStream().toString().split("\n");
+        this(new SourceIndex(tokens.getTokenSource().getInputStream()),
+                Diagnostic.Kind.ERROR,
+                Diagnostic.STDERR);
+    }
+
+    /**
+     * @param source The source, shared with the other printers of the same compilation.
+     * @param kind The kind of the {@link Diagnostic}s reported.
+     * @param diagnostics Receives a {@link Diagnostic} for each error.
+     */
+    public PrettyErrorPrinter(@NotNull SourceIndex source,
+                              @NotNull Diagnostic.Kind kind,
+                              @NotNull Consumer<Diagnostic> diagnostics) {
+        this.source = source;
+        this.kind = kind;
+        this.diagnostics = diagnostics;
     }
 
     /**
@@ -26,17 +50,17 @@ public class PrettyErrorPrinter implements ErrorReporter {
      * <end line>
      * }
      * </pre>
-     * @param start the start token.
-     * @param end the end token.
+     * @param out where the position is printed.
+     * @param span the position of the error.
      */
-    private void printDifferentLines(@NotNull Token start, @NotNull Token end) {
-        System.err.println("    from line " + start.getLine() + " to line " + end.getLine());
-        String startLine = lines[start.getLine() - 1];
-        String endLine   = lines[end.getLine() - 1];
-        System.err.println(startLine);
-        System.err.println("...");
-        System.err.println(endLine);
-        System.err.println();
+    private void printDifferentLines(@NotNull StringBuilder out, @NotNull SourceSpan span) {
+        out.append("    from line ").append(span.startLine()).append(" to line ").append(span.endLine()).append("\n");
+        String startLine = source.line(span.startLine());
+        String endLine   = source.line(span.endLine());
+        out.append(startLine).append("\n");
+        out.append("...\n");
+        out.append(endLine).append("\n");
+        out.append("\n");
     }
 
     /**
@@ -48,17 +72,17 @@ public class PrettyErrorPrinter implements ErrorReporter {
      * <underlining>
      * }
      * </pre>
-     * @param start the start token.
-     * @param end the end token.
+     * @param out where the position is printed.
+     * @param span the position of the error.
      */
-    private void printSameLines(@NotNull Token start, @NotNull Token end) {
-        String position = start.getLine() + ":" + start.getCharPositionInLine() + "-" + (end.getCharPositionInLine() + end.getText().length() - 1);
-        System.err.println("    at line " + position);
-        String errorLine = lines[start.getLine() - 1];
-        System.err.println(errorLine);
-        System.err.print(" ".repeat(start.getCharPositionInLine()));
-        System.err.print("^".repeat(end.getCharPositionInLine() + end.getText().length() - start.getCharPositionInLine()));
-        System.err.println();
+    private void printSameLines(@NotNull StringBuilder out, @NotNull SourceSpan span) {
+        String position = span.startLine() + ":" + span.startColumn() + "-" + (span.endColumn() - 1);
+        out.append("    at line ").append(position).append("\n");
+        String errorLine = source.line(span.startLine());
+        out.append(errorLine).append("\n");
+        out.append(" ".repeat(span.startColumn()));
+        out.append("^".repeat(span.endColumn() - span.startColumn()));
+        out.append("\n");
     }
 
     /**
@@ -68,14 +92,13 @@ public class PrettyErrorPrinter implements ErrorReporter {
      */
     @Override
     public void reportError(@NotNull ASTNode n, @NotNull String msg) {
-        System.err.println(msg);
-        if (n.getStartToken().isPresent() && n.getEndToken().isPresent()) {
-            Token start = n.getStartToken().get();
-            Token end = n.getEndToken().get();
-            if (start.getLine() == end.getLine())
-                printSameLines(start, end);
+        StringBuilder out = new StringBuilder(msg).append("\n");
+        n.getSpan().ifPresent(span -> {
+            if (span.startLine() == span.endLine())
+                printSameLines(out, span);
             else
-                printDifferentLines(start, end);
-        }
+                printDifferentLines(out, span);
+        });
+        diagnostics.accept(new Diagnostic(kind, msg, out.toString()));
     }
 }
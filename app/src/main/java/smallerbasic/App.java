@@ -1,48 +1,268 @@
 package smallerbasic;
 
-import org.antlr.v4.runtime.TokenStream;
-import smallerbasic.AST.staticChecks.*;
-import smallerbasic.AST.staticChecks.errors.PrettyErrorPrinter;
-import smallerbasic.compiler.LLVM.LLVMCompiler;
+import smallerbasic.compiler.Compiler;
 
-import java.io.IOException;
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
-
-import static smallerbasic.CompilationUtils.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class App {
-    private static final List<Check> errors = List.of(
-            new MaxNameLengthCheck(),
-            new TypeCheck(),
-            new LabelScopeCheck(),
-            new DoubleLabelCheck(),
-            new DoubleRoutineDeclCheck(),
-            new RoutineCallCheck()
-    );
-
-    private static final List<Check> warnings = List.of(
-            new UninitializedVariableCheck()
-    );
+    /**
+     * Default maximum size of the {@link IRCache}, in bytes.
+     */
+    private static final long DEFAULT_CACHE_SIZE = 256L * 1024 * 1024;
+
+    private static void fail(String msg) {
+        System.err.println(msg);
+        System.exit(1);
+    }
 
     public static void main(String[] args) {
-        if (args.length != 1) {
-            System.err.println("No file provided");
-            System.exit(1);
+        boolean concurrentChecks = false;
+        boolean concurrentCodegen = false;
+        boolean batch = false;
+        Path outputDir = null;
+        Path daemonSocket = null;
+        Path clientSocket = null;
+        Integer jobs = null;
+        Path cacheDir = null;
+        long cacheSize = DEFAULT_CACHE_SIZE;
+        boolean cacheStats = false;
+        boolean passStats = false;
+        Path runtime = null;
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--concurrent-checks" -> concurrentChecks = true;
+                case "--concurrent-codegen" -> concurrentCodegen = true;
+                case "--batch" -> batch = true;
+                case "-o", "--output" -> {
+                    if (++i == args.length)
+                        fail("No output directory provided");
+                    outputDir = Paths.get(args[i]);
+                }
+                case "--daemon" -> {
+                    if (++i == args.length)
+                        fail("No socket provided");
+                    daemonSocket = Paths.get(args[i]);
+                }
+                case "--client" -> {
+                    if (++i == args.length)
+                        fail("No socket provided");
+                    clientSocket = Paths.get(args[i]);
+                }
+                case "--cache" -> {
+                    if (++i == args.length)
+                        fail("No cache directory provided");
+                    cacheDir = Paths.get(args[i]);
+                }
+                case "--cache-size" -> {
+                    if (++i == args.length)
+                        fail("No cache size provided");
+                    try {
+                        cacheSize = Long.parseLong(args[i]) * 1024 * 1024;
+                    } catch (NumberFormatException e) {
+                        cacheSize = -1;
+                    }
+                    if (cacheSize < 0)
+                        fail("Invalid cache size \"" + args[i] + "\"");
+                }
+                case "--cache-stats" -> cacheStats = true;
+                case "--pass-stats" -> passStats = true;
+                case "--runtime" -> {
+                    if (++i == args.length)
+                        fail("No runtime provided");
+                    runtime = Paths.get(args[i]);
+                }
+                case "-j", "--jobs" -> {
+                    if (++i == args.length)
+                        fail("No number of jobs provided");
+                    try {
+                        jobs = Integer.parseInt(args[i]);
+                    } catch (NumberFormatException e) {
+                        jobs = 0;
+                    }
+                    if (jobs <= 0)
+                        fail("Invalid number of jobs \"" + args[i] + "\"");
+                }
+                default -> files.add(args[i]);
+            }
+        }
+        if (cacheStats) {
+            if (cacheDir == null)
+                fail("--cache-stats requires --cache");
+            stats(cacheDir);
+            return;
         }
+        if (runtime != null && !Files.isReadable(runtime))
+            fail("Error reading runtime \"" + runtime + "\"");
+        if (clientSocket != null) {
+            if (concurrentChecks || concurrentCodegen || batch || daemonSocket != null || outputDir != null || jobs != null || cacheDir != null
+                    || passStats)
+                fail("--client does not take other options but --runtime, they must be given to the daemon");
+            if (files.size() != 1)
+                fail(files.isEmpty() ? "No file provided" : "Too many files provided");
+            client(clientSocket, files.get(0), runtime);
+            return;
+        }
+        if (daemonSocket != null && batch)
+            fail("--batch cannot be used with --daemon");
+        if (daemonSocket != null && !files.isEmpty())
+            fail("No file can be provided to the daemon");
+        if (daemonSocket == null && files.isEmpty())
+            fail("No file provided");
+        if (!batch && files.size() > 1)
+            fail("Too many files provided");
+        if (!batch && outputDir != null)
+            fail("--output can only be used with --batch");
+        if (!batch && daemonSocket == null && jobs != null)
+            fail("--jobs can only be used with --batch or --daemon");
+        if ((batch || daemonSocket != null) && runtime != null)
+            fail("--runtime can only be used when compiling a single file");
+        if ((batch || daemonSocket != null) && passStats)
+            fail("--pass-stats can only be used when compiling a single file");
+        if (cacheDir != null && passStats)
+            fail("--pass-stats cannot be used with --cache");
+
+        int checks = CompilerService.ERRORS.size() + CompilerService.WARNINGS.size();
+        ExecutorService executor = concurrentChecks
+                ? Executors.newFixedThreadPool(Math.min(checks, Runtime.getRuntime().availableProcessors()))
+                : null;
+        ExecutorService codegen = concurrentCodegen
+                ? Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors())
+                : null;
         try {
-            TokenStream tokens = lex(Paths.get(args[0]));
-            errors.forEach(x -> x.setErrorReporter(new PrettyErrorPrinter(tokens)));
-            warnings.forEach(x -> x.setErrorReporter(new PrettyErrorPrinter(tokens)));
-            System.out.println(
-                    compile(check(clean(parse(tokens)), errors, warnings), new LLVMCompiler())
-            );
+            IRCache cache = null;
+            if (cacheDir != null)
+                try {
+                    cache = new IRCache(cacheDir, cacheSize);
+                } catch (IOException e) {
+                    fail("Error creating the cache in \"" + cacheDir + "\"");
+                }
+            CompilerService service = new CompilerService(executor, codegen, cache);
+            if (daemonSocket != null)
+                daemon(service, daemonSocket, jobs == null ? Runtime.getRuntime().availableProcessors() : jobs);
+            else if (batch)
+                batch(service, files, outputDir, jobs == null ? Runtime.getRuntime().availableProcessors() : jobs);
+            else
+                single(service, files.get(0), runtime, passStats);
+        } finally {
+            if (executor != null)
+                executor.shutdown();
+            if (codegen != null)
+                codegen.shutdown();
+        }
+    }
+
+    /**
+     * Compile a single file, writing the IR to {@code stdout} as it is generated,
+     * after the runtime if there is one.
+     * With {@code passStats} what each optimization pass did is printed to {@code stderr}, one line per pass.
+     */
+    private static void single(CompilerService service, String file, Path runtime, boolean passStats) {
+        // stdout is written through its channel, bypassing the encoder and the buffer of System.out
+        Writer out = new BufferedWriter(
+                Channels.newWriter(new FileOutputStream(FileDescriptor.out).getChannel(), StandardCharsets.UTF_8),
+                Compiler.BUFFER_SIZE);
+        try {
+            CompilationResult result = service.compile(Paths.get(file), runtime, out);
+            result.getDiagnostics().forEach(Diagnostic.STDERR);
+            if (result.getError().isPresent())
+                fail(result.getError().get());
+            if (passStats)
+                result.getPassStatistics().forEach(System.err::println);
+            out.write("\n");
+            out.flush();
         } catch (IOException e) {
-            System.err.println("Error reading file \"" + args[0] + "\"");
-            System.exit(1);
-        } catch (CompilationError e) {
-            System.err.println(e.getMessage());
+            fail("Error reading file \"" + file + "\"");
+        }
+    }
+
+    /**
+     * Compile many files with a {@link BatchCompiler}, printing a summary line for each one to {@code stdout}.
+     */
+    private static void batch(CompilerService service, List<String> files, Path outputDir, int jobs) {
+        ExecutorService pool = Executors.newFixedThreadPool(jobs);
+        List<BatchCompiler.Outcome> outcomes;
+        try {
+            outcomes = new BatchCompiler(service, pool, outputDir).run(files.stream().map(Paths::get).toList());
+        } catch (IOException e) {
+            fail("Error reading directory: " + e.getMessage());
+            return;
+        } finally {
+            pool.shutdown();
+        }
+        int failed = 0;
+        for (BatchCompiler.Outcome o : outcomes) {
+            if (!o.diagnostics().isEmpty()) {
+                System.err.println("In " + o.source() + ":");
+                o.diagnostics().forEach(Diagnostic.STDERR);
+            }
+            if (o.isSuccess())
+                System.out.println("OK     " + o.source() + " -> " + o.output().orElseThrow());
+            else {
+                System.out.println("FAILED " + o.source() + ": " + o.error().orElseThrow());
+                failed++;
+            }
+        }
+        System.out.println((outcomes.size() - failed) + " compiled, " + failed + " failed");
+        if (failed > 0)
             System.exit(1);
+    }
+
+    /**
+     * Serve compilation requests with a {@link CompileDaemon}, until the process is killed.
+     */
+    private static void daemon(CompilerService service, Path socket, int jobs) {
+        ExecutorService workers = Executors.newFixedThreadPool(jobs);
+        try {
+            new CompileDaemon(socket, service, workers).serve();
+        } catch (IOException e) {
+            fail("Error listening on \"" + socket + "\": " + e.getMessage());
+        } finally {
+            workers.shutdown();
+        }
+    }
+
+    /**
+     * Ask a {@link CompileDaemon} to compile a file, the output is the same as compiling it in this process.
+     * If there is a runtime it is written first, even if the compilation then fails.
+     */
+    private static void client(Path socket, String file, Path runtime) {
+        PrintStream out = new PrintStream(new BufferedOutputStream(System.out), false);
+        int status;
+        try {
+            if (runtime != null)
+                Files.copy(runtime, out);
+            status = CompileDaemon.request(socket, Paths.get(file), out, System.err);
+        } catch (IOException e) {
+            status = 1;
+            System.err.println("Error contacting the daemon at \"" + socket + "\": " + e.getMessage());
+        }
+        out.flush();
+        System.exit(status);
+    }
+
+    /**
+     * Print the statistics of an {@link IRCache}.
+     */
+    private static void stats(Path dir) {
+        try {
+            IRCache.Stats stats = new IRCache(dir, DEFAULT_CACHE_SIZE).stats();
+            System.out.println("entries:  " + stats.entries());
+            System.out.println("size:     " + stats.size() + " bytes");
+            System.out.println("hits:     " + stats.hits());
+            System.out.println("misses:   " + stats.misses());
+            System.out.printf("hit rate: %.1f%%%n", 100 * stats.hitRate());
+        } catch (IOException e) {
+            fail("Error reading the cache in \"" + dir + "\"");
         }
     }
 }
@@ -0,0 +1,165 @@
+package smallerbasic;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Compiles many SmallerBasic programs in parallel, writing the LLVM IR of each {@code <file>.sb} to {@code <file>.ll}.
+ * <p>
+ * If an output directory is given the files are written there, keeping the structure of the input directories,
+ * otherwise each file is written next to its source.
+ */
+public class BatchCompiler {
+    /**
+     * The outcome of compiling a single file.
+     *
+     * @param source      The compiled file.
+     * @param output      The file where the IR has been written, {@link Optional#empty()} if the compilation failed.
+     * @param error       Why the compilation failed, {@link Optional#empty()} if it succeeded.
+     * @param diagnostics The errors and warnings reported while compiling.
+     */
+    public record Outcome(@NotNull Path source,
+                          @NotNull Optional<Path> output,
+                          @NotNull Optional<String> error,
+                          @NotNull List<Diagnostic> diagnostics) {
+        public boolean isSuccess() {
+            return error.isEmpty();
+        }
+    }
+
+    /**
+     * A file to compile.
+     * @param file The file.
+     * @param base The directory its output path is relative to.
+     */
+    private record Source(@NotNull Path file, @NotNull Path base) {}
+
+    private final @NotNull CompilerService service;
+    private final @NotNull ExecutorService executor;
+    private final @Nullable Path outputDir;
+
+    /**
+     * @param service   The service compiling each file.
+     * @param executor  The executor on which the files are compiled, its size bounds the files compiled at once.
+     * @param outputDir Where the IR is written, {@code null} to write it next to each source.
+     */
+    public BatchCompiler(@NotNull CompilerService service,
+                         @NotNull ExecutorService executor,
+                         @Nullable Path outputDir) {
+        this.service = service;
+        this.executor = executor;
+        this.outputDir = outputDir;
+    }
+
+    /**
+     * Find every {@code .sb} file in the given paths.
+     * Files are taken as they are, directories are searched recursively.
+     * @param paths Files and directories.
+     * @return Every {@code .sb} file, in order.
+     * @throws IOException propagates any exception risen by the file handling.
+     */
+    private static @NotNull List<Source> sources(@NotNull List<Path> paths) throws IOException {
+        List<Source> sources = new ArrayList<>();
+        for (Path p : paths)
+            if (Files.isDirectory(p))
+                try (Stream<Path> files = Files.walk(p)) {
+                    files.filter(f -> Files.isRegularFile(f) && f.toString().endsWith(".sb"))
+                         .sorted()
+                         .forEach(f -> sources.add(new Source(f, p)));
+                }
+            else
+                sources.add(new Source(p, p.toAbsolutePath().getParent()));
+        return sources;
+    }
+
+    private @NotNull Path outputFile(@NotNull Path source, @NotNull Path base) {
+        String name = source.getFileName().toString();
+        name = (name.endsWith(".sb") ? name.substring(0, name.length() - 3) : name) + ".ll";
+        if (outputDir == null)
+            return source.resolveSibling(name);
+        Path relative = base.toAbsolutePath().relativize(source.toAbsolutePath());
+        return outputDir.resolve(relative).resolveSibling(name);
+    }
+
+    private @NotNull Outcome compile(@NotNull Path source, @NotNull Path output) {
+        CompilationResult result;
+        try {
+            result = service.compile(source);
+        } catch (IOException e) {
+            return new Outcome(source, Optional.empty(), Optional.of("Error reading file \"" + source + "\""), List.of());
+        } catch (RuntimeException | Error e) {
+            return new Outcome(source, Optional.empty(), Optional.of("Internal error: " + e), List.of());
+        }
+        if (result.getIR().isEmpty())
+            return new Outcome(source, Optional.empty(), result.getError(), result.getDiagnostics());
+        try {
+            if (output.getParent() != null)
+                Files.createDirectories(output.getParent());
+            Files.writeString(output, result.getIR().get() + "\n");
+        } catch (IOException e) {
+            return new Outcome(source, Optional.empty(), Optional.of("Error writing file \"" + output + "\""), result.getDiagnostics());
+        }
+        return new Outcome(source, Optional.of(output), Optional.empty(), result.getDiagnostics());
+    }
+
+    /**
+     * Compile every {@code .sb} file in the given paths.
+     * @param paths Files and directories, directories are searched recursively.
+     * Files that would be written to the same output file are not compiled and fail.
+     * @return The outcome of each file, in the same order the files have been given.
+     * @throws IOException if a directory cannot be read.
+     */
+    public @NotNull List<Outcome> run(@NotNull List<Path> paths) throws IOException {
+        List<Source> sources = sources(paths);
+        List<Path> outputs = new ArrayList<>();
+        Map<Path, Integer> writers = new HashMap<>();
+        for (Source s : sources) {
+            Path output = outputFile(s.file(), s.base());
+            outputs.add(output);
+            writers.merge(output.toAbsolutePath().normalize(), 1, Integer::sum);
+        }
+        List<Future<Outcome>> futures = new ArrayList<>();
+        for (int i = 0; i < sources.size(); i++) {
+            Path source = sources.get(i).file();
+            Path output = outputs.get(i);
+            if (writers.get(output.toAbsolutePath().normalize()) > 1)
+                futures.add(CompletableFuture.completedFuture(new Outcome(source,
+                        Optional.empty(),
+                        Optional.of("Output file \"" + output + "\" is shared with another source"),
+                        List.of())));
+            else
+                futures.add(executor.submit(() -> compile(source, output)));
+        }
+        List<Outcome> outcomes = new ArrayList<>();
+        try {
+            for (Future<Outcome> f : futures)
+                outcomes.add(f.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while compiling", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException r)
+                throw r;
+            if (e.getCause() instanceof Error r)
+                throw r;
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            futures.forEach(f -> f.cancel(true));
+        }
+        return outcomes;
+    }
+}
@@ -0,0 +1,91 @@
+package smallerbasic;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import smallerbasic.AST.optimizations.PassStatistics;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The outcome of compiling a program with a {@link CompilerService}.
+ * If the compilation succeeded it holds the compiled program, unless it has been written to a stream,
+ * otherwise the reason of the failure; in both cases it holds every {@link Diagnostic} reported, in order.
+ * A compilation also holds the statistics of the optimization passes it ran, if any.
+ */
+public class CompilationResult {
+    private final @Nullable String ir;
+    private final @Nullable String error;
+    private final @NotNull List<Diagnostic> diagnostics;
+    private final @NotNull List<PassStatistics> passes;
+
+    private CompilationResult(@Nullable String ir,
+                              @Nullable String error,
+                              @NotNull List<Diagnostic> diagnostics,
+                              @NotNull List<PassStatistics> passes) {
+        this.ir = ir;
+        this.error = error;
+        this.diagnostics = List.copyOf(diagnostics);
+        this.passes = List.copyOf(passes);
+    }
+
+    static @NotNull CompilationResult success(@NotNull String ir, @NotNull List<Diagnostic> diagnostics) {
+        return success(ir, diagnostics, List.of());
+    }
+
+    static @NotNull CompilationResult success(@NotNull String ir,
+                                              @NotNull List<Diagnostic> diagnostics,
+                                              @NotNull List<PassStatistics> passes) {
+        return new CompilationResult(ir, null, diagnostics, passes);
+    }
+
+    static @NotNull CompilationResult written(@NotNull List<Diagnostic> diagnostics) {
+        return written(diagnostics, List.of());
+    }
+
+    static @NotNull CompilationResult written(@NotNull List<Diagnostic> diagnostics,
+                                              @NotNull List<PassStatistics> passes) {
+        return new CompilationResult(null, null, diagnostics, passes);
+    }
+
+    static @NotNull CompilationResult failure(@NotNull String error, @NotNull List<Diagnostic> diagnostics) {
+        return new CompilationResult(null, error, diagnostics, List.of());
+    }
+
+    /**
+     * @return {@code true} if the program has been compiled.
+     */
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * @return The compiled program, {@link Optional#empty()} if the compilation failed
+     * or if the program has been written to a stream.
+     */
+    public @NotNull Optional<String> getIR() {
+        return Optional.ofNullable(ir);
+    }
+
+    /**
+     * @return A description of why the compilation failed, {@link Optional#empty()} if it succeeded.
+     */
+    public @NotNull Optional<String> getError() {
+        return Optional.ofNullable(error);
+    }
+
+    /**
+     * @return The errors and warnings reported while compiling, in the order they have been reported.
+     */
+    public @NotNull List<Diagnostic> getDiagnostics() {
+        return diagnostics;
+    }
+
+    /**
+     * @return What each optimization pass did, in the order they have been run.
+     * It is empty if the compilation failed, or if its result comes from an {@link IRCache} or a {@link CompileDaemon}.
+     */
+    public @NotNull List<PassStatistics> getPassStatistics() {
+        return passes;
+    }
+}
@@ -1,17 +1,29 @@
 package smallerbasic;
 
 import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.antlr.v4.runtime.tree.ParseTree;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import smallerbasic.AST.ASTBuilderListener;
 import smallerbasic.AST.ParseTreeToASTVisitorWithTokens;
 import smallerbasic.AST.nodes.ASTNode;
+import smallerbasic.AST.optimizations.Pass;
+import smallerbasic.AST.optimizations.PassStatistics;
 import smallerbasic.AST.staticChecks.Check;
+import smallerbasic.AST.staticChecks.CheckEngine;
 import smallerbasic.compiler.Compiler;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * This class groups together some utility methods to lex, compile and check a SmallerBasic program.
@@ -29,6 +41,17 @@ public class CompilationUtils {
     }
 
     private static @NotNull TokenStream lex(@NotNull CharStream chars) {
+        return lex(chars, Diagnostic.STDERR);
+    }
+
+    /**
+     * Lex a source, reporting the errors to {@code diagnostics} instead of {@code stderr}.
+     *
+     * @param chars       The source.
+     * @param diagnostics Receives a {@link Diagnostic} for each lexing error.
+     * @return The corresponding {@link TokenStream}.
+     */
+    public static @NotNull TokenStream lex(@NotNull CharStream chars, @NotNull Consumer<Diagnostic> diagnostics) {
         SBGrammarLexer lexer = new SBGrammarLexer(chars);
         lexer.removeErrorListeners();
         lexer.addErrorListener(new BaseErrorListener() {
@@ -39,8 +62,9 @@ public class CompilationUtils {
                                     int charPositionInLine,
                                     String msg,
                                     RecognitionException e) {
-                System.err.println("*** LexError [" + line + ":"
-                        + charPositionInLine + "]: " + msg);
+                String message = "*** LexError [" + line + ":"
+                        + charPositionInLine + "]: " + msg;
+                diagnostics.accept(new Diagnostic(Diagnostic.Kind.LEXING_ERROR, message, message + "\n"));
             }
         });
         return new CommonTokenStream(lexer);
@@ -63,14 +87,131 @@ public class CompilationUtils {
      * @return {@code Optional.empty()} if there have been any parsing errors, the {@link ParseTree} otherwise.
      */
     public static @NotNull ParseTree parse(@NotNull TokenStream tokens) {
+        return parse(tokens, Diagnostic.STDERR);
+    }
+
+    /**
+     * Same as {@link #parse(TokenStream)}, but the errors are reported to {@code diagnostics} instead of {@code stderr}.
+     * <p>
+     * The tokens are first parsed with the faster {@link PredictionMode#SLL} prediction, giving up at the first error;
+     * only if that fails they are parsed again with the full {@link PredictionMode#LL} prediction,
+     * which reports the errors.
+     * Since SLL parsing succeeds only if LL parsing would, and in that case the trees are the same,
+     * the result and the errors reported are the same as parsing with LL straight away.
+     *
+     * @param tokens      The token stream.
+     * @param diagnostics Receives a {@link Diagnostic} for each parsing error.
+     * @return The {@link ParseTree}.
+     * @throws CompilationError if there have been any parsing errors.
+     */
+    public static @NotNull ParseTree parse(@NotNull TokenStream tokens, @NotNull Consumer<Diagnostic> diagnostics) {
+        return parse(tokens, diagnostics, true);
+    }
+
+    static @NotNull ParseTree parse(@NotNull TokenStream tokens,
+                                    @NotNull Consumer<Diagnostic> diagnostics,
+                                    boolean twoStage) {
+        return parse(tokens, diagnostics, twoStage, parser -> {
+            ParseTree tree = parser.program();
+            return () -> tree;
+        });
+    }
+
+    /**
+     * Parse a {@link TokenStream} straight to an AST, without building the {@link ParseTree}.
+     * The result is the same as {@code clean(parse(tokens, diagnostics))}, but the parse tree, which is larger than
+     * the AST, is never held in memory.
+     *
+     * @param tokens      The token stream.
+     * @param diagnostics Receives a {@link Diagnostic} for each parsing error.
+     * @return The {@link ASTNode} root.
+     * @throws CompilationError if there have been any parsing errors.
+     * @see ASTBuilderListener
+     */
+    public static @NotNull ASTNode parseToAST(@NotNull TokenStream tokens, @NotNull Consumer<Diagnostic> diagnostics) {
+        return parse(tokens, diagnostics, true, parser -> {
+            ASTBuilderListener builder = new ASTBuilderListener(tokens);
+            parser.setBuildParseTree(false);
+            parser.addParseListener(builder);
+            parser.program();
+            return builder::getResult;
+        });
+    }
+
+    /**
+     * Parse the tokens, first with SLL then with LL if {@code twoStage} is set (see {@link #parse(TokenStream, Consumer)}).
+     * @param run Given a new parser, parses the tokens and returns how to get the result,
+     *            which is asked only if there have been no errors.
+     */
+    private static <T> @NotNull T parse(@NotNull TokenStream tokens,
+                                        @NotNull Consumer<Diagnostic> diagnostics,
+                                        boolean twoStage,
+                                        @NotNull Function<SBGrammarParser, Supplier<T>> run) {
+        if (twoStage
+                && tokens instanceof BufferedTokenStream buffered
+                && tokens.getTokenSource() instanceof Lexer lexer) {
+            T result = parseSLL(buffered, lexer, run);
+            if (result != null)
+                return result;
+        }
         SBGrammarParser parser = new SBGrammarParser(tokens);
-        PrettyErrorListener listener = new PrettyErrorListener();
+        PrettyErrorListener listener = new PrettyErrorListener(diagnostics);
         parser.removeErrorListeners();
         parser.addErrorListener(listener);
-        ParseTree tree = parser.program();
+        Supplier<T> result = run.apply(parser);
         if (listener.hasFailed())
             throw new CompilationError("Parsing failed");
-        return tree;
+        return result.get();
+    }
+
+    /**
+     * Try to parse the tokens with {@link PredictionMode#SLL}, reporting no error.
+     * The errors of the lexer are held back until the parsing succeeds:
+     * if it fails the tokens are lexed again from the start, so that parsing them again reports
+     * the same errors, in the same order, as the first time.
+     *
+     * @param tokens The token stream.
+     * @param lexer  The lexer producing {@code tokens}.
+     * @param run    See {@link #parse(TokenStream, Consumer, boolean, Function)}.
+     * @return The result, {@code null} if the parsing failed.
+     */
+    private static <T> @Nullable T parseSLL(@NotNull BufferedTokenStream tokens,
+                                            @NotNull Lexer lexer,
+                                            @NotNull Function<SBGrammarParser, Supplier<T>> run) {
+        List<? extends ANTLRErrorListener> listeners = new ArrayList<>(lexer.getErrorListeners());
+        List<Runnable> lexErrors = new ArrayList<>();
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(new BaseErrorListener() {
+            @Override
+            public void syntaxError(Recognizer<?, ?> recognizer,
+                                    Object offendingSymbol,
+                                    int line,
+                                    int charPositionInLine,
+                                    String msg,
+                                    RecognitionException e) {
+                lexErrors.add(() -> listeners.forEach(l ->
+                        l.syntaxError(recognizer, offendingSymbol, line, charPositionInLine, msg, e)));
+            }
+        });
+        SBGrammarParser parser = new SBGrammarParser(tokens);
+        parser.removeErrorListeners();
+        parser.setErrorHandler(new BailErrorStrategy());
+        parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+        T result;
+        try {
+            result = run.apply(parser).get();
+        } catch (ParseCancellationException e) {
+            result = null;
+        } finally {
+            lexer.removeErrorListeners();
+            listeners.forEach(lexer::addErrorListener);
+        }
+        if (result == null) {
+            lexer.reset();
+            tokens.setTokenSource(lexer);
+        } else
+            lexErrors.forEach(Runnable::run);
+        return result;
     }
 
     /**
@@ -85,6 +226,7 @@ public class CompilationUtils {
 
     /**
      * Given an {@link ASTNode}, a list of errors and a list of warnings, applies each check to the tree.
+     * The checks are run together by a {@link CheckEngine}, walking the tree only once.
      *
      * @param tree     The tree to be checked.
      * @param errors   A list of checks that the tree MUST pass.
@@ -94,18 +236,59 @@ public class CompilationUtils {
     public static @NotNull ASTNode check(@NotNull ASTNode tree,
                                          @NotNull List<Check> errors,
                                          @NotNull List<Check> warnings) {
-        // directly using allMatch stops the checks at the first failed one
-        List<Boolean> allPass = errors
-                .stream()
-                .map(x -> x.check(tree))
-                .toList();
+        return check(tree, errors, warnings, (engine) -> engine.run(tree));
+    }
+
+    /**
+     * Same as {@link #check(ASTNode, List, List)}, but the checks are run concurrently on {@code executor}.
+     * Errors are reported in the same order.
+     *
+     * @param tree     The tree to be checked.
+     * @param errors   A list of checks that the tree MUST pass.
+     * @param warnings A list of checks that the tree may not pass.
+     * @param executor The executor on which the checks are run.
+     * @return {@link Optional#empty()} if at least one check in {@code errors} fails.
+     */
+    public static @NotNull ASTNode check(@NotNull ASTNode tree,
+                                         @NotNull List<Check> errors,
+                                         @NotNull List<Check> warnings,
+                                         @NotNull ExecutorService executor) {
+        return check(tree, errors, warnings, (engine) -> engine.run(tree, executor));
+    }
+
+    private static @NotNull ASTNode check(@NotNull ASTNode tree,
+                                          @NotNull List<Check> errors,
+                                          @NotNull List<Check> warnings,
+                                          @NotNull Function<CheckEngine, List<Boolean>> run) {
+        List<Check> checks = new ArrayList<>(errors);
+        checks.addAll(warnings);
+        List<Boolean> results = run.apply(new CheckEngine(checks));
         // warnings do not halt compilation
-        warnings.forEach(x -> x.check(tree));
+        List<Boolean> allPass = results.subList(0, errors.size());
         if (!allPass.stream().allMatch(x -> x))
             throw new CompilationError("Static checks failed");
         return tree;
     }
 
+    /**
+     * Given an {@link ASTNode} that passed the checks, applies each optimization pass to the tree, in order.
+     *
+     * @param tree       The tree to be optimized.
+     * @param passes     The passes to run.
+     * @param statistics Receives what each pass did, as soon as it is done.
+     * @return The optimized tree.
+     */
+    public static @NotNull ASTNode optimize(@NotNull ASTNode tree,
+                                            @NotNull List<Pass> passes,
+                                            @NotNull Consumer<PassStatistics> statistics) {
+        for (Pass p : passes) {
+            long start = System.nanoTime();
+            tree = p.run(tree);
+            statistics.accept(new PassStatistics(p.getName(), p.getStatistics(), System.nanoTime() - start));
+        }
+        return tree;
+    }
+
     /**
      * Given a {@link Compiler} compiles the {@link ASTNode}.
      *
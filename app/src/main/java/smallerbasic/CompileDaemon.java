@@ -0,0 +1,164 @@
+package smallerbasic;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.net.ConnectException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * A long-lived process that compiles programs on request, listening on a Unix domain socket.
+ * Keeping the same JVM across compilations avoids paying its startup for each of them,
+ * and keeps both the JIT-compiled code and the DFA caches of the ANTLR lexer and parser (which are shared
+ * by all their instances) warm.
+ * <p>
+ * The protocol is line based and encoded in UTF-8.
+ * The client sends the absolute path of the file to compile on a single line; the daemon answers with the output of
+ * the compilation, one line at a time, each prefixed by a character telling where it would have been printed:
+ * <ul>
+ *   <li> {@code O} for {@code stdout} (the IR) </li>
+ *   <li> {@code E} for {@code stderr} (the diagnostics) </li>
+ * </ul>
+ * The last line is {@code X} followed by the exit status of the compilation, then the connection is closed.
+ */
+public class CompileDaemon {
+    /**
+     * The bits of {@code unix:mode} telling the type of a file, and their value for a socket.
+     */
+    private static final int S_IFMT = 0170000;
+    private static final int S_IFSOCK = 0140000;
+
+    private final @NotNull Path socket;
+    private final @NotNull CompilerService service;
+    private final @NotNull ExecutorService workers;
+
+    /**
+     * @param socket  The path of the socket.
+     * @param service The service compiling the programs.
+     * @param workers The executor serving the requests, its size bounds the requests served at once.
+     */
+    public CompileDaemon(@NotNull Path socket, @NotNull CompilerService service, @NotNull ExecutorService workers) {
+        this.socket = socket;
+        this.service = service;
+        this.workers = workers;
+    }
+
+    /**
+     * Serve requests until the thread is interrupted or the socket is closed.
+     * A socket already existing at its path is replaced only if it has been left by a previous daemon, that is if
+     * nobody is listening on it.
+     * @throws IOException if the socket cannot be opened, if another daemon is listening on it, or if its path is
+     * taken by a file that is not a socket.
+     */
+    public void serve() throws IOException {
+        removeStaleSocket();
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socket));
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    SocketChannel client = server.accept();
+                    workers.execute(() -> handle(client));
+                }
+            } finally {
+                Files.deleteIfExists(socket);
+            }
+        }
+    }
+
+    private void removeStaleSocket() throws IOException {
+        if (!Files.exists(socket, LinkOption.NOFOLLOW_LINKS))
+            return;
+        int mode = (Integer) Files.getAttribute(socket, "unix:mode", LinkOption.NOFOLLOW_LINKS);
+        if ((mode & S_IFMT) != S_IFSOCK)
+            throw new IOException("\"" + socket + "\" is not a socket");
+        try (SocketChannel ignored = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+            throw new IOException("Another daemon is listening on \"" + socket + "\"");
+        } catch (ConnectException e) {
+            Files.delete(socket);
+        }
+    }
+
+    private void handle(@NotNull SocketChannel client) {
+        try (client;
+             BufferedReader in = new BufferedReader(Channels.newReader(client, StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(new BufferedWriter(Channels.newWriter(client, StandardCharsets.UTF_8)))) {
+            String file = in.readLine();
+            if (file == null)
+                return;
+            int status = 0;
+            try {
+                CompilationResult result = service.compile(Paths.get(file));
+                result.getDiagnostics().forEach(d -> send(out, 'E', d.text()));
+                if (result.getError().isPresent()) {
+                    send(out, 'E', result.getError().get() + "\n");
+                    status = 1;
+                } else
+                    send(out, 'O', result.getIR().orElseThrow() + "\n");
+            } catch (IOException e) {
+                send(out, 'E', "Error reading file \"" + file + "\"\n");
+                status = 1;
+            }
+            out.print("X" + status + "\n");
+        } catch (IOException e) {
+            // the client went away, nothing to answer to
+        }
+    }
+
+    /**
+     * Send a text, line by line.
+     * @param out Where the text is sent.
+     * @param channel The prefix of each line.
+     * @param text The text, ending with a newline.
+     */
+    private static void send(@NotNull PrintWriter out, char channel, @NotNull String text) {
+        String[] lines = text.split("\n", -1);
+        // the last element is what follows the final newline
+        for (int i = 0; i < lines.length - 1; i++)
+            out.print(channel + lines[i] + "\n");
+    }
+
+    /**
+     * Ask a daemon to compile a file, printing its output as if the compilation happened in this process.
+     * @param socket The path of the socket the daemon is listening on.
+     * @param file The file to compile.
+     * @param out Where the IR is printed.
+     * @param err Where the diagnostics are printed.
+     * @return The exit status of the compilation.
+     * @throws IOException if the daemon cannot be reached.
+     */
+    public static int request(@NotNull Path socket,
+                              @NotNull Path file,
+                              @NotNull PrintStream out,
+                              @NotNull PrintStream err) throws IOException {
+        try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socket));
+             BufferedReader in = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8))) {
+            Writer request = Channels.newWriter(channel, StandardCharsets.UTF_8);
+            request.write(file.toAbsolutePath() + "\n");
+            request.flush();
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isEmpty())
+                    continue;
+                switch (line.charAt(0)) {
+                    case 'O' -> out.println(line.substring(1));
+                    case 'E' -> err.println(line.substring(1));
+                    case 'X' -> {
+                        return Integer.parseInt(line.substring(1));
+                    }
+                    default -> throw new IOException("Unexpected answer from the daemon");
+                }
+            }
+            throw new IOException("The daemon closed the connection");
+        }
+    }
+}
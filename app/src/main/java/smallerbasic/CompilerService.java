@@ -0,0 +1,242 @@
+package smallerbasic;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.IntStream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import smallerbasic.AST.nodes.ASTNode;
+import smallerbasic.AST.optimizations.ConstantFolding;
+import smallerbasic.AST.optimizations.DeadCodeElimination;
+import smallerbasic.AST.optimizations.Pass;
+import smallerbasic.AST.optimizations.PassStatistics;
+import smallerbasic.AST.staticChecks.*;
+import smallerbasic.AST.staticChecks.errors.PrettyErrorPrinter;
+import smallerbasic.compiler.LLVM.LLVMCompiler;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static smallerbasic.CompilationUtils.*;
+
+/**
+ * Compiles SmallerBasic programs to LLVM IR.
+ * <p>
+ * The service holds no mutable state: every call to {@code compile} creates its own checks and error reporters,
+ * and collects the diagnostics in the returned {@link CompilationResult} instead of printing them.
+ * Therefore, the same instance can be used to compile any number of programs concurrently.
+ * The only state shared by the calls is the optional {@link IRCache}, which is safe to use concurrently.
+ */
+public class CompilerService {
+    /**
+     * The checks a program MUST pass, in the order they are run.
+     */
+    public static final @NotNull List<Supplier<Check>> ERRORS = List.of(
+            MaxNameLengthCheck::new,
+            TypeCheck::new,
+            LabelScopeCheck::new,
+            DoubleLabelCheck::new,
+            DoubleRoutineDeclCheck::new,
+            RoutineCallCheck::new
+    );
+
+    /**
+     * The checks a program may not pass, in the order they are run.
+     */
+    public static final @NotNull List<Supplier<Check>> WARNINGS = List.of(
+            UninitializedVariableCheck::new
+    );
+
+    /**
+     * The optimizations applied to a program that passed the checks, in the order they are run.
+     */
+    public static final @NotNull List<Supplier<Pass>> PASSES = List.of(
+            ConstantFolding::new,
+            DeadCodeElimination::new
+    );
+
+    private final @Nullable ExecutorService checkExecutor;
+    private final @Nullable ExecutorService codegenExecutor;
+    private final @Nullable IRCache cache;
+
+    /**
+     * Create a service that runs the checks of each program on the calling thread.
+     */
+    public CompilerService() {
+        this(null);
+    }
+
+    /**
+     * Create a service that runs the checks of each program concurrently on {@code checkExecutor}.
+     * The calling thread waits for the checks to finish, so {@code compile} must not be called
+     * from a task of {@code checkExecutor} itself.
+     * @param checkExecutor The executor on which the checks are run, {@code null} to run them on the calling thread.
+     */
+    public CompilerService(@Nullable ExecutorService checkExecutor) {
+        this(checkExecutor, null);
+    }
+
+    /**
+     * Create a service that looks up each program in {@code cache} before compiling it,
+     * and stores there the successful compilations.
+     * @param checkExecutor The executor on which the checks are run, {@code null} to run them on the calling thread.
+     * @param cache The cache, {@code null} to always compile.
+     */
+    public CompilerService(@Nullable ExecutorService checkExecutor, @Nullable IRCache cache) {
+        this(checkExecutor, null, cache);
+    }
+
+    /**
+     * Create a service that also generates the routines of each program concurrently on {@code codegenExecutor}.
+     * The IR is the same whatever the executor, and, as for the checks, {@code compile} must not be called
+     * from a task of {@code codegenExecutor} itself.
+     * @param checkExecutor The executor on which the checks are run, {@code null} to run them on the calling thread.
+     * @param codegenExecutor The executor on which the routines are generated,
+     *                        {@code null} to generate them on the calling thread.
+     * @param cache The cache, {@code null} to always compile.
+     */
+    public CompilerService(@Nullable ExecutorService checkExecutor,
+                           @Nullable ExecutorService codegenExecutor,
+                           @Nullable IRCache cache) {
+        this.checkExecutor = checkExecutor;
+        this.codegenExecutor = codegenExecutor;
+        this.cache = cache;
+    }
+
+    /**
+     * Compile a source given as path to the file.
+     * @param path The path of the file.
+     * @return The result of the compilation.
+     * @throws IOException propagates any exception risen by the file handling.
+     */
+    public @NotNull CompilationResult compile(@NotNull Path path) throws IOException {
+        return compile(new String(Files.readAllBytes(path), StandardCharsets.UTF_8), path.toString());
+    }
+
+    /**
+     * Compile a source given as path to the file, writing the IR to a stream as it is generated instead of
+     * keeping it in the result.
+     * Nothing is written if the compilation fails.
+     * @param path The path of the file.
+     * @param runtime The path of a file to write before the IR, usually the runtime, {@code null} for none.
+     * @param out The stream, which is neither flushed nor closed.
+     * @return The result of the compilation, without the IR.
+     * @throws IOException propagates any exception risen by the file handling, or by writing to {@code out}.
+     */
+    public @NotNull CompilationResult compile(@NotNull Path path,
+                                              @Nullable Path runtime,
+                                              @NotNull Writer out) throws IOException {
+        String text = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+        if (cache == null)
+            return compile(CharStreams.fromString(text, path.toString()), runtime, out);
+        // the cache stores the whole IR anyway
+        CompilationResult result = compile(text, path.toString());
+        if (result.getIR().isEmpty())
+            return result;
+        writeRuntime(runtime, out);
+        out.write(result.getIR().get());
+        return CompilationResult.written(result.getDiagnostics(), result.getPassStatistics());
+    }
+
+    /**
+     * Compile a source given as a string.
+     * @param text The source.
+     * @return The result of the compilation.
+     */
+    public @NotNull CompilationResult compile(@NotNull String text) {
+        return compile(text, IntStream.UNKNOWN_SOURCE_NAME);
+    }
+
+    private @NotNull CompilationResult compile(@NotNull String text, @NotNull String sourceName) {
+        if (cache == null)
+            return compile(CharStreams.fromString(text, sourceName));
+        Optional<CompilationResult> cached = cache.get(text);
+        if (cached.isPresent())
+            return cached.get();
+        CompilationResult result = compile(CharStreams.fromString(text, sourceName));
+        cache.put(text, result);
+        return result;
+    }
+
+    private @NotNull CompilationResult compile(@NotNull CharStream chars) {
+        List<Diagnostic> diagnostics = new ArrayList<>();
+        List<PassStatistics> passes = new ArrayList<>();
+        try {
+            ASTNode tree = optimized(checked(chars, diagnostics::add), passes);
+            String ir = CompilationUtils.compile(tree, new LLVMCompiler(codegenExecutor));
+            return CompilationResult.success(ir, diagnostics, passes);
+        } catch (CompilationError e) {
+            return CompilationResult.failure(e.getMessage(), diagnostics);
+        }
+    }
+
+    private @NotNull CompilationResult compile(@NotNull CharStream chars,
+                                               @Nullable Path runtime,
+                                               @NotNull Writer out) throws IOException {
+        List<Diagnostic> diagnostics = new ArrayList<>();
+        List<PassStatistics> passes = new ArrayList<>();
+        ASTNode tree;
+        try {
+            tree = checked(chars, diagnostics::add);
+        } catch (CompilationError e) {
+            return CompilationResult.failure(e.getMessage(), diagnostics);
+        }
+        tree = optimized(tree, passes);
+        writeRuntime(runtime, out);
+        new LLVMCompiler(codegenExecutor).compile(tree, out);
+        return CompilationResult.written(diagnostics, passes);
+    }
+
+    /**
+     * @return The AST of a program that passed all the checks.
+     * @throws CompilationError if the program cannot be parsed or does not pass the checks.
+     */
+    private @NotNull ASTNode checked(@NotNull CharStream chars, @NotNull Consumer<Diagnostic> sink) {
+        SourceIndex source = new SourceIndex(chars);
+        List<Check> errors = instantiate(ERRORS, source, Diagnostic.Kind.ERROR, sink);
+        List<Check> warnings = instantiate(WARNINGS, source, Diagnostic.Kind.WARNING, sink);
+        // the AST keeps only the positions of the tokens, so these can be released right away
+        ASTNode tree = parseToAST(lex(chars, sink), sink);
+        return checkExecutor == null
+                ? check(tree, errors, warnings)
+                : check(tree, errors, warnings, checkExecutor);
+    }
+
+    /**
+     * @return The tree optimized by a new instance of each of the {@link #PASSES}.
+     */
+    private static @NotNull ASTNode optimized(@NotNull ASTNode tree, @NotNull List<PassStatistics> statistics) {
+        return optimize(tree, PASSES.stream().map(Supplier::get).toList(), statistics::add);
+    }
+
+    private static void writeRuntime(@Nullable Path runtime, @NotNull Writer out) throws IOException {
+        if (runtime == null)
+            return;
+        try (Reader in = Files.newBufferedReader(runtime, StandardCharsets.UTF_8)) {
+            in.transferTo(out);
+        }
+    }
+
+    private static @NotNull List<Check> instantiate(@NotNull List<Supplier<Check>> checks,
+                                                    @NotNull SourceIndex source,
+                                                    @NotNull Diagnostic.Kind kind,
+                                                    @NotNull Consumer<Diagnostic> sink) {
+        List<Check> l = new ArrayList<>();
+        for (Supplier<Check> s : checks) {
+            Check c = s.get();
+            c.setErrorReporter(new PrettyErrorPrinter(source, kind, sink));
+            l.add(c);
+        }
+        return l;
+    }
+}
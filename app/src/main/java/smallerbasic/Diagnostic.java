@@ -0,0 +1,26 @@
+package smallerbasic;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.Consumer;
+
+/**
+ * An error or a warning produced while compiling a program.
+ *
+ * @param kind    The phase that produced the diagnostic.
+ * @param message A one-line description of the problem.
+ * @param text    The whole diagnostic as it is printed on the command line, including where in the source the problem is.
+ */
+public record Diagnostic(@NotNull Kind kind, @NotNull String message, @NotNull String text) {
+    /**
+     * Prints each diagnostic to {@code stderr}.
+     */
+    public static final @NotNull Consumer<Diagnostic> STDERR = d -> System.err.print(d.text());
+
+    public enum Kind {
+        LEXING_ERROR,
+        PARSING_ERROR,
+        ERROR,
+        WARNING
+    }
+}
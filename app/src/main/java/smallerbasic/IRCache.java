@@ -0,0 +1,295 @@
+package smallerbasic;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * An on-disk cache of successful compilations, shared by every process using the same directory.
+ * <p>
+ * Entries are keyed by a hash of the source text and of the version of the compiler and of the runtime,
+ * so that a new compiler never reuses the IR produced by an old one.
+ * No option is part of the key, since none changes the IR cached: the checks and the passes run are fixed,
+ * running them or the code generation concurrently gives the same IR, and the runtime given with
+ * {@code --runtime} is written before the IR and not cached with it.
+ * An option that changes the IR must be added to the key.
+ * Each entry holds the IR and the warnings reported while compiling.
+ * <p>
+ * Entries are written to a temporary file and then moved into place, so a reader never sees a partial entry.
+ * When the cache grows larger than its maximum size the least recently used entries are deleted,
+ * where the last modified time of an entry is the last time it has been used.
+ */
+public class IRCache {
+    /**
+     * Bumped whenever the format of the entries changes.
+     */
+    private static final int FORMAT = 1;
+    private static final String ENTRY_SUFFIX = ".ir";
+    private static final String STATS_FILE = "stats";
+
+    private static final @NotNull String VERSION = computeVersion();
+    /**
+     * The monitors guarding the statistics file of each directory, by its real path.
+     * A file can be locked only once by a process, so the instances on the same directory take turns.
+     */
+    private static final @NotNull Map<Path, Object> STATS_LOCKS = new ConcurrentHashMap<>();
+
+    private final @NotNull Path dir;
+    private final long maxSize;
+    private final @NotNull Object statsLock;
+
+    /**
+     * @param dir The directory of the cache, created if it does not exist.
+     * @param maxSize The maximum size in bytes of the entries.
+     * @throws IOException if the directory cannot be created.
+     */
+    public IRCache(@NotNull Path dir, long maxSize) throws IOException {
+        this.dir = Files.createDirectories(dir);
+        this.maxSize = maxSize;
+        this.statsLock = STATS_LOCKS.computeIfAbsent(this.dir.toRealPath(), d -> new Object());
+    }
+
+    /**
+     * The usage of a cache, since its directory has been created.
+     * @param hits The number of lookups that found an entry.
+     * @param misses The number of lookups that did not find an entry.
+     * @param entries The number of entries in the cache.
+     * @param size The size in bytes of the entries.
+     */
+    public record Stats(long hits, long misses, long entries, long size) {
+        public double hitRate() {
+            return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+        }
+    }
+
+    /**
+     * Look up the compilation of a source.
+     * @param source The source text.
+     * @return The cached result, {@link Optional#empty()} if there is none.
+     */
+    public @NotNull Optional<CompilationResult> get(@NotNull String source) {
+        Path entry = entry(source);
+        Optional<CompilationResult> result;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(entry)))) {
+            if (in.readInt() != FORMAT)
+                throw new IOException("Unknown format");
+            int n = in.readInt();
+            List<Diagnostic> diagnostics = new ArrayList<>(n);
+            for (int i = 0; i < n; i++)
+                diagnostics.add(new Diagnostic(Diagnostic.Kind.valueOf(in.readUTF()), readString(in), readString(in)));
+            result = Optional.of(CompilationResult.success(readString(in), diagnostics));
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException | IllegalArgumentException e) {
+            // missing, corrupted or evicted in the meantime
+            result = Optional.empty();
+        }
+        updateStats(result.isPresent());
+        return result;
+    }
+
+    /**
+     * Store the compilation of a source, if it succeeded.
+     * Failures to write the entry are ignored, the cache being only an optimization.
+     * @param source The source text.
+     * @param result The result of compiling {@code source}.
+     */
+    public void put(@NotNull String source, @NotNull CompilationResult result) {
+        if (result.getIR().isEmpty())
+            return;
+        Path entry = entry(source);
+        try {
+            Path temp = Files.createTempFile(dir, "entry", ".tmp");
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                    out.writeInt(FORMAT);
+                    out.writeInt(result.getDiagnostics().size());
+                    for (Diagnostic d : result.getDiagnostics()) {
+                        out.writeUTF(d.kind().name());
+                        writeString(out, d.message());
+                        writeString(out, d.text());
+                    }
+                    writeString(out, result.getIR().get());
+                }
+                try {
+                    Files.move(temp, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            evict();
+        } catch (IOException e) {
+            // the entry is simply not cached
+        }
+    }
+
+    /**
+     * Delete the least recently used entries until the cache fits in its maximum size.
+     */
+    private void evict() throws IOException {
+        record Entry(Path path, long size, long used) {}
+        List<Entry> entries = new ArrayList<>();
+        long size = 0;
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path p : (Iterable<Path>) files::iterator) {
+                if (!p.toString().endsWith(ENTRY_SUFFIX))
+                    continue;
+                try {
+                    Entry e = new Entry(p, Files.size(p), Files.getLastModifiedTime(p).toMillis());
+                    entries.add(e);
+                    size += e.size();
+                } catch (NoSuchFileException e) {
+                    // evicted by someone else
+                }
+            }
+        }
+        if (size <= maxSize)
+            return;
+        entries.sort(Comparator.comparingLong(Entry::used));
+        for (Entry e : entries) {
+            if (size <= maxSize)
+                break;
+            Files.deleteIfExists(e.path());
+            size -= e.size();
+        }
+    }
+
+    /**
+     * @return The statistics of the cache.
+     * @throws IOException if the cache cannot be read.
+     */
+    public @NotNull Stats stats() throws IOException {
+        long entries = 0;
+        long size = 0;
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path p : (Iterable<Path>) files::iterator)
+                if (p.toString().endsWith(ENTRY_SUFFIX))
+                    try {
+                        size += Files.size(p);
+                        entries++;
+                    } catch (NoSuchFileException e) {
+                        // evicted in the meantime
+                    }
+        }
+        long[] counters = withStats(false, false);
+        return new Stats(counters[0], counters[1], entries, size);
+    }
+
+    private void updateStats(boolean hit) {
+        try {
+            withStats(true, hit);
+        } catch (IOException e) {
+            // statistics are best effort
+        }
+    }
+
+    /**
+     * Read, and possibly update, the hit and miss counters,
+     * which are kept in a file locked while being accessed since other processes may share the cache.
+     * @return The hits and the misses before the update.
+     */
+    private long @NotNull [] withStats(boolean update, boolean hit) throws IOException {
+        synchronized (statsLock) {
+            try (FileChannel ch = FileChannel.open(dir.resolve(STATS_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                FileLock lock = ch.lock();
+                try {
+                    ByteBuffer buf = ByteBuffer.allocate(2 * Long.BYTES);
+                    while (buf.hasRemaining() && ch.read(buf) >= 0);
+                    long[] counters = new long[2];
+                    if (!buf.hasRemaining()) {
+                        buf.flip();
+                        counters[0] = buf.getLong();
+                        counters[1] = buf.getLong();
+                    }
+                    if (update) {
+                        buf.clear();
+                        buf.putLong(counters[0] + (hit ? 1 : 0));
+                        buf.putLong(counters[1] + (hit ? 0 : 1));
+                        buf.flip();
+                        ch.position(0);
+                        while (buf.hasRemaining())
+                            ch.write(buf);
+                    }
+                    return counters;
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    private @NotNull Path entry(@NotNull String source) {
+        return dir.resolve(hash(VERSION + "\0" + source) + ENTRY_SUFFIX);
+    }
+
+    private static void writeString(@NotNull DataOutputStream out, @NotNull String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static @NotNull String readString(@NotNull DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static @NotNull String hash(@NotNull String s) {
+        return hash(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static @NotNull String hash(byte @NotNull [] bytes) {
+        try {
+            StringBuilder hex = new StringBuilder();
+            for (byte b : MessageDigest.getInstance("SHA-256").digest(bytes))
+                hex.append(String.format("%02x", b));
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The version of the compiler is the hash of its jar, or just its implementation version if it is not run from one,
+     * the version of the runtime is the hash of the runtime it ships with.
+     */
+    private static @NotNull String computeVersion() {
+        String compiler = String.valueOf(IRCache.class.getPackage().getImplementationVersion());
+        CodeSource code = IRCache.class.getProtectionDomain().getCodeSource();
+        if (code != null)
+            try {
+                Path jar = Paths.get(code.getLocation().toURI());
+                if (Files.isRegularFile(jar))
+                    compiler = hash(Files.readAllBytes(jar));
+            } catch (IOException | URISyntaxException | IllegalArgumentException e) {
+                // keep the implementation version
+            }
+        String runtime;
+        try (InputStream in = IRCache.class.getResourceAsStream("/runtime.ll")) {
+            runtime = in == null ? "none" : hash(in.readAllBytes());
+        } catch (IOException e) {
+            runtime = "none";
+        }
+        return FORMAT + ":" + compiler + ":" + runtime;
+    }
+}
@@ -1,14 +1,33 @@
 package smallerbasic;
 
 import org.antlr.v4.runtime.*;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.Consumer;
 
 /**
- * A Listener that listens for errors during parsing and prints them out with carets underneath the offending characters.
+ * A Listener that listens for errors during parsing and reports them with carets underneath the offending characters.
  */
 public class PrettyErrorListener extends BaseErrorListener {
 
     protected boolean hasFailed = false;
 
+    private final @NotNull Consumer<Diagnostic> diagnostics;
+
+    /**
+     * Create a listener that prints the errors to {@code stderr}.
+     */
+    public PrettyErrorListener() {
+        this(Diagnostic.STDERR);
+    }
+
+    /**
+     * @param diagnostics Receives a {@link Diagnostic} for each error.
+     */
+    public PrettyErrorListener(@NotNull Consumer<Diagnostic> diagnostics) {
+        this.diagnostics = diagnostics;
+    }
+
     /**
      * Query if any syntaxError has happened during the parsing.
      *
@@ -27,26 +46,32 @@ public class PrettyErrorListener extends BaseErrorListener {
                             String msg,
                             RecognitionException e) {
         hasFailed = true;
-        System.err.println("*** ParseError [" + line + ":"
-                + charPositionInLine + "]: " + msg);
-        underlineError(recognizer, (Token) offendingSymbol, line, charPositionInLine);
+        String message = "*** ParseError [" + line + ":"
+                + charPositionInLine + "]: " + msg;
+        diagnostics.accept(new Diagnostic(
+                Diagnostic.Kind.PARSING_ERROR,
+                message,
+                message + "\n" + underlineError(recognizer, (Token) offendingSymbol, line, charPositionInLine)
+        ));
     }
 
-    protected void underlineError(Recognizer<?, ?> recognizer,
-                                  Token offendingSymbol,
-                                  int line,
-                                  int charPositionInLine) {
+    protected @NotNull String underlineError(Recognizer<?, ?> recognizer,
+                                             Token offendingSymbol,
+                                             int line,
+                                             int charPositionInLine) {
         CommonTokenStream tokens = (CommonTokenStream) recognizer.getInputStream();
         String input = tokens.getTokenSource().getInputStream().toString();
         String[] lines = input.split("\n");
         String errorLine = lines[line - 1];
-        System.err.println(errorLine);
-        System.err.print(" ".repeat(charPositionInLine));
+        StringBuilder out = new StringBuilder();
+        out.append(errorLine).append("\n");
+        out.append(" ".repeat(charPositionInLine));
         int start = offendingSymbol.getStartIndex();
         int stop = offendingSymbol.getStopIndex();
         if (start >= 0 && stop >= 0)
-            System.err.print("^".repeat((stop - start + 1)));
-        System.err.println();
+            out.append("^".repeat((stop - start + 1)));
+        out.append("\n");
+        return out.toString();
     }
 
 }
@@ -0,0 +1,79 @@
+package smallerbasic;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * The lines of a source, shared by everything that needs to show a piece of the source during a compilation.
+ * <p>
+ * Since most compilations report nothing, the index is built only the first time a line is asked for:
+ * the source is then copied once, and the offset at which each line starts is stored in an array,
+ * so that lines are sliced from the source only when needed.
+ * The index is safe to use from many threads.
+ */
+public class SourceIndex {
+    private final @NotNull CharStream chars;
+
+    /**
+     * The index, built by {@link #index()}.
+     */
+    private volatile @Nullable Index index = null;
+
+    /**
+     * @param text The source.
+     * @param lineStarts The offset in {@code text} of the first character of each line.
+     */
+    private record Index(@NotNull String text, int @NotNull [] lineStarts) {}
+
+    /**
+     * @param chars The source.
+     */
+    public SourceIndex(@NotNull CharStream chars) {
+        this.chars = chars;
+    }
+
+    /**
+     * @param text The source.
+     */
+    public SourceIndex(@NotNull String text) {
+        this(CharStreams.fromString(text));
+    }
+
+    private @NotNull Index index() {
+        Index i = index;
+        if (i == null) {
+            // building the index twice is harmless, both threads get equal indexes
+            // an empty stream cannot be converted to a string
+            String text = chars.size() == 0 ? "" : chars.toString();
+            int[] starts = new int[16];
+            int n = 0;
+            starts[n++] = 0;
+            for (int c = text.indexOf('\n'); c != -1; c = text.indexOf('\n', c + 1)) {
+                if (n == starts.length)
+                    starts = Arrays.copyOf(starts, 2 * n);
+                starts[n++] = c + 1;
+            }
+            i = new Index(text, Arrays.copyOf(starts, n));
+            index = i;
+        }
+        return i;
+    }
+
+    /**
+     * @param line The number of the line, starting from 1.
+     * @return The text of the line, without the line terminator.
+     *         If the line is past the end of the source it is empty.
+     */
+    public @NotNull String line(int line) {
+        Index i = index();
+        if (line < 1 || line > i.lineStarts().length)
+            return "";
+        int start = i.lineStarts()[line - 1];
+        int end = line < i.lineStarts().length ? i.lineStarts()[line] - 1 : i.text().length();
+        return i.text().substring(start, end);
+    }
+}
@@ -3,10 +3,48 @@ package smallerbasic.compiler;
 import org.jetbrains.annotations.NotNull;
 import smallerbasic.AST.nodes.ASTNode;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
 /**
  * Compiles an {@link ASTNode} to something.
  * Given a correct tree a {@link Compiler} should return the code for the program represented by the tree.
+ * <p>
+ * The code can also be written to a stream, in which case a compiler may write it as it is generated,
+ * without ever holding all of it in memory.
  */
 public interface Compiler {
-     String compile(@NotNull ASTNode root);
+    /**
+     * The size of the buffer used when writing to a channel.
+     */
+    int BUFFER_SIZE = 1 << 16;
+
+    String compile(@NotNull ASTNode root);
+
+    /**
+     * Compile a tree, writing the code to a stream.
+     * The default implementation writes the result of {@link #compile(ASTNode)}.
+     * @param root The tree.
+     * @param out The stream, which is neither flushed nor closed.
+     * @throws IOException if writing fails.
+     */
+    default void compile(@NotNull ASTNode root, @NotNull Writer out) throws IOException {
+        out.write(compile(root));
+    }
+
+    /**
+     * Compile a tree, writing the code encoded in UTF-8 to a channel through a buffer of {@link #BUFFER_SIZE}.
+     * @param root The tree.
+     * @param out The channel, which is not closed.
+     * @throws IOException if writing fails.
+     */
+    default void compile(@NotNull ASTNode root, @NotNull WritableByteChannel out) throws IOException {
+        Writer w = new BufferedWriter(Channels.newWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        compile(root, w);
+        w.flush();
+    }
 }
@@ -0,0 +1,27 @@
+package smallerbasic.compiler.IR;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Allocates a temporary box, for the whole duration of the function.
+ * These instructions are at the start of the entry block.
+ */
+public record Alloc(@NotNull Register result) implements Instruction {
+    @Override
+    public @NotNull List<Value> operands() {
+        return List.of();
+    }
+
+    @Override
+    public @NotNull Instruction map(@NotNull UnaryOperator<Value> f) {
+        return this;
+    }
+
+    @Override
+    public @NotNull Instruction withResult(@NotNull Register r) {
+        return new Alloc(r);
+    }
+}
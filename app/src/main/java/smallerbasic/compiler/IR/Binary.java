@@ -0,0 +1,29 @@
+package smallerbasic.compiler.IR;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * A native operation on two unboxed values.
+ */
+public record Binary(@NotNull Register result,
+                     @NotNull Operator op,
+                     @NotNull Value left,
+                     @NotNull Value right) implements Instruction {
+    @Override
+    public @NotNull List<Value> operands() {
+        return List.of(left, right);
+    }
+
+    @Override
+    public @NotNull Instruction map(@NotNull UnaryOperator<Value> f) {
+        return new Binary(result, op, f.apply(left), f.apply(right));
+    }
+
+    @Override
+    public @NotNull Instruction withResult(@NotNull Register r) {
+        return new Binary(r, op, left, right);
+    }
+}
@@ -0,0 +1,92 @@
+package smallerbasic.compiler.IR;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import smallerbasic.AST.nodes.LabelNameASTNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A basic block: a list of instructions run in order, ended by a {@link Terminator}.
+ * A block is either the one of a label of the program or a block made by the compiler, named after a group
+ * of related blocks (e.g. the two branches and the end of an {@code If}) and its role in the group.
+ * Blocks are compared by identity.
+ */
+public final class Block {
+    private final @Nullable LabelNameASTNode label;
+    private final int group;
+    private final @NotNull String role;
+    private final @NotNull List<Instruction> instructions = new ArrayList<>();
+    private @Nullable Terminator terminator = null;
+
+    Block(@NotNull LabelNameASTNode label) {
+        this.label = label;
+        this.group = -1;
+        this.role = "";
+    }
+
+    Block(int group, @NotNull String role) {
+        this.label = null;
+        this.group = group;
+        this.role = role;
+    }
+
+    /**
+     * @return The label of the program this block starts with, if any.
+     */
+    public @NotNull Optional<LabelNameASTNode> getLabel() {
+        return Optional.ofNullable(label);
+    }
+
+    /**
+     * @return The group of the block, unique in its function, -1 for the block of a label.
+     */
+    public int getGroup() {
+        return group;
+    }
+
+    /**
+     * @return The role of the block in its group, which may be empty.
+     */
+    public @NotNull String getRole() {
+        return role;
+    }
+
+    /**
+     * @return The instructions of the block, in order, which passes may change.
+     */
+    public @NotNull List<Instruction> getInstructions() {
+        return instructions;
+    }
+
+    public void add(@NotNull Instruction i) {
+        instructions.add(i);
+    }
+
+    /**
+     * @return The terminator of the block, {@code null} if it has not been set yet.
+     */
+    public @Nullable Terminator getTerminator() {
+        return terminator;
+    }
+
+    public void setTerminator(@NotNull Terminator terminator) {
+        this.terminator = terminator;
+    }
+
+    /**
+     * @return The blocks control may go to after this one.
+     */
+    public @NotNull List<Block> successors() {
+        return terminator == null ? List.of() : terminator.successors();
+    }
+
+    @Override
+    public String toString() {
+        if (label != null)
+            return label.getText();
+        return "b" + group + (role.isEmpty() ? "" : "." + role);
+    }
+}
@@ -0,0 +1,13 @@
+package smallerbasic.compiler.IR;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * An unboxed boolean known at compile time.
+ */
+public record BoolConstant(boolean value) implements Value {
+    @Override
+    public @NotNull Type type() {
+        return Type.BOOL;
+    }
+}
@@ -0,0 +1,26 @@
+package smallerbasic.compiler.IR;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Goes to one of two blocks depending on an unboxed boolean.
+ */
+public record Branch(@NotNull Value condition, @NotNull Block ifTrue, @NotNull Block ifFalse) implements Terminator {
+    @Override
+    public @NotNull List<Block> successors() {
+        return List.of(ifTrue, ifFalse);
+    }
+
+    @Override
+    public @NotNull List<Value> operands() {
+        return List.of(condition);
+    }
+
+    @Override
+    public @NotNull Terminator map(@NotNull UnaryOperator<Value> f) {
+        return new Branch(f.apply(condition), ifTrue, ifFalse);
+    }
+}
@@ -0,0 +1,43 @@
+package smallerbasic.compiler.IR;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Calls a function of the runtime, or an external function like {@code IO.WriteLine}.
+ * Functions computing a value usually write it into a box passed as their first argument.
+ * @param result The register holding the returned value, {@code null} if the function returns nothing.
+ * @param function The name of the function.
+ * @param arguments The arguments, which are all boxes.
+ * @param line The line passed to the function to report errors, {@link #NO_LINE} if the function takes none.
+ */
+public record Call(@Nullable Register result,
+                   @NotNull String function,
+                   @NotNull List<Value> arguments,
+                   int line) implements Instruction {
+    public static final int NO_LINE = -1;
+
+    public Call {
+        arguments = List.copyOf(arguments);
+    }
+
+    @Override
+    public @NotNull List<Value> operands() {
+        return arguments;
+    }
+
+    @Override
+    public @NotNull Instruction map(@NotNull UnaryOperator<Value> f) {
+        return new Call(result, function, arguments.stream().map(f).toList(), line);
+    }
+
+    @Override
+    public @NotNull Instruction withResult(@NotNull Register r) {
+        if (result == null)
+            return Instruction.super.withResult(r);
+        return new Call(r, function, arguments, line);
+    }
+}
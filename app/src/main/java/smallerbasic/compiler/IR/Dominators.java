@@ -0,0 +1,184 @@
+package smallerbasic.compiler.IR;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * The dominator tree of the blocks of a {@link Function} reachable from its entry block, found with the algorithm
+ * of Cooper, Harvey and Kennedy.
+ * Everything is computed without recursion, since the tree of a long program is very deep.
+ */
+final class Dominators {
+    /**
+     * The reachable blocks in reverse postorder, the entry block being the first.
+     */
+    private final @NotNull List<Block> order = new ArrayList<>();
+    private final @NotNull Map<Block, Integer> index = new IdentityHashMap<>();
+    private final @NotNull Map<Block, List<Block>> predecessors;
+    private final int[] idom;
+    private final @NotNull List<List<Block>> children = new ArrayList<>();
+    private final int[] pre;
+    private final int[] post;
+
+    /**
+     * @param f The function.
+     * @param predecessors The predecessors of the blocks of {@code f}.
+     */
+    Dominators(@NotNull Function f, @NotNull Map<Block, List<Block>> predecessors) {
+        this.predecessors = predecessors;
+        reversePostorder(f.getEntry());
+        int size = order.size();
+        idom = new int[size];
+        Arrays.fill(idom, -1);
+        idom[0] = 0;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int b = 1; b < size; b++) {
+                int newIdom = -1;
+                for (Block p : predecessors.getOrDefault(order.get(b), List.of())) {
+                    Integer i = index.get(p);
+                    if (i == null || idom[i] == -1)
+                        continue;
+                    newIdom = newIdom == -1 ? i : intersect(i, newIdom);
+                }
+                if (idom[b] != newIdom) {
+                    idom[b] = newIdom;
+                    changed = true;
+                }
+            }
+        }
+
+        for (int b = 0; b < size; b++)
+            children.add(new ArrayList<>());
+        for (int b = 1; b < size; b++)
+            children.get(idom[b]).add(order.get(b));
+        pre = new int[size];
+        post = new int[size];
+        number();
+    }
+
+    private void reversePostorder(@NotNull Block entry) {
+        List<Block> postorder = new ArrayList<>();
+        Set<Block> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Iterator<Block>> stack = new ArrayDeque<>();
+        Deque<Block> blocks = new ArrayDeque<>();
+        visited.add(entry);
+        stack.push(entry.successors().iterator());
+        blocks.push(entry);
+        while (!stack.isEmpty()) {
+            Iterator<Block> next = stack.peek();
+            if (next.hasNext()) {
+                Block s = next.next();
+                if (visited.add(s)) {
+                    stack.push(s.successors().iterator());
+                    blocks.push(s);
+                }
+            } else {
+                stack.pop();
+                postorder.add(blocks.pop());
+            }
+        }
+        for (int i = postorder.size() - 1; i >= 0; i--) {
+            index.put(postorder.get(i), order.size());
+            order.add(postorder.get(i));
+        }
+    }
+
+    private int intersect(int a, int b) {
+        while (a != b) {
+            while (a > b)
+                a = idom[a];
+            while (b > a)
+                b = idom[b];
+        }
+        return a;
+    }
+
+    /**
+     * Number the blocks in preorder and postorder of the dominator tree.
+     */
+    private void number() {
+        int preCount = 0;
+        int postCount = 0;
+        Deque<Iterator<Block>> stack = new ArrayDeque<>();
+        Deque<Integer> blocks = new ArrayDeque<>();
+        pre[0] = preCount++;
+        stack.push(children.get(0).iterator());
+        blocks.push(0);
+        while (!stack.isEmpty()) {
+            Iterator<Block> next = stack.peek();
+            if (next.hasNext()) {
+                int c = index.get(next.next());
+                pre[c] = preCount++;
+                stack.push(children.get(c).iterator());
+                blocks.push(c);
+            } else {
+                stack.pop();
+                post[blocks.pop()] = postCount++;
+            }
+        }
+    }
+
+    /**
+     * @return The blocks reachable from the entry block, in reverse postorder.
+     */
+    @NotNull List<Block> reversePostorder() {
+        return Collections.unmodifiableList(order);
+    }
+
+    boolean isReachable(@NotNull Block b) {
+        return index.containsKey(b);
+    }
+
+    /**
+     * @return The immediate dominator of a reachable block, {@code null} for the entry block.
+     */
+    @Nullable Block immediateDominator(@NotNull Block b) {
+        int i = index.get(b);
+        return i == 0 ? null : order.get(idom[i]);
+    }
+
+    /**
+     * @return The blocks immediately dominated by a reachable block, in reverse postorder.
+     */
+    @NotNull List<Block> children(@NotNull Block b) {
+        return Collections.unmodifiableList(children.get(index.get(b)));
+    }
+
+    /**
+     * @return Whether every path from the entry block to {@code b} goes through {@code a}, both being reachable.
+     */
+    boolean dominates(@NotNull Block a, @NotNull Block b) {
+        int i = index.get(a);
+        int j = index.get(b);
+        return pre[i] <= pre[j] && post[j] <= post[i];
+    }
+
+    /**
+     * @return The dominance frontier of every reachable block: the blocks it does not strictly dominate, but
+     * that have a predecessor it dominates.
+     */
+    @NotNull Map<Block, Set<Block>> frontiers() {
+        Map<Block, Set<Block>> result = new IdentityHashMap<>();
+        for (Block b : order)
+            result.put(b, new LinkedHashSet<>());
+        for (int b = 1; b < order.size(); b++) {
+            List<Block> preds = predecessors.getOrDefault(order.get(b), List.of());
+            if (preds.size() < 2)
+                continue;
+            for (Block p : preds) {
+                Integer runner = index.get(p);
+                if (runner == null)
+                    continue;
+                while (runner != idom[b]) {
+                    result.get(order.get(runner)).add(order.get(b));
+                    runner = idom[runner];
+                }
+            }
+        }
+        return result;
+    }
+}
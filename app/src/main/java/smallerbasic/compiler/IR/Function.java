@@ -0,0 +1,109 @@
+package smallerbasic.compiler.IR;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import smallerbasic.AST.nodes.LabelNameASTNode;
+import smallerbasic.AST.nodes.RoutineNameASTNode;
+
+import java.util.*;
+
+/**
+ * A function of the IR: the main program or a routine, made of {@link Block}s.
+ * The blocks are kept in the order they are laid out, the first one being the entry block, which control
+ * enters the function from and which no block goes to.
+ */
+public final class Function {
+    private final @Nullable RoutineNameASTNode name;
+    private final @NotNull List<Block> blocks = new ArrayList<>();
+    private int registers = 0;
+    private int groups = 0;
+
+    /**
+     * Create a function holding only an empty entry block.
+     * @param name The name of the routine, {@code null} for the main program.
+     */
+    public Function(@Nullable RoutineNameASTNode name) {
+        this.name = name;
+        place(newBlock(newGroup(), "entry"));
+    }
+
+    /**
+     * @return The name of the routine, {@link Optional#empty()} for the main program.
+     */
+    public @NotNull Optional<RoutineNameASTNode> getName() {
+        return Optional.ofNullable(name);
+    }
+
+    public @NotNull Block getEntry() {
+        return blocks.get(0);
+    }
+
+    /**
+     * @return The blocks of the function, in order.
+     */
+    public @NotNull List<Block> getBlocks() {
+        return Collections.unmodifiableList(blocks);
+    }
+
+    public @NotNull Register newRegister(@NotNull Type type) {
+        return new Register(registers++, type);
+    }
+
+    /**
+     * @return A new group for the blocks made by {@link #newBlock(int, String)}.
+     */
+    public int newGroup() {
+        return groups++;
+    }
+
+    /**
+     * Create a block, which must then be laid out with {@link #place(Block)}.
+     */
+    public @NotNull Block newBlock(int group, @NotNull String role) {
+        return new Block(group, role);
+    }
+
+    /**
+     * Create the block of a label, which must then be laid out with {@link #place(Block)}.
+     */
+    public @NotNull Block newBlock(@NotNull LabelNameASTNode label) {
+        return new Block(label);
+    }
+
+    /**
+     * Lay out a block after all the others.
+     */
+    public void place(@NotNull Block b) {
+        blocks.add(b);
+    }
+
+    /**
+     * @return The predecessors of each block, in the order of the blocks and of their successors.
+     * A block going to another through two edges is its predecessor twice.
+     */
+    public @NotNull Map<Block, List<Block>> predecessors() {
+        Map<Block, List<Block>> result = new IdentityHashMap<>();
+        for (Block b : blocks)
+            result.put(b, new ArrayList<>());
+        for (Block b : blocks)
+            for (Block s : b.successors())
+                result.computeIfAbsent(s, k -> new ArrayList<>()).add(b);
+        return result;
+    }
+
+    /**
+     * Remove the blocks that cannot be reached from the entry block, such as the code after a {@code Goto}.
+     * This must be done before phis are added, since it does not remove their values for the blocks removed.
+     */
+    public void removeUnreachableBlocks() {
+        Set<Block> reached = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Block> worklist = new ArrayDeque<>();
+        reached.add(getEntry());
+        worklist.add(getEntry());
+        while (!worklist.isEmpty())
+            for (Block s : worklist.pop().successors())
+                if (reached.add(s))
+                    worklist.add(s);
+        blocks.removeIf(b -> !reached.contains(b));
+    }
+}
@@ -0,0 +1,22 @@
+package smallerbasic.compiler.IR;
+
+import org.jetbrains.annotations.NotNull;
+import smallerbasic.AST.nodes.*;
+
+/**
+ * The box of a global variable or of a literal.
+ * Globals are memory: they can be changed by any call, and are only read and written through their box.
+ * @param symbol The {@link IdentifierASTNode} or the {@link LiteralASTNode} naming the box, equal nodes naming
+ *               the same box.
+ */
+public record Global(@NotNull ASTNode symbol) implements Value {
+    public Global {
+        if (!(symbol instanceof IdentifierASTNode || symbol instanceof LiteralASTNode))
+            throw new IllegalArgumentException("Not a variable or a literal: " + symbol);
+    }
+
+    @Override
+    public @NotNull Type type() {
+        return Type.BOX;
+    }
+}
@@ -0,0 +1,27 @@
+package smallerbasic.compiler.IR;
+
+import org.jetbrains.annotations.NotNull;
+import smallerbasic.AST.analysis.ValueType;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Checks whether a box holds a value of a type.
+ */
+public record HasType(@NotNull Register result, @NotNull Value box, @NotNull ValueType type) implements Instruction {
+    @Override
+    public @NotNull List<Value> operands() {
+        return List.of(box);
+    }
+
+    @Override
+    public @NotNull Instruction map(@NotNull UnaryOperator<Value> f) {
+        return new HasType(result, f.apply(box), type);
+    }
+
+    @Override
+    public @NotNull Instruction withResult(@NotNull Register r) {
+        return new HasType(r, box, type);
+    }
+}
@@ -0,0 +1,104 @@
+package smallerbasic.compiler.IR;
+
+import org.jetbrains.annotations.NotNull;
+import smallerbasic.AST.nodes.*;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Prints a {@link Function} in a readable form, for debugging and tests:
+ * <pre>
+ * {@code
+ * function @main
+ * b0.entry:
+ *   %0 = alloc
+ *   %1 = is number @X
+ *   branch %1, b1.fast, b1.slow
+ * b1.fast:
+ *   %2 = load number @X
+ *   %3 = add %2, 1.0
+ *   ...
+ * }
+ * </pre>
+ * Registers are printed as {@code %id}, the boxes of globals as {@code @name} and those of literals as
+ * {@code @literal}.
+ */
+public final class IRPrinter {
+
+    private IRPrinter() {}
+
+    public static @NotNull String print(@NotNull Function f) {
+        StringBuilder out = new StringBuilder();
+        out.append("function @").append(f.getName().map(RoutineNameASTNode::getText).orElse("main")).append("\n");
+        for (Block b : f.getBlocks()) {
+            out.append(b).append(":\n");
+            for (Instruction i : b.getInstructions())
+                out.append("  ").append(print(i)).append("\n");
+            out.append("  ").append(b.getTerminator() == null ? "<no terminator>" : print(b.getTerminator()))
+                    .append("\n");
+        }
+        return out.toString();
+    }
+
+    public static @NotNull String print(@NotNull Value v) {
+        if (v instanceof Register r)
+            return "%" + r.id();
+        if (v instanceof NumberConstant n)
+            return Double.toString(n.value());
+        if (v instanceof BoolConstant b)
+            return Boolean.toString(b.value());
+        if (v instanceof Undefined)
+            return "undef";
+        ASTNode symbol = ((Global) v).symbol();
+        if (symbol instanceof IdentifierASTNode id)
+            return "@" + id.getName();
+        if (symbol instanceof NumberLiteralASTNode n)
+            return "@" + n.getValue();
+        if (symbol instanceof StringLiteralASTNode s)
+            return "@\"" + s.getValue() + "\"";
+        return "@" + ((BoolLiteralASTNode) symbol).getValue();
+    }
+
+    private static @NotNull String print(@NotNull List<Value> values) {
+        return values.stream().map(IRPrinter::print).collect(Collectors.joining(", "));
+    }
+
+    private static @NotNull String typeName(@NotNull Type t) {
+        return t.name().toLowerCase(Locale.ROOT);
+    }
+
+    public static @NotNull String print(@NotNull Instruction i) {
+        String result = i.result() == null ? "" : print(i.result()) + " = ";
+        if (i instanceof Alloc)
+            return result + "alloc";
+        if (i instanceof Call c)
+            return result + "call " + c.function() + "(" + print(c.arguments()) + ")"
+                    + (c.line() == Call.NO_LINE ? "" : " line " + c.line());
+        if (i instanceof RoutineCall c)
+            return "gosub " + c.routine().getText();
+        if (i instanceof Load l)
+            return result + "load " + typeName(l.result().type()) + " " + print(l.box());
+        if (i instanceof Store s)
+            return "store " + print(s.box()) + ", " + print(s.value());
+        if (i instanceof HasType h)
+            return result + "is " + h.type().name().toLowerCase(Locale.ROOT) + " " + print(h.box());
+        if (i instanceof Binary b)
+            return result + b.op().name().toLowerCase(Locale.ROOT) + " " + print(b.left()) + ", " + print(b.right());
+        Phi phi = (Phi) i;
+        StringBuilder s = new StringBuilder(result).append("phi");
+        for (int j = 0; j < phi.values().size(); j++)
+            s.append(j == 0 ? " " : ", ")
+                    .append("[").append(print(phi.values().get(j))).append(", ").append(phi.blocks().get(j)).append("]");
+        return s.toString();
+    }
+
+    public static @NotNull String print(@NotNull Terminator t) {
+        if (t instanceof Jump j)
+            return "jump " + j.target();
+        if (t instanceof Branch b)
+            return "branch " + print(b.condition()) + ", " + b.ifTrue() + ", " + b.ifFalse();
+        return "return";
+    }
+}
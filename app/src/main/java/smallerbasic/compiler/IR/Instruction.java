@@ -0,0 +1,39 @@
+package smallerbasic.compiler.IR;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * An instruction of a {@link Block}, other than its {@link Terminator}.
+ * Instructions are immutable, passes replace them with rewritten copies.
+ */
+public interface Instruction {
+
+    /**
+     * @return The register defined by this instruction, {@code null} if it defines none.
+     */
+    @Nullable Register result();
+
+    /**
+     * @return The values used by this instruction, in order.
+     */
+    @NotNull List<Value> operands();
+
+    /**
+     * @param f The function giving the new value of each operand.
+     * @return A copy of this instruction whose operands have been replaced by {@code f}.
+     */
+    @NotNull Instruction map(@NotNull UnaryOperator<Value> f);
+
+    /**
+     * @param r The new register.
+     * @return A copy of this instruction defining {@code r} instead.
+     * @throws UnsupportedOperationException if this instruction defines no register.
+     */
+    default @NotNull Instruction withResult(@NotNull Register r) {
+        throw new UnsupportedOperationException(this + " defines no register");
+    }
+}
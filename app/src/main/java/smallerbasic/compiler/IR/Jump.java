@@ -0,0 +1,26 @@
+package smallerbasic.compiler.IR;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Goes to a block.
+ */
+public record Jump(@NotNull Block target) implements Terminator {
+    @Override
+    public @NotNull List<Block> successors() {
+        return List.of(target);
+    }
+
+    @Override
+    public @NotNull List<Value> operands() {
+        return List.of();
+    }
+
+    @Override
+    public @NotNull Terminator map(@NotNull UnaryOperator<Value> f) {
+        return this;
+    }
+}
@@ -0,0 +1,26 @@
+package smallerbasic.compiler.IR;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Reads the value of a box, which must have the type of the result.
+ */
+public record Load(@NotNull Register result, @NotNull Value box) implements Instruction {
+    @Override
+    public @NotNull List<Value> operands() {
+        return List.of(box);
+    }
+
+    @Override
+    public @NotNull Instruction map(@NotNull UnaryOperator<Value> f) {
+        return new Load(result, f.apply(box));
+    }
+
+    @Override
+    public @NotNull Instruction withResult(@NotNull Register r) {
+        return new Load(r, box);
+    }
+}
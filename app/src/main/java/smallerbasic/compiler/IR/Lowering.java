@@ -0,0 +1,611 @@
+package smallerbasic.compiler.IR;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import smallerbasic.AST.ASTVisitor;
+import smallerbasic.AST.Trampoline;
+import smallerbasic.AST.analysis.TypeAnnotations;
+import smallerbasic.AST.analysis.TypeSet;
+import smallerbasic.AST.analysis.ValueType;
+import smallerbasic.AST.nodes.*;
+
+import java.util.*;
+
+/**
+ * Lowers the statements of the main program, or of a routine, to a {@link Function}.
+ * <p>
+ * The visit does not recurse: each {@code visit} only schedules the visits of the children of the node,
+ * and the code that goes around them, on a {@link Trampoline}, so that arbitrarily deep trees can be lowered.
+ * The visit of an expression leaves its {@link Value} on {@link #values}: a box, or an unboxed number or boolean
+ * that is boxed only when it is stored or passed to the runtime.
+ * <p>
+ * Operations whose operands are known by the {@link TypeAnnotations} to be numbers, or booleans, are lowered to
+ * native instructions on unboxed values. If the operands may be of the right type the type is checked first,
+ * falling back to the runtime otherwise; the result is then defined twice, once on each path, and the function
+ * is not in SSA form until {@link SSAConstruction} is run on it.
+ * Code following a {@code Goto} goes into a block that nothing jumps to, which the SSA construction removes.
+ * <p>
+ * The labels of the program are expected to have been checked. Still, a label declared twice is a single block
+ * starting at its first declaration, and the block of a label never declared returns from the function.
+ */
+public final class Lowering implements ASTVisitor<Void> {
+
+    private final @NotNull Function function;
+    private final @NotNull TypeAnnotations types;
+    private final @NotNull Trampoline trampoline = new Trampoline();
+    private final @NotNull Map<LabelNameASTNode, Block> labels = new LinkedHashMap<>();
+    private final @NotNull Set<LabelNameASTNode> declared = new HashSet<>();
+
+    /**
+     * The temporaries, allocated at the start of the entry block once everything is lowered, so that the code
+     * lowered so far is never moved.
+     */
+    private final @NotNull List<Instruction> temporaries = new ArrayList<>();
+
+    /**
+     * The values of the expressions visited, whose parent has not used them yet.
+     */
+    private final @NotNull Deque<Value> values = new ArrayDeque<>();
+
+    /**
+     * The block instructions are added to, {@code null} right after a terminator.
+     */
+    private @Nullable Block current;
+
+    /**
+     * Line of the last node lowered with a position, 0 if there is none.
+     */
+    private int lastLine = 0;
+
+    private static final @NotNull String BOOL_GETTER = "_GET_BOOL_VALUE";
+    private static final @NotNull String COPY_FUNC = "_COPY";
+    private static final @NotNull String GET_ARRAY_ELEMENT = "_GET_ARRAY_ELEMENT";
+    private static final @NotNull String UNARY_MINUS = "UNARY_MINUS";
+
+    /**
+     * An operand of an operation, with the node whose types it has.
+     */
+    private record Operand(@NotNull ASTNode node, @NotNull Value value) {}
+
+    private Lowering(@NotNull Function function, @NotNull TypeAnnotations types) {
+        this.function = function;
+        this.types = types;
+        this.current = function.getEntry();
+    }
+
+    /**
+     * @param program A program.
+     * @param types The types of the program.
+     * @return The function running every statement of {@code program} that is not in a routine.
+     */
+    public static @NotNull Function lowerMain(@NotNull ASTNode program, @NotNull TypeAnnotations types) {
+        Lowering l = new Lowering(new Function(null), types);
+        l.lower(List.of(program));
+        return l.function;
+    }
+
+    /**
+     * @param routine A routine of a program.
+     * @param types The types of the program.
+     * @return The function running the body of {@code routine}.
+     */
+    public static @NotNull Function lowerRoutine(@NotNull RoutineDeclASTNode routine, @NotNull TypeAnnotations types) {
+        Lowering l = new Lowering(new Function(routine.getName()), types);
+        l.lower(routine.getBody());
+        return l.function;
+    }
+
+    private void lower(@NotNull List<? extends ASTNode> statements) {
+        trampoline.run(() -> evalStatements(statements));
+        terminate(new Return());
+        for (Map.Entry<LabelNameASTNode, Block> label : labels.entrySet())
+            if (!declared.contains(label.getKey())) {
+                start(label.getValue());
+                terminate(new Return());
+            }
+        function.getEntry().getInstructions().addAll(0, temporaries);
+    }
+
+    /**
+     * Allocate a new temporary box.
+     * @return The register holding the box.
+     */
+    private @NotNull Register newTemporary() {
+        Register r = function.newRegister(Type.BOX);
+        temporaries.add(new Alloc(r));
+        return r;
+    }
+
+    private void then(@NotNull Runnable action) {
+        trampoline.then(action);
+    }
+
+    private void eval(@NotNull ASTNode n) {
+        trampoline.visit(n, this);
+    }
+
+    private void evalAll(@NotNull List<? extends ASTNode> l) {
+        trampoline.visitAll(l, this);
+    }
+
+    /**
+     * Schedule the visits of a list of statements.
+     * The value left on {@link #values} by an external function called as a statement is unused, so it is dropped.
+     */
+    private void evalStatements(@NotNull List<? extends ASTNode> l) {
+        for (ASTNode stmt : l) {
+            eval(stmt);
+            then(values::clear);
+        }
+    }
+
+    private @NotNull Block block() {
+        if (current == null) {
+            current = function.newBlock(function.newGroup(), "");
+            function.place(current);
+        }
+        return current;
+    }
+
+    private void add(@NotNull Instruction i) {
+        block().add(i);
+    }
+
+    private void terminate(@NotNull Terminator t) {
+        block().setTerminator(t);
+        current = null;
+    }
+
+    /**
+     * Lay out a block and add the next instructions to it.
+     * The block before must have been terminated.
+     */
+    private void start(@NotNull Block b) {
+        function.place(b);
+        current = b;
+    }
+
+    private @NotNull Block label(@NotNull LabelNameASTNode n) {
+        return labels.computeIfAbsent(n, function::newBlock);
+    }
+
+    /**
+     * Line information is passed as a constant to every runtime function that may fail, which reads it only
+     * to report an error.
+     * If {@link ASTNode}s do not have a position associated with them the line is the last one lowered.
+     * @return The line of {@code node}.
+     */
+    private int line(@NotNull ASTNode node) {
+        int line = node.getStartLine();
+        if (line != -1)
+            lastLine = line;
+        return lastLine;
+    }
+
+    private static @NotNull Type irType(@NotNull ValueType t) {
+        return t == ValueType.BOOL ? Type.BOOL : Type.NUMBER;
+    }
+
+    private @NotNull TypeSet typeOf(@NotNull Operand o) {
+        Type t = o.value().type();
+        if (t != Type.BOX)
+            return TypeSet.of(t == Type.BOOL ? ValueType.BOOL : ValueType.NUMBER);
+        return o.node() instanceof ExpressionASTNode e ? types.typeOf(e) : TypeSet.ALL;
+    }
+
+    /**
+     * Read the value of a box, which must have type {@code t}.
+     */
+    private @NotNull Register load(@NotNull Value box, @NotNull ValueType t) {
+        Register res = function.newRegister(irType(t));
+        add(new Load(res, box));
+        return res;
+    }
+
+    /**
+     * @return A box holding {@code v}, which is a new temporary if {@code v} is unboxed.
+     */
+    private @NotNull Value box(@NotNull Value v) {
+        if (v.type() == Type.BOX)
+            return v;
+        Register res = newTemporary();
+        add(new Store(res, v));
+        return res;
+    }
+
+    /**
+     * @return The unboxed value of an operand of type {@code t}, literals being used as constants.
+     */
+    private @NotNull Value unbox(@NotNull Operand o, @NotNull ValueType t) {
+        if (o.value().type() == irType(t))
+            return o.value();
+        if (o.node() instanceof NumberLiteralASTNode n)
+            return new NumberConstant(n.getValue());
+        if (o.node() instanceof BoolLiteralASTNode n)
+            return new BoolConstant(n.getValue());
+        return load(o.value(), t);
+    }
+
+    /**
+     * Copy a value into a box, as {@code _COPY} does, without calling it if the type of the value is known.
+     */
+    private void assign(@NotNull Value to, @NotNull Operand from, int line) {
+        TypeSet t = typeOf(from);
+        for (ValueType unboxed : List.of(ValueType.NUMBER, ValueType.BOOL))
+            if (t.isOnly(unboxed)) {
+                add(new Store(to, unbox(from, unboxed)));
+                return;
+            }
+        add(new Call(null, COPY_FUNC, List.of(to, box(from.value())), line));
+    }
+
+    /**
+     * @return The unboxed boolean holding a condition.
+     */
+    private @NotNull Value bool(@NotNull Value cond) {
+        if (cond.type() == Type.BOOL)
+            return cond;
+        Register res = function.newRegister(Type.BOOL);
+        add(new Call(res, BOOL_GETTER, List.of(box(cond)), Call.NO_LINE));
+        return res;
+    }
+
+    /**
+     * Call an operation of the runtime, boxing its operands.
+     * @return The box holding the result.
+     */
+    private @NotNull Value call(@NotNull String function, @NotNull List<Operand> operands, int line) {
+        List<Value> args = new ArrayList<>();
+        for (Operand o : operands)
+            args.add(box(o.value()));
+        Register res = newTemporary();
+        args.add(0, res);
+        add(new Call(null, function, args, line));
+        return res;
+    }
+
+    /**
+     * Lower an operation to a native instruction.
+     * Operands not known to be of type {@code operandType} are checked first, and if any of them is not, or if
+     * {@code checkZero} is set and the last operand is zero, the runtime {@code function} is called instead,
+     * which deals with null values and reports errors, and must then return a value of the type of {@code op}.
+     * @param op The operator, whose operands are the unboxed operands, or zero and the operand if there is only one.
+     * @return The unboxed result.
+     */
+    private @NotNull Value inline(@NotNull String function,
+                                  @NotNull Operator op,
+                                  @NotNull List<Operand> operands,
+                                  boolean checkZero,
+                                  int line) {
+        ValueType operandType = op.getOperandType() == Type.BOOL ? ValueType.BOOL : ValueType.NUMBER;
+        ValueType resultType = op.getResultType() == Type.BOOL ? ValueType.BOOL : ValueType.NUMBER;
+        int group = this.function.newGroup();
+        Block slow = this.function.newBlock(group, "slow");
+        List<Value> tests = new ArrayList<>();
+        for (Operand o : operands)
+            if (!typeOf(o).isOnly(operandType)) {
+                Register test = this.function.newRegister(Type.BOOL);
+                add(new HasType(test, o.value(), operandType));
+                tests.add(test);
+            }
+        if (!tests.isEmpty()) {
+            Value cond = tests.get(0);
+            for (Value test : tests.subList(1, tests.size())) {
+                Register both = this.function.newRegister(Type.BOOL);
+                add(new Binary(both, Operator.AND, cond, test));
+                cond = both;
+            }
+            Block fast = this.function.newBlock(group, "fast");
+            terminate(new Branch(cond, fast, slow));
+            start(fast);
+        }
+        List<Value> args = new ArrayList<>();
+        for (Operand o : operands)
+            args.add(unbox(o, operandType));
+        if (args.size() == 1)
+            args.add(0, new NumberConstant(0.0));
+        if (checkZero) {
+            Register nonZero = this.function.newRegister(Type.BOOL);
+            add(new Binary(nonZero, Operator.UNE, args.get(args.size() - 1), new NumberConstant(0.0)));
+            Block fast = this.function.newBlock(group, "nonzero");
+            terminate(new Branch(nonZero, fast, slow));
+            start(fast);
+        }
+        Register res = this.function.newRegister(op.getResultType());
+        add(new Binary(res, op, args.get(0), args.get(1)));
+        if (tests.isEmpty() && !checkZero)
+            return res;
+
+        Block end = this.function.newBlock(group, "end");
+        terminate(new Jump(end));
+        start(slow);
+        // the same register is defined on both paths, the SSA construction joins them
+        add(new Load(res, call(function, operands, line)));
+        terminate(new Jump(end));
+        start(end);
+        return res;
+    }
+
+    private static @NotNull Operator operator(@NotNull BinOpASTNode.BinOp op) {
+        return switch (op) {
+            case PLUS -> Operator.ADD;
+            case MINUS -> Operator.SUB;
+            case MULT -> Operator.MUL;
+            case DIV -> Operator.DIV;
+            case LT -> Operator.LT;
+            case GT -> Operator.GT;
+            case LEQ -> Operator.LE;
+            case GEQ -> Operator.GE;
+            case EQ -> Operator.EQ;
+            case NEQ -> Operator.NE;
+            case AND -> Operator.AND;
+            case OR -> Operator.OR;
+        };
+    }
+
+    /**
+     * Lower a binary operation, inlined if both operands may be numbers, or booleans for {@code And} and
+     * {@code Or}, and the result is then always of the same type.
+     */
+    private @NotNull Value binOp(@NotNull BinOpASTNode.BinOp op,
+                                 @NotNull Operand left,
+                                 @NotNull Operand right,
+                                 int line) {
+        Operator operator = operator(op);
+        ValueType operandType = operator.getOperandType() == Type.BOOL ? ValueType.BOOL : ValueType.NUMBER;
+        TypeSet l = typeOf(left);
+        TypeSet r = typeOf(right);
+        // with a string the runtime concatenates, so the result would not always be a number
+        boolean inlinable = l.contains(operandType) && r.contains(operandType)
+                && (op != BinOpASTNode.BinOp.PLUS || !l.contains(ValueType.STRING) && !r.contains(ValueType.STRING));
+        // a division by a literal zero always fails
+        boolean byLiteral = right.node() instanceof NumberLiteralASTNode;
+        boolean byZero = byLiteral && ((NumberLiteralASTNode) right.node()).getValue() == 0;
+        if (!inlinable || op == BinOpASTNode.BinOp.DIV && byZero)
+            return call(op.toString(), List.of(left, right), line);
+        boolean checkZero = op == BinOpASTNode.BinOp.DIV && !byLiteral;
+        return inline(op.toString(), operator, List.of(left, right), checkZero, line);
+    }
+
+    @Override
+    public Void visit(@NotNull AssStmtASTNode n) {
+        int line = line(n);
+        eval(n.getVarName());
+        eval(n.getValue());
+        then(() -> {
+            Value rightSide = values.pop();
+            Value name = values.pop();
+            assign(name, new Operand(n.getValue(), rightSide), line);
+        });
+        return null;
+    }
+
+    @Override
+    public Void visit(@NotNull BinOpASTNode n) {
+        int line = line(n);
+        eval(n.getLeft());
+        eval(n.getRight());
+        then(() -> {
+            Operand right = new Operand(n.getRight(), values.pop());
+            Operand left = new Operand(n.getLeft(), values.pop());
+            values.push(binOp(n.getOp(), left, right, line));
+        });
+        return null;
+    }
+
+    @Override
+    public Void visit(@NotNull BoolLiteralASTNode n) {
+        values.push(new Global(n));
+        return null;
+    }
+
+    @Override
+    public Void visit(@NotNull ExternalFunctionCallASTNode n) {
+        int line = line(n);
+        evalAll(n.getArgs());
+        then(() -> {
+            Value[] args = new Value[n.getArgs().size()];
+            for (int i = args.length - 1; i >= 0; i--)
+                args[i] = values.pop();
+            List<Value> boxes = new ArrayList<>();
+            for (Value arg : args)
+                boxes.add(box(arg));
+            Register res = newTemporary();
+            boxes.add(0, res);  // return value
+            add(new Call(null, n.getModule() + "." + n.getFunction(), boxes, line));
+            values.push(res);
+        });
+        return null;
+    }
+
+    @Override
+    public Void visit(@NotNull ForLoopASTNode n) {
+        int line = line(n);
+        int group = function.newGroup();
+        Block begin = function.newBlock(group, "begin");
+        Block body = function.newBlock(group, "continue");
+        Block end = function.newBlock(group, "end");
+
+        // VAR = START
+        eval(n.getVarName());
+        eval(n.getStart());
+        Value[] var = new Value[1];
+        then(() -> {
+            Value start = values.pop();
+            var[0] = values.pop();
+            assign(var[0], new Operand(n.getStart(), start), line);
+
+            terminate(new Jump(begin));
+            start(begin);
+        });
+
+        // VAR <= END
+        eval(n.getEnd());
+        then(() -> {
+            Operand limit = new Operand(n.getEnd(), values.pop());
+            Value cond = binOp(BinOpASTNode.BinOp.LEQ, new Operand(n.getVarName(), var[0]), limit, line);
+            terminate(new Branch(bool(cond), body, end));
+            start(body);
+        });
+        evalStatements(n.getBody());
+
+        // VAR += STEP
+        eval(n.getStep());
+        then(() -> {
+            Operand step = new Operand(n.getStep(), values.pop());
+            Operand varName = new Operand(n.getVarName(), var[0]);
+            Value rightSide = binOp(BinOpASTNode.BinOp.PLUS, varName, step, line);
+            if (rightSide.type() != Type.BOX)
+                add(new Store(var[0], rightSide));
+            else
+                add(new Call(null, COPY_FUNC, List.of(var[0], rightSide), line));
+
+            terminate(new Jump(begin));
+            start(end);
+        });
+        return null;
+    }
+
+    @Override
+    public Void visit(@NotNull GotoStmtASTNode n) {
+        terminate(new Jump(label(n.getLabel())));
+        return null;
+    }
+
+    @Override
+    public Void visit(@NotNull IdentifierASTNode n) {
+        values.push(new Global(n));
+        return null;
+    }
+
+    @Override
+    public Void visit(@NotNull IfThenASTNode n) {
+        int group = function.newGroup();
+        Block ifTrue = function.newBlock(group, "true");
+        Block ifFalse = function.newBlock(group, "false");
+        Block end = function.newBlock(group, "end");
+        eval(n.getCondition());
+        then(() -> {
+            terminate(new Branch(bool(values.pop()), ifTrue, ifFalse));
+            start(ifTrue);
+        });
+        evalStatements(n.getTrueBody());
+        then(() -> {
+            terminate(new Jump(end));
+            start(ifFalse);
+        });
+        n.getFalseBody().ifPresent(this::evalStatements);
+        then(() -> {
+            terminate(new Jump(end));
+            start(end);
+        });
+        return null;
+    }
+
+    @Override
+    public Void visit(@NotNull LabelDeclASTNode n) {
+        if (!declared.add(n.getName()))
+            return null;
+        Block label = label(n.getName());
+        terminate(new Jump(label));
+        start(label);
+        return null;
+    }
+
+    @Override
+    public Void visit(@NotNull NumberLiteralASTNode n) {
+        values.push(new Global(n));
+        return null;
+    }
+
+    @Override
+    public Void visit(@NotNull ProgramASTNode n) {
+        evalStatements(n.getContents());
+        return null;
+    }
+
+    @Override
+    public Void visit(@NotNull LabelNameASTNode n) {
+        return null;
+    }
+
+    @Override
+    public Void visit(@NotNull RoutineNameASTNode n) {
+        return null;
+    }
+
+    @Override
+    public Void visit(@NotNull RoutineCallASTNode n) {
+        add(new RoutineCall(n.getFunction()));
+        return null;
+    }
+
+    @Override
+    public Void visit(@NotNull RoutineDeclASTNode n) {
+        return null;
+    }
+
+    @Override
+    public Void visit(@NotNull StringLiteralASTNode n) {
+        values.push(new Global(n));
+        return null;
+    }
+
+    @Override
+    public Void visit(@NotNull WhileLoopASTNode n) {
+        int group = function.newGroup();
+        Block begin = function.newBlock(group, "begin");
+        Block body = function.newBlock(group, "continue");
+        Block end = function.newBlock(group, "end");
+
+        terminate(new Jump(begin));
+        start(begin);
+        eval(n.getCondition());
+        then(() -> {
+            terminate(new Branch(bool(values.pop()), body, end));
+            start(body);
+        });
+        evalStatements(n.getBody());
+        then(() -> {
+            terminate(new Jump(begin));
+            start(end);
+        });
+        return null;
+    }
+
+    @Override
+    public Void visit(@NotNull UnaryMinusASTNode n) {
+        int line = line(n);
+        eval(n.getExpr());
+        then(() -> {
+            Operand expr = new Operand(n.getExpr(), values.pop());
+            if (typeOf(expr).contains(ValueType.NUMBER))
+                values.push(inline(UNARY_MINUS, Operator.SUB, List.of(expr), false, line));
+            else
+                values.push(call(UNARY_MINUS, List.of(expr), line));
+        });
+        return null;
+    }
+
+    @Override
+    public Void visit(@NotNull ArrayASTNode n) {
+        int line = line(n);
+        evalAll(n.getIndexes());
+        then(() -> {
+            Value[] popped = new Value[n.getIndexes().size()];
+            for (int i = popped.length - 1; i >= 0; i--)
+                popped[i] = values.pop();
+            List<Value> indexes = new ArrayList<>();
+            for (Value index : popped)
+                indexes.add(box(index));
+            Value prev = new Global(n.getName());
+            for (Value index : indexes) {
+                Register res = function.newRegister(Type.BOX);
+                add(new Call(res, GET_ARRAY_ELEMENT, List.of(prev, index), line));
+                prev = res;
+            }
+            values.push(prev);
+        });
+        return null;
+    }
+}
@@ -0,0 +1,13 @@
+package smallerbasic.compiler.IR;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * An unboxed number known at compile time.
+ */
+public record NumberConstant(double value) implements Value {
+    @Override
+    public @NotNull Type type() {
+        return Type.NUMBER;
+    }
+}
@@ -0,0 +1,42 @@
+package smallerbasic.compiler.IR;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The operators of {@link Binary} instructions, on unboxed values.
+ * Comparisons are ordered, that is false if either operand is not a number, but {@link #UNE}.
+ */
+public enum Operator {
+    ADD(Type.NUMBER, Type.NUMBER),
+    SUB(Type.NUMBER, Type.NUMBER),
+    MUL(Type.NUMBER, Type.NUMBER),
+    DIV(Type.NUMBER, Type.NUMBER),
+    LT(Type.NUMBER, Type.BOOL),
+    GT(Type.NUMBER, Type.BOOL),
+    LE(Type.NUMBER, Type.BOOL),
+    GE(Type.NUMBER, Type.BOOL),
+    EQ(Type.NUMBER, Type.BOOL),
+    NE(Type.NUMBER, Type.BOOL),
+    /**
+     * Not equal or unordered.
+     */
+    UNE(Type.NUMBER, Type.BOOL),
+    AND(Type.BOOL, Type.BOOL),
+    OR(Type.BOOL, Type.BOOL);
+
+    private final @NotNull Type operandType;
+    private final @NotNull Type resultType;
+
+    Operator(@NotNull Type operandType, @NotNull Type resultType) {
+        this.operandType = operandType;
+        this.resultType = resultType;
+    }
+
+    public @NotNull Type getOperandType() {
+        return operandType;
+    }
+
+    public @NotNull Type getResultType() {
+        return resultType;
+    }
+}
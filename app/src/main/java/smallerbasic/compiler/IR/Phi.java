@@ -0,0 +1,38 @@
+package smallerbasic.compiler.IR;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Chooses a value depending on the block control comes from.
+ * Phis are at the start of their block, and have one value for each edge into it.
+ * @param values The values, in the same order as {@code blocks}.
+ * @param blocks The predecessors of the block.
+ */
+public record Phi(@NotNull Register result,
+                  @NotNull List<Value> values,
+                  @NotNull List<Block> blocks) implements Instruction {
+    public Phi {
+        values = List.copyOf(values);
+        blocks = List.copyOf(blocks);
+        if (values.size() != blocks.size())
+            throw new IllegalArgumentException("A phi needs a value for each block");
+    }
+
+    @Override
+    public @NotNull List<Value> operands() {
+        return values;
+    }
+
+    @Override
+    public @NotNull Instruction map(@NotNull UnaryOperator<Value> f) {
+        return new Phi(result, values.stream().map(f).toList(), blocks);
+    }
+
+    @Override
+    public @NotNull Instruction withResult(@NotNull Register r) {
+        return new Phi(r, values, blocks);
+    }
+}
@@ -0,0 +1,11 @@
+package smallerbasic.compiler.IR;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A virtual register, defined by an {@link Instruction}.
+ * Once a {@link Function} is in SSA form each register is defined exactly once.
+ * @param id The number of the register, unique in its function.
+ * @param type The type of the register.
+ */
+public record Register(int id, @NotNull Type type) implements Value {}
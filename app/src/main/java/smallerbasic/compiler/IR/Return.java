@@ -0,0 +1,26 @@
+package smallerbasic.compiler.IR;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Returns from the function.
+ */
+public record Return() implements Terminator {
+    @Override
+    public @NotNull List<Block> successors() {
+        return List.of();
+    }
+
+    @Override
+    public @NotNull List<Value> operands() {
+        return List.of();
+    }
+
+    @Override
+    public @NotNull Terminator map(@NotNull UnaryOperator<Value> f) {
+        return this;
+    }
+}
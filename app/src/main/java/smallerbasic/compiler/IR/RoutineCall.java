@@ -0,0 +1,28 @@
+package smallerbasic.compiler.IR;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import smallerbasic.AST.nodes.RoutineNameASTNode;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Calls a routine of the program, which may read and write any global.
+ */
+public record RoutineCall(@NotNull RoutineNameASTNode routine) implements Instruction {
+    @Override
+    public @Nullable Register result() {
+        return null;
+    }
+
+    @Override
+    public @NotNull List<Value> operands() {
+        return List.of();
+    }
+
+    @Override
+    public @NotNull Instruction map(@NotNull UnaryOperator<Value> f) {
+        return this;
+    }
+}
@@ -0,0 +1,172 @@
+package smallerbasic.compiler.IR;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.function.UnaryOperator;
+
+/**
+ * Puts a {@link Function} in SSA form, where every register is defined once.
+ * <p>
+ * The unreachable blocks are removed first. Then every register defined more than once is treated as a variable:
+ * phis are placed at the iterated dominance frontier of the blocks defining it, and every definition and use is
+ * renamed walking the dominator tree, as described by Cytron et al.
+ * A use that no definition reaches reads {@link Undefined}. Phis that nothing uses are not added.
+ */
+public final class SSAConstruction {
+
+    private SSAConstruction() {}
+
+    /**
+     * A phi being built.
+     */
+    private static final class PendingPhi {
+        private final @NotNull Register variable;
+        private final @NotNull Register result;
+        private final @NotNull Map<Block, Value> values = new IdentityHashMap<>();
+        private boolean live = false;
+
+        private PendingPhi(@NotNull Register variable, @NotNull Register result) {
+            this.variable = variable;
+            this.result = result;
+        }
+    }
+
+    /**
+     * @param f The function, which is changed in place.
+     */
+    public static void run(@NotNull Function f) {
+        f.removeUnreachableBlocks();
+        Map<Register, List<Block>> definitions = new HashMap<>();
+        Set<Register> variables = new LinkedHashSet<>();
+        for (Block b : f.getBlocks())
+            for (Instruction i : b.getInstructions()) {
+                Register r = i.result();
+                if (r == null)
+                    continue;
+                List<Block> blocks = definitions.computeIfAbsent(r, k -> new ArrayList<>());
+                if (!blocks.isEmpty())
+                    variables.add(r);
+                blocks.add(b);
+            }
+        if (variables.isEmpty())
+            return;
+
+        Map<Block, List<Block>> predecessors = f.predecessors();
+        Dominators dominators = new Dominators(f, predecessors);
+        Map<Block, Set<Block>> frontiers = dominators.frontiers();
+
+        // place the phis
+        Map<Block, List<PendingPhi>> phis = new IdentityHashMap<>();
+        for (Register v : variables) {
+            Set<Block> placed = Collections.newSetFromMap(new IdentityHashMap<>());
+            Deque<Block> worklist = new ArrayDeque<>(definitions.get(v));
+            while (!worklist.isEmpty())
+                for (Block d : frontiers.get(worklist.pop()))
+                    if (placed.add(d)) {
+                        phis.computeIfAbsent(d, k -> new ArrayList<>()).add(new PendingPhi(v, f.newRegister(v.type())));
+                        worklist.add(d);
+                    }
+        }
+
+        // rename
+        Map<Register, Deque<Value>> stacks = new HashMap<>();
+        for (Register v : variables)
+            stacks.put(v, new ArrayDeque<>());
+        Map<Register, PendingPhi> phiOf = new HashMap<>();
+        Deque<List<Register>> frames = new ArrayDeque<>();
+        Deque<Iterator<Block>> next = new ArrayDeque<>();
+        frames.push(rename(f.getEntry(), f, variables, stacks, phis, phiOf));
+        next.push(dominators.children(f.getEntry()).iterator());
+        while (!frames.isEmpty()) {
+            Iterator<Block> children = next.peek();
+            if (children.hasNext()) {
+                Block c = children.next();
+                frames.push(rename(c, f, variables, stacks, phis, phiOf));
+                next.push(dominators.children(c).iterator());
+            } else {
+                next.pop();
+                for (Register v : frames.pop())
+                    stacks.get(v).pop();
+            }
+        }
+
+        // keep the phis used by other instructions, directly or through other phis
+        Deque<PendingPhi> worklist = new ArrayDeque<>();
+        for (Block b : f.getBlocks()) {
+            List<Value> used = new ArrayList<>();
+            for (Instruction i : b.getInstructions())
+                used.addAll(i.operands());
+            used.addAll(Objects.requireNonNull(b.getTerminator()).operands());
+            markLive(used, phiOf, worklist);
+        }
+        while (!worklist.isEmpty())
+            markLive(worklist.pop().values.values(), phiOf, worklist);
+
+        for (Map.Entry<Block, List<PendingPhi>> e : phis.entrySet()) {
+            List<Instruction> instructions = new ArrayList<>();
+            for (PendingPhi phi : e.getValue())
+                if (phi.live) {
+                    List<Value> values = new ArrayList<>();
+                    List<Block> blocks = predecessors.get(e.getKey());
+                    for (Block p : blocks)
+                        values.add(phi.values.get(p));
+                    instructions.add(new Phi(phi.result, values, blocks));
+                }
+            e.getKey().getInstructions().addAll(0, instructions);
+        }
+    }
+
+    private static void markLive(@NotNull Collection<Value> used,
+                                 @NotNull Map<Register, PendingPhi> phiOf,
+                                 @NotNull Deque<PendingPhi> worklist) {
+        for (Value v : used) {
+            PendingPhi phi = v instanceof Register r ? phiOf.get(r) : null;
+            if (phi != null && !phi.live) {
+                phi.live = true;
+                worklist.add(phi);
+            }
+        }
+    }
+
+    /**
+     * Rename the definitions and uses of the variables in a block, and the values of the phis of its successors.
+     * @return The variables defined by the block, whose new names must be popped once its children are renamed.
+     */
+    private static @NotNull List<Register> rename(@NotNull Block b,
+                                                  @NotNull Function f,
+                                                  @NotNull Set<Register> variables,
+                                                  @NotNull Map<Register, Deque<Value>> stacks,
+                                                  @NotNull Map<Block, List<PendingPhi>> phis,
+                                                  @NotNull Map<Register, PendingPhi> phiOf) {
+        List<Register> defined = new ArrayList<>();
+        for (PendingPhi phi : phis.getOrDefault(b, List.of())) {
+            stacks.get(phi.variable).push(phi.result);
+            phiOf.put(phi.result, phi);
+            defined.add(phi.variable);
+        }
+        UnaryOperator<Value> current = v -> {
+            if (!(v instanceof Register r) || !variables.contains(r))
+                return v;
+            Value top = stacks.get(r).peek();
+            return top == null ? new Undefined(r.type()) : top;
+        };
+        List<Instruction> instructions = b.getInstructions();
+        for (int i = 0; i < instructions.size(); i++) {
+            Instruction instruction = instructions.get(i).map(current);
+            Register r = instruction.result();
+            if (r != null && variables.contains(r)) {
+                Register renamed = f.newRegister(r.type());
+                instruction = instruction.withResult(renamed);
+                stacks.get(r).push(renamed);
+                defined.add(r);
+            }
+            instructions.set(i, instruction);
+        }
+        b.setTerminator(Objects.requireNonNull(b.getTerminator()).map(current));
+        for (Block s : b.successors())
+            for (PendingPhi phi : phis.getOrDefault(s, List.of()))
+                phi.values.put(b, current.apply(phi.variable));
+        return defined;
+    }
+}
@@ -0,0 +1,27 @@
+package smallerbasic.compiler.IR;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Writes an unboxed value, together with its type, into a box.
+ */
+public record Store(@NotNull Value box, @NotNull Value value) implements Instruction {
+    @Override
+    public @Nullable Register result() {
+        return null;
+    }
+
+    @Override
+    public @NotNull List<Value> operands() {
+        return List.of(box, value);
+    }
+
+    @Override
+    public @NotNull Instruction map(@NotNull UnaryOperator<Value> f) {
+        return new Store(f.apply(box), f.apply(value));
+    }
+}
@@ -0,0 +1,28 @@
+package smallerbasic.compiler.IR;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * The instruction ending a {@link Block}, which tells where control goes next.
+ */
+public interface Terminator {
+
+    /**
+     * @return The blocks control may go to, in order.
+     */
+    @NotNull List<Block> successors();
+
+    /**
+     * @return The values used by this terminator, in order.
+     */
+    @NotNull List<Value> operands();
+
+    /**
+     * @param f The function giving the new value of each operand.
+     * @return A copy of this terminator whose operands have been replaced by {@code f}.
+     */
+    @NotNull Terminator map(@NotNull UnaryOperator<Value> f);
+}
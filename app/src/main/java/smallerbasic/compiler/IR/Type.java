@@ -0,0 +1,19 @@
+package smallerbasic.compiler.IR;
+
+/**
+ * The type of a {@link Value}.
+ */
+public enum Type {
+    /**
+     * A pointer to a box, holding a value of any type together with its type.
+     */
+    BOX,
+    /**
+     * An unboxed number.
+     */
+    NUMBER,
+    /**
+     * An unboxed boolean.
+     */
+    BOOL
+}
@@ -0,0 +1,8 @@
+package smallerbasic.compiler.IR;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A value that is never used, which the SSA construction gives to a register along paths where it is not defined.
+ */
+public record Undefined(@NotNull Type type) implements Value {}
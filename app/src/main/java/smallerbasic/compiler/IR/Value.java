@@ -0,0 +1,10 @@
+package smallerbasic.compiler.IR;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * An operand of an {@link Instruction} or of a {@link Terminator}.
+ */
+public interface Value {
+    @NotNull Type type();
+}
@@ -0,0 +1,168 @@
+package smallerbasic.compiler.IR;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * Checks that a {@link Function} is well-formed and in SSA form, which every pass must preserve:
+ * <ul>
+ *   <li> every block is terminated, and only goes to blocks of the function </li>
+ *   <li> nothing goes to the entry block </li>
+ *   <li> every register is defined once, in a block that dominates its uses </li>
+ *   <li> phis are at the start of their block, with a value for each edge into it </li>
+ *   <li> every value has the type its instruction expects </li>
+ * </ul>
+ * Uses in blocks that cannot be reached are not checked against dominance.
+ */
+public final class Verifier {
+
+    private Verifier() {}
+
+    /**
+     * The place a register is defined at.
+     */
+    private record Definition(@NotNull Block block, int index) {}
+
+    /**
+     * @param f The function.
+     * @return The problems found, empty if {@code f} is well-formed.
+     */
+    public static @NotNull List<String> verify(@NotNull Function f) {
+        List<String> errors = new ArrayList<>();
+        Set<Block> blocks = Collections.newSetFromMap(new IdentityHashMap<>());
+        blocks.addAll(f.getBlocks());
+        for (Block b : f.getBlocks()) {
+            if (b.getTerminator() == null)
+                errors.add(b + " has no terminator");
+            for (Block s : b.successors())
+                if (!blocks.contains(s))
+                    errors.add(b + " goes to " + s + ", which is not in the function");
+        }
+        if (!errors.isEmpty())
+            return errors;
+
+        Map<Block, List<Block>> predecessors = f.predecessors();
+        if (!predecessors.get(f.getEntry()).isEmpty())
+            errors.add("the entry block " + f.getEntry() + " has predecessors");
+
+        Map<Register, Definition> definitions = new HashMap<>();
+        for (Block b : f.getBlocks()) {
+            List<Instruction> instructions = b.getInstructions();
+            for (int i = 0; i < instructions.size(); i++) {
+                Register r = instructions.get(i).result();
+                if (r != null && definitions.put(r, new Definition(b, i)) != null)
+                    errors.add(IRPrinter.print(r) + " is defined more than once");
+            }
+        }
+
+        Dominators dominators = new Dominators(f, predecessors);
+        for (Block b : f.getBlocks()) {
+            List<Instruction> instructions = b.getInstructions();
+            boolean phis = true;
+            for (int i = 0; i < instructions.size(); i++) {
+                Instruction instruction = instructions.get(i);
+                String where = " in " + b + ": " + IRPrinter.print(instruction);
+                if (instruction instanceof Phi phi) {
+                    if (!phis)
+                        errors.add("phi after other instructions" + where);
+                    checkPhi(phi, predecessors.get(b), where, errors);
+                    for (int j = 0; j < phi.values().size(); j++)
+                        checkUse(phi.values().get(j), phi.blocks().get(j), Integer.MAX_VALUE,
+                                definitions, dominators, where, errors);
+                } else {
+                    phis = false;
+                    for (Value v : instruction.operands())
+                        checkUse(v, b, i, definitions, dominators, where, errors);
+                }
+                checkTypes(instruction, where, errors);
+            }
+            Terminator t = Objects.requireNonNull(b.getTerminator());
+            String where = " in " + b + ": " + IRPrinter.print(t);
+            for (Value v : t.operands())
+                checkUse(v, b, Integer.MAX_VALUE, definitions, dominators, where, errors);
+            if (t instanceof Branch branch && branch.condition().type() != Type.BOOL)
+                errors.add("the condition is not a boolean" + where);
+        }
+        return errors;
+    }
+
+    private static void checkPhi(@NotNull Phi phi,
+                                 @NotNull List<Block> predecessors,
+                                 @NotNull String where,
+                                 @NotNull List<String> errors) {
+        List<Block> missing = new ArrayList<>(predecessors);
+        for (Block p : phi.blocks()) {
+            boolean found = false;
+            for (Iterator<Block> it = missing.iterator(); it.hasNext() && !found; )
+                if (it.next() == p) {
+                    it.remove();
+                    found = true;
+                }
+            if (!found)
+                errors.add(p + " is not a predecessor" + where);
+        }
+        for (Block p : missing)
+            errors.add("no value for " + p + where);
+    }
+
+    /**
+     * Check that the definition of a value dominates a use.
+     * @param index The index of the instruction using the value in {@code b}, {@link Integer#MAX_VALUE} if it is
+     *              used at its end, as by a terminator or a phi of a successor.
+     */
+    private static void checkUse(@NotNull Value v,
+                                 @NotNull Block b,
+                                 int index,
+                                 @NotNull Map<Register, Definition> definitions,
+                                 @NotNull Dominators dominators,
+                                 @NotNull String where,
+                                 @NotNull List<String> errors) {
+        if (!(v instanceof Register r))
+            return;
+        Definition d = definitions.get(r);
+        if (d == null) {
+            errors.add(IRPrinter.print(r) + " is never defined" + where);
+            return;
+        }
+        if (!dominators.isReachable(b) || !dominators.isReachable(d.block()))
+            return;
+        boolean dominates = d.block() == b ? d.index() < index : dominators.dominates(d.block(), b);
+        if (!dominates)
+            errors.add(IRPrinter.print(r) + " is used where its definition does not dominate" + where);
+    }
+
+    private static void expect(@NotNull Value v,
+                               @NotNull Type t,
+                               @NotNull String where,
+                               @NotNull List<String> errors) {
+        if (v.type() != t)
+            errors.add(IRPrinter.print(v) + " is not of type " + t + where);
+    }
+
+    private static void checkTypes(@NotNull Instruction instruction,
+                                   @NotNull String where,
+                                   @NotNull List<String> errors) {
+        if (instruction instanceof Alloc alloc)
+            expect(alloc.result(), Type.BOX, where, errors);
+        else if (instruction instanceof Call call)
+            call.arguments().forEach(a -> expect(a, Type.BOX, where, errors));
+        else if (instruction instanceof Load load) {
+            expect(load.box(), Type.BOX, where, errors);
+            if (load.result().type() == Type.BOX)
+                errors.add("loads must be unboxed" + where);
+        } else if (instruction instanceof Store store) {
+            expect(store.box(), Type.BOX, where, errors);
+            if (store.value().type() == Type.BOX)
+                errors.add("stored values must be unboxed" + where);
+        } else if (instruction instanceof HasType hasType) {
+            expect(hasType.box(), Type.BOX, where, errors);
+            expect(hasType.result(), Type.BOOL, where, errors);
+        } else if (instruction instanceof Binary binary) {
+            expect(binary.left(), binary.op().getOperandType(), where, errors);
+            expect(binary.right(), binary.op().getOperandType(), where, errors);
+            expect(binary.result(), binary.op().getResultType(), where, errors);
+        } else if (instruction instanceof Phi phi)
+            phi.values().forEach(v -> expect(v, phi.result().type(), where, errors));
+    }
+}
@@ -0,0 +1,75 @@
+package smallerbasic.compiler.LLVM;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A buffer holding the LLVM code of a single function while it is being generated.
+ * The code is split into two sections:
+ * <ul>
+ *   <li> the entry section, holding the {@code alloca}s of every temporary used by the function </li>
+ *   <li> the body, holding everything else </li>
+ * </ul>
+ * Both sections only ever grow at the end, and they are stitched together once by {@link #build()},
+ * so that allocating a temporary never requires copying what has already been generated,
+ * or written straight to a stream by {@link #writeTo(Writer)}.
+ */
+class FunctionBuffer {
+    private final @NotNull StringBuilder entry = new StringBuilder();
+    private final @NotNull StringBuilder body = new StringBuilder();
+
+    /**
+     * Allocate a new {@code %struct.Boxed} in the entry section.
+     * @param name The name of the temporary, including the leading {@code %}.
+     */
+    public void addAlloca(@NotNull String name) {
+        entry.append(name).append(" = alloca %struct.Boxed\n");
+    }
+
+    /**
+     * Append a line to the body.
+     * @param s The line, without the trailing newline.
+     */
+    public void addLine(@NotNull String s) {
+        body.append(s).append("\n");
+    }
+
+    /**
+     * @return The entry section followed by the body.
+     */
+    public @NotNull String build() {
+        return new StringBuilder(entry.length() + body.length())
+                .append(entry)
+                .append(body)
+                .toString();
+    }
+
+    /**
+     * Write the entry section followed by the body.
+     * @param out The stream.
+     * @throws IOException if writing fails.
+     */
+    public void writeTo(@NotNull Writer out) throws IOException {
+        write(entry, out);
+        write(body, out);
+    }
+
+    private static final int CHUNK = 8192;
+
+    /**
+     * Write the contents of a builder a chunk at a time, instead of copying it whole into a {@link String} first.
+     * @param s The builder.
+     * @param out The stream.
+     * @throws IOException if writing fails.
+     */
+    static void write(@NotNull StringBuilder s, @NotNull Writer out) throws IOException {
+        char[] chunk = new char[Math.min(CHUNK, s.length())];
+        for (int i = 0; i < s.length(); i += chunk.length) {
+            int n = Math.min(chunk.length, s.length() - i);
+            s.getChars(i, i + n, chunk, 0);
+            out.write(chunk, 0, n);
+        }
+    }
+}
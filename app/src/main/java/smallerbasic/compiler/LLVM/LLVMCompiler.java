@@ -1,15 +1,42 @@
 package smallerbasic.compiler.LLVM;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import smallerbasic.AST.analysis.TypeAnnotations;
+import smallerbasic.AST.analysis.TypeInference;
 import smallerbasic.AST.nodes.ASTNode;
 import smallerbasic.compiler.Compiler;
+import smallerbasic.compiler.IR.Function;
+import smallerbasic.compiler.IR.Lowering;
+import smallerbasic.compiler.IR.SSAConstruction;
+import smallerbasic.compiler.IR.Verifier;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Compiles a tree to LLVM IR.
  */
 public class LLVMCompiler implements Compiler {
+    private final @Nullable ExecutorService executor;
+
+    public LLVMCompiler() {
+        this(null);
+    }
+
     /**
-     * Given a {@link ASTNode} the method outputs the corresponding LLVM code.
+     * @param executor The executor generating the routines in parallel, {@code null} to generate them on the
+     *                 calling thread. The code is the same in both cases.
+     */
+    public LLVMCompiler(@Nullable ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Given a {@link ASTNode} the method writes the corresponding LLVM code.
      * The compilation to LLVM is split into four phases:
      * <ul>
      *   <li> preallocation of variables and literals </li>
@@ -29,27 +56,64 @@ public class LLVMCompiler implements Compiler {
      * }
      * }
      * </pre>
+     * <p>
+     * Sections are written as soon as they are complete, and routines one at a time, so that at most
+     * the code of the largest function, and the initialization of the literals, are held in memory.
+     * With an executor a bounded number of routines is generated ahead of the one being written.
+     * The code of {@code @main} is written only at its end, since its temporaries have to be allocated in its
+     * entry block before everything else.
+     * <p>
+     * The statements of {@code @main} and of each routine are lowered to a {@link Function} of the IR, put in SSA
+     * form and printed by {@link LLVMEmitter}; the globals and the literals are printed from the tree.
+     * The types found by {@link TypeInference} are used to inline the operations on numbers and booleans.
      *
      * @param root An AST.
-     * @return The LLVM code corresponding to the tree.
+     * @param out The stream.
+     * @throws IOException if writing fails.
      */
     @Override
-    public String compile(@NotNull ASTNode root) {
+    public void compile(@NotNull ASTNode root, @NotNull Writer out) throws IOException {
         VarNameGenerator gen = new VarNameGenerator();
         SymbolTable symbolTable = new SymbolTable(root, gen);
-        String prealloc = new LLVMPreallocation(symbolTable).run(root);
-        String init     = new LLVMInitialization(symbolTable, gen).run(root);
-        String routines = new LLVMSubRoutinePrinter(symbolTable, gen).run(root);
-        String body     = new LLVMMainPrinter(symbolTable, gen).run(root);
-
-        return "\n" +
-                prealloc +
-                "\n" +
-                routines +
-                "\ndefine i32 @main() {\n" +
-                init +
-                "\n" +
-                body +
-                "\nret i32 0\n}\n";
+        // the literals are initialized before the routines are generated, so that names are given in the same order
+        // as when the sections were concatenated
+        StringBuilder init = new LLVMInitialization(symbolTable, gen).run(root);
+        TypeAnnotations types = TypeInference.run(root);
+
+        out.write("\n");
+        new LLVMPreallocation(symbolTable).run(root, out);
+        out.write("\n");
+        new LLVMSubRoutinePrinter(symbolTable, types, gen, executor).run(root, out);
+        out.write("\ndefine i32 @main() {\n");
+        FunctionBuffer.write(init, out);
+        out.write("\n");
+        new LLVMEmitter(symbolTable, gen).run(toSSA(Lowering.lowerMain(root, types)), out);
+        out.write("}\n");
+    }
+
+    /**
+     * Put a function lowered from the tree in SSA form, checking it when assertions are enabled.
+     * @return {@code f}.
+     */
+    static @NotNull Function toSSA(@NotNull Function f) {
+        SSAConstruction.run(f);
+        assert Verifier.verify(f).isEmpty() : Verifier.verify(f);
+        return f;
+    }
+
+    /**
+     * @param root An AST.
+     * @return The LLVM code corresponding to the tree, as written by {@link #compile(ASTNode, Writer)}.
+     */
+    @Override
+    public String compile(@NotNull ASTNode root) {
+        StringWriter out = new StringWriter();
+        try {
+            compile(root, out);
+        } catch (IOException e) {
+            // a StringWriter never fails
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
     }
 }
@@ -0,0 +1,234 @@
+package smallerbasic.compiler.LLVM;
+
+import org.jetbrains.annotations.NotNull;
+import smallerbasic.AST.analysis.ValueType;
+import smallerbasic.compiler.IR.*;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Given a {@link Function} of the IR in SSA form it writes its LLVM code, without the {@code define} line and
+ * the closing brace.
+ * <p>
+ * Registers and blocks are named by a {@link VarNameGenerator} the first time they are printed, and the blocks
+ * of a group share the same name, followed by their role.
+ * The temporaries allocated by {@link Alloc} go into the entry section of the function.
+ */
+class LLVMEmitter {
+    private final @NotNull SymbolTable symbols;
+    private final @NotNull VarNameGenerator gen;
+    private final @NotNull FunctionBuffer output = new FunctionBuffer();
+    private final @NotNull Map<Register, String> registers = new HashMap<>();
+    private final @NotNull Map<Integer, String> groups = new HashMap<>();
+    private final @NotNull Map<Block, String> blocks = new IdentityHashMap<>();
+
+    private static final @NotNull String BOXED = "%struct.Boxed*";
+
+    /**
+     * @param gen The generator naming the registers and blocks, which must not be used to name anything else
+     *            in the same function.
+     */
+    public LLVMEmitter(@NotNull SymbolTable symbols, @NotNull VarNameGenerator gen) {
+        this.symbols = symbols;
+        this.gen = gen;
+    }
+
+    private void addLine(@NotNull String s) {
+        output.addLine(s);
+    }
+
+    private @NotNull String newName() {
+        return "%" + gen.newName();
+    }
+
+    private @NotNull String name(@NotNull Register r) {
+        return registers.computeIfAbsent(r, k -> newName());
+    }
+
+    private @NotNull String name(@NotNull Block b) {
+        return blocks.computeIfAbsent(b, k -> {
+            if (b.getLabel().isPresent())
+                return symbols.getBinding(b.getLabel().get());
+            String group = groups.computeIfAbsent(b.getGroup(), g -> gen.newName());
+            return b.getRole().isEmpty() ? group : group + "." + b.getRole();
+        });
+    }
+
+    /**
+     * A number constant, in the hexadecimal notation so that its value is exact.
+     */
+    private static @NotNull String constant(double d) {
+        return String.format("0x%016X", Double.doubleToRawLongBits(d));
+    }
+
+    private @NotNull String value(@NotNull Value v) {
+        if (v instanceof Register r)
+            return name(r);
+        if (v instanceof Global g)
+            return "@" + symbols.getBinding(g.symbol());
+        if (v instanceof NumberConstant n)
+            return constant(n.value());
+        if (v instanceof BoolConstant b)
+            return b.value() ? "true" : "false";
+        return "undef";
+    }
+
+    private static @NotNull String type(@NotNull Type t) {
+        return switch (t) {
+            case BOX -> BOXED;
+            case NUMBER -> "double";
+            case BOOL -> "i1";
+        };
+    }
+
+    private static @NotNull String instruction(@NotNull Operator op) {
+        return switch (op) {
+            case ADD -> "fadd double";
+            case SUB -> "fsub double";
+            case MUL -> "fmul double";
+            case DIV -> "fdiv double";
+            case LT -> "fcmp olt double";
+            case GT -> "fcmp ogt double";
+            case LE -> "fcmp ole double";
+            case GE -> "fcmp oge double";
+            case EQ -> "fcmp oeq double";
+            case NE -> "fcmp one double";
+            case UNE -> "fcmp une double";
+            case AND -> "and i1";
+            case OR -> "or i1";
+        };
+    }
+
+    /**
+     * Read the value of a box, as {@code _GET_NUM_VALUE} and {@code _GET_BOOL_VALUE} do.
+     */
+    private void load(@NotNull Load l) {
+        String valuePtr = newName();
+        String bits = newName();
+        addLine(valuePtr + " = getelementptr %struct.Boxed, " + BOXED + " " + value(l.box()) + ", i32 0, i32 1");
+        addLine(bits + " = load i64, i64* " + valuePtr);
+        if (l.result().type() == Type.BOOL)
+            addLine(name(l.result()) + " = trunc i64 " + bits + " to i1");
+        else
+            addLine(name(l.result()) + " = bitcast i64 " + bits + " to double");
+    }
+
+    /**
+     * Write an unboxed value into a box, as {@code _SET_NUM_VALUE} and {@code _SET_BOOL_VALUE} do.
+     */
+    private void store(@NotNull Store s) {
+        String box = value(s.box());
+        String typePtr = newName();
+        String valuePtr = newName();
+        String bits = newName();
+        addLine(typePtr + " = getelementptr %struct.Boxed, " + BOXED + " " + box + ", i32 0, i32 0");
+        addLine(valuePtr + " = getelementptr %struct.Boxed, " + BOXED + " " + box + ", i32 0, i32 1");
+        ValueType t;
+        if (s.value().type() == Type.BOOL) {
+            t = ValueType.BOOL;
+            addLine(bits + " = sext i1 " + value(s.value()) + " to i64");
+        } else {
+            t = ValueType.NUMBER;
+            addLine(bits + " = bitcast double " + value(s.value()) + " to i64");
+        }
+        addLine("store i3 " + t.ordinal() + ", i3* " + typePtr);
+        addLine("store i64 " + bits + ", i64* " + valuePtr);
+    }
+
+    private void hasType(@NotNull HasType h) {
+        String typePtr = newName();
+        String type = newName();
+        addLine(typePtr + " = getelementptr %struct.Boxed, " + BOXED + " " + value(h.box()) + ", i32 0, i32 0");
+        addLine(type + " = load i3, i3* " + typePtr);
+        addLine(name(h.result()) + " = icmp eq i3 " + type + ", " + h.type().ordinal());
+    }
+
+    private void call(@NotNull Call c) {
+        StringBuilder call = new StringBuilder();
+        Register result = c.result();
+        if (result != null)
+            call.append(name(result)).append(" = call ").append(type(result.type()));
+        else
+            call.append("call void");
+        call.append(" @").append(c.function()).append("(");
+        List<Value> args = c.arguments();
+        for (int i = 0; i < args.size(); i++)
+            call.append(i == 0 ? "" : ", ").append(BOXED).append(" ").append(value(args.get(i)));
+        if (c.line() != Call.NO_LINE)
+            call.append(args.isEmpty() ? "" : ", ").append("i32 ").append(c.line());
+        addLine(call.append(")").toString());
+    }
+
+    private void phi(@NotNull Phi phi) {
+        StringBuilder s = new StringBuilder();
+        s.append(name(phi.result())).append(" = phi ").append(type(phi.result().type()));
+        for (int i = 0; i < phi.values().size(); i++)
+            s.append(i == 0 ? " " : ", ")
+                    .append("[").append(value(phi.values().get(i))).append(", %").append(name(phi.blocks().get(i)))
+                    .append("]");
+        addLine(s.toString());
+    }
+
+    private void emit(@NotNull Instruction i) {
+        if (i instanceof Alloc a)
+            output.addAlloca(name(a.result()));
+        else if (i instanceof Call c)
+            call(c);
+        else if (i instanceof RoutineCall c)
+            addLine("call void @" + symbols.getBinding(c.routine()) + "()");
+        else if (i instanceof Load l)
+            load(l);
+        else if (i instanceof Store s)
+            store(s);
+        else if (i instanceof HasType h)
+            hasType(h);
+        else if (i instanceof Binary b)
+            addLine(name(b.result()) + " = " + instruction(b.op()) + " " + value(b.left()) + ", " + value(b.right()));
+        else
+            phi((Phi) i);
+    }
+
+    private void emit(@NotNull Terminator t, boolean main) {
+        if (t instanceof Jump j)
+            addLine("br label %" + name(j.target()));
+        else if (t instanceof Branch b)
+            addLine("br i1 " + value(b.condition())
+                    + ", label %" + name(b.ifTrue()) + ", label %" + name(b.ifFalse()));
+        else
+            addLine(main ? "ret i32 0" : "ret void");
+    }
+
+    /**
+     * Print the code of a function.
+     * @param f The function.
+     * @return The buffer holding the code.
+     */
+    public @NotNull FunctionBuffer emit(@NotNull Function f) {
+        boolean main = f.getName().isEmpty();
+        for (Block b : f.getBlocks()) {
+            // the entry block is never jumped to, so it needs no label
+            if (b != f.getEntry())
+                addLine(name(b) + ":");
+            for (Instruction i : b.getInstructions())
+                emit(i);
+            emit(Objects.requireNonNull(b.getTerminator()), main);
+        }
+        return output;
+    }
+
+    /**
+     * Write the code of a function.
+     * @param f The function.
+     * @param out The stream.
+     * @throws IOException if writing fails.
+     */
+    public void run(@NotNull Function f, @NotNull Writer out) throws IOException {
+        emit(f).writeTo(out);
+    }
+}
@@ -1,7 +1,8 @@
 package smallerbasic.compiler.LLVM;
 
 import org.jetbrains.annotations.NotNull;
-import smallerbasic.AST.ASTMonoidVisitor;
+import smallerbasic.AST.ASTCollectingVisitor;
+import smallerbasic.AST.ASTWalker;
 import smallerbasic.AST.nodes.ASTNode;
 import smallerbasic.AST.nodes.BoolLiteralASTNode;
 import smallerbasic.AST.nodes.NumberLiteralASTNode;
@@ -13,7 +14,7 @@ import java.util.Set;
 /**
  * Given a {@link ASTNode} it creates the LLVM code needed to initialize all its literals.
  */
-class LLVMInitialization implements ASTMonoidVisitor<StringBuilder> {
+class LLVMInitialization implements ASTCollectingVisitor<StringBuilder> {
     private final @NotNull SymbolTable symbols;
     private final @NotNull VarNameGenerator gen;
 
@@ -38,7 +39,7 @@ class LLVMInitialization implements ASTMonoidVisitor<StringBuilder> {
     @Override
     public StringBuilder visit(StringLiteralASTNode n) {
         if (seen.contains(n))
-            return empty();
+            return out;
         seen.add(n);
         String text = n.getValue();
         String arrayType = "[" + (text.length() + 1) + " x i8]";
@@ -48,40 +49,37 @@ class LLVMInitialization implements ASTMonoidVisitor<StringBuilder> {
                 + arrayType + "* @"
                 + symbols.getBinding(n) + ".value, i32 0, i32 0";
         String setter = "call void " + STRING_SETTER + "(%struct.Boxed* @" + symbols.getBinding(n) + ", i8* " + ptr + ")";
-        return new StringBuilder(gep + "\n" + setter + "\n");
+        return out.append(gep + "\n" + setter + "\n");
     }
 
     @Override
     public StringBuilder visit(NumberLiteralASTNode n) {
         if (seen.contains(n))
-            return empty();
+            return out;
         seen.add(n);
         String text = Double.toString(n.getValue());
-        return new StringBuilder("call void " + NUMBER_SETTER
+        return out.append("call void " + NUMBER_SETTER
                 + "(%struct.Boxed* @" + symbols.getBinding(n) + ", double " + text + ")\n");
     }
 
-    @Override
-    public StringBuilder empty() {
-        return new StringBuilder();
-    }
+    private final @NotNull StringBuilder out = new StringBuilder();
 
     @Override
-    public StringBuilder compose(StringBuilder o1, StringBuilder o2) {
-        return o1.append(o2);
+    public StringBuilder accumulator() {
+        return out;
     }
 
     @Override
     public StringBuilder visit(BoolLiteralASTNode n) {
         if (seen.contains(n))
-            return empty();
+            return out;
         seen.add(n);
-        return new StringBuilder("call void " + BOOL_SETTER + "(%struct.Boxed* @" + symbols.getBinding(n)
+        return out.append("call void " + BOOL_SETTER + "(%struct.Boxed* @" + symbols.getBinding(n)
                 + ", " + (n.getValue() ? TRUE : FALSE) + ")\n");
     }
 
-    public String run(@NotNull ASTNode n) {
-        return n.accept(this).toString();
+    public @NotNull StringBuilder run(@NotNull ASTNode n) {
+        return ASTWalker.collect(this, n);
     }
 }
 
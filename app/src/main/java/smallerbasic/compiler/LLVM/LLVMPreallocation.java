@@ -1,16 +1,19 @@
 package smallerbasic.compiler.LLVM;
 
 import org.jetbrains.annotations.NotNull;
-import smallerbasic.AST.ASTMonoidVisitor;
+import smallerbasic.AST.ASTCollectingVisitor;
+import smallerbasic.AST.ASTWalker;
 import smallerbasic.AST.nodes.*;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.HashSet;
 import java.util.Set;
 
 /**
  * Given an {@link ASTNode} it creates the LLVM code needed to preallocate all its variables and literals.
  */
-class LLVMPreallocation implements ASTMonoidVisitor<StringBuilder> {
+class LLVMPreallocation implements ASTCollectingVisitor<StringBuilder> {
     private final @NotNull SymbolTable symbols;
 
     public LLVMPreallocation(@NotNull SymbolTable symbols) {
@@ -19,14 +22,11 @@ class LLVMPreallocation implements ASTMonoidVisitor<StringBuilder> {
 
     private final static @NotNull String NULL_VALUE = "%struct.Boxed { i3 0, i64 0 }";
 
-    @Override
-    public StringBuilder empty() {
-        return new StringBuilder();
-    }
+    private final @NotNull StringBuilder out = new StringBuilder();
 
     @Override
-    public StringBuilder compose(StringBuilder o1, StringBuilder o2) {
-        return o1.append(o2);
+    public StringBuilder accumulator() {
+        return out;
     }
 
     private final @NotNull Set<ASTNode> seen = new HashSet<>();
@@ -39,9 +39,9 @@ class LLVMPreallocation implements ASTMonoidVisitor<StringBuilder> {
     @Override
     public StringBuilder visit(BoolLiteralASTNode n) {
         if (seen.contains(n))
-            return empty();
+            return out;
         seen.add(n);
-        return new StringBuilder("@" + symbols.getBinding(n) + " = global " + NULL_VALUE + "\n");
+        return out.append("@" + symbols.getBinding(n) + " = global " + NULL_VALUE + "\n");
     }
 
     /**
@@ -52,9 +52,9 @@ class LLVMPreallocation implements ASTMonoidVisitor<StringBuilder> {
     @Override
     public StringBuilder visit(IdentifierASTNode n) {
         if (seen.contains(n))
-            return empty();
+            return out;
         seen.add(n);
-        return new StringBuilder("@" + symbols.getBinding(n) + " = global " + NULL_VALUE + "\n");
+        return out.append("@" + symbols.getBinding(n) + " = global " + NULL_VALUE + "\n");
     }
 
     /**
@@ -65,9 +65,9 @@ class LLVMPreallocation implements ASTMonoidVisitor<StringBuilder> {
     @Override
     public StringBuilder visit(NumberLiteralASTNode n) {
         if (seen.contains(n))
-            return empty();
+            return out;
         seen.add(n);
-        return new StringBuilder("@" + symbols.getBinding(n) + " = global " + NULL_VALUE + "\n");
+        return out.append("@" + symbols.getBinding(n) + " = global " + NULL_VALUE + "\n");
     }
 
     /**
@@ -78,14 +78,14 @@ class LLVMPreallocation implements ASTMonoidVisitor<StringBuilder> {
     @Override
     public StringBuilder visit(StringLiteralASTNode n) {
         if (seen.contains(n))
-            return empty();
+            return out;
         seen.add(n);
         String text = n.getValue();
-        return new StringBuilder("@" + symbols.getBinding(n) + " = global " + NULL_VALUE + "\n")
+        return out.append("@" + symbols.getBinding(n) + " = global " + NULL_VALUE + "\n")
                 .append("@" + symbols.getBinding(n) + ".value = constant [" + (text.length() + 1) + " x i8] c\"" + text + "\\00\"\n");
     }
 
-    public String run(@NotNull ASTNode n) {
-        return n.accept(this).toString();
+    public void run(@NotNull ASTNode n, @NotNull Writer out) throws IOException {
+        FunctionBuffer.write(ASTWalker.collect(this, n), out);
     }
 }
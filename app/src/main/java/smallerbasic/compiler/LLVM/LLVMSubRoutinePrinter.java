@@ -1,46 +1,123 @@
 package smallerbasic.compiler.LLVM;
 
 import org.jetbrains.annotations.NotNull;
-import smallerbasic.AST.ASTMonoidVisitor;
+import org.jetbrains.annotations.Nullable;
+import smallerbasic.AST.ASTCollectingVisitor;
+import smallerbasic.AST.ASTWalker;
+import smallerbasic.AST.analysis.TypeAnnotations;
 import smallerbasic.AST.nodes.ASTNode;
 import smallerbasic.AST.nodes.RoutineDeclASTNode;
+import smallerbasic.compiler.IR.Function;
+import smallerbasic.compiler.IR.Lowering;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * Given a {@link ASTNode} it creates the LLVM code for all its subroutines.
+ * <p>
+ * Every routine names its temporaries with its own fork of the name generator, so routines are independent
+ * of each other and can be generated concurrently on an executor.
+ * They are still written in order, and the code is the same whatever the executor.
  */
-class LLVMSubRoutinePrinter implements ASTMonoidVisitor<StringBuilder> {
+class LLVMSubRoutinePrinter implements ASTCollectingVisitor<List<RoutineDeclASTNode>> {
+    /**
+     * The maximum number of routines being generated, or generated but not written yet, at any time.
+     */
+    private static final int IN_FLIGHT = 64;
 
     private final @NotNull SymbolTable symbols;
+    private final @NotNull TypeAnnotations types;
     private final @NotNull VarNameGenerator gen;
+    private final @Nullable ExecutorService executor;
+
+    public LLVMSubRoutinePrinter(@NotNull SymbolTable symbols,
+                                 @NotNull TypeAnnotations types,
+                                 @NotNull VarNameGenerator gen) {
+        this(symbols, types, gen, null);
+    }
 
-    public LLVMSubRoutinePrinter(@NotNull SymbolTable symbols, @NotNull VarNameGenerator gen) {
+    /**
+     * @param executor The executor generating the routines, {@code null} to generate them on the calling thread.
+     */
+    public LLVMSubRoutinePrinter(@NotNull SymbolTable symbols,
+                                 @NotNull TypeAnnotations types,
+                                 @NotNull VarNameGenerator gen,
+                                 @Nullable ExecutorService executor) {
         this.symbols = symbols;
+        this.types = types;
         this.gen = gen;
+        this.executor = executor;
     }
 
+    private final @NotNull List<RoutineDeclASTNode> routines = new ArrayList<>();
+
     @Override
-    public StringBuilder empty() {
-        return new StringBuilder();
+    public List<RoutineDeclASTNode> accumulator() {
+        return routines;
     }
 
     @Override
-    public StringBuilder compose(StringBuilder o1, StringBuilder o2) {
-        return o1.append(o2);
+    public List<RoutineDeclASTNode> visit(RoutineDeclASTNode n) {
+        routines.add(n);
+        return routines;
     }
 
-    @Override
-    public StringBuilder visit(RoutineDeclASTNode n) {
-        String name = symbols.getBinding(n.getName());
-        String signature = "define void @" + name + "() {\n";
-        String body = n.getBody().stream().map(stmt ->
-                    new LLVMMainPrinter(symbols, gen).run(stmt)
-                )
-                .reduce("", (acc, x) -> acc + x);
-        String end = "ret void\n}\n";
-        return new StringBuilder(signature).append(body).append(end);
+    private record Routine(@NotNull String name, @NotNull FunctionBuffer body) {}
+
+    private @NotNull Routine generate(@NotNull RoutineDeclASTNode n) {
+        Function f = LLVMCompiler.toSSA(Lowering.lowerRoutine(n, types));
+        return new Routine(symbols.getBinding(n.getName()), new LLVMEmitter(symbols, gen.fork()).emit(f));
+    }
+
+    private static void write(@NotNull Routine r, @NotNull Writer out) throws IOException {
+        out.write("define void @" + r.name() + "() {\n");
+        r.body().writeTo(out);
+        out.write("}\n");
     }
 
-    public String run(@NotNull ASTNode n) {
-        return n.accept(this).toString();
+    /**
+     * Write the code of every subroutine as soon as it has been generated,
+     * so that only a few subroutines at a time are held in memory.
+     * @param n The tree.
+     * @param out The stream.
+     * @throws IOException if writing fails.
+     */
+    public void run(@NotNull ASTNode n, @NotNull Writer out) throws IOException {
+        ASTWalker.collect(this, n);
+        if (executor == null) {
+            for (RoutineDeclASTNode r : routines)
+                write(generate(r), out);
+            return;
+        }
+        Deque<Future<Routine>> futures = new ArrayDeque<>();
+        try {
+            int next = 0;
+            while (next < routines.size() || !futures.isEmpty()) {
+                while (next < routines.size() && futures.size() < IN_FLIGHT) {
+                    RoutineDeclASTNode r = routines.get(next++);
+                    futures.add(executor.submit(() -> generate(r)));
+                }
+                write(futures.remove().get(), out);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while generating the routines", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException r)
+                throw r;
+            if (e.getCause() instanceof Error r)
+                throw r;
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            futures.forEach(f -> f.cancel(true));
+        }
     }
 }
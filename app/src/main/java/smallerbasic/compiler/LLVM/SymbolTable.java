@@ -2,7 +2,8 @@ package smallerbasic.compiler.LLVM;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
-import smallerbasic.AST.ASTMonoidVisitor;
+import smallerbasic.AST.ASTCollectingVisitor;
+import smallerbasic.AST.ASTWalker;
 import smallerbasic.AST.nodes.*;
 
 import java.util.*;
@@ -27,56 +28,54 @@ class SymbolTable {
     }
 
     /**
-     * Assign a new name to a node.
+     * Assign a new name to a node, unless it already has one.
      * @param id The node.
      */
     private void newBinding(@NotNull ASTNode id) {
-        bindings.put(id, gen.newName());
+        bindings.computeIfAbsent(id, k -> gen.newName());
     }
 
     public SymbolTable(@NotNull ASTNode node, @NotNull VarNameGenerator gen) {
         this.gen = gen;
-        List<ASTNode> symbols = node.accept(new GetSymbols()).stream().toList();
-        for (ASTNode id : symbols)
-            newBinding(id);
+        // symbols are named in order of first appearance
+        ASTWalker.collect(new GetSymbols(), node);
     }
 
-    private static class GetSymbols implements ASTMonoidVisitor<Set<ASTNode>> {
+    private class GetSymbols implements ASTCollectingVisitor<Map<ASTNode, String>> {
         @Override
-        public Set<ASTNode> empty() {
-            return Collections.emptySet();
+        public Map<ASTNode, String> accumulator() {
+            return bindings;
         }
 
         @Override
-        public Set<ASTNode> compose(Set<ASTNode> o1, Set<ASTNode> o2) {
-            Set<ASTNode> newSet = new HashSet<>(o1);
-            newSet.addAll(o2);
-            return newSet;
-        }
-
-        @Override
-        public Set<ASTNode> visit(RoutineNameASTNode n) {
-            return Set.of(n);
+        public Map<ASTNode, String> visit(RoutineNameASTNode n) {
+            newBinding(n);
+            return bindings;
         }
         @Override
-        public Set<ASTNode> visit(LabelNameASTNode n) {
-            return Set.of(n);
+        public Map<ASTNode, String> visit(LabelNameASTNode n) {
+            newBinding(n);
+            return bindings;
         }
         @Override
-        public Set<ASTNode> visit(NumberLiteralASTNode n) {
-            return Set.of(n);
+        public Map<ASTNode, String> visit(NumberLiteralASTNode n) {
+            newBinding(n);
+            return bindings;
         }
         @Override
-        public Set<ASTNode> visit(StringLiteralASTNode n) {
-            return Set.of(n);
+        public Map<ASTNode, String> visit(StringLiteralASTNode n) {
+            newBinding(n);
+            return bindings;
         }
         @Override
-        public Set<ASTNode> visit(BoolLiteralASTNode n) {
-            return Set.of(n);
+        public Map<ASTNode, String> visit(BoolLiteralASTNode n) {
+            newBinding(n);
+            return bindings;
         }
         @Override
-        public Set<ASTNode> visit(IdentifierASTNode n) {
-            return Set.of(n);
+        public Map<ASTNode, String> visit(IdentifierASTNode n) {
+            newBinding(n);
+            return bindings;
         }
     }
 }
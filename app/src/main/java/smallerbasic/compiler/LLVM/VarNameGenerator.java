@@ -6,10 +6,28 @@ import org.jetbrains.annotations.NotNull;
  * A class to generate unique names LLVM compatible names.
  */
 class VarNameGenerator {
-    private @NotNull Integer name = 0;
+    private @NotNull Integer name;
+
+    public VarNameGenerator() {
+        this(0);
+    }
+
+    private VarNameGenerator(int name) {
+        this.name = name;
+    }
+
     public @NotNull String newName() {
         String newName = name.toString();
         name++;
         return "v" + newName;
     }
+
+    /**
+     * Local names only need to be unique inside their function, so every function can name its temporaries
+     * with a fork of the same generator, independently of the others.
+     * @return A generator starting from the next name of this one, which is not changed.
+     */
+    public @NotNull VarNameGenerator fork() {
+        return new VarNameGenerator(name);
+    }
 }
@@ -34,7 +34,7 @@ define void @_SET_TYPE(%struct.Boxed* %this, i3 %type) {
 ; Copy a box into another
 ; array copy is not supported
 ; from must be non null
-define void @_COPY(%struct.Boxed* %to, %struct.Boxed* %from) {
+define void @_COPY(%struct.Boxed* %to, %struct.Boxed* %from, i32 %line) {
  %type = call i3 @_GET_TYPE(%struct.Boxed* %from)
  switch i3 %type, label %otherwise [ i3 1, label %number.type
                                       i3 2, label %string.type
@@ -58,10 +58,10 @@ bool.type:
 otherwise:
  switch i3 %type, label %end [ i3 4, label %array.type ]
 array.type:
- call void @_ARRAY_COPY_E()
+ call void @_ARRAY_COPY_E(i32 %line)
  ret void
 end:
- call void @_UNKNOWN_ERROR()
+ call void @_UNKNOWN_ERROR(i32 %line)
  ret void
 }
 ; assign a default value to a box based on the type given
@@ -118,11 +118,11 @@ define void @_SET_NUM_VALUE(%struct.Boxed* %self, double %value) {
  ret void
 }
 ; `left' and `right' must be numbers, `left' and `right' may be null
-define void @MINUS(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed* %right) {
+define void @MINUS(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed* %right, i32 %line) {
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %left, i3 1)
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %right, i3 1)
- call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 1)
- call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 1)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 1, i32 %line)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 1, i32 %line)
  %left.float = call double @_GET_NUM_VALUE(%struct.Boxed* %left)
  %right.float = call double @_GET_NUM_VALUE(%struct.Boxed* %right)
  %res.value = fsub double %left.float, %right.float
@@ -130,11 +130,11 @@ define void @MINUS(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed* %ri
  ret void
 }
 
-define void @MULT(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed* %right) {
+define void @MULT(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed* %right, i32 %line) {
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %left, i3 1)
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %right, i3 1)
- call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 1)
- call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 1)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 1, i32 %line)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 1, i32 %line)
  %left.float = call double @_GET_NUM_VALUE(%struct.Boxed* %left)
  %right.float = call double @_GET_NUM_VALUE(%struct.Boxed* %right)
  %res.value = fmul double %left.float, %right.float
@@ -142,11 +142,11 @@ define void @MULT(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed* %rig
  ret void
 }
 
-define void @NUM_PLUS(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed* %right) {
+define void @NUM_PLUS(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed* %right, i32 %line) {
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %left, i3 1)
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %right, i3 1)
- call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 1)
- call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 1)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 1, i32 %line)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 1, i32 %line)
  %left.float = call double @_GET_NUM_VALUE(%struct.Boxed* %left)
  %right.float = call double @_GET_NUM_VALUE(%struct.Boxed* %right)
  %res.value = fadd double %left.float, %right.float
@@ -155,9 +155,9 @@ define void @NUM_PLUS(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed*
 }
 
 ; `value' must be a number, `value' may be null
-define void @UNARY_MINUS(%struct.Boxed* %res, %struct.Boxed* %value) {
+define void @UNARY_MINUS(%struct.Boxed* %res, %struct.Boxed* %value, i32 %line) {
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %value, i3 1)
- call void @_CHECK_TYPE_E(%struct.Boxed* %value, i3 1)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %value, i3 1, i32 %line)
  %float = call double @_GET_NUM_VALUE(%struct.Boxed* %value)
  %m.float = fsub double 0.0, %float
  call void @_SET_NUM_VALUE(%struct.Boxed* %res, double %m.float)
@@ -167,7 +167,7 @@ define void @UNARY_MINUS(%struct.Boxed* %res, %struct.Boxed* %value) {
 ; if the first argument is null it checks the type of the second
 ; if the second is also null it throw an exception (TODO: maybe make it call `@NUM_PLUS')
 ; Fix the dealing with nulls and numbers
-define void @PLUS(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed* %right) {
+define void @PLUS(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed* %right, i32 %line) {
  %type.left = call i3 @_GET_TYPE(%struct.Boxed* %left)
  switch i3 %type.left, label %otherwise [ i3 0, label %null.type
                                                  i3 1, label %number.type
@@ -177,23 +177,23 @@ null.type:
  switch i3 %type.right, label %otherwise [ i3 1, label %number.type
                                                   i3 2, label %string.type ]
 number.type:
- call void @NUM_PLUS(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed* %right)
+ call void @NUM_PLUS(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed* %right, i32 %line)
  ret void
 string.type:
- call void @CONCAT(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed* %right)
+ call void @CONCAT(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed* %right, i32 %line)
  ret void
 otherwise:
- call void @_NUM_OR_STR_E(%struct.Boxed* %left)
- call void @_NUM_OR_STR_E(%struct.Boxed* %right)
+ call void @_NUM_OR_STR_E(%struct.Boxed* %left, i32 %line)
+ call void @_NUM_OR_STR_E(%struct.Boxed* %right, i32 %line)
  ret void
 }
 ; `left' and `right' must be numbers, `left' and `right' may be null, `right' must not be zero
-define void @DIV(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed* %right) {
+define void @DIV(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed* %right, i32 %line) {
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %left, i3 1)
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %right, i3 1)
- call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 1)
- call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 1)
- call void @_CHECK_ZERO_DIV_E(%struct.Boxed* %right)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 1, i32 %line)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 1, i32 %line)
+ call void @_CHECK_ZERO_DIV_E(%struct.Boxed* %right, i32 %line)
  %left.float = call double @_GET_NUM_VALUE(%struct.Boxed* %left)
  %right.float = call double @_GET_NUM_VALUE(%struct.Boxed* %right)
  %res.value = fdiv double %left.float, %right.float
@@ -201,9 +201,9 @@ define void @DIV(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed* %righ
  ret void
 }
 ; `value' must be a number, `value' may be null
-define i64 @_FLOOR(%struct.Boxed* %value) {
+define i64 @_FLOOR(%struct.Boxed* %value, i32 %line) {
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %value, i3 1)
- call void @_CHECK_TYPE_E(%struct.Boxed* %value, i3 1)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %value, i3 1, i32 %line)
  %f.value = call double @_GET_NUM_VALUE(%struct.Boxed* %value)
  %res.value = fptoui double %f.value to i64
  ret i64 %res.value
@@ -233,7 +233,7 @@ define void @_SET_BOOL_VALUE(%struct.Boxed* %self, i1 %value) {
 ; @param res the result pointer
 ; @param left the left operand
 ; @param right the right operand
-define void @GEQ(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed* %right) {
+define void @GEQ(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed* %right, i32 %line) {
  %type.left = call i3 @_GET_TYPE(%struct.Boxed* %left)
  switch i3 %type.left, label %otherwise [ i3 0, label %null.type
  i3 1, label %number.type
@@ -245,8 +245,8 @@ null.type:
 number.type:
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %left, i3 1)
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %right, i3 1)
- call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 1)
- call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 1)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 1, i32 %line)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 1, i32 %line)
  %f.value.left = call double @_GET_NUM_VALUE(%struct.Boxed* %left)
  %f.value.right = call double @_GET_NUM_VALUE(%struct.Boxed* %right)
  %f.bool = fcmp oge double %f.value.left, %f.value.right
@@ -255,8 +255,8 @@ number.type:
 string.type:
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %left, i3 2)
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %right, i3 2)
- call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 2)
- call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 2)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 2, i32 %line)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 2, i32 %line)
  %left.str = call i8* @_GET_STR_VALUE(%struct.Boxed* %left)
  %right.str = call i8* @_GET_STR_VALUE(%struct.Boxed* %right)
  %strcmp = call i32 @strcmp(i8* %left.str, i8* %right.str)
@@ -264,12 +264,12 @@ string.type:
  call void @_SET_BOOL_VALUE(%struct.Boxed* %res, i1 %s.bool)
  ret void
 otherwise:
- call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 1)
- call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 1)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 1, i32 %line)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 1, i32 %line)
  ret void
 }
 
-define void @LEQ(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed* %right) {
+define void @LEQ(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed* %right, i32 %line) {
  %type.left = call i3 @_GET_TYPE(%struct.Boxed* %left)
  switch i3 %type.left, label %otherwise [ i3 0, label %null.type
  i3 1, label %number.type
@@ -281,8 +281,8 @@ null.type:
 number.type:
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %left, i3 1)
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %right, i3 1)
- call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 1)
- call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 1)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 1, i32 %line)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 1, i32 %line)
  %f.value.left = call double @_GET_NUM_VALUE(%struct.Boxed* %left)
  %f.value.right = call double @_GET_NUM_VALUE(%struct.Boxed* %right)
  %f.bool = fcmp ole double %f.value.left, %f.value.right
@@ -291,8 +291,8 @@ number.type:
 string.type:
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %left, i3 2)
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %right, i3 2)
- call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 2)
- call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 2)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 2, i32 %line)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 2, i32 %line)
  %left.str = call i8* @_GET_STR_VALUE(%struct.Boxed* %left)
  %right.str = call i8* @_GET_STR_VALUE(%struct.Boxed* %right)
  %strcmp = call i32 @strcmp(i8* %left.str, i8* %right.str)
@@ -300,12 +300,12 @@ string.type:
  call void @_SET_BOOL_VALUE(%struct.Boxed* %res, i1 %s.bool)
  ret void
 otherwise:
- call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 1)
- call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 1)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 1, i32 %line)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 1, i32 %line)
  ret void
 }
 
-define void @LT(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed* %right) {
+define void @LT(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed* %right, i32 %line) {
  %type.left = call i3 @_GET_TYPE(%struct.Boxed* %left)
  switch i3 %type.left, label %otherwise [ i3 0, label %null.type
  i3 1, label %number.type
@@ -317,8 +317,8 @@ null.type:
 number.type:
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %left, i3 1)
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %right, i3 1)
- call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 1)
- call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 1)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 1, i32 %line)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 1, i32 %line)
  %f.value.left = call double @_GET_NUM_VALUE(%struct.Boxed* %left)
  %f.value.right = call double @_GET_NUM_VALUE(%struct.Boxed* %right)
  %f.bool = fcmp olt double %f.value.left, %f.value.right
@@ -327,8 +327,8 @@ number.type:
 string.type:
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %left, i3 2)
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %right, i3 2)
- call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 2)
- call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 2)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 2, i32 %line)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 2, i32 %line)
  %left.str = call i8* @_GET_STR_VALUE(%struct.Boxed* %left)
  %right.str = call i8* @_GET_STR_VALUE(%struct.Boxed* %right)
  %strcmp = call i32 @strcmp(i8* %left.str, i8* %right.str)
@@ -336,12 +336,12 @@ string.type:
  call void @_SET_BOOL_VALUE(%struct.Boxed* %res, i1 %s.bool)
  ret void
 otherwise:
- call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 1)
- call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 1)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 1, i32 %line)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 1, i32 %line)
  ret void
 }
 
-define void @GT(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed* %right) {
+define void @GT(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed* %right, i32 %line) {
  %type.left = call i3 @_GET_TYPE(%struct.Boxed* %left)
  switch i3 %type.left, label %otherwise [ i3 0, label %null.type
  i3 1, label %number.type
@@ -353,8 +353,8 @@ null.type:
 number.type:
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %left, i3 1)
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %right, i3 1)
- call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 1)
- call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 1)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 1, i32 %line)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 1, i32 %line)
  %f.value.left = call double @_GET_NUM_VALUE(%struct.Boxed* %left)
  %f.value.right = call double @_GET_NUM_VALUE(%struct.Boxed* %right)
  %f.bool = fcmp ogt double %f.value.left, %f.value.right
@@ -363,8 +363,8 @@ number.type:
 string.type:
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %left, i3 2)
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %right, i3 2)
- call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 2)
- call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 2)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 2, i32 %line)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 2, i32 %line)
  %left.str = call i8* @_GET_STR_VALUE(%struct.Boxed* %left)
  %right.str = call i8* @_GET_STR_VALUE(%struct.Boxed* %right)
  %strcmp = call i32 @strcmp(i8* %left.str, i8* %right.str)
@@ -372,12 +372,12 @@ string.type:
  call void @_SET_BOOL_VALUE(%struct.Boxed* %res, i1 %s.bool)
  ret void
 otherwise:
- call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 1)
- call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 1)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 1, i32 %line)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 1, i32 %line)
  ret void
 }
 
-define void @SAME_EQ(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed* %right) {
+define void @SAME_EQ(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed* %right, i32 %line) {
  %type.left = call i3 @_GET_TYPE(%struct.Boxed* %left)
  switch i3 %type.left, label %otherwise [ i3 0, label %null.type
  i3 1, label %number.type
@@ -389,8 +389,8 @@ null.type:
 number.type:
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %left, i3 1)
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %right, i3 1)
- call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 1)
- call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 1)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 1, i32 %line)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 1, i32 %line)
  %f.value.left = call double @_GET_NUM_VALUE(%struct.Boxed* %left)
  %f.value.right = call double @_GET_NUM_VALUE(%struct.Boxed* %right)
  %f.bool = fcmp oeq double %f.value.left, %f.value.right
@@ -399,8 +399,8 @@ number.type:
 string.type:
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %left, i3 2)
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %right, i3 2)
- call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 2)
- call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 2)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 2, i32 %line)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 2, i32 %line)
  %left.str = call i8* @_GET_STR_VALUE(%struct.Boxed* %left)
  %right.str = call i8* @_GET_STR_VALUE(%struct.Boxed* %right)
  %strcmp = call i32 @strcmp(i8* %left.str, i8* %right.str)
@@ -408,12 +408,12 @@ string.type:
  call void @_SET_BOOL_VALUE(%struct.Boxed* %res, i1 %s.bool)
  ret void
 otherwise:
- call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 1)
- call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 1)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 1, i32 %line)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 1, i32 %line)
  ret void
 }
 
-define void @SAME_NEQ(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed* %right) {
+define void @SAME_NEQ(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed* %right, i32 %line) {
  %type.left = call i3 @_GET_TYPE(%struct.Boxed* %left)
  switch i3 %type.left, label %otherwise [ i3 0, label %null.type
  i3 1, label %number.type
@@ -425,8 +425,8 @@ null.type:
 number.type:
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %left, i3 1)
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %right, i3 1)
- call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 1)
- call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 1)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 1, i32 %line)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 1, i32 %line)
  %f.value.left = call double @_GET_NUM_VALUE(%struct.Boxed* %left)
  %f.value.right = call double @_GET_NUM_VALUE(%struct.Boxed* %right)
  %f.bool = fcmp one double %f.value.left, %f.value.right
@@ -435,8 +435,8 @@ number.type:
 string.type:
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %left, i3 2)
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %right, i3 2)
- call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 2)
- call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 2)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 2, i32 %line)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 2, i32 %line)
  %left.str = call i8* @_GET_STR_VALUE(%struct.Boxed* %left)
  %right.str = call i8* @_GET_STR_VALUE(%struct.Boxed* %right)
  %strcmp = call i32 @strcmp(i8* %left.str, i8* %right.str)
@@ -444,21 +444,21 @@ string.type:
  call void @_SET_BOOL_VALUE(%struct.Boxed* %res, i1 %s.bool)
  ret void
 otherwise:
- call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 1)
- call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 1)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 1, i32 %line)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 1, i32 %line)
  ret void
 }
 
 ; Equality (and inequality) is defined separaly because it may accept operands of different types.
 ; In every other way it is the same as OVERLOADED_CMP.
 ; TODO: make it work with null values.
-define void @EQ(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed* %right) {
+define void @EQ(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed* %right, i32 %line) {
  %type.left = call i3 @_GET_TYPE(%struct.Boxed* %left)
  %type.right = call i3 @_GET_TYPE(%struct.Boxed* %right)
  %are.same = icmp eq i3 %type.left, %type.right
  br i1 %are.same, label %yes.same, label %no.same
 yes.same:
- call void @SAME_EQ(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed* %right)
+ call void @SAME_EQ(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed* %right, i32 %line)
  ret void
 no.same:
  %is.left.str = call i1 @_CHECK_TYPE(%struct.Boxed* %left, i3 2)
@@ -473,17 +473,17 @@ yes.valid:
  call void @_SET_BOOL_VALUE(%struct.Boxed* %res, i1 0)
  ret void
 no.valid:
- call void @_NUM_OR_STR_E(%struct.Boxed* %left)
- call void @_NUM_OR_STR_E(%struct.Boxed* %right)
+ call void @_NUM_OR_STR_E(%struct.Boxed* %left, i32 %line)
+ call void @_NUM_OR_STR_E(%struct.Boxed* %right, i32 %line)
  ret void
 }
-define void @NEQ(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed* %right) {
+define void @NEQ(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed* %right, i32 %line) {
  %type.left = call i3 @_GET_TYPE(%struct.Boxed* %left)
  %type.right = call i3 @_GET_TYPE(%struct.Boxed* %right)
  %are.same = icmp eq i3 %type.left, %type.right
  br i1 %are.same, label %yes.same, label %no.same
 yes.same:
- call void @SAME_NEQ(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed* %right)
+ call void @SAME_NEQ(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed* %right, i32 %line)
  ret void
 no.same:
  %is.left.str = call i1 @_CHECK_TYPE(%struct.Boxed* %left, i3 2)
@@ -498,16 +498,16 @@ yes.valid:
  call void @_SET_BOOL_VALUE(%struct.Boxed* %res, i1 1)
  ret void
 no.valid:
- call void @_NUM_OR_STR_E(%struct.Boxed* %left)
- call void @_NUM_OR_STR_E(%struct.Boxed* %right)
+ call void @_NUM_OR_STR_E(%struct.Boxed* %left, i32 %line)
+ call void @_NUM_OR_STR_E(%struct.Boxed* %right, i32 %line)
  ret void
 }
 ; Arguments may be null, arguments must be booleans
-define void @AND(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed* %right) {
+define void @AND(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed* %right, i32 %line) {
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %left, i3 3)
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %right, i3 3)
- call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 3)
- call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 3)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 3, i32 %line)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 3, i32 %line)
  %bool.left = call i1 @_GET_BOOL_VALUE(%struct.Boxed* %left)
  %bool.right = call i1 @_GET_BOOL_VALUE(%struct.Boxed* %right)
  %b.res = and i1 %bool.left, %bool.right
@@ -515,11 +515,11 @@ define void @AND(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed* %righ
  ret void
 }
 
-define void @OR(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed* %right) {
+define void @OR(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed* %right, i32 %line) {
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %left, i3 3)
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %right, i3 3)
- call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 3)
- call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 3)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 3, i32 %line)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 3, i32 %line)
  %bool.left = call i1 @_GET_BOOL_VALUE(%struct.Boxed* %left)
  %bool.right = call i1 @_GET_BOOL_VALUE(%struct.Boxed* %right)
  %b.res = or i1 %bool.left, %bool.right
@@ -550,11 +550,11 @@ define i8* @_GET_STR_VALUE(%struct.Boxed* %this) nounwind {
  %s.value = inttoptr i64 %i.value to i8* ; cast to a double
  ret i8* %s.value
 }
-define void @CONCAT(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed* %right) {
+define void @CONCAT(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed* %right, i32 %line) {
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %left, i3 2)
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %right, i3 2)
- call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 2)
- call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 2)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %left, i3 2, i32 %line)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %right, i3 2, i32 %line)
  %left.string = call i8* @_GET_STR_VALUE(%struct.Boxed* %left)
  %right.string = call i8* @_GET_STR_VALUE(%struct.Boxed* %right)
  %len.left = call i32 @strlen(i8* %left.string)
@@ -578,7 +578,7 @@ define void @CONCAT(%struct.Boxed* %res, %struct.Boxed* %left, %struct.Boxed* %r
 @false.message = constant [7 x i8] c"false\0A\00"
 @stdin = external global ptr, align 8
 ; Read a newline terminated line from stdin, the line must have less than 100 chars
-define void @IO.ReadLine(%struct.Boxed* %this) {
+define void @IO.ReadLine(%struct.Boxed* %this, i32 %line) {
  %new.string = call i8* @malloc(i32 100) ; memory leak
    %stdin = load ptr, ptr @stdin, align 8
    call ptr @fgets(ptr noundef %new.string, i32 100, ptr noundef %stdin)
@@ -592,7 +592,7 @@ define void @IO.ReadLine(%struct.Boxed* %this) {
 ; Print a box to stdout.
 ; the type must not be an array.
 ; `value' must not be a NULL (TODO: maybe add a specific clause for printing null)
-define void @IO.WriteLine(%struct.Boxed* %null, %struct.Boxed* %value) {
+define void @IO.WriteLine(%struct.Boxed* %null, %struct.Boxed* %value, i32 %line) {
  %type = call i3 @_GET_TYPE(%struct.Boxed* %value)
  switch i3 %type, label %otherwise [ i3 1, label %number.type
                                      i3 2, label %str.type
@@ -617,10 +617,10 @@ print.false:
 otherwise:
  switch i3 %type, label %unknown.type [ i3 4, label %array.type ]
 array.type:
- call void @_ARRAY_PRINT_E()
+ call void @_ARRAY_PRINT_E(i32 %line)
  ret void
 unknown.type:
- call void @_UNKNOWN_ERROR()
+ call void @_UNKNOWN_ERROR(i32 %line)
  ret void
 }
 ;-04---- END IO.LL ---------------------------------------------------------------------------------
@@ -641,45 +641,45 @@ declare double @llvm.floor.f64(double)
 
 ; call a specific imported math function on a box
 ; the box must be a number, but may be null
-define void @Math.Cos(%struct.Boxed* %res, %struct.Boxed* %value) {
+define void @Math.Cos(%struct.Boxed* %res, %struct.Boxed* %value, i32 %line) {
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %value, i3 1)
- call void @_CHECK_TYPE_E(%struct.Boxed* %value, i3 1)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %value, i3 1, i32 %line)
  %f.value.0 = call double @_GET_NUM_VALUE(%struct.Boxed* %value)
  %f.value.1 = call double @llvm.cos.f64(double %f.value.0)
  call void @_SET_NUM_VALUE(%struct.Boxed* %res, double %f.value.1)
  ret void
 }
 
-define void @Math.Sin(%struct.Boxed* %res, %struct.Boxed* %value) {
+define void @Math.Sin(%struct.Boxed* %res, %struct.Boxed* %value, i32 %line) {
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %value, i3 1)
- call void @_CHECK_TYPE_E(%struct.Boxed* %value, i3 1)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %value, i3 1, i32 %line)
  %f.value.0 = call double @_GET_NUM_VALUE(%struct.Boxed* %value)
  %f.value.1 = call double @llvm.sin.f64(double %f.value.0)
  call void @_SET_NUM_VALUE(%struct.Boxed* %res, double %f.value.1)
  ret void
 }
 
-define void @Math.Sqrt(%struct.Boxed* %res, %struct.Boxed* %value) {
+define void @Math.Sqrt(%struct.Boxed* %res, %struct.Boxed* %value, i32 %line) {
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %value, i3 1)
- call void @_CHECK_TYPE_E(%struct.Boxed* %value, i3 1)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %value, i3 1, i32 %line)
  %f.value.0 = call double @_GET_NUM_VALUE(%struct.Boxed* %value)
  %f.value.1 = call double @llvm.sqrt.f64(double %f.value.0)
  call void @_SET_NUM_VALUE(%struct.Boxed* %res, double %f.value.1)
  ret void
 }
 
-define void @Math.Log(%struct.Boxed* %res, %struct.Boxed* %value) {
+define void @Math.Log(%struct.Boxed* %res, %struct.Boxed* %value, i32 %line) {
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %value, i3 1)
- call void @_CHECK_TYPE_E(%struct.Boxed* %value, i3 1)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %value, i3 1, i32 %line)
  %f.value.0 = call double @_GET_NUM_VALUE(%struct.Boxed* %value)
  %f.value.1 = call double @llvm.log.f64(double %f.value.0)
  call void @_SET_NUM_VALUE(%struct.Boxed* %res, double %f.value.1)
  ret void
 }
 
-define void @Math.Floor(%struct.Boxed* %res, %struct.Boxed* %value) {
+define void @Math.Floor(%struct.Boxed* %res, %struct.Boxed* %value, i32 %line) {
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %value, i3 1)
- call void @_CHECK_TYPE_E(%struct.Boxed* %value, i3 1)
+ call void @_CHECK_TYPE_E(%struct.Boxed* %value, i3 1, i32 %line)
  %f.value.0 = call double @_GET_NUM_VALUE(%struct.Boxed* %value)
  %f.value.1 = call double @llvm.floor.f64(double %f.value.0)
  call void @_SET_NUM_VALUE(%struct.Boxed* %res, double %f.value.1)
@@ -691,6 +691,8 @@ define void @Math.Floor(%struct.Boxed* %res, %struct.Boxed* %value) {
 ;~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
 ; Runtime error routines
 ;~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+; Every function that may fail, and every function of a module, takes as its last argument
+; the line of the statement calling it, which is only read to report an error.
 @number.type.string = constant [7 x i8] c"NUMBER\00"
 @string.type.string = constant [7 x i8] c"STRING\00"
 @bool.type.string = constant [5 x i8] c"BOOL\00"
@@ -699,7 +701,6 @@ define void @Math.Floor(%struct.Boxed* %res, %struct.Boxed* %value) {
 @type.error.message = constant [58 x i8] c"*** Runtime exception: expected %s, but got %s (line %d)\0A\00"
 @zero.div.message = constant [54 x i8] c"*** Runtime exception: zero division error (line %d)\0A\00"
 @unknown.error = constant [48 x i8] c"*** Runtime exception: unknown error (line %d)\0A\00"
-@line.number = global i32 0
 ; return a boolean saying whether a box has type `expected' or not.
 define i1 @_CHECK_TYPE(%struct.Boxed* %value, i3 %expected) {
  %type = call i3 @_GET_TYPE(%struct.Boxed* %value)
@@ -736,19 +737,17 @@ print:
  ret i8* %msg
 }
 ; throw a generic error
-define void @_UNKNOWN_ERROR() {
- %line = load i32, i32* @line.number
+define void @_UNKNOWN_ERROR(i32 %line) {
  call i32 (i8*, ...) @printf(i8* getelementptr([47 x i8], [47 x i8]* @unknown.error, i32 0, i32 0), i32 %line)
  call void @abort()
  ret void
 }
 ; throw a zero division error if `value' is zero
-define void @_CHECK_ZERO_DIV_E(%struct.Boxed* %value) {
+define void @_CHECK_ZERO_DIV_E(%struct.Boxed* %value, i32 %line) {
  %num = call double @_GET_NUM_VALUE(%struct.Boxed* %value)
  %is.zero = fcmp oeq double %num, 0.0
  br i1 %is.zero, label %true, label %false
 true:
- %line = load i32, i32* @line.number
  call i32 (i8*, ...) @printf(i8* getelementptr([54 x i8], [54 x i8]* @zero.div.message, i32 0, i32 0), i32 %line)
  call void @abort()
  ret void
@@ -756,14 +755,13 @@ false:
  ret void
 }
 ; throw a type error if `value''s type is different from `expected'
-define void @_CHECK_TYPE_E(%struct.Boxed* %value, i3 %expected) {
+define void @_CHECK_TYPE_E(%struct.Boxed* %value, i3 %expected, i32 %line) {
  %type = call i3 @_GET_TYPE(%struct.Boxed* %value)
  %are.equal = icmp eq i3 %type, %expected
  br i1 %are.equal, label %end, label %throw.exception
 throw.exception:
  %actual.str = call i8* @_GET_TYPE_REPR(i3 %type)
  %expected.str = call i8* @_GET_TYPE_REPR(i3 %expected)
- %line = load i32, i32* @line.number
  call i32 (i8*, ...) @printf(i8* getelementptr([58 x i8], [58 x i8]* @type.error.message, i32 0, i32 0), i8* %expected.str, i8* %actual.str, i32 %line )
  call void @abort()
  ret void
@@ -772,11 +770,10 @@ end:
 }
 ; throw a negative index error if `index' is less than zero
 @negative.index.msg = constant [57 x i8] c"*** Runtime exception: %d is a negative index (line %d)\0A\00"
-define void @_CHECK_POSITIVE_INDEX_E(i32 %index) {
+define void @_CHECK_POSITIVE_INDEX_E(i32 %index, i32 %line) {
  %is.negative = icmp slt i32 %index, 0
  br i1 %is.negative, label %true, label %false
 true:
- %line = load i32, i32* @line.number
  call i32 (i8*, ...) @printf(i8* getelementptr([57 x i8], [57 x i8]* @negative.index.msg, i32 0, i32 0), i32 %index, i32 %line)
  call void @abort()
  ret void
@@ -785,28 +782,25 @@ false:
 }
 ; throw an array copy error if the user is trying to copy an array
 @array.copy.msg = constant [75 x i8] c"*** Runtime exception: array copy (<arr> = <arr>) not supported (line %d)\0A\00"
-define void @_ARRAY_COPY_E() {
- %line = load i32, i32* @line.number
+define void @_ARRAY_COPY_E(i32 %line) {
  call i32 (i8*, ...) @printf(i8* getelementptr([75 x i8], [75 x i8]* @array.copy.msg, i32 0, i32 0), i32 %line )
  call void @abort()
  ret void
 }
 ; throw an array print error if the user is trying to print an array
 @array.print.msg = constant [63 x i8] c"*** Runtime exception: array printing not supported (line %d)\0A\00"
-define void @_ARRAY_PRINT_E() {
- %line = load i32, i32* @line.number
+define void @_ARRAY_PRINT_E(i32 %line) {
  call i32 (i8*, ...) @printf(i8* getelementptr([63 x i8], [63 x i8]* @array.print.msg, i32 0, i32 0), i32 %line )
  call void @abort()
  ret void
 }
 ; throw an error if the input has not type STRING or NUM
 @str.or.num.msg = constant [93 x i8] c"*** Runtime exception: expected a value of type NUMBER or STRING, instead got %s at line %d\0A\00"
-define void @_NUM_OR_STR_E(%struct.Boxed* %this) {
+define void @_NUM_OR_STR_E(%struct.Boxed* %this, i32 %line) {
  %type = call i3 @_GET_TYPE(%struct.Boxed* %this)
  switch i3 %type, label %problem[ i3 1, label %no.problem
                                   i3 2, label %no.problem ]
 problem:
- %line = load i32, i32* @line.number
  %type.repr = call i8* @_GET_TYPE_REPR(i3 %type)
  call i32 (i8*, ...) @printf(i8* getelementptr([93 x i8], [93 x i8]* @str.or.num.msg, i32 0, i32 0), i8* %type.repr, i32 %line)
  call void @abort()
@@ -863,9 +857,9 @@ define void @_SET_CONTENTS(%struct.Array* %this, %struct.Boxed* %new) {
  store %struct.Boxed* %new, %struct.Boxed** %array.ptr
  ret void
 }
-define %struct.Array* @_GET_ARRAY(%struct.Boxed* %this) {
+define %struct.Array* @_GET_ARRAY(%struct.Boxed* %this, i32 %line) {
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %this, i3 4) ; if this is null, the default it to a boxed array
- call void @_CHECK_TYPE_E(%struct.Boxed* %this, i3 4) ; else if the type of this is not i3 4 throw an exception
+ call void @_CHECK_TYPE_E(%struct.Boxed* %this, i3 4, i32 %line) ; else if the type of this is not i3 4 throw an exception
  %arr.ptr = getelementptr %struct.Boxed, %struct.Boxed* %this, i32 0, i32 1
  %i.arr = load i64, i64* %arr.ptr
  %arr = inttoptr i64 %i.arr to %struct.Array*
@@ -876,12 +870,12 @@ define %struct.Array* @_GET_ARRAY(%struct.Boxed* %this) {
 ; @param this the box, must be NULL or an array box or else an error is thrown
 ; @param index the index, must be NULL or of NUMBER type
 ; @returns the index-th element of this
-define %struct.Boxed* @_GET_ARRAY_ELEMENT(%struct.Boxed* %this, %struct.Boxed* %index) {
+define %struct.Boxed* @_GET_ARRAY_ELEMENT(%struct.Boxed* %this, %struct.Boxed* %index, i32 %line) {
  call void @_DEFAULT_IF_NULL(%struct.Boxed* %this, i3 4) ; if (this is null) then default(this)
- call void @_CHECK_TYPE_E(%struct.Boxed* %this, i3 4) ; assert(this.type == ARRAY)
- %i.index = call i32 @_FLOOR(%struct.Boxed* %index) ; i = floor(index)
- call void @_CHECK_POSITIVE_INDEX_E(i32 %i.index) ; assert(i >= 0)
- %array = call %struct.Array* @_GET_ARRAY(%struct.Boxed* %this) ; array = this.array
+ call void @_CHECK_TYPE_E(%struct.Boxed* %this, i3 4, i32 %line) ; assert(this.type == ARRAY)
+ %i.index = call i32 @_FLOOR(%struct.Boxed* %index, i32 %line) ; i = floor(index)
+ call void @_CHECK_POSITIVE_INDEX_E(i32 %i.index, i32 %line) ; assert(i >= 0)
+ %array = call %struct.Array* @_GET_ARRAY(%struct.Boxed* %this, i32 %line) ; array = this.array
  %capacity = call i32 @_GET_CAPACITY(%struct.Array* %array) ; capacity = array.capacity
  %contents = call %struct.Boxed* @_GET_CONTENTS(%struct.Array* %array) ; contents = array.contents
  %is.smaller = icmp slt i32 %i.index, %capacity ; b = i < capacity
@@ -891,7 +885,7 @@ true:
  ret %struct.Boxed* %struct.ptr
 false:
  call void @_EXPAND(%struct.Array* %array, i32 %i.index)
- %ret = call %struct.Boxed* @_GET_ARRAY_ELEMENT(%struct.Boxed* %this, %struct.Boxed* %index)
+ %ret = call %struct.Boxed* @_GET_ARRAY_ELEMENT(%struct.Boxed* %this, %struct.Boxed* %index, i32 %line)
  ret %struct.Boxed* %ret
 }
 define void @_EXPAND(%struct.Array* %this, i32 %index) {
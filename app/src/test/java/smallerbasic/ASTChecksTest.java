@@ -2,9 +2,16 @@ package smallerbasic;
 
 import org.junit.jupiter.api.Test;
 import smallerbasic.AST.nodes.ASTNode;
-import smallerbasic.AST.staticChecks.DoubleLabelCheck;
-import smallerbasic.AST.staticChecks.LabelScopeCheck;
-import smallerbasic.AST.staticChecks.MaxNameLengthCheck;
+import smallerbasic.AST.staticChecks.*;
+import smallerbasic.AST.staticChecks.errors.ErrorReporter;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
 
 import static org.assertj.core.api.Assertions.*;
 import static smallerbasic.CompilationUtils.*;
@@ -82,4 +89,69 @@ public class ASTChecksTest {
 
         assertThat(checkDoubles.check(tree)).isTrue();
     }
+
+    private static final List<Supplier<Check>> allChecks = List.of(
+            MaxNameLengthCheck::new,
+            TypeCheck::new,
+            LabelScopeCheck::new,
+            DoubleLabelCheck::new,
+            DoubleRoutineDeclCheck::new,
+            RoutineCallCheck::new,
+            UninitializedVariableCheck::new
+    );
+
+    @Test
+    public void checksOrderTest() throws IOException {
+        ASTNode tree = clean(parse(lex(Paths.get("src/test/resources/errors/errors.sb"))));
+
+        List<String> separate = new ArrayList<>();
+        List<Boolean> separateResults = new ArrayList<>();
+        for (Supplier<Check> s : allChecks) {
+            Check c = s.get();
+            c.setErrorReporter((n, msg) -> separate.add(msg));
+            separateResults.add(c.check(tree));
+        }
+
+        List<String> fused = new ArrayList<>();
+        List<Check> checks = allChecks.stream().map(Supplier::get).toList();
+        checks.forEach(c -> c.setErrorReporter((n, msg) -> fused.add(msg)));
+
+        assertThat(new CheckEngine(checks).run(tree)).isEqualTo(separateResults);
+        assertThat(fused).isEqualTo(separate);
+
+        List<String> concurrent = new ArrayList<>();
+        checks.forEach(c -> c.setErrorReporter((n, msg) -> concurrent.add(msg)));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            assertThat(new CheckEngine(checks).run(tree, executor)).isEqualTo(separateResults);
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(concurrent).isEqualTo(separate);
+    }
+
+    @Test
+    public void failingCheckTest() {
+        ASTNode tree = clean(parse(lex("X = 1\n")));
+        ErrorReporter reporter = (n, msg) -> {};
+        Check failing = new AbstractCheck() {
+            @Override
+            public void register(NodeCallbacks callbacks) {
+                throw new IllegalStateException("failing");
+            }
+
+            @Override
+            public boolean finish(ASTNode root) {
+                return true;
+            }
+        };
+        List<Check> checks = List.of(new TypeCheck(), failing, new DoubleLabelCheck());
+        checks.forEach(c -> c.setErrorReporter(reporter));
+
+        assertThatThrownBy(() -> new CheckEngine(checks).run(tree))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("failing");
+        for (Check c : checks)
+            assertThat(((FusibleCheck) c).getErrorReporter()).isSameAs(reporter);
+    }
 }
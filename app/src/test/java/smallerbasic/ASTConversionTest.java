@@ -5,17 +5,24 @@ import org.antlr.v4.runtime.CommonTokenStream;
 import org.antlr.v4.runtime.TokenStream;
 import org.antlr.v4.runtime.tree.ParseTree;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 import smallerbasic.AST.ParseTreeToASTVisitor;
 import smallerbasic.AST.Scope;
 import smallerbasic.AST.nodes.*;
+import smallerbasic.AST.staticChecks.AbstractCheck;
+import smallerbasic.AST.staticChecks.CheckEngine;
+import smallerbasic.AST.staticChecks.NodeCallbacks;
 
 import java.io.IOException;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatNoException;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static smallerbasic.CompilationUtils.*;
 
 public class ASTConversionTest {
@@ -162,8 +169,8 @@ public class ASTConversionTest {
     public void testTokenPosition() {
         ASTNode tree = clean(parse(lex("Sub test\nlabel:\nEndSub\nGoto label\n")));
 
-        assertThat(tree.getStartToken().get().getText()).isEqualTo("Sub");
-        assertThat(tree.getEndToken().get().getText()).isEqualTo("<EOF>");
+        // from "Sub" to "<EOF>"
+        assertThat(tree.getSpan()).contains(new SourceSpan(1, 0, 5, 5));
     }
 
     @Test
@@ -188,4 +195,82 @@ public class ASTConversionTest {
                 )
         );
     }
+
+    /**
+     * @return The position of every node of the tree, in the order the nodes are visited.
+     */
+    private static List<SourceSpan> spans(ASTNode tree) {
+        List<SourceSpan> spans = new ArrayList<>();
+        new CheckEngine(List.of(new AbstractCheck() {
+            @Override
+            public void register(NodeCallbacks callbacks) {
+                callbacks.onEnter(ASTNode.class, n -> spans.add(n.getSpan().orElse(null)));
+            }
+
+            @Override
+            public boolean finish(ASTNode root) {
+                return true;
+            }
+        })).run(tree);
+        return spans;
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "arraySetTest.sb",
+            "bigTest.sb",
+            "forLoopTest.sb",
+            "illegalLabelsTest.sb",
+            "multiArrayTest.sb",
+            "nestedForTest.sb",
+            "subRoutineTest.sb",
+            "test1.sb",
+            "test2.sb",
+            "test3.sb",
+            "test4.sb",
+            "uninitializedVarTest.sb",
+            "whileTest.sb",
+            "errors/typeError.sb"
+    })
+    public void parseToASTTest(String path) throws IOException {
+        TokenStream tokens = lex(Paths.get("src/test/resources/" + path));
+        ASTNode expected = clean(parse(tokens));
+        tokens.seek(0);
+        ASTNode actual = parseToAST(tokens, d -> {});
+
+        assertThat(actual).isEqualTo(expected);
+        assertThat(spans(actual)).containsExactlyElementsOf(spans(expected));
+    }
+
+    @Test
+    public void parseToASTExpressionsTest() {
+        TokenStream tokens = lex("A = ((1 + 2) - 3 * 4 / -X[1][(2)]) < 5 And (Y = \"a\" Or IO.F(1, 2 + 3) <> 4)\n");
+        ASTNode expected = clean(parse(tokens));
+        tokens.seek(0);
+        ASTNode actual = parseToAST(tokens, d -> {});
+
+        assertThat(actual).isEqualTo(expected);
+        assertThat(spans(actual)).containsExactlyElementsOf(spans(expected));
+    }
+
+    @Test
+    public void parseToASTErrorTest() {
+        List<Diagnostic> diagnostics = new ArrayList<>();
+        assertThatThrownBy(() -> parseToAST(lex("For X = 3 Ti 10\nEndFor\n"), diagnostics::add))
+                .isInstanceOf(CompilationError.class);
+        assertThat(diagnostics).isNotEmpty();
+    }
+
+    @Test
+    public void internedNamesTest() {
+        ProgramASTNode tree = (ProgramASTNode) parseToAST(lex("X = 1\nY = X + 1\n"), d -> {});
+
+        AssStmtASTNode first = (AssStmtASTNode) tree.getContents().get(0);
+        AssStmtASTNode second = (AssStmtASTNode) tree.getContents().get(1);
+        IdentifierASTNode x = (IdentifierASTNode) first.getVarName();
+        IdentifierASTNode otherX = (IdentifierASTNode) ((BinOpASTNode) second.getValue()).getLeft();
+        assertThat(otherX).isNotSameAs(x);
+        assertThat(otherX.getName()).isSameAs(x.getName());
+        assertThat(otherX).isEqualTo(x).hasSameHashCodeAs(new IdentifierASTNode("X"));
+    }
 }
@@ -0,0 +1,116 @@
+package smallerbasic;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import smallerbasic.AST.FlatAST;
+import smallerbasic.AST.nodes.ASTNode;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static smallerbasic.CompilationUtils.lex;
+import static smallerbasic.CompilationUtils.parseToAST;
+
+/**
+ * Compares saving and loading the AST with {@link FlatAST#write} and {@link FlatAST#read} against parsing the
+ * source again, on the examples, on the test corpus and on a generated program.
+ * Loading includes building the node objects, so that the result is the same as the one of parsing.
+ * Run with {@code gradle benchmark}.
+ */
+@Tag("benchmark")
+public class ASTSerializationBenchmark {
+    private static final int WARMUP = 20;
+    private static final int RUNS = 50;
+
+    private static ASTNode parse(String source) {
+        return parseToAST(lex(CharStreams.fromString(source), d -> {}), d -> {});
+    }
+
+    private static byte[] serialize(ASTNode tree) {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            FlatAST.of(tree).write(out);
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static ASTNode deserialize(byte[] bytes) {
+        try {
+            return FlatAST.read(new ByteArrayInputStream(bytes)).toTree();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return The total time in milliseconds spent running {@code f} on all the inputs {@link #RUNS} times.
+     */
+    private static <T> double measure(List<T> inputs, Consumer<T> f) {
+        for (int i = 0; i < WARMUP; i++)
+            inputs.forEach(f);
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++)
+            inputs.forEach(f);
+        return (System.nanoTime() - start) / 1e6;
+    }
+
+    private static List<String> corpus(String dir) throws IOException {
+        List<String> sources = new ArrayList<>();
+        try (Stream<Path> files = Files.list(Paths.get(dir))) {
+            for (Path p : files.filter(f -> f.toString().endsWith(".sb")).sorted().toList())
+                sources.add(Files.readString(p));
+        }
+        return sources;
+    }
+
+    private static String program(int n) {
+        StringBuilder program = new StringBuilder();
+        for (int i = 0; i < n; i++)
+            program.append("Label").append(i).append(":\n")
+                    .append("Variable").append(i % 500).append(" = (Variable").append((i + 1) % 500)
+                    .append(" + Counter * ").append(i % 100).append(") / -").append(i).append("\n")
+                    .append("If (Flag").append(i % 20).append(" = \"text").append(i % 50).append("\") Then\n")
+                    .append("IO.WriteLine(Variable").append(i % 500).append(")\nGoto Label").append(i / 2)
+                    .append("\nEndIf\n");
+        return program.toString();
+    }
+
+    @Test
+    public void serializationBenchmark() throws IOException {
+        Map<String, List<String>> corpora = new LinkedHashMap<>();
+        corpora.put("examples", corpus("../examples"));
+        corpora.put("test corpus", corpus("src/test/resources"));
+        corpora.put("generated", List.of(program(5000)));
+
+        System.out.printf("%-12s %10s %10s %12s %14s %12s %9s%n",
+                "corpus", "source KB", "binary KB", "write (ms)", "read (ms)", "parse (ms)", "speedup");
+        for (Map.Entry<String, List<String>> c : corpora.entrySet()) {
+            List<String> sources = c.getValue();
+            List<ASTNode> trees = sources.stream().map(ASTSerializationBenchmark::parse).toList();
+            List<byte[]> bytes = trees.stream().map(ASTSerializationBenchmark::serialize).toList();
+            long sourceSize = sources.stream().mapToLong(s -> s.getBytes(StandardCharsets.UTF_8).length).sum();
+            long binarySize = bytes.stream().mapToLong(b -> b.length).sum();
+
+            double write = measure(trees, ASTSerializationBenchmark::serialize);
+            double read = measure(bytes, ASTSerializationBenchmark::deserialize);
+            double parse = measure(sources, ASTSerializationBenchmark::parse);
+            System.out.printf("%-12s %10.1f %10.1f %12.1f %14.1f %12.1f %8.1fx%n", c.getKey(),
+                    sourceSize / 1024.0, binarySize / 1024.0, write, read, parse, parse / read);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package smallerbasic;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BatchCompilerTest {
+    @Test
+    public void batchTest(@TempDir Path dir) throws IOException {
+        Path sources = Files.createDirectories(dir.resolve("src"));
+        Files.createDirectories(sources.resolve("nested"));
+        Files.writeString(sources.resolve("a.sb"), "A = 1\n");
+        Files.writeString(sources.resolve("nested/b.sb"), "B = A\n");
+        Files.writeString(sources.resolve("nested/c.sb"), "C = 1 + true\n");
+        Files.writeString(sources.resolve("notes.txt"), "not a program");
+        Path out = dir.resolve("out");
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        List<BatchCompiler.Outcome> outcomes;
+        try {
+            outcomes = new BatchCompiler(new CompilerService(), pool, out).run(List.of(sources));
+        } finally {
+            pool.shutdown();
+        }
+
+        assertThat(outcomes)
+                .extracting(BatchCompiler.Outcome::source)
+                .containsExactly(sources.resolve("a.sb"), sources.resolve("nested/b.sb"), sources.resolve("nested/c.sb"));
+        assertThat(outcomes)
+                .extracting(BatchCompiler.Outcome::isSuccess)
+                .containsExactly(true, true, false);
+        assertThat(outcomes.get(1).diagnostics()).hasSize(1);
+        assertThat(outcomes.get(2).error()).contains("Static checks failed");
+
+        assertThat(Files.readString(out.resolve("a.ll")))
+                .isEqualTo(new CompilerService().compile("A = 1\n").getIR().orElseThrow() + "\n");
+        assertThat(out.resolve("nested/b.ll")).exists();
+        assertThat(out.resolve("nested/c.ll")).doesNotExist();
+    }
+
+    @Test
+    public void internalErrorTest(@TempDir Path dir) throws IOException {
+        Files.writeString(dir.resolve("a.sb"), "A = 1\n");
+        Files.writeString(dir.resolve("b.sb"), "B = 1\n");
+        CompilerService service = new CompilerService() {
+            @Override
+            public @NotNull CompilationResult compile(@NotNull Path path) throws IOException {
+                if (path.endsWith("a.sb"))
+                    throw new IllegalStateException("broken");
+                return super.compile(path);
+            }
+        };
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        List<BatchCompiler.Outcome> outcomes;
+        try {
+            outcomes = new BatchCompiler(service, pool, null).run(List.of(dir));
+        } finally {
+            pool.shutdown();
+        }
+
+        assertThat(outcomes)
+                .extracting(BatchCompiler.Outcome::isSuccess)
+                .containsExactly(false, true);
+        assertThat(outcomes.get(0).error().orElseThrow()).contains("broken");
+        assertThat(dir.resolve("b.ll")).exists();
+    }
+
+    @Test
+    public void sharedOutputTest(@TempDir Path dir) throws IOException {
+        Path a = Files.writeString(Files.createDirectories(dir.resolve("a")).resolve("x.sb"), "A = 1\n");
+        Path b = Files.writeString(Files.createDirectories(dir.resolve("b")).resolve("x.sb"), "B = 1\n");
+        Path c = Files.writeString(dir.resolve("c.sb"), "C = 1\n");
+        Path out = dir.resolve("out");
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        List<BatchCompiler.Outcome> outcomes;
+        try {
+            outcomes = new BatchCompiler(new CompilerService(), pool, out).run(List.of(a, b, c));
+        } finally {
+            pool.shutdown();
+        }
+
+        assertThat(outcomes)
+                .extracting(BatchCompiler.Outcome::isSuccess)
+                .containsExactly(false, false, true);
+        assertThat(outcomes.get(0).error().orElseThrow()).contains("x.ll");
+        assertThat(out.resolve("x.ll")).doesNotExist();
+        assertThat(out.resolve("c.ll")).exists();
+    }
+}
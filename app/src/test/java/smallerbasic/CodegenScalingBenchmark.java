@@ -0,0 +1,69 @@
+package smallerbasic;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import smallerbasic.AST.nodes.*;
+import smallerbasic.compiler.LLVM.LLVMCompiler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures the code generation of programs of increasing size, checking that its time grows linearly.
+ * The check depends on the machine and on its load, so it is not run with the tests.
+ * Run with {@code gradle benchmark}.
+ */
+@Tag("benchmark")
+public class CodegenScalingBenchmark {
+
+    private static final int OPS_PER_STATEMENT = 10;
+
+    /**
+     * Build a program made of statements like {@code X = X + Y + ... + Y}, for a total of {@code binOps} binary operations.
+     */
+    private static ASTNode program(int binOps) {
+        IdentifierASTNode x = new IdentifierASTNode("X");
+        IdentifierASTNode y = new IdentifierASTNode("Y");
+        List<DeclOrStmtASTNode> contents = new ArrayList<>();
+        for (int i = 0; i < binOps / OPS_PER_STATEMENT; i++) {
+            ExpressionASTNode expr = x;
+            for (int j = 0; j < OPS_PER_STATEMENT; j++)
+                expr = new BinOpASTNode(BinOpASTNode.BinOp.PLUS, expr, y);
+            contents.add(new AssStmtASTNode(x, expr));
+        }
+        return new ProgramASTNode(contents);
+    }
+
+    private static long timeCompilation(int binOps) {
+        ASTNode tree = program(binOps);
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            new LLVMCompiler().compile(tree);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    @Test
+    public void linearCodegenBenchmark() {
+        // below this threshold timings are mostly noise
+        final long minNanos = 5_000_000;
+        timeCompilation(100_000);   // warm up
+
+        long previous = timeCompilation(1_000);
+        System.out.printf("%-12s %12s%n", "operations", "time (ms)");
+        System.out.printf("%-12d %12.1f%n", 1_000, previous / 1e6);
+        for (int binOps = 10_000; binOps <= 1_000_000; binOps *= 10) {
+            long current = timeCompilation(binOps);
+            System.out.printf("%-12d %12.1f%n", binOps, current / 1e6);
+            // a tenfold increase in size should not take much more than ten times as long
+            assertThat(current)
+                    .as("codegen time for %d binary operations", binOps)
+                    .isLessThan(40 * Math.max(previous, minNanos));
+            previous = current;
+        }
+    }
+}
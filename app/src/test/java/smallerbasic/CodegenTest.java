@@ -0,0 +1,95 @@
+package smallerbasic;
+
+import org.junit.jupiter.api.Test;
+import smallerbasic.AST.nodes.ASTNode;
+import smallerbasic.compiler.LLVM.LLVMCompiler;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static smallerbasic.CompilationUtils.*;
+
+public class CodegenTest {
+
+    /**
+     * Build a program with {@code n} routines, each calling the next one and with temporaries, labels and loops.
+     */
+    static String routines(int n) {
+        StringBuilder program = new StringBuilder();
+        for (int i = 0; i < n; i++)
+            program.append("Sub Routine").append(i).append("\n")
+                    .append("For I = 1 To ").append(i % 10).append("\n")
+                    .append("X = X + I * (Y").append(i % 50).append(" - ").append(i).append(")\n")
+                    .append("EndFor\n")
+                    .append("loop:\nIf (X < ").append(i).append(") Then\nX = X + 1\nGoto loop\nEndIf\n")
+                    .append("IO.WriteLine(\"routine ").append(i).append("\")\n")
+                    .append(i + 1 < n ? "Routine" + (i + 1) + "()\n" : "")
+                    .append("EndSub\n");
+        return program.append("X = 0\nRoutine0()\n").toString();
+    }
+
+    @Test
+    void routineTemporariesInEntryBlockTest() {
+        String ir = compile(clean(parse(lex("Sub test\nlabel:\nX = 1 + 2\nGoto label\nEndSub\n"))), new LLVMCompiler());
+        String routine = ir.substring(ir.indexOf("define void"));
+
+        assertThat(routine.indexOf("alloca")).isLessThan(routine.indexOf(":\n"));
+    }
+
+    @Test
+    void lineAsArgumentTest() {
+        // strings are not inlined, so every operation calls the runtime
+        String ir = compile(clean(parse(lex(
+                "X = IO.ReadLine()\nWhile (X < \"z\")\nX = X + \"a\"\nEndWhile\nIO.WriteLine(X / 0)\n"))),
+                new LLVMCompiler());
+
+        assertThat(ir).doesNotContain("@line.number");
+        assertThat(ir).containsPattern("call void @LT\\(.*, i32 2\\)");
+        assertThat(ir).containsPattern("call void @PLUS\\(.*, i32 3\\)");
+        assertThat(ir).containsPattern("call void @DIV\\(.*, i32 5\\)");
+        assertThat(ir).containsPattern("call void @IO.WriteLine\\(.*, i32 5\\)");
+    }
+
+    @Test
+    void unboxedNumbersTest() {
+        String ir = compile(clean(parse(lex("X = 1\nWhile (X < 10)\nX = X * 2\nEndWhile\nIO.WriteLine(X / 4)\n"))),
+                new LLVMCompiler());
+
+        assertThat(ir).contains("fcmp olt double", "fmul double", "fdiv double");
+        assertThat(ir).doesNotContain("@_COPY(", "@LT(", "@MULT(", "@_GET_BOOL_VALUE(");
+        // the number printed is boxed into a temporary
+        assertThat(ir).containsPattern("call void @IO.WriteLine\\(%struct.Boxed\\* %v\\d+, %struct.Boxed\\* %v\\d+");
+    }
+
+    @Test
+    void probableNumbersTest() {
+        String ir = compile(clean(parse(lex("While (I < 10)\nI = I + 1\nEndWhile\nIO.WriteLine(-J / I)\n"))),
+                new LLVMCompiler());
+
+        // I is null the first time it is compared, J is always null
+        assertThat(ir).containsPattern("phi i1 \\[%v\\d+, %v\\d+.fast\\], \\[%v\\d+, %v\\d+.slow\\]");
+        assertThat(ir).containsOnlyOnce("call void @LT(");
+        assertThat(ir).contains("fadd double").doesNotContain("@PLUS(");
+        assertThat(ir).containsOnlyOnce("call void @UNARY_MINUS(");
+        assertThat(ir).containsOnlyOnce("fcmp une double");
+        assertThat(ir).containsOnlyOnce("call void @DIV(");
+    }
+
+    @Test
+    void parallelRoutinesTest() {
+        ASTNode tree = clean(parse(lex(routines(500))));
+        String expected = compile(tree, new LLVMCompiler());
+
+        for (int threads : new int[]{1, 4, 16}) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                assertThat(compile(tree, new LLVMCompiler(executor)))
+                        .as("IR generated by %d threads", threads)
+                        .isEqualTo(expected);
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package smallerbasic;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CompileDaemonTest {
+    @Test
+    public void sameAsLocalTest(@TempDir Path dir) throws Exception {
+        Path socket = dir.resolve("sb.sock");
+        ExecutorService workers = Executors.newFixedThreadPool(2);
+        Thread daemon = new Thread(() -> {
+            try {
+                new CompileDaemon(socket, new CompilerService(), workers).serve();
+            } catch (IOException e) {
+                // closed by the interruption
+            }
+        });
+        daemon.start();
+        try {
+            while (!Files.exists(socket))
+                Thread.sleep(10);
+            for (String file : List.of("bigTest.sb", "errors/typeError.sb", "errors/uninitializedWarning.sb")) {
+                Path source = Paths.get("src/test/resources/" + file);
+                CompilationResult expected = new CompilerService().compile(source);
+
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                ByteArrayOutputStream err = new ByteArrayOutputStream();
+                int status = CompileDaemon.request(socket, source, new PrintStream(out, true), new PrintStream(err, true));
+
+                StringBuilder diagnostics = new StringBuilder();
+                expected.getDiagnostics().forEach(d -> diagnostics.append(d.text()));
+                expected.getError().ifPresent(e -> diagnostics.append(e).append("\n"));
+                assertThat(status).isEqualTo(expected.isSuccess() ? 0 : 1);
+                assertThat(err.toString().replace(System.lineSeparator(), "\n")).isEqualTo(diagnostics.toString());
+                assertThat(out.toString().replace(System.lineSeparator(), "\n"))
+                        .isEqualTo(expected.getIR().map(ir -> ir + "\n").orElse(""));
+            }
+        } finally {
+            daemon.interrupt();
+            daemon.join();
+            workers.shutdown();
+        }
+        assertThat(socket).doesNotExist();
+    }
+
+    @Test
+    public void existingSocketTest(@TempDir Path dir) throws Exception {
+        ExecutorService workers = Executors.newFixedThreadPool(2);
+        Path file = Files.writeString(dir.resolve("file"), "not a socket");
+        assertThatThrownBy(() -> new CompileDaemon(file, new CompilerService(), workers).serve())
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("is not a socket");
+        assertThat(file).hasContent("not a socket");
+
+        // a socket nobody listens on anymore, as left by a daemon that has been killed
+        Path socket = dir.resolve("sb.sock");
+        try (ServerSocketChannel stale = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            stale.bind(UnixDomainSocketAddress.of(socket));
+        }
+        assertThat(socket).exists();
+
+        Thread daemon = new Thread(() -> {
+            try {
+                new CompileDaemon(socket, new CompilerService(), workers).serve();
+            } catch (IOException e) {
+                // closed by the interruption
+            }
+        });
+        daemon.start();
+        try {
+            Path source = Paths.get("src/test/resources/bigTest.sb");
+            PrintStream discard = new PrintStream(new ByteArrayOutputStream(), true);
+            int status = -1;
+            while (status != 0)
+                try {
+                    status = CompileDaemon.request(socket, source, discard, discard);
+                } catch (IOException e) {
+                    // the stale socket has not been replaced yet
+                    Thread.sleep(10);
+                }
+
+            assertThatThrownBy(() -> new CompileDaemon(socket, new CompilerService(), workers).serve())
+                    .isInstanceOf(IOException.class)
+                    .hasMessageContaining("Another daemon is listening");
+            assertThat(CompileDaemon.request(socket, source, discard, discard)).isEqualTo(0);
+        } finally {
+            daemon.interrupt();
+            daemon.join();
+            workers.shutdown();
+        }
+    }
+}
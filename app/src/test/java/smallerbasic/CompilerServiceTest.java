@@ -0,0 +1,116 @@
+package smallerbasic;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import smallerbasic.AST.nodes.ASTNode;
+import smallerbasic.compiler.LLVM.LLVMCompiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CompilerServiceTest {
+    private static final List<Path> sources = List.of(
+            Paths.get("src/test/resources/bigTest.sb"),
+            Paths.get("src/test/resources/subRoutineTest.sb"),
+            Paths.get("src/test/resources/uninitializedVarTest.sb"),
+            Paths.get("src/test/resources/errors/errors.sb"),
+            Paths.get("src/test/resources/errors/lexingError.sb"),
+            Paths.get("src/test/resources/errors/syntaxError.sb"),
+            Paths.get("src/test/resources/errors/typeError.sb"),
+            Paths.get("src/test/resources/errors/uninitializedWarning.sb")
+    );
+
+    @Test
+    public void diagnosticsTest() {
+        CompilationResult result = new CompilerService().compile("A = 1 + true\nB = C\n");
+
+        assertThat(result.isSuccess()).isFalse();
+        assertThat(result.getIR()).isEmpty();
+        assertThat(result.getError()).contains("Static checks failed");
+        assertThat(result.getDiagnostics())
+                .extracting(Diagnostic::kind)
+                .containsExactly(Diagnostic.Kind.ERROR, Diagnostic.Kind.WARNING);
+    }
+
+    @Test
+    public void warningsDoNotFailTest() {
+        CompilationResult result = new CompilerService().compile("A = B\n");
+
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(result.getIR()).isPresent();
+        assertThat(result.getDiagnostics())
+                .extracting(Diagnostic::kind)
+                .containsExactly(Diagnostic.Kind.WARNING);
+    }
+
+    @Test
+    public void concurrentRequestsTest() throws Exception {
+        CompilerService service = new CompilerService();
+        List<List<Object>> expected = new ArrayList<>();
+        for (Path p : sources)
+            expected.add(summary(service.compile(p)));
+
+        ExecutorService requests = Executors.newFixedThreadPool(16);
+        ExecutorService checks = Executors.newFixedThreadPool(4);
+        try {
+            CompilerService concurrentChecks = new CompilerService(checks);
+            List<Future<List<Object>>> futures = new ArrayList<>();
+            for (int i = 0; i < 20 * sources.size(); i++) {
+                Path p = sources.get(i % sources.size());
+                CompilerService s = i % 2 == 0 ? service : concurrentChecks;
+                futures.add(requests.submit(() -> summary(s.compile(p))));
+            }
+            for (int i = 0; i < futures.size(); i++)
+                assertThat(futures.get(i).get()).isEqualTo(expected.get(i % sources.size()));
+        } finally {
+            requests.shutdown();
+            checks.shutdown();
+        }
+    }
+
+    @Test
+    public void streamingTest(@TempDir Path dir) throws IOException {
+        Path runtime = Files.writeString(dir.resolve("runtime.ll"), "; runtime\n");
+        for (Path p : sources) {
+            CompilationResult expected = new CompilerService().compile(p);
+            for (CompilerService service : List.of(new CompilerService(), new CompilerService(null, new IRCache(dir, Long.MAX_VALUE)))) {
+                StringWriter out = new StringWriter();
+                CompilationResult result = service.compile(p, runtime, out);
+
+                assertThat(result.getIR()).isEmpty();
+                assertThat(result.isSuccess()).isEqualTo(expected.isSuccess());
+                assertThat(result.getError()).isEqualTo(expected.getError());
+                assertThat(result.getDiagnostics()).isEqualTo(expected.getDiagnostics());
+                assertThat(out.toString()).isEqualTo(expected.getIR().map(ir -> "; runtime\n" + ir).orElse(""));
+            }
+        }
+    }
+
+    @Test
+    public void channelTest() throws IOException {
+        ASTNode tree = CompilationUtils.clean(CompilationUtils.parse(
+                CompilationUtils.lex(Paths.get("src/test/resources/subRoutineTest.sb"))));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        new LLVMCompiler().compile(tree, Channels.newChannel(out));
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(new LLVMCompiler().compile(tree));
+    }
+
+    private static List<Object> summary(CompilationResult r) {
+        return List.of(r.getIR(), r.getError(), r.getDiagnostics());
+    }
+}
@@ -0,0 +1,150 @@
+package smallerbasic;
+
+import org.junit.jupiter.api.Test;
+import smallerbasic.AST.nodes.ASTNode;
+import smallerbasic.AST.optimizations.ConstantFolding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static smallerbasic.CompilationUtils.*;
+
+public class ConstantFoldingTest {
+
+    private static ASTNode tree(String source) {
+        return clean(parse(lex(source)));
+    }
+
+    private static ASTNode folded(String source) {
+        return new ConstantFolding().run(tree(source));
+    }
+
+    @Test
+    public void numbersTest() {
+        ConstantFolding pass = new ConstantFolding();
+        ASTNode tree = pass.run(tree("""
+                X = 1 + 2 * 3
+                Y = -(4 - 6)
+                Z = 1 / 4 < 1
+                W = -0 = 0
+                """));
+
+        assertThat(tree).isEqualTo(tree("""
+                X = 7
+                Y = 2
+                Z = true
+                W = true
+                """));
+        assertThat(pass.getStatistics()).containsEntry("folded", 8).containsEntry("propagated", 0);
+    }
+
+    @Test
+    public void stringsAndBoolsTest() {
+        assertThat(folded("""
+                S = "a" + "b" + "c"
+                X = "ab" < "b"
+                Y = "1" = 1
+                Z = 1 <> "1"
+                W = (1 < 2) And ("a" = "b") Or true
+                """)).isEqualTo(tree("""
+                S = "abc"
+                X = true
+                Y = false
+                Z = true
+                W = true
+                """));
+    }
+
+    @Test
+    public void runtimeErrorsTest() {
+        // all of these fail at runtime, which must still happen
+        assertThat(folded("""
+                X = 1 / 0
+                X = 1 + "a"
+                X = "a" - "b"
+                X = "a" < 1
+                X = true = true
+                X = 1 And true
+                """)).isEqualTo(tree("""
+                X = 1 / 0
+                X = 1 + "a"
+                X = "a" - "b"
+                X = "a" < 1
+                X = true = true
+                X = 1 And true
+                """));
+    }
+
+    @Test
+    public void propagationTest() {
+        ConstantFolding pass = new ConstantFolding();
+        ASTNode tree = pass.run(tree("""
+                Sub Show
+                    IO.WriteLine(Half + 1)
+                EndSub
+                Max = 10
+                Half = Max / 2
+                Show()
+                """));
+
+        assertThat(tree).isEqualTo(tree("""
+                Sub Show
+                    IO.WriteLine(6)
+                EndSub
+                Max = 10
+                Half = 5
+                Show()
+                """));
+        assertThat(pass.getStatistics()).containsEntry("folded", 2).containsEntry("propagated", 2);
+    }
+
+    @Test
+    public void noPropagationTest() {
+        String[] sources = {
+                // read before the assignment, directly or through a routine
+                "IO.WriteLine(X)\nX = 1\n",
+                "Sub Show\nIO.WriteLine(X)\nEndSub\nShow()\nX = 1\nShow()\n",
+                // assigned twice, or not at the top level
+                "X = 1\nX = 2\nIO.WriteLine(X)\n",
+                "If (IO.ReadLine() = \"y\") Then\nX = 1\nEndIf\nIO.WriteLine(X)\n",
+                // the assignment may be skipped
+                "Goto skip\nX = 1\nskip:\nIO.WriteLine(X)\n",
+                // For variables and arrays
+                "X = 1\nFor X = 1 To 3\nEndFor\nIO.WriteLine(X)\n",
+                "X = 1\nX[1] = 2\nIO.WriteLine(X)\n",
+        };
+        for (String source : sources)
+            assertThat(folded(source)).as(source).isEqualTo(tree(source));
+    }
+
+    @Test
+    public void backwardJumpTest() {
+        assertThat(folded("""
+                again:
+                X = 2
+                IO.WriteLine(X * X)
+                If (IO.ReadLine() = "y") Then
+                    Goto again
+                EndIf
+                """)).isEqualTo(tree("""
+                again:
+                X = 2
+                IO.WriteLine(4)
+                If (IO.ReadLine() = "y") Then
+                    Goto again
+                EndIf
+                """));
+    }
+
+    @Test
+    public void compilationTest() {
+        CompilationResult result = new CompilerService().compile("Max = 1000\nIO.WriteLine(Max * 2 + 1)\n");
+
+        assertThat(result.getPassStatistics().get(0)).satisfies(p -> {
+            assertThat(p.name()).isEqualTo("constant-folding");
+            assertThat(p.counters()).containsEntry("folded", 2).containsEntry("propagated", 1);
+            assertThat(p.toString()).startsWith("constant-folding: 2 folded, 1 propagated (");
+        });
+        assertThat(result.getIR()).hasValueSatisfying(ir -> assertThat(ir)
+                .contains("double 2001.0")
+                .doesNotContain("@MULT(", "@PLUS(", "fmul"));
+    }
+}
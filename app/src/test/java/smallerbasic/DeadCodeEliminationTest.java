@@ -0,0 +1,163 @@
+package smallerbasic;
+
+import org.junit.jupiter.api.Test;
+import smallerbasic.AST.nodes.ASTNode;
+import smallerbasic.AST.optimizations.DeadCodeElimination;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static smallerbasic.CompilationUtils.*;
+
+public class DeadCodeEliminationTest {
+
+    private static ASTNode tree(String source) {
+        return clean(parse(lex(source)));
+    }
+
+    private static ASTNode eliminated(String source) {
+        return new DeadCodeElimination().run(tree(source));
+    }
+
+    @Test
+    public void unreachableTest() {
+        DeadCodeElimination pass = new DeadCodeElimination();
+        ASTNode tree = pass.run(tree("""
+                Goto skip
+                IO.WriteLine("never")
+                If (IO.ReadLine() = "y") Then
+                    IO.WriteLine("never")
+                EndIf
+                skip:
+                While (IO.ReadLine() = "y")
+                    Goto skip
+                    IO.WriteLine("never")
+                EndWhile
+                """));
+
+        assertThat(tree).isEqualTo(tree("""
+                Goto skip
+                skip:
+                While (IO.ReadLine() = "y")
+                    Goto skip
+                EndWhile
+                """));
+        assertThat(pass.getStatistics())
+                .containsEntry("unreachable", 4)
+                .containsEntry("uncalled", 0)
+                .containsEntry("unused", 0);
+    }
+
+    @Test
+    public void uncalledTest() {
+        DeadCodeElimination pass = new DeadCodeElimination();
+        ASTNode tree = pass.run(tree("""
+                Sub First
+                    Second()
+                EndSub
+                Sub Second
+                    IO.WriteLine(1)
+                EndSub
+                Sub Unused
+                    Unused()
+                EndSub
+                Sub OnlyAfterGoto
+                    IO.WriteLine(2)
+                EndSub
+                First()
+                Goto end
+                OnlyAfterGoto()
+                end:
+                """));
+
+        assertThat(tree).isEqualTo(tree("""
+                Sub First
+                    Second()
+                EndSub
+                Sub Second
+                    IO.WriteLine(1)
+                EndSub
+                First()
+                Goto end
+                end:
+                """));
+        assertThat(pass.getStatistics()).containsEntry("uncalled", 2);
+    }
+
+    @Test
+    public void unusedTest() {
+        DeadCodeElimination pass = new DeadCodeElimination();
+        ASTNode tree = pass.run(tree("""
+                X = 1
+                Y = X
+                Z = Y
+                W = 2
+                IO.WriteLine(W)
+                V = IO.ReadLine()
+                """));
+
+        assertThat(tree).isEqualTo(tree("""
+                W = 2
+                IO.WriteLine(W)
+                V = IO.ReadLine()
+                """));
+        assertThat(pass.getStatistics()).containsEntry("unused", 3);
+    }
+
+    @Test
+    public void keptTest() {
+        String[] sources = {
+                // the value may fail, or have effects
+                "X = 1 / 0\n",
+                "X = IO.ReadLine()\n",
+                "X = A[1]\n",
+                // arrays and For variables
+                "A[1] = 2\n",
+                "I = 5\nFor I = 1 To 3\nEndFor\n",
+                // read by itself, or in a routine
+                "X = X\n",
+                "Sub Show\nIO.WriteLine(X)\nEndSub\nX = 1\nShow()\n",
+        };
+        for (String source : sources)
+            assertThat(eliminated(source)).as(source).isEqualTo(tree(source));
+    }
+
+    @Test
+    public void failingCopyTest() {
+        // copying a null value or an array fails, so the copies are kept and what follows them is never run
+        String[][] cases = {
+                {"X = Y\nIO.WriteLine(\"done\")\n", "X = Y\n"},
+                {"A[1] = 2\nX = A\nIO.WriteLine(\"done\")\n", "A[1] = 2\nX = A\n"},
+        };
+        for (String[] c : cases) {
+            DeadCodeElimination pass = new DeadCodeElimination();
+            assertThat(pass.run(tree(c[0]))).as(c[0]).isEqualTo(tree(c[1]));
+            assertThat(pass.getStatistics()).as(c[0]).containsEntry("unreachable", 1).containsEntry("unused", 0);
+        }
+    }
+
+    @Test
+    public void copiedValueTest() {
+        // Y can only be a number when it is copied
+        assertThat(eliminated("Y = IO.ReadLine() + 0\nX = Y\n"))
+                .isEqualTo(tree("Y = IO.ReadLine() + 0\n"));
+    }
+
+    @Test
+    public void compilationTest() {
+        CompilationResult result = new CompilerService().compile("""
+                Sub Unused
+                    IO.WriteLine("never printed")
+                EndSub
+                Max = 1000
+                IO.WriteLine(Max * 2)
+                """);
+
+        assertThat(result.getPassStatistics()).hasSize(2);
+        assertThat(result.getPassStatistics().get(1)).satisfies(p -> {
+            assertThat(p.name()).isEqualTo("dead-code");
+            assertThat(p.toString()).startsWith("dead-code: 1 unreachable, 1 uncalled, 1 unused (");
+        });
+        assertThat(result.getIR()).hasValueSatisfying(ir -> assertThat(ir)
+                .contains("double 2000.0")
+                .doesNotContain("Unused", "never printed", "double 1000.0"));
+    }
+}
@@ -0,0 +1,192 @@
+package smallerbasic;
+
+import org.junit.jupiter.api.Test;
+import smallerbasic.AST.ASTMonoidVisitor;
+import smallerbasic.AST.ASTWalker;
+import smallerbasic.AST.FlatAST;
+import smallerbasic.AST.analysis.*;
+import smallerbasic.AST.nodes.*;
+import smallerbasic.AST.staticChecks.Check;
+import smallerbasic.AST.staticChecks.CheckEngine;
+import smallerbasic.compiler.LLVM.LLVMCompiler;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static smallerbasic.CompilationUtils.*;
+
+public class DeepTreeTest {
+
+    private static final int DEPTH = 100_000;
+
+    /**
+     * A stack much smaller than the default one, so that any recursion on the depth of the tree overflows.
+     */
+    private static final long STACK_SIZE = 256 * 1024;
+
+    private static <T> T onSmallStack(Supplier<T> s) throws Throwable {
+        AtomicReference<T> result = new AtomicReference<>();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread t = new Thread(null, () -> {
+            try {
+                result.set(s.get());
+            } catch (Throwable e) {
+                error.set(e);
+            }
+        }, "small-stack", STACK_SIZE);
+        t.start();
+        t.join();
+        if (error.get() != null)
+            throw error.get();
+        return result.get();
+    }
+
+    private static List<Boolean> check(ASTNode tree) {
+        List<Check> checks = new ArrayList<>();
+        CompilerService.ERRORS.forEach(c -> checks.add(c.get()));
+        CompilerService.WARNINGS.forEach(c -> checks.add(c.get()));
+        return new CheckEngine(checks).run(tree);
+    }
+
+    private static long count(String text, String s) {
+        return text.lines().filter(x -> x.contains(s)).count();
+    }
+
+    @Test
+    public void deepStatementsTest() throws Throwable {
+        IdentifierASTNode x = new IdentifierASTNode("X");
+        StatementASTNode stmt = new AssStmtASTNode(x, new NumberLiteralASTNode(1));
+        for (int i = 0; i < DEPTH; i++)
+            stmt = switch (i % 3) {
+                case 0 -> new WhileLoopASTNode(new BoolLiteralASTNode(true), List.of(stmt));
+                case 1 -> new IfThenASTNode(new BoolLiteralASTNode(false), List.of(stmt), List.of());
+                default -> new ForLoopASTNode(x, new NumberLiteralASTNode(0), new NumberLiteralASTNode(1), List.of(stmt));
+            };
+        ASTNode tree = new ProgramASTNode(List.of(stmt));
+
+        List<Boolean> results = onSmallStack(() -> check(tree));
+        String ir = onSmallStack(() -> new LLVMCompiler().compile(tree));
+
+        assertThat(results).containsOnly(true);
+        assertThat(count(ir, ".end:")).isEqualTo(DEPTH);
+    }
+
+    @Test
+    public void deepExpressionsTest() throws Throwable {
+        IdentifierASTNode x = new IdentifierASTNode("X");
+        ExpressionASTNode expr = new NumberLiteralASTNode(1);
+        for (int i = 0; i < DEPTH; i++)
+            expr = i % 2 == 0
+                    ? new UnaryMinusASTNode(expr)
+                    : new BinOpASTNode(BinOpASTNode.BinOp.PLUS, new NumberLiteralASTNode(i), expr);
+        ASTNode tree = new ProgramASTNode(List.of(
+                new AssStmtASTNode(x, expr),
+                new ExternalFunctionCallASTNode("IO", "WriteLine", List.of(new ArrayASTNode(x, List.of(expr))))
+        ));
+
+        List<Boolean> results = onSmallStack(() -> check(tree));
+        String ir = onSmallStack(() -> new LLVMCompiler().compile(tree));
+
+        assertThat(results).containsOnly(true);
+        assertThat(count(ir, "fsub double 0x0000000000000000,")).isEqualTo(DEPTH);
+        assertThat(count(ir, "fadd double")).isEqualTo(DEPTH);
+    }
+
+    @Test
+    public void deepSourceTest() throws Throwable {
+        String source = "X = 1" + " + 1".repeat(DEPTH) + "\nIO.WriteLine(X)\n";
+
+        CompilationResult result = onSmallStack(() -> new CompilerService().compile(source));
+
+        assertThat(result.getDiagnostics()).isEmpty();
+        // the whole sum is folded
+        assertThat(result.getPassStatistics().get(0).counters()).containsEntry("folded", DEPTH);
+        assertThat(result.getIR()).hasValueSatisfying(ir -> assertThat(ir)
+                .doesNotContain("fadd double")
+                .contains("double " + (DEPTH + 1.0)));
+    }
+
+    @Test
+    public void deepFlatTest() throws Throwable {
+        ExpressionASTNode expr = new NumberLiteralASTNode(1);
+        for (int i = 0; i < DEPTH; i++)
+            expr = new BinOpASTNode(BinOpASTNode.BinOp.PLUS, expr, new NumberLiteralASTNode(i));
+        ASTNode tree = new ProgramASTNode(List.of(new AssStmtASTNode(new IdentifierASTNode("X"), expr)));
+
+        FlatAST flat = onSmallStack(() -> FlatAST.of(tree));
+        ASTNode back = onSmallStack(flat::toTree);
+
+        assertThat(flat.size()).isEqualTo(2 * DEPTH + 4);
+        assertThat(back.hashCode()).isEqualTo(tree.hashCode());
+    }
+
+    @Test
+    public void deepTypeInferenceTest() throws Throwable {
+        IdentifierASTNode x = new IdentifierASTNode("X");
+        StatementASTNode innermost = new AssStmtASTNode(x, new UnaryMinusASTNode(x));
+        StatementASTNode stmt = innermost;
+        for (int i = 0; i < DEPTH; i++)
+            stmt = switch (i % 3) {
+                case 0 -> new WhileLoopASTNode(new BoolLiteralASTNode(true), List.of(stmt));
+                case 1 -> new IfThenASTNode(new BoolLiteralASTNode(false), List.of(stmt), List.of());
+                default -> new ForLoopASTNode(x, new NumberLiteralASTNode(0), new NumberLiteralASTNode(1), List.of(stmt));
+            };
+        ASTNode tree = new ProgramASTNode(List.of(stmt));
+
+        TypeAnnotations types = onSmallStack(() -> TypeInference.run(tree));
+
+        assertThat(types.isReachable(innermost)).isTrue();
+        assertThat(types.before(innermost, Location.ofVariable("X"))).isEqualTo(TypeSet.of(ValueType.NUMBER));
+    }
+
+    /**
+     * A visitor printing the nodes it visits, to compare the order of the walk with the one of the visitor.
+     */
+    private static class NodeNames implements ASTMonoidVisitor<String> {
+        @Override
+        public String empty() {
+            return "";
+        }
+
+        @Override
+        public String compose(String o1, String o2) {
+            return o1 + o2;
+        }
+
+        @Override
+        public String visit(IdentifierASTNode n) {
+            return n.getName() + " ";
+        }
+
+        @Override
+        public String visit(NumberLiteralASTNode n) {
+            return n.getValue() + " ";
+        }
+
+        @Override
+        public String visit(StringLiteralASTNode n) {
+            return n.getValue() + " ";
+        }
+
+        @Override
+        public String visit(LabelNameASTNode n) {
+            return n.getText() + " ";
+        }
+
+        @Override
+        public String visit(RoutineNameASTNode n) {
+            return n.getText() + " ";
+        }
+    }
+
+    @Test
+    public void walkerOrderTest() throws Exception {
+        ASTNode tree = clean(parse(lex(Paths.get("src/test/resources/bigTest.sb"))));
+
+        assertThat(ASTWalker.reduce(new NodeNames(), tree)).isEqualTo(tree.accept(new NodeNames()));
+    }
+}
@@ -0,0 +1,221 @@
+package smallerbasic;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import smallerbasic.AST.ASTMonoidVisitor;
+import smallerbasic.AST.ASTWalker;
+import smallerbasic.AST.FlatAST;
+import smallerbasic.AST.Scope;
+import smallerbasic.AST.nodes.*;
+import smallerbasic.compiler.LLVM.LLVMCompiler;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static smallerbasic.CompilationUtils.*;
+
+public class FlatASTTest {
+
+    private static ASTNode tree(String file) throws IOException {
+        return parseToAST(lex(Paths.get("src/test/resources/" + file)), d -> {});
+    }
+
+    private static List<Optional<SourceSpan>> spans(ASTNode tree) {
+        List<Optional<SourceSpan>> l = new ArrayList<>();
+        ASTWalker.walk(tree, new ASTWalker.Listener() {
+            @Override
+            public void exit(ASTNode n) {
+                l.add(n.getSpan());
+            }
+        });
+        return l;
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "arraySetTest.sb", "bigTest.sb", "forLoopTest.sb", "illegalLabelsTest.sb", "multiArrayTest.sb",
+            "nestedForTest.sb", "subRoutineTest.sb", "test1.sb", "test2.sb", "test3.sb", "test4.sb",
+            "uninitializedVarTest.sb", "whileTest.sb"})
+    public void roundTripTest(String file) throws IOException {
+        ASTNode tree = tree(file);
+        FlatAST flat = FlatAST.of(tree);
+        ASTNode back = flat.toTree();
+
+        assertThat(back).isEqualTo(tree);
+        assertThat(spans(back)).isEqualTo(spans(tree));
+        assertThat(new LLVMCompiler().compile(back)).isEqualTo(new LLVMCompiler().compile(tree));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"bigTest.sb", "illegalLabelsTest.sb", "subRoutineTest.sb", "test4.sb"})
+    public void serializationTest(String file) throws IOException {
+        ASTNode tree = tree(file);
+
+        ASTNode back = FlatAST.read(new ByteArrayInputStream(bytes(tree))).toTree();
+
+        assertThat(back).isEqualTo(tree);
+        assertThat(spans(back)).isEqualTo(spans(tree));
+    }
+
+    private static byte[] bytes(ASTNode tree) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FlatAST.of(tree).write(out);
+        return out.toByteArray();
+    }
+
+    @Test
+    public void serializationWithoutSpansTest() throws IOException {
+        RoutineNameASTNode name = new RoutineNameASTNode("f");
+        ASTNode tree = new ProgramASTNode(List.of(
+                new RoutineDeclASTNode(name, List.of(new GotoStmtASTNode(new LabelNameASTNode("l", Scope.ofRoutine(name))))),
+                new AssStmtASTNode(new ArrayASTNode(new IdentifierASTNode("A"), List.of(new NumberLiteralASTNode(-0.0))),
+                        new ExternalFunctionCallASTNode("Text", "Append", List.of(
+                                new StringLiteralASTNode("\u00e8\n"), new NumberLiteralASTNode(Double.NaN)))),
+                new IfThenASTNode(new BoolLiteralASTNode(false), List.of(), List.of(new RoutineCallASTNode(name)))));
+
+        ASTNode back = FlatAST.read(new ByteArrayInputStream(bytes(tree))).toTree();
+
+        assertThat(back).isEqualTo(tree);
+        assertThat(back.getSpan()).isEmpty();
+    }
+
+    @Test
+    public void malformedSerializationTest() throws IOException {
+        byte[] bytes = bytes(tree("bigTest.sb"));
+
+        assertThatThrownBy(() -> FlatAST.read(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length / 2))))
+                .isInstanceOf(IOException.class);
+        bytes[3]++;
+        assertThatThrownBy(() -> FlatAST.read(new ByteArrayInputStream(bytes)))
+                .isInstanceOf(IOException.class)
+                .hasMessage("Unknown format");
+    }
+
+    @Test
+    public void hugeLengthsTest() {
+        // a single string, and then no strings but as many numbers, of the largest length
+        byte[] string = {0, 0, 0, 1, 1, -1, -1, -1, -1, 7, 'X'};
+        byte[] numbers = {0, 0, 0, 1, 0, -1, -1, -1, -1, 7, 0, 0, 0, 0, 0, 0, 0, 0};
+
+        assertThatThrownBy(() -> FlatAST.read(new ByteArrayInputStream(string)))
+                .isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> FlatAST.read(new ByteArrayInputStream(numbers)))
+                .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void wrongKindsTest() throws IOException {
+        assertThatThrownBy(() -> FlatAST.read(new ByteArrayInputStream(bytes(new IdentifierASTNode("X")))))
+                .isInstanceOf(IOException.class)
+                .hasMessage("The root is not a program");
+        // the assignment of a program to X, without spans: the header of the assignment takes two bytes
+        byte[] bytes = {
+                0, 0, 0, 1,
+                1, 1, 'X',
+                0,
+                3,
+                (byte) FlatAST.Kind.IDENTIFIER.ordinal(), 0,
+                (byte) FlatAST.Kind.PROGRAM.ordinal(),
+                (byte) (0x80 | FlatAST.Kind.ASSIGNMENT.ordinal()), 2 << 1,
+        };
+        assertThatThrownBy(() -> FlatAST.read(new ByteArrayInputStream(bytes)))
+                .isInstanceOf(IOException.class)
+                .hasMessage("Wrong kind of child 1 for ASSIGNMENT node 2");
+    }
+
+    @Test
+    public void layoutTest() {
+        ASTNode tree = clean(parse(lex("""
+                X = -(1 + 2)
+                If (X = 1) Then
+                    IO.WriteLine("a")
+                Else
+                    Goto finish
+                EndIf
+                finish:
+                """)));
+        FlatAST flat = FlatAST.of(tree);
+
+        int root = flat.root();
+        assertThat(flat.kind(root)).isEqualTo(FlatAST.Kind.PROGRAM);
+        assertThat(flat.first(root)).isZero();
+        assertThat(flat.childCount(root)).isEqualTo(3);
+
+        int ass = flat.child(root, 0);
+        int minus = flat.child(ass, 1);
+        int plus = flat.child(minus, 0);
+        assertThat(flat.kind(ass)).isEqualTo(FlatAST.Kind.ASSIGNMENT);
+        assertThat(flat.text(flat.child(ass, 0))).isEqualTo("X");
+        assertThat(flat.kind(minus)).isEqualTo(FlatAST.Kind.UNARY_MINUS);
+        assertThat(flat.op(plus)).isEqualTo(BinOpASTNode.BinOp.PLUS);
+        assertThat(flat.number(flat.child(plus, 1))).isEqualTo(2.0);
+        assertThat(flat.first(ass)).isEqualTo(flat.child(ass, 0));
+
+        int ifThen = flat.child(root, 1);
+        int call = flat.child(ifThen, 1);
+        int jump = flat.child(ifThen, 2);
+        assertThat(flat.kind(ifThen)).isEqualTo(FlatAST.Kind.IF_THEN_ELSE);
+        assertThat(flat.trueBodySize(ifThen)).isEqualTo(1);
+        assertThat(flat.text(call)).isEqualTo("IO");
+        assertThat(flat.function(call)).isEqualTo("WriteLine");
+        assertThat(flat.text(flat.child(jump, 0))).isEqualTo("finish");
+        assertThat(flat.routine(flat.child(jump, 0))).isEmpty();
+    }
+
+    @Test
+    public void acceptTest() throws IOException {
+        ASTNode tree = tree("subRoutineTest.sb");
+        FlatAST flat = FlatAST.of(tree);
+
+        int routine = flat.child(flat.root(), 0);
+        ASTNode node = flat.node(routine);
+
+        ASTMonoidVisitor<List<String>> names = new ASTMonoidVisitor<>() {
+            @Override
+            public List<String> empty() {
+                return List.of();
+            }
+
+            @Override
+            public List<String> compose(List<String> o1, List<String> o2) {
+                List<String> l = new ArrayList<>(o1);
+                l.addAll(o2);
+                return l;
+            }
+
+            @Override
+            public List<String> visit(IdentifierASTNode n) {
+                return List.of(n.getName());
+            }
+        };
+        ASTNode expected = ((ProgramASTNode) tree).getContents().get(0);
+
+        assertThat(flat.accept(routine, names)).isEqualTo(expected.accept(names)).containsExactly("B", "B");
+        assertThat(node).isEqualTo(expected);
+        assertThat(flat.toTree()).isEqualTo(tree);
+        assertThat(((ProgramASTNode) flat.toTree()).getContents().get(0)).isSameAs(node);
+    }
+
+    @Test
+    public void scopeTest() {
+        RoutineNameASTNode name = new RoutineNameASTNode("f");
+        LabelNameASTNode label = new LabelNameASTNode("l", Scope.ofRoutine(name));
+        ASTNode tree = new ProgramASTNode(List.of(
+                new RoutineDeclASTNode(name, List.of(new LabelDeclASTNode(label), new GotoStmtASTNode(label))),
+                new IfThenASTNode(new BoolLiteralASTNode(true), List.of(new RoutineCallASTNode(name)), List.of())));
+        FlatAST flat = FlatAST.of(tree);
+
+        assertThat(flat.toTree()).isEqualTo(tree);
+        assertThat(flat.routine(flat.child(flat.child(flat.child(flat.root(), 0), 1), 0))).contains("f");
+        assertThat(flat.kind(flat.child(flat.root(), 1))).isEqualTo(FlatAST.Kind.IF_THEN_ELSE);
+    }
+}
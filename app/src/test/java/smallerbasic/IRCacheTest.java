@@ -0,0 +1,90 @@
+package smallerbasic;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IRCacheTest {
+    private static final String program = "A = B\nIO.WriteLine(A)\n";
+
+    @Test
+    public void hitTest(@TempDir Path dir) throws IOException {
+        IRCache cache = new IRCache(dir, Long.MAX_VALUE);
+        CompilerService service = new CompilerService(null, cache);
+
+        CompilationResult first = service.compile(program);
+        CompilationResult second = service.compile(program);
+
+        assertThat(second.getIR()).isEqualTo(first.getIR());
+        assertThat(second.getDiagnostics()).isEqualTo(first.getDiagnostics()).isNotEmpty();
+        IRCache.Stats stats = cache.stats();
+        assertThat(stats.hits()).isEqualTo(1);
+        assertThat(stats.misses()).isEqualTo(1);
+        assertThat(stats.entries()).isEqualTo(1);
+    }
+
+    @Test
+    public void failuresNotCachedTest(@TempDir Path dir) throws IOException {
+        IRCache cache = new IRCache(dir, Long.MAX_VALUE);
+        CompilerService service = new CompilerService(null, cache);
+
+        service.compile("A = 1 + true\n");
+        CompilationResult result = service.compile("A = 1 + true\n");
+
+        assertThat(result.isSuccess()).isFalse();
+        assertThat(cache.stats().entries()).isZero();
+        assertThat(cache.stats().hits()).isZero();
+    }
+
+    @Test
+    public void evictionTest(@TempDir Path dir) throws IOException {
+        CompilerService uncached = new CompilerService();
+        long entrySize;
+        {
+            IRCache cache = new IRCache(dir.resolve("probe"), Long.MAX_VALUE);
+            cache.put("A = 0\n", uncached.compile("A = 0\n"));
+            entrySize = cache.stats().size();
+        }
+        IRCache cache = new IRCache(dir.resolve("cache"), 3 * entrySize);
+        for (int i = 0; i < 5; i++) {
+            String source = "A = " + i + "\n";
+            cache.put(source, uncached.compile(source));
+            // entries used in the same millisecond would be indistinguishable
+            sleep();
+        }
+        assertThat(cache.stats().entries()).isEqualTo(3);
+        assertThat(cache.get("A = 0\n")).isEmpty();
+        assertThat(cache.get("A = 4\n")).isPresent();
+    }
+
+    @Test
+    public void sharedDirectoryTest(@TempDir Path dir) throws Exception {
+        // a file can be locked only once by a process, so the two instances must not lock it at the same time
+        IRCache[] caches = {new IRCache(dir, Long.MAX_VALUE), new IRCache(dir.resolve("."), Long.MAX_VALUE)};
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            IRCache cache = caches[i % 2];
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 50; j++)
+                    cache.get(program);
+            });
+            threads[i].start();
+        }
+        for (Thread t : threads)
+            t.join();
+
+        assertThat(caches[0].stats().misses()).isEqualTo(200);
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(20);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package smallerbasic;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import smallerbasic.AST.analysis.TypeAnnotations;
+import smallerbasic.AST.analysis.TypeInference;
+import smallerbasic.AST.nodes.ASTNode;
+import smallerbasic.AST.nodes.ProgramASTNode;
+import smallerbasic.AST.nodes.RoutineDeclASTNode;
+import smallerbasic.compiler.IR.*;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static smallerbasic.CompilationUtils.*;
+
+public class IRTest {
+
+    private static Function main(String source) {
+        ASTNode tree = clean(parse(lex(source)));
+        Function f = Lowering.lowerMain(tree, TypeInference.run(tree));
+        SSAConstruction.run(f);
+        return f;
+    }
+
+    @Test
+    public void loweringTest() {
+        Function f = main("""
+                X = 1
+                While (X < 10)
+                    X = X * 2
+                EndWhile
+                IO.WriteLine(X)
+                """);
+
+        assertThat(Verifier.verify(f)).isEmpty();
+        assertThat(IRPrinter.print(f)).isEqualTo("""
+                function @main
+                b0.entry:
+                  %4 = alloc
+                  store @X, 1.0
+                  jump b1.begin
+                b1.begin:
+                  %0 = load number @X
+                  %1 = lt %0, 10.0
+                  branch %1, b1.continue, b1.end
+                b1.continue:
+                  %2 = load number @X
+                  %3 = mul %2, 2.0
+                  store @X, %3
+                  jump b1.begin
+                b1.end:
+                  call IO.WriteLine(%4, @X) line 5
+                  return
+                """);
+    }
+
+    @Test
+    public void phiTest() {
+        Function f = main("""
+                If (IO.ReadLine() = "y") Then
+                    X = 1
+                EndIf
+                IO.WriteLine(X - 1)
+                """);
+
+        assertThat(Verifier.verify(f)).isEmpty();
+        assertThat(IRPrinter.print(f))
+                .contains("b2.fast:", "b2.slow:", "call MINUS(")
+                .containsPattern("b2.end:\n  %\\d+ = phi \\[%\\d+, b2.fast], \\[%\\d+, b2.slow]\n");
+    }
+
+    @Test
+    public void unreachableTest() {
+        Function f = main("""
+                Goto skip
+                IO.WriteLine("unreachable")
+                skip:
+                IO.WriteLine("reachable")
+                """);
+
+        assertThat(Verifier.verify(f)).isEmpty();
+        assertThat(IRPrinter.print(f))
+                .contains("call IO.WriteLine(%1, @\"reachable\")")
+                .doesNotContain("@\"unreachable\"");
+    }
+
+    @Test
+    public void verifierTest() {
+        Function f = new Function(null);
+        Block entry = f.getEntry();
+        Block loop = f.newBlock(f.newGroup(), "loop");
+        Register x = f.newRegister(Type.NUMBER);
+        entry.add(new Binary(x, Operator.ADD, x, new BoolConstant(true)));
+        entry.setTerminator(new Jump(loop));
+        f.place(loop);
+        loop.add(new Phi(f.newRegister(Type.NUMBER), List.of(x), List.of(entry)));
+        loop.setTerminator(new Branch(x, entry, loop));
+
+        assertThat(Verifier.verify(f)).containsExactlyInAnyOrder(
+                "the entry block b0.entry has predecessors",
+                "%0 is used where its definition does not dominate in b0.entry: %0 = add %0, true",
+                "true is not of type NUMBER in b0.entry: %0 = add %0, true",
+                "no value for b1.loop in b1.loop: %1 = phi [%0, b0.entry]",
+                "the condition is not a boolean in b1.loop: branch %0, b0.entry, b1.loop");
+
+        Function unterminated = new Function(null);
+        assertThat(Verifier.verify(unterminated)).containsExactly("b0.entry has no terminator");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "arraySetTest.sb", "bigTest.sb", "forLoopTest.sb", "illegalLabelsTest.sb", "multiArrayTest.sb",
+            "nestedForTest.sb", "subRoutineTest.sb", "test1.sb", "test2.sb", "test3.sb", "test4.sb",
+            "uninitializedVarTest.sb", "whileTest.sb"})
+    public void resourcesTest(String file) throws IOException {
+        ASTNode tree = parseToAST(lex(Paths.get("src/test/resources/" + file)), d -> {});
+        TypeAnnotations types = TypeInference.run(tree);
+        Function main = Lowering.lowerMain(tree, types);
+        SSAConstruction.run(main);
+        assertThat(Verifier.verify(main)).as(IRPrinter.print(main)).isEmpty();
+        for (ASTNode n : ((ProgramASTNode) tree).getContents())
+            if (n instanceof RoutineDeclASTNode r) {
+                Function routine = Lowering.lowerRoutine(r, types);
+                SSAConstruction.run(routine);
+                assertThat(Verifier.verify(routine)).as(IRPrinter.print(routine)).isEmpty();
+            }
+    }
+}
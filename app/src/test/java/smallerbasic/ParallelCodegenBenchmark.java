@@ -0,0 +1,62 @@
+package smallerbasic;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import smallerbasic.AST.nodes.ASTNode;
+import smallerbasic.compiler.LLVM.LLVMCompiler;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static smallerbasic.CompilationUtils.lex;
+import static smallerbasic.CompilationUtils.parseToAST;
+
+/**
+ * Measures the code generation of a program with thousands of routines, on the calling thread and on pools
+ * of increasing size.
+ * The IR is written to a stream that discards it, so that only the generation is measured.
+ * Run with {@code gradle benchmark}.
+ */
+@Tag("benchmark")
+public class ParallelCodegenBenchmark {
+    private static final int WARMUP = 10;
+    private static final int RUNS = 20;
+    private static final int ROUTINES = 5000;
+
+    private static final Writer NULL = Writer.nullWriter();
+
+    /**
+     * @return The total time in milliseconds spent generating the code of {@code tree} {@link #RUNS} times.
+     */
+    private static double measure(ASTNode tree, LLVMCompiler compiler) throws IOException {
+        for (int i = 0; i < WARMUP; i++)
+            compiler.compile(tree, NULL);
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++)
+            compiler.compile(tree, NULL);
+        return (System.nanoTime() - start) / 1e6;
+    }
+
+    @Test
+    public void parallelCodegenBenchmark() throws IOException {
+        String source = CodegenTest.routines(ROUTINES);
+        ASTNode tree = parseToAST(lex(CharStreams.fromString(source), d -> {}), d -> {});
+
+        double sequential = measure(tree, new LLVMCompiler());
+        System.out.printf("%-10s %12s %9s%n", "threads", "time (ms)", "speedup");
+        System.out.printf("%-10s %12.1f %9s%n", "none", sequential, "");
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= Math.max(cores, 8); threads *= 2) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                double time = measure(tree, new LLVMCompiler(executor));
+                System.out.printf("%-10d %12.1f %8.1fx%n", threads, time, sequential / time);
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+}
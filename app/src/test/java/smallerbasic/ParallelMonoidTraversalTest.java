@@ -0,0 +1,83 @@
+package smallerbasic;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import smallerbasic.AST.ASTMonoidVisitor;
+import smallerbasic.AST.ParallelMonoidTraversal;
+import smallerbasic.AST.nodes.*;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static smallerbasic.CompilationUtils.*;
+
+public class ParallelMonoidTraversalTest {
+
+    /**
+     * Collects the names of all identifiers, in order.
+     * {@code compose} is associative but not commutative, so any reordering would show in the result.
+     */
+    private static class NamesVisitor implements ASTMonoidVisitor<List<String>> {
+        @Override
+        public List<String> empty() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public List<String> compose(List<String> o1, List<String> o2) {
+            List<String> l = new ArrayList<>(o1);
+            l.addAll(o2);
+            return l;
+        }
+
+        @Override
+        public List<String> visit(IdentifierASTNode n) {
+            return List.of(n.getName());
+        }
+
+        @Override
+        public List<String> visit(RoutineNameASTNode n) {
+            return List.of(n.getText());
+        }
+    }
+
+    private static final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "bigTest.sb",
+            "forLoopTest.sb",
+            "multiArrayTest.sb",
+            "nestedForTest.sb",
+            "subRoutineTest.sb",
+            "whileTest.sb"
+    })
+    void sameAsSequentialTest(String path) throws IOException {
+        ASTNode tree = clean(parse(lex(Paths.get("src/test/resources/" + path))));
+
+        assertThat(new ParallelMonoidTraversal<>(new NamesVisitor(), pool, 1).run(tree))
+                .isEqualTo(tree.accept(new NamesVisitor()));
+    }
+
+    @Test
+    void largeProgramTest() {
+        List<DeclOrStmtASTNode> contents = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            List<StatementASTNode> body = new ArrayList<>();
+            for (int j = 0; j < 100; j++)
+                body.add(new AssStmtASTNode(new IdentifierASTNode("X" + i + "_" + j), new NumberLiteralASTNode(j)));
+            contents.add(new RoutineDeclASTNode(new RoutineNameASTNode("R" + i),
+                    List.of(new WhileLoopASTNode(new IdentifierASTNode("C" + i), body))));
+        }
+        ASTNode tree = new ProgramASTNode(contents);
+
+        assertThat(new ParallelMonoidTraversal<>(new NamesVisitor(), pool, 16).run(tree))
+                .isEqualTo(tree.accept(new NamesVisitor()));
+    }
+}
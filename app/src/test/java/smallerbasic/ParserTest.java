@@ -9,7 +9,10 @@ import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.ValueSource;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatNoException;
@@ -153,4 +156,46 @@ public class ParserTest {
         parser.getInterpreter().setPredictionMode(PredictionMode.LL_EXACT_AMBIG_DETECTION);
         parser.program();
     }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "bigTest.sb",
+            "subRoutineTest.sb",
+            "errors/lexingError.sb",
+            "errors/syntaxError.sb",
+            "errors/errors.sb"
+    })
+    void twoStageFileTest(String path) throws IOException {
+        twoStageTest(Files.readString(Paths.get("src/test/resources/" + path)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "A = 3 ! 4\nFor X = 1 Ti 3\nEndFor\nB = 1\n",
+            "A = 1 $ 2\nIf (A Then\nEndIf\nB = 2 # 3\n",
+            "X = 1 + 2 * 3 - 4 / 5 < 6 And 7 = 8 Or 9 <> (10 - -11)\n",
+            "@\n"
+    })
+    void twoStageTest(String text) {
+        List<Diagnostic> expected = new ArrayList<>();
+        String expectedTree;
+        try {
+            TokenStream tokens = CompilationUtils.lex(CharStreams.fromString(text), expected::add);
+            expectedTree = CompilationUtils.parse(tokens, expected::add, false).toStringTree();
+        } catch (CompilationError e) {
+            expectedTree = null;
+        }
+
+        List<Diagnostic> actual = new ArrayList<>();
+        String actualTree;
+        try {
+            TokenStream tokens = CompilationUtils.lex(CharStreams.fromString(text), actual::add);
+            actualTree = CompilationUtils.parse(tokens, actual::add).toStringTree();
+        } catch (CompilationError e) {
+            actualTree = null;
+        }
+
+        assertThat(actual).isEqualTo(expected);
+        assertThat(actualTree).isEqualTo(expectedTree);
+    }
 }
@@ -0,0 +1,85 @@
+package smallerbasic;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.TokenStream;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Compares parsing with {@link org.antlr.v4.runtime.atn.PredictionMode#LL} against the two-stage strategy of
+ * {@link CompilationUtils#parse(TokenStream)}, on the examples, on the test corpus and on a generated
+ * program made mostly of expressions.
+ * Run with {@code gradle benchmark}.
+ */
+@Tag("benchmark")
+public class ParsingBenchmark {
+    private static final int WARMUP = 20;
+    private static final int RUNS = 50;
+
+    private static long time(String text, boolean twoStage) {
+        long start = System.nanoTime();
+        try {
+            TokenStream tokens = CompilationUtils.lex(CharStreams.fromString(text), d -> {});
+            CompilationUtils.parse(tokens, d -> {}, twoStage);
+        } catch (CompilationError e) {
+            // the programs with lexing or syntax errors are measured up to the failure
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * @return The total time in milliseconds spent parsing all the sources {@link #RUNS} times.
+     */
+    private static double measure(List<String> sources, boolean twoStage) {
+        for (int i = 0; i < WARMUP; i++)
+            sources.forEach(s -> time(s, twoStage));
+        long total = 0;
+        for (int i = 0; i < RUNS; i++)
+            for (String s : sources)
+                total += time(s, twoStage);
+        return total / 1e6;
+    }
+
+    private static List<String> corpus(String dir) throws IOException {
+        List<String> sources = new ArrayList<>();
+        // the test corpus keeps the programs with errors in a subdirectory
+        try (Stream<Path> files = Files.walk(Paths.get(dir))) {
+            for (Path p : files.filter(f -> f.toString().endsWith(".sb") && Files.isRegularFile(f)).sorted().toList())
+                sources.add(Files.readString(p));
+        }
+        return sources;
+    }
+
+    private static String expressions(int n) {
+        StringBuilder program = new StringBuilder();
+        for (int i = 0; i < n; i++)
+            program.append("X").append(i % 10).append(" = (A + ").append(i).append(") * B - C / (D - ")
+                    .append(i).append(") < E Or F = G And -H + I * (J - K) <> L\n");
+        return program.toString();
+    }
+
+    @Test
+    public void parsingBenchmark() throws IOException {
+        Map<String, List<String>> corpora = new LinkedHashMap<>();
+        corpora.put("examples", corpus("../examples"));
+        corpora.put("test corpus", corpus("src/test/resources"));
+        corpora.put("expressions", List.of(expressions(2000)));
+
+        System.out.printf("%-12s %12s %12s %8s%n", "corpus", "LL (ms)", "SLL/LL (ms)", "speedup");
+        for (Map.Entry<String, List<String>> c : corpora.entrySet()) {
+            double ll = measure(c.getValue(), false);
+            double twoStage = measure(c.getValue(), true);
+            System.out.printf("%-12s %12.1f %12.1f %7.2fx%n", c.getKey(), ll, twoStage, ll / twoStage);
+        }
+    }
+}
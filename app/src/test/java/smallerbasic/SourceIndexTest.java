@@ -0,0 +1,25 @@
+package smallerbasic;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SourceIndexTest {
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "",
+            "A = 1",
+            "A = 1\n",
+            "A = 1\nB = 2\n\nC = 3",
+            "\n\nA = 1\r\nB = 2\n\n\n"
+    })
+    void sameAsSplitTest(String text) {
+        String[] lines = text.split("\n");
+        SourceIndex index = new SourceIndex(text);
+
+        for (int i = 0; i < lines.length; i++)
+            assertThat(index.line(i + 1)).isEqualTo(lines[i]);
+        assertThat(index.line(text.split("\n", -1).length + 1)).isEmpty();
+    }
+}
@@ -0,0 +1,195 @@
+package smallerbasic;
+
+import org.junit.jupiter.api.Test;
+import smallerbasic.AST.analysis.Location;
+import smallerbasic.AST.analysis.TypeAnnotations;
+import smallerbasic.AST.analysis.TypeInference;
+import smallerbasic.AST.analysis.TypeSet;
+import smallerbasic.AST.nodes.*;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static smallerbasic.AST.analysis.ValueType.*;
+import static smallerbasic.CompilationUtils.*;
+
+public class TypeInferenceTest {
+
+    private static List<StatementASTNode> statements(ASTNode tree) {
+        return ((ProgramASTNode) tree).getContents().stream()
+                .filter(x -> x instanceof StatementASTNode)
+                .map(x -> (StatementASTNode) x)
+                .toList();
+    }
+
+    private static StatementASTNode firstOfRoutine(ASTNode tree, int i) {
+        return ((RoutineDeclASTNode) ((ProgramASTNode) tree).getContents().get(i)).getBody().get(0);
+    }
+
+    private static ExpressionASTNode arg(StatementASTNode call) {
+        return ((ExternalFunctionCallASTNode) call).getArgs().get(0);
+    }
+
+    private static Location var(String name) {
+        return Location.ofVariable(name);
+    }
+
+    @Test
+    public void straightLineTest() {
+        ASTNode tree = clean(parse(lex("""
+                X = 1
+                S = "a"
+                Y = X * 2
+                IO.WriteLine(Y)
+                """)));
+        List<StatementASTNode> s = statements(tree);
+        TypeAnnotations types = TypeInference.run(tree);
+
+        assertThat(types.before(s.get(0), var("X"))).isEqualTo(TypeSet.of(NULL));
+        assertThat(types.before(s.get(3), var("S"))).isEqualTo(TypeSet.of(STRING));
+        assertThat(types.before(s.get(3), var("Y"))).isEqualTo(TypeSet.of(NUMBER));
+        assertThat(types.typeOf(((AssStmtASTNode) s.get(2)).getValue())).isEqualTo(TypeSet.of(NUMBER));
+        assertThat(types.locations()).containsExactlyInAnyOrder(var("X"), var("S"), var("Y"));
+    }
+
+    @Test
+    public void ifJoinTest() {
+        ASTNode tree = clean(parse(lex("""
+                If (IO.ReadLine() = "y") Then
+                    X = 1
+                Else
+                    X = "a"
+                EndIf
+                IO.WriteLine(X)
+                """)));
+        List<StatementASTNode> s = statements(tree);
+        TypeAnnotations types = TypeInference.run(tree);
+
+        assertThat(types.before(s.get(1), var("X"))).isEqualTo(TypeSet.of(NUMBER, STRING));
+        assertThat(types.typeOf(arg(s.get(1)))).isEqualTo(TypeSet.of(NUMBER, STRING));
+    }
+
+    @Test
+    public void whileLoopTest() {
+        ASTNode tree = clean(parse(lex("""
+                X = 0
+                While (IO.ReadLine() = "y")
+                    IO.WriteLine(X)
+                    X = "a"
+                EndWhile
+                IO.WriteLine(X)
+                """)));
+        List<StatementASTNode> s = statements(tree);
+        TypeAnnotations types = TypeInference.run(tree);
+        StatementASTNode inner = ((WhileLoopASTNode) s.get(1)).getBody().get(0);
+
+        assertThat(types.typeOf(arg(inner))).isEqualTo(TypeSet.of(NUMBER, STRING));
+        assertThat(types.before(s.get(2), var("X"))).isEqualTo(TypeSet.of(NUMBER, STRING));
+    }
+
+    @Test
+    public void forLoopTest() {
+        ASTNode tree = clean(parse(lex("""
+                For I = 1 To 3
+                    IO.WriteLine(I)
+                EndFor
+                IO.WriteLine(I)
+                """)));
+        List<StatementASTNode> s = statements(tree);
+        TypeAnnotations types = TypeInference.run(tree);
+        StatementASTNode inner = ((ForLoopASTNode) s.get(0)).getBody().get(0);
+
+        assertThat(types.typeOf(arg(inner))).isEqualTo(TypeSet.of(NUMBER));
+        assertThat(types.before(s.get(1), var("I"))).isEqualTo(TypeSet.of(NUMBER));
+    }
+
+    @Test
+    public void nullCoercionTest() {
+        ASTNode tree = clean(parse(lex("""
+                Y = X - 1
+                IO.WriteLine(X)
+                Z = W + V
+                IO.WriteLine(Z)
+                """)));
+        List<StatementASTNode> s = statements(tree);
+        TypeAnnotations types = TypeInference.run(tree);
+        BinOpASTNode minus = (BinOpASTNode) ((AssStmtASTNode) s.get(0)).getValue();
+
+        assertThat(types.typeOf(minus.getLeft())).isEqualTo(TypeSet.of(NULL));
+        assertThat(types.before(s.get(1), var("X"))).isEqualTo(TypeSet.of(NUMBER));
+        // adding two null values always fails
+        assertThat(types.isReachable(s.get(2))).isTrue();
+        assertThat(types.isReachable(s.get(3))).isFalse();
+        assertThat(types.before(s.get(3), var("Z"))).isEqualTo(TypeSet.EMPTY);
+    }
+
+    @Test
+    public void gotoTest() {
+        ASTNode tree = clean(parse(lex("""
+                Goto end
+                X = 1
+                end:
+                IO.WriteLine(X)
+                """)));
+        List<StatementASTNode> s = statements(tree);
+        TypeAnnotations types = TypeInference.run(tree);
+
+        assertThat(types.isReachable(s.get(1))).isFalse();
+        assertThat(types.isReachable(s.get(2))).isTrue();
+        assertThat(types.before(s.get(3), var("X"))).isEqualTo(TypeSet.of(NULL));
+        assertThat(types.typeOf(((AssStmtASTNode) s.get(1)).getValue())).isEqualTo(TypeSet.EMPTY);
+    }
+
+    @Test
+    public void routineTest() {
+        ASTNode tree = clean(parse(lex("""
+                Sub Init
+                    X = "a"
+                EndSub
+                Sub Never
+                    Y = 1
+                EndSub
+                IO.WriteLine(1)
+                Init()
+                IO.WriteLine(X)
+                """)));
+        List<StatementASTNode> s = statements(tree);
+        TypeAnnotations types = TypeInference.run(tree);
+
+        assertThat(types.before(s.get(1), var("X"))).isEqualTo(TypeSet.of(NULL));
+        assertThat(types.before(s.get(2), var("X"))).isEqualTo(TypeSet.of(STRING));
+        assertThat(types.isReachable(firstOfRoutine(tree, 0))).isTrue();
+        assertThat(types.isReachable(firstOfRoutine(tree, 1))).isFalse();
+    }
+
+    @Test
+    public void arrayTest() {
+        ASTNode tree = clean(parse(lex("""
+                A[1] = 3
+                B = A[2]
+                IO.WriteLine(B)
+                M[1][2] = "a"
+                IO.WriteLine(M[1][2])
+                """)));
+        List<StatementASTNode> s = statements(tree);
+        TypeAnnotations types = TypeInference.run(tree);
+
+        assertThat(types.before(s.get(1), var("A"))).isEqualTo(TypeSet.of(ARRAY));
+        assertThat(types.before(s.get(1), Location.ofElements("A", 1))).isEqualTo(TypeSet.of(NULL, NUMBER));
+        assertThat(types.typeOf(((AssStmtASTNode) s.get(1)).getValue())).isEqualTo(TypeSet.of(NULL, NUMBER));
+        // copying a null value fails, so B can only be a number afterwards
+        assertThat(types.before(s.get(2), var("B"))).isEqualTo(TypeSet.of(NUMBER));
+        assertThat(types.before(s.get(4), Location.ofElements("M", 1))).isEqualTo(TypeSet.of(NULL, ARRAY));
+        assertThat(types.typeOf(arg(s.get(4)))).isEqualTo(TypeSet.of(NULL, STRING));
+    }
+
+    @Test
+    public void unknownLocationTest() {
+        ASTNode tree = clean(parse(lex("X = 1\n")));
+        TypeAnnotations types = TypeInference.run(tree);
+
+        assertThatThrownBy(() -> types.before(statements(tree).get(0), var("Y")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
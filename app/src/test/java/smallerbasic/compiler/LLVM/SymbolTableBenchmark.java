@@ -0,0 +1,96 @@
+package smallerbasic.compiler.LLVM;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import smallerbasic.AST.ASTWalker;
+import smallerbasic.AST.nodes.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static smallerbasic.CompilationUtils.lex;
+import static smallerbasic.CompilationUtils.parseToAST;
+
+/**
+ * Measures building a {@link SymbolTable} and then looking up the binding of every leaf, as code generation does,
+ * on the examples and on generated programs with many distinct names.
+ * Run with {@code gradle benchmark}.
+ */
+@Tag("benchmark")
+public class SymbolTableBenchmark {
+    private static final int WARMUP = 20;
+    private static final int RUNS = 50;
+
+    private static long time(ASTNode tree, List<ASTNode> nodes) {
+        long start = System.nanoTime();
+        SymbolTable symbols = new SymbolTable(tree, new VarNameGenerator());
+        for (ASTNode n : nodes)
+            symbols.getBinding(n);
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * @return The total time in milliseconds spent on all the trees {@link #RUNS} times.
+     */
+    private static double measure(List<ASTNode> trees) {
+        List<List<ASTNode>> nodes = new ArrayList<>();
+        for (ASTNode tree : trees) {
+            List<ASTNode> l = new ArrayList<>();
+            ASTWalker.walk(tree, new ASTWalker.Listener() {
+                @Override
+                public void exit(ASTNode n) {
+                    if (ASTWalker.children(n).isEmpty())
+                        l.add(n);
+                }
+            });
+            nodes.add(l);
+        }
+        for (int i = 0; i < WARMUP; i++)
+            for (int j = 0; j < trees.size(); j++)
+                time(trees.get(j), nodes.get(j));
+        long total = 0;
+        for (int i = 0; i < RUNS; i++)
+            for (int j = 0; j < trees.size(); j++)
+                total += time(trees.get(j), nodes.get(j));
+        return total / 1e6;
+    }
+
+    private static List<ASTNode> corpus(String dir) throws IOException {
+        List<ASTNode> trees = new ArrayList<>();
+        try (Stream<Path> files = Files.list(Paths.get(dir))) {
+            for (Path p : files.filter(f -> f.toString().endsWith(".sb")).sorted().toList())
+                trees.add(parseToAST(lex(CharStreams.fromPath(p), d -> {}), d -> {}));
+        }
+        return trees;
+    }
+
+    private static ASTNode names(int n) {
+        StringBuilder program = new StringBuilder();
+        for (int i = 0; i < n; i++)
+            program.append("Label").append(i).append(":\n")
+                    .append("Variable").append(i % 500).append(" = Variable").append((i + 1) % 500)
+                    .append(" + Counter * ").append(i % 100).append(" + \"text").append(i % 50).append("\"\n")
+                    .append("If (Flag").append(i % 20).append(" = true) Then\nGoto Label").append(i / 2).append("\nEndIf\n");
+        return parseToAST(lex(CharStreams.fromString(program.toString()), d -> {}), d -> {});
+    }
+
+    @Test
+    public void symbolTableBenchmark() throws IOException {
+        Map<String, List<ASTNode>> corpora = new LinkedHashMap<>();
+        corpora.put("examples", corpus("../examples"));
+        corpora.put("test corpus", corpus("src/test/resources"));
+        corpora.put("names", List.of(names(5000)));
+
+        System.out.printf("%-12s %12s%n", "corpus", "time (ms)");
+        for (Map.Entry<String, List<ASTNode>> c : corpora.entrySet())
+            System.out.printf("%-12s %12.1f%n", c.getKey(), measure(c.getValue()));
+    }
+}